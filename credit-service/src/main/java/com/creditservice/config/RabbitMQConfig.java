@@ -7,15 +7,25 @@ import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 @EnableRabbit
 public class RabbitMQConfig {
     
     public static final String EXCHANGE_NAME = "ccm.events";
     public static final String CREDIT_ISSUED_ROUTING_KEY = "credit.issued";
+    public static final String VERIFICATION_QUEUE = "credit_service_verification_queue";
+    // verification.approved re-routed by user into partitions, one ordered consumer each
+    public static final String VERIFICATION_PARTITION_EXCHANGE = "credit.verification.partitions";
+    // verification.approved events that still failed when minted on their own
+    public static final String VERIFICATION_DEAD_LETTER_QUEUE = VERIFICATION_QUEUE + ".dlq";
     
     @Bean
     public TopicExchange ccmEventsExchange() {
@@ -41,4 +51,34 @@ public class RabbitMQConfig {
         factory.setMessageConverter(jsonMessageConverter());
         return factory;
     }
+
+    /**
+     * Partition queues for batched verification.approved consumption.
+     * Single active consumer: across all instances only one consumer reads a partition at a time.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "credit.verification.batch.enabled", havingValue = "true", matchIfMissing = true)
+    public Declarables verificationPartitionDeclarables(
+            @Value("${credit.verification.batch.partitions:4}") int partitions) {
+        DirectExchange exchange = new DirectExchange(VERIFICATION_PARTITION_EXCHANGE, true, false);
+        List<Declarable> declarables = new ArrayList<>();
+        declarables.add(exchange);
+        declarables.add(QueueBuilder.durable(VERIFICATION_DEAD_LETTER_QUEUE).build());
+        for (int partition = 0; partition < partitions; partition++) {
+            Queue queue = QueueBuilder.durable(verificationPartitionQueue(partition))
+                    .singleActiveConsumer()
+                    .build();
+            declarables.add(queue);
+            declarables.add(BindingBuilder.bind(queue).to(exchange).with(verificationPartitionRoutingKey(partition)));
+        }
+        return new Declarables(declarables);
+    }
+
+    public static String verificationPartitionQueue(int partition) {
+        return VERIFICATION_QUEUE + ".p" + partition;
+    }
+
+    public static String verificationPartitionRoutingKey(int partition) {
+        return "verification.approved.p" + partition;
+    }
 }
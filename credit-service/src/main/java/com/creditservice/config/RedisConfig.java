@@ -31,7 +31,6 @@ import java.util.Map;
  * 
  * Provides caching for:
  * - Credit account balance (5 minutes TTL)
- * - Credit statistics (30 minutes TTL)
  * - Transaction history (10 minutes TTL)
  * - Recent transactions (2 minutes TTL)
  */
@@ -156,9 +155,6 @@ public class RedisConfig {
         // Credit account balance - 5 minutes
         cacheConfigurations.put("creditAccount", defaultConfig.entryTtl(Duration.ofMinutes(5)));
         
-        // Credit statistics - 30 minutes (changes less frequently)
-        cacheConfigurations.put("creditStatistics", defaultConfig.entryTtl(Duration.ofMinutes(30)));
-        
         // Transaction history - 10 minutes
         cacheConfigurations.put("transactionHistory", defaultConfig.entryTtl(Duration.ofMinutes(10)));
         
@@ -1,11 +1,14 @@
 package com.creditservice.controllers;
 
 import com.creditservice.dtos.requests.AddCreditRequest;
+import com.creditservice.dtos.requests.BulkAddCreditRequest;
 import com.creditservice.dtos.requests.DeductCreditRequest;
 import com.creditservice.dtos.requests.TransferCreditRequest;
 import com.creditservice.dtos.response.ApiResponse;
+import com.creditservice.dtos.response.BulkAddCreditResponse;
 import com.creditservice.dtos.response.CreditResponse;
 import com.creditservice.dtos.response.CreditStatisticsResponse;
+import com.creditservice.dtos.response.LedgerMetricsResponse;
 import com.creditservice.dtos.response.TransferCreditResponse;
 import com.creditservice.services.CreditService;
 import jakarta.validation.Valid;
@@ -84,6 +87,25 @@ public class CreditController {
         return ResponseEntity.status(result.getStatus()).body(result);
     }
 
+    /**
+     * Add credits to many user accounts in one request; results are reported per item
+     * POST /api/v1/credits/add/bulk
+     */
+    @PostMapping("/add/bulk")
+    public ResponseEntity<ApiResponse<BulkAddCreditResponse>> addCreditBulk(
+            @Valid @RequestBody BulkAddCreditRequest request) {
+        log.info("Adding credits in bulk: {} items", request.getItems().size());
+
+        BulkAddCreditResponse response = creditService.addCreditBulk(request);
+        var result = ApiResponse.<BulkAddCreditResponse>builder()
+                .status(200)
+                .message("Bulk credit add processed")
+                .data(response)
+                .build();
+
+        return ResponseEntity.status(result.getStatus()).body(result);
+    }
+
     /**
      * Deduct credits from user account
      * POST /api/v1/credits/deduct
@@ -160,4 +182,20 @@ public class CreditController {
 
         return ResponseEntity.status(result.getStatus()).body(result);
     }
+
+    /**
+     * Get group-commit ledger writer metrics (batch size, flush latency)
+     * GET /api/v1/credits/ledger/metrics
+     */
+    @GetMapping("/ledger/metrics")
+    public ResponseEntity<ApiResponse<LedgerMetricsResponse>> getLedgerMetrics() {
+        LedgerMetricsResponse response = creditService.getLedgerMetrics();
+        var result = ApiResponse.<LedgerMetricsResponse>builder()
+                .status(200)
+                .message("Ledger metrics fetched")
+                .data(response)
+                .build();
+
+        return ResponseEntity.status(result.getStatus()).body(result);
+    }
 }
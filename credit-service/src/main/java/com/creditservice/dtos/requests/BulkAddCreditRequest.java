@@ -0,0 +1,21 @@
+package com.creditservice.dtos.requests;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkAddCreditRequest {
+    // Items are validated one by one so a bad item is reported without rejecting the rest
+    @NotEmpty(message = "At least one item is required")
+    @Size(max = 5000, message = "At most 5000 items per request")
+    private List<AddCreditRequest> items;
+}
@@ -0,0 +1,25 @@
+package com.creditservice.dtos.response;
+
+import com.creditservice.enums.BulkItemStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkAddCreditItemResponse {
+    private Integer index;
+    private UUID userId;
+    private Double amount;
+    private UUID relatedTripId;
+    private BulkItemStatus status;
+    private UUID transactionId;
+    private Double balanceBefore;
+    private Double balanceAfter;
+    private String error;
+}
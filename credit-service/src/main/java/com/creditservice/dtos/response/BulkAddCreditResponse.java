@@ -0,0 +1,21 @@
+package com.creditservice.dtos.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkAddCreditResponse {
+    private Integer totalItems;
+    private Integer appliedItems;
+    private Integer rejectedItems;
+    private Integer failedItems;
+    private Integer affectedUsers;
+    private List<BulkAddCreditItemResponse> results;
+}
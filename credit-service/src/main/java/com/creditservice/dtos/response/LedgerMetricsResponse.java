@@ -0,0 +1,36 @@
+package com.creditservice.dtos.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerMetricsResponse {
+    private Integer lanes;
+
+    // Throughput
+    private Long batches;
+    private Long operations;
+    private Long crossLaneOperations;
+    private Long failedOperations;
+    private Long fallbackBatches;
+    private Long rejected;
+    private Integer queued;
+    private List<Integer> queuedPerLane;
+
+    // Batch size
+    private Integer maxBatchSize;
+    private Double averageBatchSize;
+    private Long maxObservedBatchSize;
+
+    // Latency
+    private Double averageFlushMillis;
+    private Double maxFlushMillis;
+    private Double averageCommitWaitMillis;
+}
@@ -0,0 +1,49 @@
+package com.creditservice.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * One slot of the running credit totals; the statistics are the sum over all slots.
+ * Writers add their deltas to a random slot so concurrent transactions rarely wait on the same row.
+ */
+@Entity
+@Table(name = "credit_stats")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreditStats {
+    @Id
+    @Column(name = "slot", nullable = false)
+    private Integer slot;
+
+    @Column(name = "accounts", nullable = false)
+    private Long accounts;
+
+    @Column(name = "balance", nullable = false)
+    private Double balance;
+
+    @Column(name = "total_earned", nullable = false)
+    private Double totalEarned;
+
+    @Column(name = "total_spent", nullable = false)
+    private Double totalSpent;
+
+    @Column(name = "total_transferred_in", nullable = false)
+    private Double totalTransferredIn;
+
+    @Column(name = "total_transferred_out", nullable = false)
+    private Double totalTransferredOut;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @Column(name = "reconciled_at")
+    private Instant reconciledAt;
+}
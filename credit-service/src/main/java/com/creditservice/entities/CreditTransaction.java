@@ -11,7 +11,9 @@ import java.time.Instant;
 import java.util.UUID;
 
 @Entity
-@Table(name = "credit_transactions")
+@Table(name = "credit_transactions", indexes = {
+        @Index(name = "idx_credit_tx_related_trip", columnList = "related_trip_id")
+})
 @Data
 @Builder
 @NoArgsConstructor
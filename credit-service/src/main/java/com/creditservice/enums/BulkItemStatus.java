@@ -0,0 +1,23 @@
+package com.creditservice.enums;
+
+public enum BulkItemStatus {
+    APPLIED("Applied", "Credits were added and recorded in the ledger"),
+    REJECTED("Rejected", "Item failed validation and was not applied"),
+    FAILED("Failed", "Item was valid but could not be written");
+
+    private final String displayName;
+    private final String description;
+
+    BulkItemStatus(String displayName, String description) {
+        this.displayName = displayName;
+        this.description = description;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -1,17 +1,25 @@
 package com.creditservice.events;
 
 import com.creditservice.config.RabbitMQConfig;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class EventPublisher {
     
     private final RabbitTemplate rabbitTemplate;
+    private final long confirmTimeoutMs;
+
+    public EventPublisher(RabbitTemplate rabbitTemplate,
+                          @Value("${credit.events.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+    }
     
     public void publishCreditIssued(CreditEvent event) {
         try {
@@ -26,4 +34,44 @@ public class EventPublisher {
             log.error("❌ Failed to publish credit.issued event", e);
         }
     }
+
+    /**
+     * Publish many credit.issued events over one channel instead of one checkout per event
+     */
+    public void publishCreditIssuedBatch(List<CreditEvent> events) {
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (CreditEvent event : events) {
+                    operations.convertAndSend(
+                            RabbitMQConfig.EXCHANGE_NAME,
+                            RabbitMQConfig.CREDIT_ISSUED_ROUTING_KEY,
+                            event
+                    );
+                }
+                return null;
+            });
+            log.info("📤 Published {} credit.issued events", events.size());
+        } catch (Exception e) {
+            log.error("❌ Failed to publish {} credit.issued events", events.size(), e);
+        }
+    }
+
+    /**
+     * Publish credit.issued events and wait for the broker to confirm them.
+     * Unlike {@link #publishCreditIssuedBatch} a failure is thrown, so the caller can retry the delivery.
+     */
+    public void publishCreditIssuedBatchConfirmed(List<CreditEvent> events) {
+        rabbitTemplate.invoke(operations -> {
+            for (CreditEvent event : events) {
+                operations.convertAndSend(
+                        RabbitMQConfig.EXCHANGE_NAME,
+                        RabbitMQConfig.CREDIT_ISSUED_ROUTING_KEY,
+                        event
+                );
+            }
+            operations.waitForConfirmsOrDie(confirmTimeoutMs);
+            return null;
+        });
+        log.info("📤 Published {} credit.issued events (confirmed)", events.size());
+    }
 }
@@ -0,0 +1,312 @@
+package com.creditservice.events;
+
+import com.creditservice.config.RabbitMQConfig;
+import com.creditservice.dtos.requests.AddCreditRequest;
+import com.creditservice.exceptions.LedgerUnavailableException;
+import com.creditservice.services.CreditService;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.BatchMessageListener;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Batched, per-user ordered consumption of verification.approved.
+ * <p>
+ * Two stages:
+ * <ol>
+ *   <li>Router: one exclusive consumer on {@code credit_service_verification_queue} re-publishes each
+ *   event, unchanged, to partition {@code hash(userId) % partitions} and acks once the broker has
+ *   confirmed the whole batch.</li>
+ *   <li>Partitions: one single-active-consumer queue per partition, each drained by one consumer in
+ *   batches of up to {@code batch-size}. A batch is grouped by user and minted in one transaction
+ *   (missing accounts created by the same upsert), its credit.issued events are published with broker
+ *   confirms, and the batch is acked only after both.</li>
+ * </ol>
+ * All events of a user land in the same partition in arrival order, and each partition has exactly one
+ * active consumer across instances, so per-user ordering holds while partitions run concurrently.
+ * <p>
+ * Transient failures (database or broker unavailable, lock conflicts) requeue the batch as a whole after
+ * a back-off. On redelivery already minted trips are not minted again but their credit.issued events are
+ * published again, so an event lost to a failed publish is still delivered (consumers see it at least once).
+ * Any other failure falls back to minting the batch one event at a time; events that still fail are moved
+ * to {@code credit_service_verification_queue.dlq} with the error in their headers instead of blocking
+ * the partition. Changing the partition count while events are in flight can reorder events of a user once.
+ * <p>
+ * Disable with credit.verification.batch.enabled=false to fall back to
+ * {@link VerificationEventListener#handleVerificationApproved}.
+ */
+@Component
+@ConditionalOnProperty(name = "credit.verification.batch.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class VerificationBatchConsumer implements SmartLifecycle {
+    private final CreditService creditService;
+    private final RabbitTemplate rabbitTemplate;
+    private final ConnectionFactory connectionFactory;
+    private final ObjectReader eventReader;
+
+    private final int partitions;
+    private final int batchSize;
+    private final long receiveTimeoutMs;
+    private final long confirmTimeoutMs;
+    private final long failureBackoffMs;
+
+    private final List<SimpleMessageListenerContainer> containers = new ArrayList<>();
+    private volatile boolean running;
+
+    public VerificationBatchConsumer(CreditService creditService,
+                                     RabbitTemplate rabbitTemplate,
+                                     ConnectionFactory connectionFactory,
+                                     ObjectMapper objectMapper,
+                                     @Value("${credit.verification.batch.partitions:4}") int partitions,
+                                     @Value("${credit.verification.batch.batch-size:200}") int batchSize,
+                                     @Value("${credit.verification.batch.receive-timeout-ms:200}") long receiveTimeoutMs,
+                                     @Value("${credit.verification.batch.confirm-timeout-ms:5000}") long confirmTimeoutMs,
+                                     @Value("${credit.verification.batch.failure-backoff-ms:1000}") long failureBackoffMs) {
+        this.creditService = creditService;
+        this.rabbitTemplate = rabbitTemplate;
+        this.connectionFactory = connectionFactory;
+        // Producers may add fields; unknown properties must not turn an event into poison
+        this.eventReader = objectMapper.readerFor(VerificationApprovedEvent.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.partitions = Math.max(1, partitions);
+        this.batchSize = Math.max(1, batchSize);
+        this.receiveTimeoutMs = receiveTimeoutMs;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+        this.failureBackoffMs = failureBackoffMs;
+    }
+
+    @Override
+    public void start() {
+        SimpleMessageListenerContainer router = container(RabbitMQConfig.VERIFICATION_QUEUE, this::route);
+        // Exclusive: a second instance's router stays on standby, so routing keeps arrival order
+        router.setExclusive(true);
+        containers.add(router);
+        for (int partition = 0; partition < partitions; partition++) {
+            containers.add(container(RabbitMQConfig.verificationPartitionQueue(partition), this::mint));
+        }
+        containers.forEach(SimpleMessageListenerContainer::start);
+        running = true;
+        log.info("🎯 VerificationBatchConsumer started - {} partitions, batch size {}", partitions, batchSize);
+    }
+
+    @Override
+    public void stop() {
+        containers.forEach(SimpleMessageListenerContainer::stop);
+        containers.forEach(SimpleMessageListenerContainer::destroy);
+        containers.clear();
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private SimpleMessageListenerContainer container(String queue, BatchMessageListener listener) {
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer(connectionFactory);
+        container.setQueueNames(queue);
+        container.setConcurrentConsumers(1);
+        container.setPrefetchCount(batchSize);
+        container.setConsumerBatchEnabled(true);
+        container.setBatchSize(batchSize);
+        container.setReceiveTimeout(receiveTimeoutMs);
+        // AUTO: the batch is acked when the listener returns, requeued when it throws
+        container.setAcknowledgeMode(AcknowledgeMode.AUTO);
+        container.setDefaultRequeueRejected(true);
+        container.setMessageListener(listener);
+        container.afterPropertiesSet();
+        return container;
+    }
+
+    /**
+     * Router stage: forward each event to its user's partition, wait for broker confirms
+     */
+    private void route(List<Message> messages) {
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (Message message : messages) {
+                    message.getMessageProperties().setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+                    operations.send(RabbitMQConfig.VERIFICATION_PARTITION_EXCHANGE,
+                            RabbitMQConfig.verificationPartitionRoutingKey(partitionOf(message)),
+                            message);
+                }
+                operations.waitForConfirmsOrDie(confirmTimeoutMs);
+                return null;
+            });
+            log.debug("Routed {} verification.approved events to partitions", messages.size());
+        } catch (RuntimeException e) {
+            log.error("❌ Failed to route {} verification.approved events", messages.size(), e);
+            backOffAndRethrow(e);
+        }
+    }
+
+    /**
+     * Partition stage: one transaction for the batch, acked after commit
+     */
+    private void mint(List<Message> messages) {
+        List<AddCreditRequest> items = new ArrayList<>(messages.size());
+        List<Message> sources = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            AddCreditRequest item = toRequest(message);
+            if (item != null) {
+                items.add(item);
+                sources.add(message);
+            }
+        }
+        if (items.isEmpty()) {
+            return;
+        }
+
+        try {
+            int minted = creditService.mintVerifiedTrips(items);
+            log.info("✅ Minted {} of {} verification.approved events", minted, messages.size());
+        } catch (RuntimeException e) {
+            if (isTransient(e)) {
+                log.error("❌ Failed to mint credits for {} verification.approved events", messages.size(), e);
+                backOffAndRethrow(e);
+            }
+            log.warn("Minting {} verification.approved events as a batch failed, minting them one at a time: {}",
+                    items.size(), e.getMessage());
+            mintEach(items, sources);
+        }
+    }
+
+    /**
+     * Fallback for a failed batch: one transaction per event, events that still fail are dead-lettered
+     */
+    private void mintEach(List<AddCreditRequest> items, List<Message> sources) {
+        int minted = 0;
+        List<Message> deadLetters = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            try {
+                minted += creditService.mintVerifiedTrips(List.of(items.get(i)));
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    // Redelivery skips what was minted so far and publishes its events again
+                    log.error("❌ Failed to mint verification.approved event for trip {}",
+                            items.get(i).getRelatedTripId(), e);
+                    backOffAndRethrow(e);
+                }
+                log.error("❌ Dead-lettering verification.approved event for trip {}",
+                        items.get(i).getRelatedTripId(), e);
+                Message message = sources.get(i);
+                message.getMessageProperties().setHeader("x-exception-class", e.getClass().getName());
+                message.getMessageProperties().setHeader("x-exception-message", String.valueOf(e.getMessage()));
+                deadLetters.add(message);
+            }
+        }
+        if (!deadLetters.isEmpty()) {
+            deadLetter(deadLetters);
+        }
+        log.info("✅ Minted {} of {} verification.approved events one at a time, {} dead-lettered",
+                minted, items.size(), deadLetters.size());
+    }
+
+    /**
+     * Move events to the dead-letter queue; the batch is acked only once the broker has confirmed them
+     */
+    private void deadLetter(List<Message> messages) {
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (Message message : messages) {
+                    message.getMessageProperties().setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+                    operations.send("", RabbitMQConfig.VERIFICATION_DEAD_LETTER_QUEUE, message);
+                }
+                operations.waitForConfirmsOrDie(confirmTimeoutMs);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.error("❌ Failed to dead-letter {} verification.approved events", messages.size(), e);
+            backOffAndRethrow(e);
+        }
+    }
+
+    /**
+     * Failures worth retrying the whole batch for, as opposed to a problem with one event
+     */
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException
+                || e instanceof LedgerUnavailableException
+                || e instanceof AmqpException;
+    }
+
+    private int partitionOf(Message message) {
+        VerificationApprovedEvent event = parse(message);
+        String userId = event != null && event.getUserId() != null ? event.getUserId().trim() : "";
+        int hash;
+        try {
+            hash = UUID.fromString(userId).hashCode();
+        } catch (IllegalArgumentException e) {
+            // Unparseable ids are rejected in the partition stage; any partition will do
+            hash = userId.hashCode();
+        }
+        return Math.floorMod(hash, partitions);
+    }
+
+    /**
+     * Same mapping as the single-message listener; malformed events are logged and dropped
+     */
+    private AddCreditRequest toRequest(Message message) {
+        VerificationApprovedEvent event = parse(message);
+        if (event == null) {
+            return null;
+        }
+        try {
+            Double amount = event.getCreditsAwarded() != null ? event.getCreditsAwarded() : event.getCo2SavedKg();
+            if (amount == null || amount <= 0) {
+                throw new IllegalArgumentException("no positive credit amount");
+            }
+            AddCreditRequest request = new AddCreditRequest();
+            request.setUserId(UUID.fromString(event.getUserId()));
+            request.setAmount(amount);
+            request.setDescription("Carbon credits from verified EV trip " + event.getTripId().substring(0, 8) + "...");
+            request.setRelatedTripId(UUID.fromString(event.getTripId()));
+            return request;
+        } catch (RuntimeException e) {
+            log.warn("Dropping invalid verification.approved event {}: {}", event, e.getMessage());
+            return null;
+        }
+    }
+
+    private VerificationApprovedEvent parse(Message message) {
+        try {
+            return eventReader.readValue(message.getBody());
+        } catch (IOException e) {
+            log.warn("Dropping unreadable verification.approved message: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void backOffAndRethrow(RuntimeException e) {
+        try {
+            Thread.sleep(failureBackoffMs);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        throw e;
+    }
+}
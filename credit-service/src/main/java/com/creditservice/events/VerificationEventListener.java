@@ -25,11 +25,15 @@ public class VerificationEventListener {
         log.info("🎯🎯🎯 VerificationEventListener INITIALIZED - listening for verification.approved 🎯🎯🎯");
     }
     
+    /**
+     * One message per call; only started when the batch consumer is disabled.
+     * The binding is always declared so the queue keeps receiving events either way.
+     */
     @RabbitListener(bindings = @QueueBinding(
         value = @Queue(value = "credit_service_verification_queue", durable = "true"),
         exchange = @Exchange(value = "ccm.events", type = "topic", durable = "true"),
         key = "verification.approved"
-    ))
+    ), autoStartup = "#{!${credit.verification.batch.enabled:true}}")
     public void handleVerificationApproved(VerificationApprovedEvent event) {
         log.info("🎉 RECEIVED verification.approved event: {}", event);
         try {
@@ -0,0 +1,18 @@
+package com.creditservice.repositories;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Set-based balance mutations that Spring Data query methods cannot express
+ */
+public interface CreditBulkRepository {
+    /**
+     * Add earned credits to many accounts with one multi-row upsert, creating missing accounts.
+     * Rows are written in the map's iteration order; pass a sorted map to keep lock order stable.
+     *
+     * @return affected row count as reported by MySQL
+     */
+    int upsertEarnedAll(Map<UUID, Double> amountsByUser, Instant now);
+}
@@ -0,0 +1,50 @@
+package com.creditservice.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+public class CreditBulkRepositoryImpl implements CreditBulkRepository {
+    private static final String UPSERT_EARNED_PREFIX = "INSERT INTO credits (id, user_id, balance, total_earned, " +
+            "total_spent, total_transferred_in, total_transferred_out, created_at, updated_at) VALUES ";
+    private static final String UPSERT_EARNED_ROW = "(?, ?, ?, ?, 0, 0, 0, ?, ?)";
+    private static final String UPSERT_EARNED_SUFFIX = " ON DUPLICATE KEY UPDATE " +
+            "balance = balance + VALUES(balance), total_earned = total_earned + VALUES(total_earned), " +
+            "updated_at = VALUES(updated_at)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int upsertEarnedAll(Map<UUID, Double> amountsByUser, Instant now) {
+        if (amountsByUser.isEmpty()) {
+            return 0;
+        }
+
+        StringBuilder sql = new StringBuilder(UPSERT_EARNED_PREFIX);
+        for (int i = 0; i < amountsByUser.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append(UPSERT_EARNED_ROW);
+        }
+        sql.append(UPSERT_EARNED_SUFFIX);
+
+        // Same semantics as @Modifying(flushAutomatically = true, clearAutomatically = true)
+        entityManager.flush();
+        Query query = entityManager.createNativeQuery(sql.toString());
+        int position = 1;
+        for (Map.Entry<UUID, Double> entry : amountsByUser.entrySet()) {
+            query.setParameter(position++, UUID.randomUUID());
+            query.setParameter(position++, entry.getKey());
+            query.setParameter(position++, entry.getValue());
+            query.setParameter(position++, entry.getValue());
+            query.setParameter(position++, now);
+            query.setParameter(position++, now);
+        }
+        int updated = query.executeUpdate();
+        entityManager.clear();
+        return updated;
+    }
+}
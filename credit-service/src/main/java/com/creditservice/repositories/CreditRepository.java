@@ -2,17 +2,23 @@ package com.creditservice.repositories;
 
 import com.creditservice.entities.Credit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface CreditRepository extends JpaRepository<Credit, UUID> {
+public interface CreditRepository extends JpaRepository<Credit, UUID>, CreditBulkRepository {
     Optional<Credit> findByUserId(UUID userId);
 
+    List<Credit> findByUserIdIn(Collection<UUID> userIds);
+
     Boolean existsByUserId(UUID userId);
 
     @Query("SELECT SUM(c.balance) FROM Credit c")
@@ -32,4 +38,87 @@ public interface CreditRepository extends JpaRepository<Credit, UUID> {
 
     @Query("SELECT COUNT(c) FROM Credit c WHERE c.balance > :threshold")
     Long countUsersWithBalanceAbove(@Param("threshold") Double threshold);
+
+    /**
+     * All account totals in one scan (used to reconcile the running statistics)
+     */
+    @Query("SELECT COUNT(c) AS accounts, SUM(c.balance) AS balance, SUM(c.totalEarned) AS totalEarned, " +
+            "SUM(c.totalSpent) AS totalSpent, SUM(c.totalTransferredIn) AS totalTransferredIn, " +
+            "SUM(c.totalTransferredOut) AS totalTransferredOut FROM Credit c")
+    Totals aggregateTotals();
+
+    interface Totals {
+        Long getAccounts();
+
+        Double getBalance();
+
+        Double getTotalEarned();
+
+        Double getTotalSpent();
+
+        Double getTotalTransferredIn();
+
+        Double getTotalTransferredOut();
+    }
+
+    // ==================== ATOMIC BALANCE MUTATIONS ====================
+    // Balance arithmetic happens inside the statement, so concurrent operations on the same
+    // account cannot lose updates. The persistence context is cleared after each statement;
+    // read the account back with findByUserId in the same transaction.
+
+    /**
+     * Add earned credits, creating the account if missing (newId is only used on insert)
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO credits (id, user_id, balance, total_earned, total_spent, " +
+            "total_transferred_in, total_transferred_out, created_at, updated_at) " +
+            "VALUES (:newId, :userId, :amount, :amount, 0, 0, 0, :now, :now) " +
+            "ON DUPLICATE KEY UPDATE balance = balance + VALUES(balance), " +
+            "total_earned = total_earned + VALUES(total_earned), updated_at = VALUES(updated_at)",
+            nativeQuery = true)
+    int upsertEarned(@Param("newId") UUID newId,
+                     @Param("userId") UUID userId,
+                     @Param("amount") double amount,
+                     @Param("now") Instant now);
+
+    /**
+     * Add credits received from a transfer, creating the account if missing
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO credits (id, user_id, balance, total_earned, total_spent, " +
+            "total_transferred_in, total_transferred_out, created_at, updated_at) " +
+            "VALUES (:newId, :userId, :amount, 0, 0, :amount, 0, :now, :now) " +
+            "ON DUPLICATE KEY UPDATE balance = balance + VALUES(balance), " +
+            "total_transferred_in = total_transferred_in + VALUES(total_transferred_in), " +
+            "updated_at = VALUES(updated_at)",
+            nativeQuery = true)
+    int upsertTransferredIn(@Param("newId") UUID newId,
+                            @Param("userId") UUID userId,
+                            @Param("amount") double amount,
+                            @Param("now") Instant now);
+
+    /**
+     * Spend credits if the balance covers the amount
+     *
+     * @return 0 if the account does not exist or the balance is insufficient
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Credit c SET c.balance = c.balance - :amount, c.totalSpent = c.totalSpent + :amount, " +
+            "c.updatedAt = :now WHERE c.userId = :userId AND c.balance >= :amount")
+    int spendIfSufficient(@Param("userId") UUID userId,
+                          @Param("amount") double amount,
+                          @Param("now") Instant now);
+
+    /**
+     * Transfer credits out if the balance covers the amount
+     *
+     * @return 0 if the account does not exist or the balance is insufficient
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Credit c SET c.balance = c.balance - :amount, " +
+            "c.totalTransferredOut = c.totalTransferredOut + :amount, " +
+            "c.updatedAt = :now WHERE c.userId = :userId AND c.balance >= :amount")
+    int transferOutIfSufficient(@Param("userId") UUID userId,
+                                @Param("amount") double amount,
+                                @Param("now") Instant now);
 }
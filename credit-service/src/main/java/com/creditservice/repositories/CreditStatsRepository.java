@@ -0,0 +1,44 @@
+package com.creditservice.repositories;
+
+import com.creditservice.entities.CreditStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface CreditStatsRepository extends JpaRepository<CreditStats, Integer> {
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT IGNORE INTO credit_stats (slot, accounts, balance, total_earned, total_spent, " +
+            "total_transferred_in, total_transferred_out, updated_at) " +
+            "VALUES (:slot, 0, 0, 0, 0, 0, 0, :now)",
+            nativeQuery = true)
+    int createSlotIfMissing(@Param("slot") int slot, @Param("now") Instant now);
+
+    /**
+     * Add a delta to one slot inside the caller's transaction
+     *
+     * @return 0 if the slot does not exist
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE CreditStats s SET s.accounts = s.accounts + :accounts, s.balance = s.balance + :balance, " +
+            "s.totalEarned = s.totalEarned + :earned, s.totalSpent = s.totalSpent + :spent, " +
+            "s.totalTransferredIn = s.totalTransferredIn + :transferredIn, " +
+            "s.totalTransferredOut = s.totalTransferredOut + :transferredOut, " +
+            "s.updatedAt = :now WHERE s.slot = :slot")
+    int applyDelta(@Param("slot") int slot,
+                   @Param("accounts") long accounts,
+                   @Param("balance") double balance,
+                   @Param("earned") double earned,
+                   @Param("spent") double spent,
+                   @Param("transferredIn") double transferredIn,
+                   @Param("transferredOut") double transferredOut,
+                   @Param("now") Instant now);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE CreditStats s SET s.reconciledAt = :now WHERE s.slot = :slot")
+    int markReconciled(@Param("slot") int slot, @Param("now") Instant now);
+}
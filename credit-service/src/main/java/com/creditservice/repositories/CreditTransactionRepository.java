@@ -10,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -33,6 +34,11 @@ public interface CreditTransactionRepository extends JpaRepository<CreditTransac
     Double sumByUserIdAndType(@Param("userId") UUID userId,
                               @Param("type") TransactionType type);
 
+    @Query("SELECT ct.relatedTripId FROM CreditTransaction ct " +
+            "WHERE ct.transactionType = :type AND ct.relatedTripId IN :tripIds")
+    List<UUID> findRelatedTripIds(@Param("type") TransactionType type,
+                                  @Param("tripIds") Collection<UUID> tripIds);
+
     Long countByUserId(UUID userId);
 
     Long countByTransactionType(TransactionType transactionType);
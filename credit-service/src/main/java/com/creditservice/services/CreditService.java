@@ -1,11 +1,14 @@
 package com.creditservice.services;
 
 import com.creditservice.dtos.requests.AddCreditRequest;
+import com.creditservice.dtos.requests.BulkAddCreditRequest;
 import com.creditservice.dtos.requests.DeductCreditRequest;
 import com.creditservice.dtos.requests.TransferCreditRequest;
+import com.creditservice.dtos.response.BulkAddCreditResponse;
 import com.creditservice.dtos.response.CreditResponse;
 import com.creditservice.dtos.response.CreditStatisticsResponse;
 import com.creditservice.dtos.response.CreditTransactionResponse;
+import com.creditservice.dtos.response.LedgerMetricsResponse;
 import com.creditservice.dtos.response.TransferCreditResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -21,6 +24,10 @@ public interface CreditService {
 
     CreditResponse addCredit(AddCreditRequest request);
 
+    BulkAddCreditResponse addCreditBulk(BulkAddCreditRequest request);
+
+    int mintVerifiedTrips(List<AddCreditRequest> items);
+
     CreditResponse deductCredit(DeductCreditRequest request);
 
     TransferCreditResponse transferCredit(TransferCreditRequest request);
@@ -36,4 +43,6 @@ public interface CreditService {
     List<CreditTransactionResponse> getAllRecentTransactions(Instant since);
 
     CreditStatisticsResponse getCreditStatistics();
+
+    LedgerMetricsResponse getLedgerMetrics();
 }
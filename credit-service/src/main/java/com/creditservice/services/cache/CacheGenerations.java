@@ -0,0 +1,99 @@
+package com.creditservice.services.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Per-user cache generations for the transaction history caches.
+ * <p>
+ * Every history/recent cache key embeds the user's current generation, read from the Redis counter
+ * {@code credit:gen:{userId}}. Invalidating all cached pages of a user is one INCR: later reads build
+ * keys with the new generation and entries of older generations are never read again and expire by
+ * their own TTL. The cost does not depend on how many pages or limits were cached.
+ * <p>
+ * Counters start at the current epoch millis rather than 0, so a counter that expired or was evicted
+ * never comes back with a generation still referenced by live entries. The counter TTL is refreshed
+ * on every bump and must stay longer than the cache TTLs.
+ * <p>
+ * Used from cache key SpEL as {@code @cacheGenerations.current(#userId)}.
+ */
+@Component("cacheGenerations")
+@Slf4j
+public class CacheGenerations {
+    private static final String KEY_PREFIX = "credit:gen:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration ttl;
+
+    public CacheGenerations(StringRedisTemplate redisTemplate,
+                            @Value("${credit.cache.generation-ttl-hours:24}") long ttlHours) {
+        this.redisTemplate = redisTemplate;
+        this.ttl = Duration.ofHours(Math.max(1, ttlHours));
+    }
+
+    /**
+     * Current generation of a user, creating the counter on first use
+     */
+    public String current(UUID userId) {
+        String key = key(userId);
+        String generation = redisTemplate.opsForValue().get(key);
+        if (generation != null) {
+            return generation;
+        }
+        redisTemplate.opsForValue().setIfAbsent(key, String.valueOf(System.currentTimeMillis()), ttl);
+        generation = redisTemplate.opsForValue().get(key);
+        return generation != null ? generation : "0";
+    }
+
+    /**
+     * Invalidate every cached history page of the user.
+     * Runs after the write has committed, so a failure is logged instead of failing the write.
+     */
+    public void bump(UUID userId) {
+        bumpAll(List.of(userId));
+    }
+
+    /**
+     * Invalidate many users with one pipelined round trip
+     */
+    public void bumpAll(Collection<UUID> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        long seed = System.currentTimeMillis();
+        try {
+            List<Object> generations = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                for (UUID userId : userIds) {
+                    redis.incr(key(userId));
+                    redis.expire(key(userId), ttl.toSeconds());
+                }
+                return null;
+            });
+
+            // INCR on a missing counter starts at 1; move it to the epoch-millis range like a fresh counter
+            int i = 0;
+            for (UUID userId : userIds) {
+                if (Long.valueOf(1L).equals(generations.get(2 * i++))) {
+                    redisTemplate.opsForValue().set(key(userId), String.valueOf(seed), ttl);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to bump cache generation for {} users, cached history may be stale until TTL: {}",
+                    userIds.size(), e.getMessage());
+        }
+    }
+
+    private static String key(UUID userId) {
+        return KEY_PREFIX + userId;
+    }
+}
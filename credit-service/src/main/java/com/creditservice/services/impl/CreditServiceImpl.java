@@ -1,26 +1,39 @@
 package com.creditservice.services.impl;
 
 import com.creditservice.dtos.requests.AddCreditRequest;
+import com.creditservice.dtos.requests.BulkAddCreditRequest;
 import com.creditservice.dtos.requests.DeductCreditRequest;
 import com.creditservice.dtos.requests.TransferCreditRequest;
+import com.creditservice.dtos.response.BulkAddCreditItemResponse;
+import com.creditservice.dtos.response.BulkAddCreditResponse;
 import com.creditservice.dtos.response.CreditResponse;
 import com.creditservice.dtos.response.CreditStatisticsResponse;
 import com.creditservice.dtos.response.CreditTransactionResponse;
+import com.creditservice.dtos.response.LedgerMetricsResponse;
 import com.creditservice.dtos.response.TransferCreditResponse;
 import com.creditservice.entities.Credit;
 import com.creditservice.entities.CreditTransaction;
+import com.creditservice.enums.BulkItemStatus;
 import com.creditservice.enums.TransactionType;
 import com.creditservice.exceptions.*;
 import com.creditservice.mappers.CreditMapper;
-import com.creditservice.mappers.CreditStatisticsMapper;
 import com.creditservice.mappers.CreditTransactionMapper;
 import com.creditservice.repositories.CreditRepository;
 import com.creditservice.repositories.CreditTransactionRepository;
 import com.creditservice.services.CreditService;
+import com.creditservice.services.cache.CacheGenerations;
+import com.creditservice.services.ledger.BulkCreditMinter;
+import com.creditservice.services.ledger.GroupCommitLedgerWriter;
+import com.creditservice.services.ledger.LedgerOperation;
+import com.creditservice.services.ledger.LedgerResult;
+import com.creditservice.services.stats.CreditStatsDelta;
+import com.creditservice.services.stats.CreditStatsService;
 import com.creditservice.events.EventPublisher;
 import com.creditservice.events.CreditEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
@@ -28,10 +41,16 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -43,8 +62,12 @@ public class CreditServiceImpl implements CreditService {
     private final CreditTransactionRepository transactionRepository;
     private final CreditMapper creditMapper;
     private final CreditTransactionMapper transactionMapper;
-    private final CreditStatisticsMapper statisticsMapper;
+    private final CreditStatsService statsService;
     private final EventPublisher eventPublisher;
+    private final GroupCommitLedgerWriter ledgerWriter;
+    private final BulkCreditMinter bulkCreditMinter;
+    private final CacheManager cacheManager;
+    private final CacheGenerations cacheGenerations;
 
     @Override
     public CreditResponse createCreditAccount(UUID userId) {
@@ -68,6 +91,9 @@ public class CreditServiceImpl implements CreditService {
                 .build();
 
         Credit savedCredit = creditRepository.save(credit);
+        CreditStatsDelta stats = new CreditStatsDelta();
+        stats.accountCreated();
+        statsService.record(stats);
 
         log.info("Credit account created successfully for user: {}", userId);
 
@@ -87,12 +113,8 @@ public class CreditServiceImpl implements CreditService {
     }
 
     @Override
-    @Caching(evict = {
-        @CacheEvict(value = "creditAccount", key = "#request.userId.toString()"),
-        @CacheEvict(value = "transactionHistory", key = "#request.userId.toString()"),
-        @CacheEvict(value = "recentTransactions", key = "#request.userId.toString()"),
-        @CacheEvict(value = "creditStatistics", allEntries = true)
-    })
+    @CacheEvict(value = "creditAccount", key = "#request.userId.toString()")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public CreditResponse addCredit(AddCreditRequest request) {
         log.info("[CACHE INVALIDATE] Adding {} credits to user: {}", request.getAmount(), request.getUserId());
 
@@ -101,44 +123,14 @@ public class CreditServiceImpl implements CreditService {
             throw new InvalidCreditOperationException("Amount must be greater than 0");
         }
 
-        // Get or create credit account
-        Credit credit = creditRepository.findByUserId(request.getUserId())
-                .orElseGet(() -> {
-                    log.info("Credit account not found, creating new one for user: {}",
-                            request.getUserId());
-                    Credit newCredit = Credit.builder()
-                            .userId(request.getUserId())
-                            .balance(0.0)
-                            .totalEarned(0.0)
-                            .totalSpent(0.0)
-                            .totalTransferredIn(0.0)
-                            .totalTransferredOut(0.0)
-                            .build();
-                    return creditRepository.save(newCredit);
-                });
-
-        // Record balance before transaction
-        Double balanceBefore = credit.getBalance();
-
-        // Add credits
-        credit.addBalance(request.getAmount());
-
-        // Save updated credit
-        Credit updatedCredit = creditRepository.save(credit);
-
-        // Create transaction record
-        CreditTransaction transaction = CreditTransaction.builder()
-                .userId(request.getUserId())
-                .transactionType(TransactionType.EARNED_FROM_TRIP)
-                .amount(request.getAmount())
-                .balanceBefore(balanceBefore)
-                .balanceAfter(updatedCredit.getBalance())
-                .relatedTripId(request.getRelatedTripId())
-                .description(request.getDescription() != null ?
-                        request.getDescription() : "Credits earned from trip")
-                .build();
-
-        transactionRepository.save(transaction);
+        // Atomic upsert, committed by the group-commit ledger writer
+        LedgerResult result = ledgerWriter.execute(LedgerOperation.earn(
+                request.getUserId(),
+                request.getAmount(),
+                request.getRelatedTripId(),
+                request.getDescription() != null ? request.getDescription() : "Credits earned from trip"));
+        Credit updatedCredit = result.account();
+        cacheGenerations.bump(request.getUserId());
 
         log.info("Successfully added {} credits to user: {}. New balance: {}",
                 request.getAmount(), request.getUserId(), updatedCredit.getBalance());
@@ -157,12 +149,143 @@ public class CreditServiceImpl implements CreditService {
     }
 
     @Override
-    @Caching(evict = {
-        @CacheEvict(value = "creditAccount", key = "#request.userId.toString()"),
-        @CacheEvict(value = "transactionHistory", key = "#request.userId.toString()"),
-        @CacheEvict(value = "recentTransactions", key = "#request.userId.toString()"),
-        @CacheEvict(value = "creditStatistics", allEntries = true)
-    })
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BulkAddCreditResponse addCreditBulk(BulkAddCreditRequest request) {
+        List<AddCreditRequest> items = request.getItems();
+        log.info("[CACHE INVALIDATE] Adding credits in bulk: {} items", items.size());
+
+        // Validate each item on its own; only valid items reach the ledger
+        BulkAddCreditItemResponse[] results = new BulkAddCreditItemResponse[items.size()];
+        List<LedgerOperation> earns = new ArrayList<>();
+        List<Integer> earnIndexes = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            AddCreditRequest item = items.get(i);
+            String error = validateBulkItem(item);
+            if (error != null) {
+                results[i] = bulkItemResult(i, item, BulkItemStatus.REJECTED).error(error).build();
+                continue;
+            }
+            earns.add(LedgerOperation.earn(
+                    item.getUserId(),
+                    item.getAmount(),
+                    item.getRelatedTripId(),
+                    item.getDescription() != null ? item.getDescription() : "Credits earned from trip"));
+            earnIndexes.add(i);
+        }
+
+        // Per-user deltas applied set-based, ledger rows batch-inserted
+        List<BulkCreditMinter.Outcome> outcomes = bulkCreditMinter.mint(earns);
+
+        List<CreditEvent> events = new ArrayList<>();
+        Set<UUID> affectedUsers = new LinkedHashSet<>();
+        int applied = 0;
+        int failed = 0;
+        for (int j = 0; j < outcomes.size(); j++) {
+            int i = earnIndexes.get(j);
+            AddCreditRequest item = items.get(i);
+            BulkCreditMinter.Outcome outcome = outcomes.get(j);
+            if (outcome.error() != null) {
+                results[i] = bulkItemResult(i, item, BulkItemStatus.FAILED)
+                        .error(outcome.error().getMessage())
+                        .build();
+                failed++;
+                continue;
+            }
+            CreditTransaction transaction = outcome.transaction();
+            results[i] = bulkItemResult(i, item, BulkItemStatus.APPLIED)
+                    .transactionId(transaction.getId())
+                    .balanceBefore(transaction.getBalanceBefore())
+                    .balanceAfter(transaction.getBalanceAfter())
+                    .build();
+            events.add(CreditEvent.creditIssued(
+                    item.getUserId(),
+                    item.getAmount(),
+                    "TRIP",
+                    item.getRelatedTripId(),
+                    item.getDescription()
+            ));
+            affectedUsers.add(item.getUserId());
+            applied++;
+        }
+
+        // One invalidation pass and one batched publish for the whole request
+        evictAccountCaches(affectedUsers);
+        if (!events.isEmpty()) {
+            eventPublisher.publishCreditIssuedBatch(events);
+        }
+
+        log.info("Bulk credit add finished: {} applied, {} rejected, {} failed across {} users",
+                applied, items.size() - earns.size(), failed, affectedUsers.size());
+
+        return BulkAddCreditResponse.builder()
+                .totalItems(items.size())
+                .appliedItems(applied)
+                .rejectedItems(items.size() - earns.size())
+                .failedItems(failed)
+                .affectedUsers(affectedUsers.size())
+                .results(List.of(results))
+                .build();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int mintVerifiedTrips(List<AddCreditRequest> items) {
+        // Redelivered events: skip trips that already have an earn entry (and repeats within the batch)
+        Set<UUID> tripIds = new HashSet<>();
+        for (AddCreditRequest item : items) {
+            if (item.getRelatedTripId() != null) {
+                tripIds.add(item.getRelatedTripId());
+            }
+        }
+        Set<UUID> mintedTrips = tripIds.isEmpty() ? new HashSet<>() : new HashSet<>(
+                transactionRepository.findRelatedTripIds(TransactionType.EARNED_FROM_TRIP, tripIds));
+        Set<UUID> seenTrips = new HashSet<>();
+
+        List<LedgerOperation> earns = new ArrayList<>();
+        Set<UUID> affectedUsers = new LinkedHashSet<>();
+        List<CreditEvent> events = new ArrayList<>();
+        for (AddCreditRequest item : items) {
+            UUID tripId = item.getRelatedTripId();
+            if (tripId != null && !seenTrips.add(tripId)) {
+                continue;
+            }
+            // Already minted trips still get their event: the delivery that minted them may have failed to publish
+            events.add(CreditEvent.creditIssued(
+                    item.getUserId(),
+                    item.getAmount(),
+                    "TRIP",
+                    tripId,
+                    item.getDescription()
+            ));
+            if (tripId != null && mintedTrips.contains(tripId)) {
+                log.info("Skipping already minted trip {} for user {}", tripId, item.getUserId());
+                continue;
+            }
+            earns.add(LedgerOperation.earn(
+                    item.getUserId(),
+                    item.getAmount(),
+                    tripId,
+                    item.getDescription() != null ? item.getDescription() : "Credits earned from trip"));
+            affectedUsers.add(item.getUserId());
+        }
+
+        if (!earns.isEmpty()) {
+            // Missing accounts created and summed credits applied by one upsert, in one transaction
+            bulkCreditMinter.mintAll(earns);
+            evictAccountCaches(affectedUsers);
+        }
+        // Confirmed publish: a failure is thrown so the batch is redelivered and published again
+        if (!events.isEmpty()) {
+            eventPublisher.publishCreditIssuedBatchConfirmed(events);
+        }
+
+        log.info("Minted {} verified trips for {} users", earns.size(), affectedUsers.size());
+        return earns.size();
+    }
+
+    @Override
+    @CacheEvict(value = "creditAccount", key = "#request.userId.toString()")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public CreditResponse deductCredit(DeductCreditRequest request) {
         log.info("[CACHE INVALIDATE] Deducting {} credits from user: {}", request.getAmount(), request.getUserId());
 
@@ -171,37 +294,15 @@ public class CreditServiceImpl implements CreditService {
             throw new InvalidCreditOperationException("Amount must be greater than 0");
         }
 
-        // Get credit account
-        Credit credit = creditRepository.findByUserId(request.getUserId())
-                .orElseThrow(() -> new CreditNotFoundException(request.getUserId()));
-
-        // Check sufficient balance
-        if (credit.getBalance() < request.getAmount()) {
-            throw new InsufficientCreditException(request.getAmount(), credit.getBalance());
-        }
-
-        // Record balance before transaction
-        Double balanceBefore = credit.getBalance();
-
-        // Deduct credits
-        credit.deductBalance(request.getAmount());
-
-        // Save updated credit
-        Credit updatedCredit = creditRepository.save(credit);
-
-        // Create transaction record
-        CreditTransaction transaction = CreditTransaction.builder()
-                .userId(request.getUserId())
-                .transactionType(TransactionType.PURCHASED_FROM_MARKETPLACE)
-                .amount(request.getAmount())
-                .balanceBefore(balanceBefore)
-                .balanceAfter(updatedCredit.getBalance())
-                .relatedListingId(request.getRelatedListingId())
-                .description(request.getDescription() != null ?
-                        request.getDescription() : "Credits spent on marketplace purchase")
-                .build();
-
-        transactionRepository.save(transaction);
+        // Guarded atomic decrement, committed by the group-commit ledger writer
+        LedgerResult result = ledgerWriter.execute(LedgerOperation.spend(
+                request.getUserId(),
+                request.getAmount(),
+                request.getRelatedListingId(),
+                request.getDescription() != null ?
+                        request.getDescription() : "Credits spent on marketplace purchase"));
+        Credit updatedCredit = result.account();
+        cacheGenerations.bump(request.getUserId());
 
         log.info("Successfully deducted {} credits from user: {}. New balance: {}",
                 request.getAmount(), request.getUserId(), updatedCredit.getBalance());
@@ -212,13 +313,9 @@ public class CreditServiceImpl implements CreditService {
     @Override
     @Caching(evict = {
         @CacheEvict(value = "creditAccount", key = "#request.fromUserId.toString()"),
-        @CacheEvict(value = "creditAccount", key = "#request.toUserId.toString()"),
-        @CacheEvict(value = "transactionHistory", key = "#request.fromUserId.toString()"),
-        @CacheEvict(value = "transactionHistory", key = "#request.toUserId.toString()"),
-        @CacheEvict(value = "recentTransactions", key = "#request.fromUserId.toString()"),
-        @CacheEvict(value = "recentTransactions", key = "#request.toUserId.toString()"),
-        @CacheEvict(value = "creditStatistics", allEntries = true)
+        @CacheEvict(value = "creditAccount", key = "#request.toUserId.toString()")
     })
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public TransferCreditResponse transferCredit(TransferCreditRequest request) {
         log.info("[CACHE INVALIDATE] Transferring {} credits from user: {} to user: {}",
                 request.getAmount(), request.getFromUserId(), request.getToUserId());
@@ -233,71 +330,20 @@ public class CreditServiceImpl implements CreditService {
             throw new InvalidCreditOperationException("Cannot transfer credits to yourself");
         }
 
-        // Get sender's credit account
-        Credit senderCredit = creditRepository.findByUserId(request.getFromUserId())
-                .orElseThrow(() -> new CreditNotFoundException(request.getFromUserId()));
-
-        // Check sufficient balance
-        if (senderCredit.getBalance() < request.getAmount()) {
-            throw new InsufficientCreditException(request.getAmount(), senderCredit.getBalance());
-        }
-
-        // Get or create receiver's credit account
-        Credit receiverCredit = creditRepository.findByUserId(request.getToUserId())
-                .orElseGet(() -> {
-                    log.info("Creating credit account for receiver: {}", request.getToUserId());
-                    Credit newCredit = Credit.builder()
-                            .userId(request.getToUserId())
-                            .balance(0.0)
-                            .totalEarned(0.0)
-                            .totalSpent(0.0)
-                            .totalTransferredIn(0.0)
-                            .totalTransferredOut(0.0)
-                            .build();
-                    return creditRepository.save(newCredit);
-                });
-
-        // Record balances before transfer
-        Double senderBalanceBefore = senderCredit.getBalance();
-        Double receiverBalanceBefore = receiverCredit.getBalance();
-
-        // Execute transfer
-        senderCredit.transferOut(request.getAmount());
-        receiverCredit.transferIn(request.getAmount());
-
-        // Save updated credits
-        Credit updatedSenderCredit = creditRepository.save(senderCredit);
-        Credit updatedReceiverCredit = creditRepository.save(receiverCredit);
-
-        // Create sender transaction record
-        CreditTransaction senderTransaction = CreditTransaction.builder()
-                .userId(request.getFromUserId())
-                .transactionType(TransactionType.TRANSFERRED_OUT)
-                .amount(request.getAmount())
-                .balanceBefore(senderBalanceBefore)
-                .balanceAfter(updatedSenderCredit.getBalance())
-                .relatedUserId(request.getToUserId())
-                .description(request.getDescription() != null ?
+        // Guarded debit + upsert credit, committed by the group-commit ledger writer
+        LedgerResult result = ledgerWriter.execute(LedgerOperation.transfer(
+                request.getFromUserId(),
+                request.getToUserId(),
+                request.getAmount(),
+                request.getDescription() != null ?
                         request.getDescription() :
-                        "Credits transferred to user " + request.getToUserId())
-                .build();
-
-        CreditTransaction savedSenderTransaction = transactionRepository.save(senderTransaction);
-
-        // Create receiver transaction record
-        CreditTransaction receiverTransaction = CreditTransaction.builder()
-                .userId(request.getToUserId())
-                .transactionType(TransactionType.TRANSFERRED_IN)
-                .amount(request.getAmount())
-                .balanceBefore(receiverBalanceBefore)
-                .balanceAfter(updatedReceiverCredit.getBalance())
-                .relatedUserId(request.getFromUserId())
-                .description(request.getDescription() != null ?
+                        "Credits transferred to user " + request.getToUserId(),
+                request.getDescription() != null ?
                         request.getDescription() :
-                        "Credits received from user " + request.getFromUserId())
-                .build();
-
-        CreditTransaction savedReceiverTransaction = transactionRepository.save(receiverTransaction);
+                        "Credits received from user " + request.getFromUserId()));
+        CreditTransaction savedSenderTransaction = result.transactions().get(0);
+        CreditTransaction savedReceiverTransaction = result.transactions().get(1);
+        cacheGenerations.bumpAll(List.of(request.getFromUserId(), request.getToUserId()));
 
         log.info("Successfully transferred {} credits from user: {} to user: {}",
                 request.getAmount(), request.getFromUserId(), request.getToUserId());
@@ -338,7 +384,7 @@ public class CreditServiceImpl implements CreditService {
 
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "transactionHistory", key = "#userId.toString() + '_page_' + #pageable.pageNumber + '_size_' + #pageable.pageSize")
+    @Cacheable(value = "transactionHistory", key = "#userId.toString() + ':g' + @cacheGenerations.current(#userId) + '_page_' + #pageable.pageNumber + '_size_' + #pageable.pageSize")
     public Page<CreditTransactionResponse> getTransactionsByUserId(UUID userId, Pageable pageable) {
         log.info("[CACHE MISS] Fetching transactions for user: {} - page: {}, size: {}",
                 userId, pageable.getPageNumber(), pageable.getPageSize());
@@ -349,7 +395,7 @@ public class CreditServiceImpl implements CreditService {
 
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "recentTransactions", key = "#userId.toString() + '_limit_' + #limit")
+    @Cacheable(value = "recentTransactions", key = "#userId.toString() + ':g' + @cacheGenerations.current(#userId) + '_limit_' + #limit")
     public List<CreditTransactionResponse> getRecentTransactionsByUserId(UUID userId, int limit) {
         log.info("[CACHE MISS] Fetching recent {} transactions for user: {}", limit, userId);
 
@@ -373,26 +419,53 @@ public class CreditServiceImpl implements CreditService {
 
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "creditStatistics", key = "'global'")
     public CreditStatisticsResponse getCreditStatistics() {
-        log.info("[CACHE MISS] Calculating credit statistics");
-
-        Long totalUsersCount = creditRepository.count();
-        Integer totalUsers = totalUsersCount.intValue();
-
-        Double totalCredits = creditRepository.getTotalCredits();
-        Double totalEarned = creditRepository.getTotalEarned();
-        Double totalSpent = creditRepository.getTotalSpent();
-        Double totalTransferred = creditRepository.getTotalTransferred();
-        Double averageBalance = creditRepository.getAverageBalance();
-
-        return statisticsMapper.toStatisticsResponse(
-                totalUsers,
-                totalCredits,
-                totalEarned,
-                totalSpent,
-                totalTransferred,
-                averageBalance
-        );
+        // Running totals maintained by every mutation, no full-table aggregates
+        return statsService.snapshot();
+    }
+
+    @Override
+    public LedgerMetricsResponse getLedgerMetrics() {
+        return ledgerWriter.getMetrics();
+    }
+
+    private static String validateBulkItem(AddCreditRequest item) {
+        if (item == null) {
+            return "Item is required";
+        }
+        if (item.getUserId() == null) {
+            return "User ID is required";
+        }
+        if (item.getAmount() == null) {
+            return "Amount is required";
+        }
+        if (item.getAmount() < 0.1 || item.getAmount().isInfinite()) {
+            return "Amount must be at least 0.1 kg";
+        }
+        return null;
+    }
+
+    private static BulkAddCreditItemResponse.BulkAddCreditItemResponseBuilder bulkItemResult(
+            int index, AddCreditRequest item, BulkItemStatus status) {
+        return BulkAddCreditItemResponse.builder()
+                .index(index)
+                .userId(item != null ? item.getUserId() : null)
+                .amount(item != null ? item.getAmount() : null)
+                .relatedTripId(item != null ? item.getRelatedTripId() : null)
+                .status(status);
+    }
+
+    /**
+     * Same invalidation as a single-user write, applied once for many users
+     */
+    private void evictAccountCaches(Collection<UUID> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        Cache creditAccount = cacheManager.getCache("creditAccount");
+        if (creditAccount != null) {
+            userIds.forEach(userId -> creditAccount.evict(userId.toString()));
+        }
+        cacheGenerations.bumpAll(userIds);
     }
 }
@@ -0,0 +1,195 @@
+package com.creditservice.services.ledger;
+
+import com.creditservice.entities.Credit;
+import com.creditservice.entities.CreditTransaction;
+import com.creditservice.enums.TransactionType;
+import com.creditservice.repositories.CreditRepository;
+import com.creditservice.repositories.CreditTransactionRepository;
+import com.creditservice.services.stats.CreditStatsDelta;
+import com.creditservice.services.stats.CreditStatsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Mints many EARN operations with set-based SQL instead of one ledger round trip per item.
+ * <p>
+ * Amounts are summed per user and applied with one multi-row upsert per chunk of users, the
+ * accounts are read back with one query and the ledger rows are batch-inserted, all in one
+ * transaction per chunk. Each item still gets its own ledger entry, with running balances in
+ * request order. Users are processed in sorted order so concurrent bulk requests lock account
+ * rows in the same order; a chunk that loses a lock wait or deadlock is retried.
+ * <p>
+ * This runs beside the {@link GroupCommitLedgerWriter} lanes: earns are commutative and the
+ * account row lock held until commit keeps each read-back balance consistent.
+ */
+@Component
+@Slf4j
+public class BulkCreditMinter {
+    private final CreditRepository creditRepository;
+    private final CreditTransactionRepository transactionRepository;
+    private final CreditStatsService statsService;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxAttempts;
+
+    public BulkCreditMinter(CreditRepository creditRepository,
+                            CreditTransactionRepository transactionRepository,
+                            CreditStatsService statsService,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${credit.bulk.chunk-size:500}") int chunkSize,
+                            @Value("${credit.bulk.max-attempts:3}") int maxAttempts) {
+        this.creditRepository = creditRepository;
+        this.transactionRepository = transactionRepository;
+        this.statsService = statsService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /**
+     * Outcome of one operation: the saved ledger entry, or the error that failed its chunk
+     */
+    public record Outcome(CreditTransaction transaction, RuntimeException error) {
+    }
+
+    /**
+     * Apply EARN operations; a failed chunk fails only the operations of its users
+     *
+     * @return outcomes aligned with {@code earns}
+     */
+    public List<Outcome> mint(List<LedgerOperation> earns) {
+        Map<UUID, List<Integer>> indexesByUser = groupByUser(earns);
+
+        Outcome[] outcomes = new Outcome[earns.size()];
+        List<UUID> users = new ArrayList<>(indexesByUser.keySet());
+        for (int from = 0; from < users.size(); from += chunkSize) {
+            List<UUID> chunk = users.subList(from, Math.min(users.size(), from + chunkSize));
+            List<Integer> indexes = chunk.stream()
+                    .flatMap(userId -> indexesByUser.get(userId).stream())
+                    .toList();
+            try {
+                List<CreditTransaction> saved = mintChunk(chunk, indexesByUser, earns);
+                for (int i = 0; i < indexes.size(); i++) {
+                    outcomes[indexes.get(i)] = new Outcome(saved.get(i), null);
+                }
+            } catch (RuntimeException e) {
+                log.error("Bulk mint failed for a chunk of {} users ({} items)", chunk.size(), indexes.size(), e);
+                for (Integer index : indexes) {
+                    outcomes[index] = new Outcome(null, e);
+                }
+            }
+        }
+        return List.of(outcomes);
+    }
+
+    /**
+     * Apply EARN operations in a single transaction, all or nothing
+     *
+     * @return saved ledger entries aligned with {@code earns}
+     */
+    public List<CreditTransaction> mintAll(List<LedgerOperation> earns) {
+        Map<UUID, List<Integer>> indexesByUser = groupByUser(earns);
+        List<UUID> users = new ArrayList<>(indexesByUser.keySet());
+        List<CreditTransaction> saved = mintChunk(users, indexesByUser, earns);
+
+        CreditTransaction[] aligned = new CreditTransaction[earns.size()];
+        int position = 0;
+        for (UUID userId : users) {
+            for (Integer index : indexesByUser.get(userId)) {
+                aligned[index] = saved.get(position++);
+            }
+        }
+        return List.of(aligned);
+    }
+
+    /**
+     * Operation indexes per user, users sorted, each user's indexes in request order
+     */
+    private static Map<UUID, List<Integer>> groupByUser(List<LedgerOperation> earns) {
+        Map<UUID, List<Integer>> indexesByUser = new TreeMap<>();
+        for (int i = 0; i < earns.size(); i++) {
+            LedgerOperation operation = earns.get(i);
+            if (operation.kind() != LedgerOperation.Kind.EARN) {
+                throw new IllegalArgumentException("Bulk minting only supports EARN operations");
+            }
+            indexesByUser.computeIfAbsent(operation.userId(), userId -> new ArrayList<>()).add(i);
+        }
+        return indexesByUser;
+    }
+
+    private List<CreditTransaction> mintChunk(List<UUID> chunk, Map<UUID, List<Integer>> indexesByUser,
+                                              List<LedgerOperation> earns) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> applyChunk(chunk, indexesByUser, earns));
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                log.warn("Bulk mint chunk hit a lock conflict (attempt {}/{}), retrying", attempt, maxAttempts);
+            }
+        }
+    }
+
+    /**
+     * One transaction: multi-row upsert, one read-back, batched ledger insert, one statistics update.
+     * Ledger entries come back in chunk user order, each user's items in request order.
+     */
+    private List<CreditTransaction> applyChunk(List<UUID> chunk, Map<UUID, List<Integer>> indexesByUser,
+                                               List<LedgerOperation> earns) {
+        Map<UUID, Double> totals = new LinkedHashMap<>();
+        for (UUID userId : chunk) {
+            double total = 0.0;
+            for (Integer index : indexesByUser.get(userId)) {
+                total += earns.get(index).amount();
+            }
+            totals.put(userId, total);
+        }
+        int affected = creditRepository.upsertEarnedAll(totals, Instant.now());
+
+        Map<UUID, Credit> accounts = creditRepository.findByUserIdIn(chunk).stream()
+                .collect(Collectors.toMap(Credit::getUserId, Function.identity()));
+
+        List<CreditTransaction> transactions = new ArrayList<>();
+        for (UUID userId : chunk) {
+            // Rows stay locked until commit, so the read-back minus this chunk's total is the starting balance
+            double balance = accounts.get(userId).getBalance() - totals.get(userId);
+            for (Integer index : indexesByUser.get(userId)) {
+                LedgerOperation operation = earns.get(index);
+                double balanceBefore = balance;
+                balance += operation.amount();
+                transactions.add(CreditTransaction.builder()
+                        .userId(userId)
+                        .transactionType(TransactionType.EARNED_FROM_TRIP)
+                        .amount(operation.amount())
+                        .balanceBefore(balanceBefore)
+                        .balanceAfter(balance)
+                        .relatedTripId(operation.relatedTripId())
+                        .description(operation.description())
+                        .build());
+            }
+        }
+        List<CreditTransaction> saved = transactionRepository.saveAll(transactions);
+
+        // Multi-row upsert: 1 affected row per inserted account, 2 per updated one
+        CreditStatsDelta stats = new CreditStatsDelta();
+        stats.accountsCreated(2L * totals.size() - affected);
+        totals.values().forEach(stats::earned);
+        statsService.record(stats);
+        return saved;
+    }
+}
@@ -0,0 +1,137 @@
+package com.creditservice.services.ledger;
+
+import com.creditservice.entities.Credit;
+import com.creditservice.entities.CreditTransaction;
+import com.creditservice.enums.TransactionType;
+import com.creditservice.exceptions.CreditNotFoundException;
+import com.creditservice.exceptions.InsufficientCreditException;
+import com.creditservice.repositories.CreditRepository;
+import com.creditservice.services.stats.CreditStatsDelta;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Applies a {@link LedgerOperation} inside the caller's transaction.
+ * <p>
+ * Balances are changed with single-statement atomic updates and read back afterwards; the
+ * returned ledger entries are not persisted yet so the writer can insert a whole batch at once.
+ * Business failures (missing account, insufficient balance) are thrown before anything is
+ * written, so they never leave a partial mutation in a shared batch transaction.
+ * Successful operations add their effect on the global totals to the batch's {@link CreditStatsDelta}.
+ */
+@Component
+@RequiredArgsConstructor
+public class CreditLedger {
+    // MySQL reports 1 affected row when an upsert inserts and 2 when it updates an existing row
+    static final int UPSERT_INSERTED = 1;
+
+    private final CreditRepository creditRepository;
+
+    public LedgerResult apply(LedgerOperation operation, CreditStatsDelta stats) {
+        return switch (operation.kind()) {
+            case EARN -> earn(operation, stats);
+            case SPEND -> spend(operation, stats);
+            case TRANSFER -> transfer(operation, stats);
+        };
+    }
+
+    private LedgerResult earn(LedgerOperation operation, CreditStatsDelta stats) {
+        int affected = creditRepository.upsertEarned(UUID.randomUUID(), operation.userId(), operation.amount(), Instant.now());
+        Credit credit = findAccount(operation.userId());
+        if (affected == UPSERT_INSERTED) {
+            stats.accountCreated();
+        }
+        stats.earned(operation.amount());
+
+        CreditTransaction transaction = CreditTransaction.builder()
+                .userId(operation.userId())
+                .transactionType(TransactionType.EARNED_FROM_TRIP)
+                .amount(operation.amount())
+                .balanceBefore(credit.getBalance() - operation.amount())
+                .balanceAfter(credit.getBalance())
+                .relatedTripId(operation.relatedTripId())
+                .description(operation.description())
+                .build();
+        return new LedgerResult(credit, null, List.of(transaction));
+    }
+
+    private LedgerResult spend(LedgerOperation operation, CreditStatsDelta stats) {
+        if (creditRepository.spendIfSufficient(operation.userId(), operation.amount(), Instant.now()) == 0) {
+            throw insufficientOrNotFound(operation.userId(), operation.amount());
+        }
+        Credit credit = findAccount(operation.userId());
+        stats.spent(operation.amount());
+
+        CreditTransaction transaction = CreditTransaction.builder()
+                .userId(operation.userId())
+                .transactionType(TransactionType.PURCHASED_FROM_MARKETPLACE)
+                .amount(operation.amount())
+                .balanceBefore(credit.getBalance() + operation.amount())
+                .balanceAfter(credit.getBalance())
+                .relatedListingId(operation.relatedListingId())
+                .description(operation.description())
+                .build();
+        return new LedgerResult(credit, null, List.of(transaction));
+    }
+
+    private LedgerResult transfer(LedgerOperation operation, CreditStatsDelta stats) {
+        UUID fromUserId = operation.userId();
+        UUID toUserId = operation.counterpartyId();
+        Instant now = Instant.now();
+
+        // Guarded debit first: an insufficient sender fails before the receiver is touched
+        if (creditRepository.transferOutIfSufficient(fromUserId, operation.amount(), now) == 0) {
+            throw insufficientOrNotFound(fromUserId, operation.amount());
+        }
+        if (creditRepository.upsertTransferredIn(UUID.randomUUID(), toUserId, operation.amount(), now) == UPSERT_INSERTED) {
+            stats.accountCreated();
+        }
+        stats.transferred(operation.amount());
+
+        Map<UUID, Credit> accounts = creditRepository.findByUserIdIn(List.of(fromUserId, toUserId)).stream()
+                .collect(Collectors.toMap(Credit::getUserId, Function.identity()));
+        Credit sender = accounts.get(fromUserId);
+        Credit receiver = accounts.get(toUserId);
+
+        CreditTransaction senderTransaction = CreditTransaction.builder()
+                .userId(fromUserId)
+                .transactionType(TransactionType.TRANSFERRED_OUT)
+                .amount(operation.amount())
+                .balanceBefore(sender.getBalance() + operation.amount())
+                .balanceAfter(sender.getBalance())
+                .relatedUserId(toUserId)
+                .description(operation.description())
+                .build();
+        CreditTransaction receiverTransaction = CreditTransaction.builder()
+                .userId(toUserId)
+                .transactionType(TransactionType.TRANSFERRED_IN)
+                .amount(operation.amount())
+                .balanceBefore(receiver.getBalance() - operation.amount())
+                .balanceAfter(receiver.getBalance())
+                .relatedUserId(fromUserId)
+                .description(operation.counterpartyDescription())
+                .build();
+        return new LedgerResult(sender, receiver, List.of(senderTransaction, receiverTransaction));
+    }
+
+    private Credit findAccount(UUID userId) {
+        return creditRepository.findByUserId(userId)
+                .orElseThrow(() -> new CreditNotFoundException(userId));
+    }
+
+    /**
+     * A guarded update matched no row: tell a missing account apart from an insufficient balance
+     */
+    private RuntimeException insufficientOrNotFound(UUID userId, double amount) {
+        return creditRepository.findByUserId(userId)
+                .<RuntimeException>map(credit -> new InsufficientCreditException(amount, credit.getBalance()))
+                .orElseGet(() -> new CreditNotFoundException(userId));
+    }
+}
@@ -0,0 +1,469 @@
+package com.creditservice.services.ledger;
+
+import com.creditservice.dtos.response.LedgerMetricsResponse;
+import com.creditservice.entities.CreditTransaction;
+import com.creditservice.exceptions.LedgerUnavailableException;
+import com.creditservice.repositories.CreditTransactionRepository;
+import com.creditservice.services.stats.CreditStatsDelta;
+import com.creditservice.services.stats.CreditStatsService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Group-commit writer for credit balance mutations and their ledger entries.
+ * <p>
+ * Every operation is routed by {@code hash(userId)} to one of {@code lanes} single-threaded lanes,
+ * so all mutations of an account are applied by one thread in arrival order and lanes never
+ * compete for the same rows. Each lane drains up to {@code max-batch-size} operations from its
+ * bounded queue (waiting at most {@code max-batch-delay-ms} for more), applies them inside one
+ * transaction and inserts all their ledger rows together: one commit (one fsync) per batch
+ * instead of per operation. Callers block until their batch has committed, so durability is
+ * unchanged.
+ * <p>
+ * A transfer between users of two different lanes is enqueued on both lanes under a global
+ * lock, which gives all cross-lane transfers the same relative order in every queue. The
+ * higher (participant) lane commits what it has and parks at the transfer; the lower
+ * (executor) lane applies it as part of its current batch and the participant resumes once
+ * that batch has committed. An executor that has to wait for its participant commits its
+ * own batch first, so together with the global order no two lanes can wait on each other.
+ * <p>
+ * Business failures (insufficient balance, missing account) fail only their own operation.
+ * If a batch transaction itself fails, its operations are retried one transaction each so a
+ * single bad operation cannot fail its neighbours. Callers wait at most {@code commit-timeout-ms};
+ * an operation still queued by then is withdrawn, one already being applied may still commit.
+ */
+@Component
+@Slf4j
+public class GroupCommitLedgerWriter {
+    // EWMA weight for latency averages
+    private static final double LATENCY_WEIGHT = 0.1;
+
+    private final CreditLedger ledger;
+    private final CreditTransactionRepository transactionRepository;
+    private final CreditStatsService statsService;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatchSize;
+    private final long maxBatchDelayNanos;
+    private final long enqueueTimeoutMillis;
+    private final long commitTimeoutMillis;
+    private final Lane[] lanes;
+    private final Object crossLaneEnqueueLock = new Object();
+
+    private volatile boolean running = true;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder crossLaneOperations = new LongAdder();
+    private final LongAdder failedOperations = new LongAdder();
+    private final LongAdder fallbackBatches = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final AtomicLong maxObservedBatch = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private volatile double averageFlushNanos;
+    private volatile double averageCommitWaitNanos;
+
+    public GroupCommitLedgerWriter(CreditLedger ledger,
+                                   CreditTransactionRepository transactionRepository,
+                                   CreditStatsService statsService,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${credit.ledger.lanes:4}") int lanes,
+                                   @Value("${credit.ledger.max-batch-size:256}") int maxBatchSize,
+                                   @Value("${credit.ledger.max-batch-delay-ms:2}") long maxBatchDelayMillis,
+                                   @Value("${credit.ledger.queue-capacity:4096}") int queueCapacity,
+                                   @Value("${credit.ledger.enqueue-timeout-ms:1000}") long enqueueTimeoutMillis,
+                                   @Value("${credit.ledger.commit-timeout-ms:30000}") long commitTimeoutMillis) {
+        this.ledger = ledger;
+        this.transactionRepository = transactionRepository;
+        this.statsService = statsService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxBatchDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxBatchDelayMillis));
+        this.enqueueTimeoutMillis = Math.max(0, enqueueTimeoutMillis);
+        this.commitTimeoutMillis = Math.max(1, commitTimeoutMillis);
+        this.lanes = new Lane[Math.max(1, lanes)];
+        for (int i = 0; i < this.lanes.length; i++) {
+            this.lanes[i] = new Lane(i, Math.max(this.maxBatchSize, queueCapacity));
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        for (Lane lane : lanes) {
+            lane.thread.start();
+        }
+        log.info("Credit ledger writer started with {} lanes", lanes.length);
+    }
+
+    /**
+     * Stop accepting operations, flush what is queued and stop the lane threads
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        for (Lane lane : lanes) {
+            lane.thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+        for (Lane lane : lanes) {
+            PendingOperation pending;
+            while ((pending = lane.queue.poll()) != null) {
+                pending.cancel(new LedgerUnavailableException("Credit ledger is shutting down"));
+            }
+        }
+    }
+
+    /**
+     * Apply the operation and wait until it is committed.
+     * Must not be called inside a transaction: the caller would hold a connection while waiting.
+     *
+     * @throws LedgerUnavailableException if the lane queue stays full, the writer is stopping or the
+     *                                     operation did not commit within the commit timeout
+     */
+    public LedgerResult execute(LedgerOperation operation) {
+        if (!running) {
+            throw new LedgerUnavailableException("Credit ledger is shutting down");
+        }
+        Lane lane = laneOf(operation.userId());
+        Lane other = operation.kind() == LedgerOperation.Kind.TRANSFER ? laneOf(operation.counterpartyId()) : lane;
+
+        PendingOperation pending;
+        try {
+            if (lane == other) {
+                pending = new PendingOperation(operation, null);
+                offer(lane, pending);
+            } else {
+                Lane executor = lane.index < other.index ? lane : other;
+                Lane participant = lane.index < other.index ? other : lane;
+                pending = new PendingOperation(operation, participant);
+                synchronized (crossLaneEnqueueLock) {
+                    offer(executor, pending);
+                    try {
+                        offer(participant, pending);
+                    } catch (LedgerUnavailableException | InterruptedException e) {
+                        // Already queued on the executor lane, which must not wait for the participant
+                        pending.cancel(new LedgerUnavailableException("Credit ledger queue is full, try again later"));
+                        throw e;
+                    }
+                }
+                crossLaneOperations.increment();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LedgerUnavailableException("Interrupted while enqueueing credit operation");
+        }
+
+        try {
+            return pending.future.get(commitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new CompletionException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new LedgerUnavailableException(withdraw(pending, lane, other)
+                    ? "Credit ledger did not apply the operation in time, try again later"
+                    : "Credit ledger did not commit the operation in time, it may still be applied");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            withdraw(pending, lane, other);
+            throw new LedgerUnavailableException("Interrupted while waiting for credit operation");
+        }
+    }
+
+    /**
+     * Remove an operation the lane has not picked up yet
+     *
+     * @return true if it was still queued and will not be applied
+     */
+    private boolean withdraw(PendingOperation pending, Lane lane, Lane other) {
+        Lane executor = lane.index <= other.index ? lane : other;
+        if (!executor.queue.remove(pending)) {
+            return false;
+        }
+        // Releases the participant lane if it is already parked on this transfer
+        pending.cancel(new LedgerUnavailableException("Credit operation withdrawn"));
+        if (lane != other) {
+            (executor == lane ? other : lane).queue.remove(pending);
+        }
+        return true;
+    }
+
+    public LedgerMetricsResponse getMetrics() {
+        long batchCount = batches.sum();
+        long operationCount = operations.sum();
+        return LedgerMetricsResponse.builder()
+                .lanes(lanes.length)
+                .batches(batchCount)
+                .operations(operationCount)
+                .crossLaneOperations(crossLaneOperations.sum())
+                .failedOperations(failedOperations.sum())
+                .fallbackBatches(fallbackBatches.sum())
+                .rejected(rejected.sum())
+                .queued(Arrays.stream(lanes).mapToInt(lane -> lane.queue.size()).sum())
+                .queuedPerLane(Arrays.stream(lanes).map(lane -> lane.queue.size()).toList())
+                .maxBatchSize(maxBatchSize)
+                .averageBatchSize(batchCount > 0 ? round((double) operationCount / batchCount) : 0.0)
+                .maxObservedBatchSize(maxObservedBatch.get())
+                .averageFlushMillis(round(averageFlushNanos / 1e6))
+                .maxFlushMillis(round(maxFlushNanos.get() / 1e6))
+                .averageCommitWaitMillis(round(averageCommitWaitNanos / 1e6))
+                .build();
+    }
+
+    private Lane laneOf(UUID userId) {
+        return lanes[Math.floorMod(userId.hashCode(), lanes.length)];
+    }
+
+    private void offer(Lane lane, PendingOperation pending) throws InterruptedException {
+        if (!lane.queue.offer(pending, enqueueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            rejected.increment();
+            throw new LedgerUnavailableException("Credit ledger queue is full, try again later");
+        }
+    }
+
+    /**
+     * Apply a batch in one transaction; on failure retry each operation in its own transaction.
+     * Completes every future of the batch.
+     */
+    private void flush(List<PendingOperation> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> applyAll(batch));
+        } catch (RuntimeException e) {
+            log.warn("Credit ledger batch of {} failed, retrying operations individually: {}",
+                    batch.size(), e.getMessage());
+            fallbackBatches.increment();
+            for (PendingOperation pending : batch) {
+                pending.reset();
+                try {
+                    transactionTemplate.executeWithoutResult(status -> applyAll(List.of(pending)));
+                } catch (RuntimeException individual) {
+                    pending.error = individual;
+                }
+            }
+        }
+        long flushNanos = System.nanoTime() - started;
+
+        long now = System.nanoTime();
+        for (PendingOperation pending : batch) {
+            averageCommitWaitNanos = ewma(averageCommitWaitNanos, now - pending.enqueuedAt);
+            if (pending.error != null) {
+                failedOperations.increment();
+                pending.future.completeExceptionally(pending.error);
+            } else {
+                pending.future.complete(pending.result);
+            }
+        }
+        batches.increment();
+        operations.add(batch.size());
+        maxObservedBatch.accumulateAndGet(batch.size(), Math::max);
+        maxFlushNanos.accumulateAndGet(flushNanos, Math::max);
+        averageFlushNanos = ewma(averageFlushNanos, flushNanos);
+    }
+
+    /**
+     * Apply operations in order, then insert every ledger entry of the batch in one saveAll
+     * and add the batch's effect on the totals with one statistics update
+     */
+    private void applyAll(List<PendingOperation> batch) {
+        List<CreditTransaction> entries = new ArrayList<>();
+        CreditStatsDelta stats = new CreditStatsDelta();
+        for (PendingOperation pending : batch) {
+            try {
+                pending.result = ledger.apply(pending.operation, stats);
+                entries.addAll(pending.result.transactions());
+            } catch (DataAccessException e) {
+                // The transaction is no longer usable, abort the whole batch
+                throw e;
+            } catch (RuntimeException e) {
+                pending.error = e;
+            }
+        }
+        transactionRepository.saveAll(entries);
+        statsService.record(stats);
+    }
+
+    private static double ewma(double current, long sample) {
+        return current == 0 ? sample : current + LATENCY_WEIGHT * (sample - current);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    /**
+     * Single-threaded execution lane owning the accounts that hash to it
+     */
+    private final class Lane {
+        private final int index;
+        private final BlockingQueue<PendingOperation> queue;
+        private final Thread thread;
+        // Cross-lane transfer this lane participates in, parked on after the current batch is flushed
+        private PendingOperation carried;
+
+        private Lane(int index, int capacity) {
+            this.index = index;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = new Thread(this::run, "credit-ledger-lane-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        private void run() {
+            List<PendingOperation> batch = new ArrayList<>(maxBatchSize);
+            while (running || carried != null || !queue.isEmpty()) {
+                try {
+                    PendingOperation first = carried != null ? carried : queue.poll(100, TimeUnit.MILLISECONDS);
+                    carried = null;
+                    if (first == null) {
+                        continue;
+                    }
+                    if (first.participant == this) {
+                        park(first);
+                        continue;
+                    }
+                    if (take(first, batch)) {
+                        collect(batch);
+                    }
+                    flush(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (Throwable e) {
+                    // flush only lets errors through (OutOfMemoryError, ...); keep the lane alive and
+                    // fail the operations in flight instead of leaving their callers waiting
+                    log.error("Credit ledger lane {} failed", index, e);
+                    LedgerUnavailableException failure = new LedgerUnavailableException(
+                            "Credit ledger lane failed: " + e);
+                    batch.forEach(pending -> pending.cancel(failure));
+                } finally {
+                    batch.clear();
+                }
+            }
+            log.info("Credit ledger lane {} stopped", index);
+        }
+
+        /**
+         * Fill the batch, waiting up to maxBatchDelay for late arrivals
+         */
+        private void collect(List<PendingOperation> batch) throws InterruptedException {
+            long deadline = System.nanoTime() + maxBatchDelayNanos;
+            while (batch.size() < maxBatchSize) {
+                PendingOperation next = queue.poll();
+                if (next == null) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || (next = queue.poll(remaining, TimeUnit.NANOSECONDS)) == null) {
+                        return;
+                    }
+                }
+                if (!take(next, batch)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Add an operation to the batch
+         *
+         * @return false if the batch must end here: this lane is the participant of a cross-lane
+         * transfer, which is carried to the next round and parked on after the batch is flushed
+         */
+        private boolean take(PendingOperation pending, List<PendingOperation> batch) throws InterruptedException {
+            if (!pending.isCrossLane()) {
+                batch.add(pending);
+                return true;
+            }
+            if (pending.participant == this) {
+                carried = pending;
+                return false;
+            }
+            if (pending.participantReady.getCount() > 0) {
+                // Commit first: the participant may be parked on a transfer already in this batch
+                try {
+                    flush(batch);
+                } catch (Throwable e) {
+                    // The transfer is not in the batch yet; release its participant and caller
+                    pending.cancel(new LedgerUnavailableException("Credit ledger lane failed: " + e));
+                    throw e;
+                }
+                batch.clear();
+                pending.participantReady.await();
+            }
+            if (!pending.future.isDone()) {
+                // not cancelled while enqueueing
+                batch.add(pending);
+            }
+            return true;
+        }
+
+        /**
+         * Everything queued on this lane before the transfer has been committed. Stay off these
+         * accounts until the executor lane has committed the transfer.
+         */
+        private void park(PendingOperation pending) {
+            pending.participantReady.countDown();
+            try {
+                pending.future.join();
+            } catch (CompletionException e) {
+                // outcome is reported to the caller by the executor lane
+            }
+        }
+    }
+
+    private static final class PendingOperation {
+        private final LedgerOperation operation;
+        private final CompletableFuture<LedgerResult> future = new CompletableFuture<>();
+        private final long enqueuedAt = System.nanoTime();
+        // Cross-lane transfers only: the higher lane, which parks while the lower lane executes
+        private final Lane participant;
+        private final CountDownLatch participantReady;
+        // Only touched by the executing lane thread
+        private LedgerResult result;
+        private RuntimeException error;
+
+        private PendingOperation(LedgerOperation operation, Lane participant) {
+            this.operation = operation;
+            this.participant = participant;
+            this.participantReady = participant != null ? new CountDownLatch(1) : null;
+        }
+
+        private boolean isCrossLane() {
+            return participant != null;
+        }
+
+        private void cancel(RuntimeException cause) {
+            future.completeExceptionally(cause);
+            if (participantReady != null) {
+                participantReady.countDown();
+            }
+        }
+
+        private void reset() {
+            result = null;
+            error = null;
+        }
+    }
+}
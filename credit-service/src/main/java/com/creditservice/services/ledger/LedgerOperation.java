@@ -0,0 +1,37 @@
+package com.creditservice.services.ledger;
+
+import java.util.UUID;
+
+/**
+ * A balance mutation plus the ledger entries it produces, applied atomically by {@link CreditLedger}
+ */
+public record LedgerOperation(
+        Kind kind,
+        UUID userId,
+        UUID counterpartyId,
+        double amount,
+        UUID relatedTripId,
+        UUID relatedListingId,
+        String description,
+        String counterpartyDescription
+) {
+    public enum Kind {
+        EARN,
+        SPEND,
+        TRANSFER
+    }
+
+    public static LedgerOperation earn(UUID userId, double amount, UUID relatedTripId, String description) {
+        return new LedgerOperation(Kind.EARN, userId, null, amount, relatedTripId, null, description, null);
+    }
+
+    public static LedgerOperation spend(UUID userId, double amount, UUID relatedListingId, String description) {
+        return new LedgerOperation(Kind.SPEND, userId, null, amount, null, relatedListingId, description, null);
+    }
+
+    public static LedgerOperation transfer(UUID fromUserId, UUID toUserId, double amount,
+                                           String senderDescription, String receiverDescription) {
+        return new LedgerOperation(Kind.TRANSFER, fromUserId, toUserId, amount, null, null,
+                senderDescription, receiverDescription);
+    }
+}
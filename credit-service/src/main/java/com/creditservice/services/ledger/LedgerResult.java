@@ -0,0 +1,16 @@
+package com.creditservice.services.ledger;
+
+import com.creditservice.entities.Credit;
+import com.creditservice.entities.CreditTransaction;
+
+import java.util.List;
+
+/**
+ * Committed outcome of a {@link LedgerOperation}
+ *
+ * @param account      account of the operation's user after the mutation
+ * @param counterparty receiver account for transfers, null otherwise
+ * @param transactions ledger entries, in the order they were written (sender first for transfers)
+ */
+public record LedgerResult(Credit account, Credit counterparty, List<CreditTransaction> transactions) {
+}
@@ -0,0 +1,62 @@
+package com.creditservice.services.stats;
+
+import lombok.Getter;
+
+/**
+ * Changes to the credit totals made by one transaction, written with {@link CreditStatsService#record}
+ */
+@Getter
+public class CreditStatsDelta {
+    private long accounts;
+    private double balance;
+    private double earned;
+    private double spent;
+    private double transferredIn;
+    private double transferredOut;
+
+    public void accountCreated() {
+        accounts++;
+    }
+
+    public void accountsCreated(long count) {
+        accounts += count;
+    }
+
+    public void earned(double amount) {
+        balance += amount;
+        earned += amount;
+    }
+
+    public void spent(double amount) {
+        balance -= amount;
+        spent += amount;
+    }
+
+    /**
+     * A transfer between two accounts: the total balance is unchanged
+     */
+    public void transferred(double amount) {
+        transferredOut += amount;
+        transferredIn += amount;
+    }
+
+    /**
+     * Correction found by reconciliation: the difference between the credits table and the slots
+     */
+    static CreditStatsDelta correction(long accounts, double balance, double earned, double spent,
+                                       double transferredIn, double transferredOut) {
+        CreditStatsDelta delta = new CreditStatsDelta();
+        delta.accounts = accounts;
+        delta.balance = balance;
+        delta.earned = earned;
+        delta.spent = spent;
+        delta.transferredIn = transferredIn;
+        delta.transferredOut = transferredOut;
+        return delta;
+    }
+
+    public boolean isEmpty() {
+        return accounts == 0 && balance == 0 && earned == 0 && spent == 0
+                && transferredIn == 0 && transferredOut == 0;
+    }
+}
@@ -0,0 +1,186 @@
+package com.creditservice.services.stats;
+
+import com.creditservice.dtos.response.CreditStatisticsResponse;
+import com.creditservice.entities.CreditStats;
+import com.creditservice.mappers.CreditStatisticsMapper;
+import com.creditservice.repositories.CreditRepository;
+import com.creditservice.repositories.CreditStatsRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Running credit totals kept in the credit_stats slots.
+ * <p>
+ * Every balance mutation adds its {@link CreditStatsDelta} to a random slot in the same transaction,
+ * so the totals commit or roll back together with the balances and reads are a sum over a handful of
+ * rows instead of full-table aggregates. A periodic reconciliation recomputes the totals from the
+ * credits table (also on startup, which seeds existing data) and corrects any drift.
+ * <p>
+ * Reconciliation takes no locks: the slots and the credits aggregate are read in one repeatable-read
+ * snapshot, so both describe the same set of committed transactions, and the difference is then added
+ * to one slot as an ordinary delta. Deltas committed after the snapshot land on both sides alike and
+ * do not affect the correction.
+ */
+@Service
+@Slf4j
+public class CreditStatsService {
+    private static final double DRIFT_TOLERANCE = 1e-6;
+
+    private final CreditStatsRepository statsRepository;
+    private final CreditRepository creditRepository;
+    private final CreditStatisticsMapper statisticsMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTemplate;
+    private final int slots;
+
+    public CreditStatsService(CreditStatsRepository statsRepository,
+                              CreditRepository creditRepository,
+                              CreditStatisticsMapper statisticsMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${credit.stats.slots:16}") int slots) {
+        this.statsRepository = statsRepository;
+        this.creditRepository = creditRepository;
+        this.statisticsMapper = statisticsMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTemplate.setReadOnly(true);
+        this.slots = Math.max(1, slots);
+    }
+
+    @PostConstruct
+    public void createSlots() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Instant now = Instant.now();
+            for (int slot = 0; slot < slots; slot++) {
+                statsRepository.createSlotIfMissing(slot, now);
+            }
+        });
+    }
+
+    /**
+     * Add a delta inside the caller's transaction; call after the balance statements it describes
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(CreditStatsDelta delta) {
+        if (delta.isEmpty()) {
+            return;
+        }
+        add(ThreadLocalRandom.current().nextInt(slots), delta, Instant.now());
+    }
+
+    @Transactional(readOnly = true)
+    public CreditStatisticsResponse snapshot() {
+        long accounts = 0;
+        double balance = 0;
+        double earned = 0;
+        double spent = 0;
+        double transferredOut = 0;
+        for (CreditStats stats : statsRepository.findAll()) {
+            accounts += stats.getAccounts();
+            balance += stats.getBalance();
+            earned += stats.getTotalEarned();
+            spent += stats.getTotalSpent();
+            transferredOut += stats.getTotalTransferredOut();
+        }
+
+        return statisticsMapper.toStatisticsResponse(
+                (int) accounts,
+                balance,
+                earned,
+                spent,
+                transferredOut,
+                accounts > 0 ? balance / accounts : 0.0
+        );
+    }
+
+    /**
+     * Recompute the totals from the credits table and add the drift to one slot
+     */
+    @Scheduled(fixedDelayString = "${credit.stats.reconcile-interval-ms:900000}",
+            initialDelayString = "${credit.stats.reconcile-initial-delay-ms:10000}")
+    public void reconcile() {
+        try {
+            CreditStatsDelta drift = snapshotTemplate.execute(status -> drift());
+            int slot = ThreadLocalRandom.current().nextInt(slots);
+            transactionTemplate.executeWithoutResult(status -> {
+                Instant now = Instant.now();
+                if (drift != null && !drift.isEmpty()) {
+                    add(slot, drift, now);
+                }
+                statsRepository.markReconciled(slot, now);
+            });
+        } catch (Exception e) {
+            log.error("Credit statistics reconciliation failed", e);
+        }
+    }
+
+    /**
+     * Difference between the credits table and the slots, read in the same snapshot.
+     * Components within {@link #DRIFT_TOLERANCE} are left alone.
+     */
+    private CreditStatsDelta drift() {
+        long accounts = 0;
+        double balance = 0;
+        double earned = 0;
+        double spent = 0;
+        double transferredIn = 0;
+        double transferredOut = 0;
+        for (CreditStats stats : statsRepository.findAll()) {
+            accounts += stats.getAccounts();
+            balance += stats.getBalance();
+            earned += stats.getTotalEarned();
+            spent += stats.getTotalSpent();
+            transferredIn += stats.getTotalTransferredIn();
+            transferredOut += stats.getTotalTransferredOut();
+        }
+        CreditRepository.Totals totals = creditRepository.aggregateTotals();
+
+        long actualAccounts = totals.getAccounts() != null ? totals.getAccounts() : 0L;
+        double actualBalance = valueOf(totals.getBalance());
+        CreditStatsDelta drift = CreditStatsDelta.correction(
+                actualAccounts - accounts,
+                difference(actualBalance, balance),
+                difference(valueOf(totals.getTotalEarned()), earned),
+                difference(valueOf(totals.getTotalSpent()), spent),
+                difference(valueOf(totals.getTotalTransferredIn()), transferredIn),
+                difference(valueOf(totals.getTotalTransferredOut()), transferredOut));
+        if (!drift.isEmpty()) {
+            log.warn("Credit statistics drift corrected: accounts {} -> {}, balance {} -> {}",
+                    accounts, actualAccounts, balance, actualBalance);
+        }
+        return drift;
+    }
+
+    private static double difference(double actual, double recorded) {
+        double difference = actual - recorded;
+        return Math.abs(difference) > DRIFT_TOLERANCE ? difference : 0.0;
+    }
+
+    private void add(int slot, CreditStatsDelta delta, Instant now) {
+        if (apply(slot, delta, now) == 0) {
+            statsRepository.createSlotIfMissing(slot, now);
+            apply(slot, delta, now);
+        }
+    }
+
+    private int apply(int slot, CreditStatsDelta delta, Instant now) {
+        return statsRepository.applyDelta(slot, delta.getAccounts(), delta.getBalance(), delta.getEarned(),
+                delta.getSpent(), delta.getTransferredIn(), delta.getTransferredOut(), now);
+    }
+
+    private static double valueOf(Double value) {
+        return value != null ? value : 0.0;
+    }
+}
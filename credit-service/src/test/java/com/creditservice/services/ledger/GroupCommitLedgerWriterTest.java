@@ -0,0 +1,335 @@
+package com.creditservice.services.ledger;
+
+import com.creditservice.entities.Credit;
+import com.creditservice.entities.CreditTransaction;
+import com.creditservice.exceptions.InsufficientCreditException;
+import com.creditservice.exceptions.LedgerUnavailableException;
+import com.creditservice.repositories.CreditTransactionRepository;
+import com.creditservice.services.stats.CreditStatsDelta;
+import com.creditservice.services.stats.CreditStatsService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GroupCommitLedgerWriterTest {
+    private static final long TIMEOUT_SECONDS = 20;
+
+    private final FakeLedger ledger = new FakeLedger();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private GroupCommitLedgerWriter writer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        ledger.releaseAll();
+        callers.shutdownNow();
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    void concurrentOperationsKeepPerUserOrderAndNeverHang() throws Exception {
+        writer = start(4, 64, 4096, 1000, 10_000);
+        List<UUID> users = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            users.add(UUID.randomUUID());
+            writer.execute(LedgerOperation.earn(users.get(i), 1000.0, null, "seed"));
+        }
+
+        // One caller per user issues its operations in sequence; transfers cross lanes at random
+        List<Future<?>> futures = new ArrayList<>();
+        for (int owner = 0; owner < users.size(); owner++) {
+            UUID userId = users.get(owner);
+            Random random = new Random(owner);
+            futures.add(callers.submit(() -> {
+                for (int step = 0; step < 300; step++) {
+                    UUID counterparty = users.get(random.nextInt(users.size()));
+                    LedgerOperation operation = step % 3 == 0 && !counterparty.equals(userId)
+                            ? LedgerOperation.transfer(userId, counterparty, 2.0, "step " + step, "in")
+                            : LedgerOperation.earn(userId, 1.0, null, "step " + step);
+                    try {
+                        writer.execute(operation);
+                    } catch (InsufficientCreditException e) {
+                        // allowed, the order check still covers it
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        assertTrue(ledger.overlaps.isEmpty(), () -> "accounts mutated concurrently: " + ledger.overlaps);
+        for (UUID userId : users) {
+            List<Integer> steps = ledger.ownSteps.get(userId);
+            assertEquals(300, steps.size());
+            for (int i = 0; i < steps.size(); i++) {
+                assertEquals(i, steps.get(i), "operations of " + userId + " applied out of order");
+            }
+        }
+        // Transfers move credits, earns add one each: the total is exact
+        double total = ledger.balances.values().stream().mapToDouble(Double::doubleValue).sum();
+        assertEquals(32 * 1000.0 + ledger.earnedSteps.get(), total, 1e-6);
+    }
+
+    @Test
+    void failedParticipantEnqueueCancelsTheTransfer() throws Exception {
+        writer = start(2, 1, 1, 50, 10_000);
+        UUID executorUser = userOnLane(0, 2);
+        UUID participantUser = userOnLane(1, 2);
+        writer.execute(LedgerOperation.earn(executorUser, 100.0, null, "seed"));
+
+        // Participant lane stuck on one operation with a second one filling its queue
+        CountDownLatch blocked = ledger.block(participantUser);
+        Future<LedgerResult> stuck = submit(() -> writer.execute(LedgerOperation.earn(participantUser, 1.0, null, "a")));
+        ledger.awaitBlocked(participantUser);
+        Future<LedgerResult> queued = submit(() -> writer.execute(LedgerOperation.earn(participantUser, 1.0, null, "b")));
+        awaitQueued(0, 1);
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () ->
+                submit(() -> writer.execute(LedgerOperation.transfer(executorUser, participantUser, 10.0, "t", "t")))
+                        .get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertInstanceOf(LedgerUnavailableException.class, failure.getCause());
+
+        // The executor lane skips the cancelled transfer instead of waiting for its participant
+        writer.execute(LedgerOperation.earn(executorUser, 1.0, null, "after"));
+        assertEquals(101.0, ledger.balances.get(executorUser), 1e-9);
+
+        blocked.countDown();
+        stuck.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        queued.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(2.0, ledger.balances.get(participantUser), 1e-9);
+    }
+
+    @Test
+    void shutdownWhileParticipantIsParkedCompletesTheTransfer() throws Exception {
+        writer = start(2, 16, 64, 1000, 10_000);
+        UUID executorUser = userOnLane(0, 2);
+        UUID participantUser = userOnLane(1, 2);
+        writer.execute(LedgerOperation.earn(executorUser, 100.0, null, "seed"));
+
+        // Executor lane busy, so the participant lane parks on the transfer while it waits
+        CountDownLatch blocked = ledger.block(executorUser);
+        Future<LedgerResult> earn = submit(() -> writer.execute(LedgerOperation.earn(executorUser, 1.0, null, "a")));
+        ledger.awaitBlocked(executorUser);
+        Future<LedgerResult> transfer = submit(() ->
+                writer.execute(LedgerOperation.transfer(executorUser, participantUser, 10.0, "t", "t")));
+        awaitQueued(1, 0);
+
+        Future<?> stopping = callers.submit(() -> {
+            writer.stop();
+            return null;
+        });
+        blocked.countDown();
+
+        stopping.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        earn.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        transfer.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(91.0, ledger.balances.get(executorUser), 1e-9);
+        assertEquals(10.0, ledger.balances.get(participantUser), 1e-9);
+        assertThrows(LedgerUnavailableException.class,
+                () -> writer.execute(LedgerOperation.earn(participantUser, 1.0, null, "late")));
+    }
+
+    @Test
+    void commitTimeoutWithdrawsAQueuedOperation() throws Exception {
+        writer = start(1, 1, 16, 1000, 200);
+        UUID userId = UUID.randomUUID();
+
+        CountDownLatch blocked = ledger.block(userId);
+        Future<LedgerResult> stuck = submit(() -> writer.execute(LedgerOperation.earn(userId, 1.0, null, "a")));
+        ledger.awaitBlocked(userId);
+
+        LedgerUnavailableException timeout = assertThrows(LedgerUnavailableException.class,
+                () -> writer.execute(LedgerOperation.earn(userId, 5.0, null, "b")));
+        assertTrue(timeout.getMessage().contains("try again"), timeout.getMessage());
+
+        blocked.countDown();
+        // The blocked one was already being applied: it times out but still commits
+        assertThrows(ExecutionException.class, () -> stuck.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        writer.execute(LedgerOperation.earn(userId, 1.0, null, "c"));
+        assertEquals(2.0, ledger.balances.get(userId), 1e-9);
+    }
+
+    // ==================== FIXTURE ====================
+
+    private GroupCommitLedgerWriter start(int lanes, int maxBatchSize, int queueCapacity, long enqueueTimeoutMillis,
+                                          long commitTimeoutMillis) {
+        GroupCommitLedgerWriter started = new GroupCommitLedgerWriter(ledger, transactionRepository(),
+                new FakeStats(), new FakeTransactionManager(), lanes, maxBatchSize, 1, queueCapacity,
+                enqueueTimeoutMillis, commitTimeoutMillis);
+        started.start();
+        return started;
+    }
+
+    private <T> Future<T> submit(Supplier<T> call) {
+        return callers.submit(call::get);
+    }
+
+    private void awaitQueued(int... perLane) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        List<Integer> expected = new ArrayList<>();
+        for (int queued : perLane) {
+            expected.add(queued);
+        }
+        while (!writer.getMetrics().getQueuedPerLane().equals(expected)) {
+            assertTrue(System.nanoTime() < deadline, () -> "lanes never reached " + expected);
+            Thread.sleep(5);
+        }
+    }
+
+    private static UUID userOnLane(int lane, int lanes) {
+        while (true) {
+            UUID userId = UUID.randomUUID();
+            if (Math.floorMod(userId.hashCode(), lanes) == lane) {
+                return userId;
+            }
+        }
+    }
+
+    private static CreditTransactionRepository transactionRepository() {
+        return (CreditTransactionRepository) Proxy.newProxyInstance(
+                GroupCommitLedgerWriterTest.class.getClassLoader(),
+                new Class<?>[]{CreditTransactionRepository.class},
+                (proxy, method, args) -> method.getName().equals("saveAll") ? args[0] : null);
+    }
+
+    /**
+     * In-memory balances; records the order of each owner's operations and any overlapping mutation
+     */
+    private static final class FakeLedger extends CreditLedger {
+        private final Map<UUID, Double> balances = new ConcurrentHashMap<>();
+        private final Map<UUID, List<Integer>> ownSteps = new ConcurrentHashMap<>();
+        private final AtomicInteger earnedSteps = new AtomicInteger();
+        private final Set<UUID> active = ConcurrentHashMap.newKeySet();
+        private final List<UUID> overlaps = new CopyOnWriteArrayList<>();
+        private final Map<UUID, CountDownLatch> blocks = new ConcurrentHashMap<>();
+        private final Map<UUID, CountDownLatch> blockedSignals = new ConcurrentHashMap<>();
+
+        private FakeLedger() {
+            super(null);
+        }
+
+        private CountDownLatch block(UUID userId) {
+            CountDownLatch latch = new CountDownLatch(1);
+            blocks.put(userId, latch);
+            blockedSignals.put(userId, new CountDownLatch(1));
+            return latch;
+        }
+
+        private void awaitBlocked(UUID userId) throws InterruptedException {
+            assertTrue(blockedSignals.get(userId).await(TIMEOUT_SECONDS, TimeUnit.SECONDS), "ledger never blocked");
+        }
+
+        private void releaseAll() {
+            blocks.values().forEach(CountDownLatch::countDown);
+        }
+
+        @Override
+        public LedgerResult apply(LedgerOperation operation, CreditStatsDelta stats) {
+            List<UUID> accounts = operation.counterpartyId() != null
+                    ? List.of(operation.userId(), operation.counterpartyId())
+                    : List.of(operation.userId());
+            for (UUID account : accounts) {
+                if (!active.add(account)) {
+                    overlaps.add(account);
+                }
+            }
+            try {
+                CountDownLatch latch = blocks.remove(operation.userId());
+                if (latch != null) {
+                    blockedSignals.get(operation.userId()).countDown();
+                    latch.await();
+                }
+                recordStep(operation);
+
+                double balance = balances.getOrDefault(operation.userId(), 0.0);
+                if (operation.kind() == LedgerOperation.Kind.EARN) {
+                    balances.put(operation.userId(), balance + operation.amount());
+                } else {
+                    if (balance < operation.amount()) {
+                        throw new InsufficientCreditException(operation.amount(), balance);
+                    }
+                    balances.put(operation.userId(), balance - operation.amount());
+                    if (operation.kind() == LedgerOperation.Kind.TRANSFER) {
+                        balances.merge(operation.counterpartyId(), operation.amount(), Double::sum);
+                    }
+                }
+                return new LedgerResult(Credit.builder().userId(operation.userId()).build(), null,
+                        List.of(CreditTransaction.builder().build()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } finally {
+                accounts.forEach(active::remove);
+            }
+        }
+
+        private void recordStep(LedgerOperation operation) {
+            String description = operation.description();
+            if (description == null || !description.startsWith("step ")) {
+                return;
+            }
+            ownSteps.computeIfAbsent(operation.userId(), userId -> new ArrayList<>())
+                    .add(Integer.parseInt(description.substring(5)));
+            if (operation.kind() == LedgerOperation.Kind.EARN) {
+                earnedSteps.incrementAndGet();
+            }
+        }
+    }
+
+    private static final class FakeStats extends CreditStatsService {
+        private FakeStats() {
+            super(null, null, null, null, 1);
+        }
+
+        @Override
+        public void record(CreditStatsDelta delta) {
+        }
+    }
+
+    private static final class FakeTransactionManager extends AbstractPlatformTransactionManager {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
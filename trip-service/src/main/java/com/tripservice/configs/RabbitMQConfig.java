@@ -3,6 +3,7 @@ package com.tripservice.configs;
 import com.tripservice.events.VerificationEventListener;
 import jakarta.annotation.PostConstruct;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
@@ -60,6 +61,10 @@ public class RabbitMQConfig {
     
     @Bean
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
+        // Auto-submit chờ broker confirm trước khi commit (waitForConfirmsOrDie), cần channel ở confirm mode
+        if (connectionFactory instanceof CachingConnectionFactory caching && !caching.isSimplePublisherConfirms()) {
+            caching.setPublisherConfirmType(CachingConnectionFactory.ConfirmType.SIMPLE);
+        }
         RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
         rabbitTemplate.setMessageConverter(jsonMessageConverter());
         return rabbitTemplate;
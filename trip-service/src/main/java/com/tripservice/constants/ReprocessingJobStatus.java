@@ -0,0 +1,11 @@
+package com.tripservice.constants;
+
+public enum ReprocessingJobStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    /**
+     * Job bị dừng giữa chừng (ví dụ service restart), có thể resume từ checkpoint
+     */
+    INTERRUPTED
+}
@@ -0,0 +1,12 @@
+package com.tripservice.constants;
+
+public enum TripPurgeJobStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    /**
+     * Job bị dừng giữa chừng (ví dụ service restart); các chunk đã xoá vẫn giữ nguyên,
+     * chạy lại cùng điều kiện để xoá phần còn lại
+     */
+    INTERRUPTED
+}
@@ -0,0 +1,18 @@
+package com.tripservice.constants;
+
+public enum UploadSessionStatus {
+    /**
+     * Đang nhận chunk
+     */
+    OPEN,
+    /**
+     * Đã finalize, đang parse + import file spool
+     */
+    PROCESSING,
+    COMPLETED,
+    FAILED,
+    /**
+     * Bị bỏ dở quá TTL, spool file đã bị xoá
+     */
+    EXPIRED
+}
@@ -1,4 +1,58 @@
 package com.tripservice.constants;
 
 public enum VehicleType {
+    /**
+     * Xe điện thuần (Battery Electric Vehicle)
+     */
+    EV("Electric Vehicle", 0.05, 0.40),
+
+    /**
+     * Xe hybrid sạc ngoài (Plug-in Hybrid)
+     */
+    PHEV("Plug-in Hybrid", 0.0, 0.45),
+
+    /**
+     * Xe hybrid thường (Hybrid Electric Vehicle)
+     */
+    HEV("Hybrid", 0.0, 0.10);
+
+    private final String displayName;
+    // Giới hạn kWh/km hợp lý cho battery_used
+    private final double minKwhPerKm;
+    private final double maxKwhPerKm;
+
+    VehicleType(String displayName, double minKwhPerKm, double maxKwhPerKm) {
+        this.displayName = displayName;
+        this.minKwhPerKm = minKwhPerKm;
+        this.maxKwhPerKm = maxKwhPerKm;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public double getMinKwhPerKm() {
+        return minKwhPerKm;
+    }
+
+    public double getMaxKwhPerKm() {
+        return maxKwhPerKm;
+    }
+
+    /**
+     * Parse vehicle type từ string (hỗ trợ alias ELECTRIC, PLUG_IN_HYBRID, HYBRID)
+     *
+     * @return VehicleType, hoặc null nếu không nhận diện được
+     */
+    public static VehicleType fromString(String value) {
+        if (value == null) {
+            return null;
+        }
+        return switch (value.trim().toUpperCase()) {
+            case "EV", "ELECTRIC" -> EV;
+            case "PHEV", "PLUG_IN_HYBRID" -> PHEV;
+            case "HEV", "HYBRID" -> HEV;
+            default -> null;
+        };
+    }
 }
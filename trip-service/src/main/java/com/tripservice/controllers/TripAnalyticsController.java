@@ -1,4 +1,50 @@
 package com.tripservice.controllers;
 
+import com.tripservice.dtos.response.ApiResponse;
+import com.tripservice.dtos.response.Co2RankingResponse;
+import com.tripservice.services.TripAnalyticsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/v1/trips/analytics")
+@RequiredArgsConstructor
+@Slf4j
 public class TripAnalyticsController {
+    private final TripAnalyticsService analyticsService;
+
+    /**
+     * Rank of a user's verified CO2 savings among all users for a month.
+     * Ranking fields are only filled for the current month and the few months before it,
+     * and stay empty until that month's ranking has been built; totals are always returned.
+     *
+     * @param userId - User ID
+     * @param period - Month (yyyy-MM, UTC), defaults to the current month
+     */
+    @GetMapping("/co2-ranking")
+    public ResponseEntity<ApiResponse<Co2RankingResponse>> getCo2Ranking(
+            @RequestParam("userId")
+            UUID userId,
+
+            @RequestParam(value = "period", required = false)
+            @DateTimeFormat(pattern = "yyyy-MM")
+            YearMonth period) {
+        YearMonth month = period != null ? period : YearMonth.now(ZoneOffset.UTC);
+        log.info("Getting CO2 ranking for user {} in {}", userId, month);
+
+        var result = ApiResponse.<Co2RankingResponse>builder()
+                .statusCode(200)
+                .message("Get CO2 ranking successful")
+                .data(analyticsService.getRanking(userId, month))
+                .build();
+
+        return ResponseEntity.status(result.getStatusCode()).body(result);
+    }
 }
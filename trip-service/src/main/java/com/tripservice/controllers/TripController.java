@@ -5,6 +5,8 @@ import com.tripservice.dtos.response.*;
 import com.tripservice.entities.Trip;
 import com.tripservice.repositories.TripRepository;
 import com.tripservice.services.TripService;
+import com.tripservice.services.UploadValidationService;
+import com.tripservice.services.ingest.IngestionAdmissionControl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.fileupload.FileUploadException;
@@ -16,6 +18,7 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.UUID;
 
@@ -26,15 +29,17 @@ import java.util.UUID;
 public class TripController {
     private final TripService tripService;
     private final TripRepository tripRepository;
+    private final UploadValidationService uploadValidationService;
+    private final IngestionAdmissionControl admissionControl;
 
     /**
-     * Upload trip data from CSV/JSON file
+     * Upload trip data from CSV/JSON/Arrow file
      *
      * @param userId - User ID
      * @param vehicleId - Vehicle ID
-     * @param file - CSV or JSON file containing trip data
-     * @param format - File format (CSV or JSON)
-     * @return TripResponse with uploaded trip info
+     * @param file - CSV, JSON or Arrow IPC file containing trip data
+     * @param format - File format (CSV, JSON or ARROW)
+     * @return TripResponse with uploaded trip info; 429 with Retry-After when ingestion is saturated
      */
 
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -61,8 +66,14 @@ public class TripController {
                 .format(format)
                 .build();
 
-        // Upload Trip
-        TripResponse response = tripService.uploadTrip(request);
+        // Upload Trip (transaction giữ một connection suốt quá trình ingest)
+        TripResponse response;
+        IngestionAdmissionControl.Permit permit = admissionControl.admit(userId, true);
+        try {
+            response = tripService.uploadTrip(request);
+        } finally {
+            permit.close();
+        }
         var result =ApiResponse.<TripResponse>builder()
                 .statusCode(200)
                 .message("Upload successful")
@@ -74,6 +85,46 @@ public class TripController {
         return ResponseEntity.status(result.getStatusCode()).body(result);
     }
 
+    /**
+     * Dry-run upload: parse + validate + CO2 without persisting anything.
+     * Streams one NDJSON line per record while parsing, followed by a summary line.
+     */
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+            params = "validateOnly=true", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> validateUpload(
+            @RequestParam("userId")
+            UUID userId,
+
+            @RequestParam(value = "vehicleId", required = false)
+            UUID vehicleId,
+
+            @RequestParam("file")
+            MultipartFile file,
+
+            @RequestParam("format")
+            String format) {
+        log.info("Received dry-run upload request - userId: {}, file: {}, format: {}",
+                userId, file.getOriginalFilename(), format);
+
+        TripUploadRequest request = TripUploadRequest.builder()
+                .userId(userId)
+                .vehicleId(vehicleId)
+                .file(file)
+                .format(format)
+                .build();
+
+        // Admit trước khi trả header để có thể trả 429, slot được nhả khi stream xong
+        IngestionAdmissionControl.Permit permit = admissionControl.admit(userId, false);
+        StreamingResponseBody body = out -> {
+            try (permit) {
+                uploadValidationService.validate(request, out);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
     /**
      * Get all trips for a user (paginated)
      */
@@ -0,0 +1,63 @@
+package com.tripservice.controllers;
+
+import com.tripservice.dtos.response.ApiResponse;
+import com.tripservice.dtos.response.HeatmapResponse;
+import com.tripservice.services.TripHeatmapService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+@RestController
+@RequestMapping("/v1/trips/heatmap")
+@RequiredArgsConstructor
+@Slf4j
+public class TripHeatmapController {
+    private final TripHeatmapService heatmapService;
+
+    /**
+     * CO2 heatmap cells for a bounding box and date window (UTC days, inclusive)
+     *
+     * @param precision - Geohash length; omitted = finest precision that fits the cell limit
+     * @param endpoint - START or END point of the trips
+     */
+    @GetMapping
+    public ResponseEntity<ApiResponse<HeatmapResponse>> getHeatmap(
+            @RequestParam("minLat") double minLat,
+            @RequestParam("minLng") double minLng,
+            @RequestParam("maxLat") double maxLat,
+            @RequestParam("maxLng") double maxLng,
+
+            @RequestParam(value = "from", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            LocalDate from,
+
+            @RequestParam(value = "to", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            LocalDate to,
+
+            @RequestParam(value = "precision", required = false)
+            Integer precision,
+
+            @RequestParam(value = "endpoint", defaultValue = "START")
+            String endpoint) {
+        LocalDate toDay = to != null ? to : LocalDate.now(ZoneOffset.UTC);
+        LocalDate fromDay = from != null ? from : toDay.minusDays(30);
+        log.info("Getting CO2 heatmap for bbox [{}, {}, {}, {}], {} to {}",
+                minLat, minLng, maxLat, maxLng, fromDay, toDay);
+
+        HeatmapResponse response = heatmapService.getHeatmap(
+                minLat, minLng, maxLat, maxLng, fromDay, toDay, precision, endpoint);
+        var result = ApiResponse.<HeatmapResponse>builder()
+                .statusCode(200)
+                .message("Get heatmap successful")
+                .data(response)
+                .build();
+
+        return ResponseEntity.status(result.getStatusCode()).body(result);
+    }
+}
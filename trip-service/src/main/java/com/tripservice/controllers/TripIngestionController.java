@@ -0,0 +1,31 @@
+package com.tripservice.controllers;
+
+import com.tripservice.dtos.response.ApiResponse;
+import com.tripservice.dtos.response.IngestionMetricsResponse;
+import com.tripservice.services.ingest.TripIngestionPipeline;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/v1/admin/trips/ingestion")
+@RequiredArgsConstructor
+public class TripIngestionController {
+    private final TripIngestionPipeline ingestionPipeline;
+
+    /**
+     * Per-stage throughput, backpressure and queue depth of the ingestion pipeline
+     */
+    @GetMapping("/metrics")
+    public ResponseEntity<ApiResponse<IngestionMetricsResponse>> getMetrics() {
+        var result = ApiResponse.<IngestionMetricsResponse>builder()
+                .statusCode(200)
+                .message("Get ingestion metrics successful")
+                .data(ingestionPipeline.getMetrics())
+                .build();
+
+        return ResponseEntity.status(result.getStatusCode()).body(result);
+    }
+}
@@ -0,0 +1,52 @@
+package com.tripservice.controllers;
+
+import com.tripservice.dtos.request.TripPurgeRequest;
+import com.tripservice.dtos.response.ApiResponse;
+import com.tripservice.dtos.response.TripPurgeJobResponse;
+import com.tripservice.services.TripPurgeService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/v1/admin/trips/purge")
+@RequiredArgsConstructor
+@Slf4j
+public class TripPurgeController {
+    private final TripPurgeService purgeService;
+
+    /**
+     * Start a chunked bulk deletion of non-final trips matching the filter
+     */
+    @PostMapping
+    public ResponseEntity<ApiResponse<TripPurgeJobResponse>> start(@RequestBody TripPurgeRequest request) {
+        log.info("Starting trip purge job - filter: {}", request);
+
+        TripPurgeJobResponse response = purgeService.start(request);
+        var result = ApiResponse.<TripPurgeJobResponse>builder()
+                .statusCode(202)
+                .message("Trip purge job started")
+                .data(response)
+                .build();
+
+        return ResponseEntity.status(result.getStatusCode()).body(result);
+    }
+
+    /**
+     * Get purge job progress
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ApiResponse<TripPurgeJobResponse>> getJob(@PathVariable("jobId") UUID jobId) {
+        TripPurgeJobResponse response = purgeService.getJob(jobId);
+        var result = ApiResponse.<TripPurgeJobResponse>builder()
+                .statusCode(200)
+                .message("Get trip purge job successful")
+                .data(response)
+                .build();
+
+        return ResponseEntity.status(result.getStatusCode()).body(result);
+    }
+}
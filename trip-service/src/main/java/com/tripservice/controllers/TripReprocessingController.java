@@ -0,0 +1,72 @@
+package com.tripservice.controllers;
+
+import com.tripservice.dtos.response.ApiResponse;
+import com.tripservice.dtos.response.ReprocessingJobResponse;
+import com.tripservice.services.TripReprocessingService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/v1/admin/trips/reprocessing")
+@RequiredArgsConstructor
+@Slf4j
+public class TripReprocessingController {
+    private final TripReprocessingService reprocessingService;
+
+    /**
+     * Start reprocessing all archived uploads
+     *
+     * @param dryRun - true: chỉ tính diff, không ghi DB
+     */
+    @PostMapping
+    public ResponseEntity<ApiResponse<ReprocessingJobResponse>> start(
+            @RequestParam(value = "dryRun", defaultValue = "true")
+            boolean dryRun) {
+        log.info("Starting trip reprocessing job - dryRun: {}", dryRun);
+
+        ReprocessingJobResponse response = reprocessingService.start(dryRun);
+        var result = ApiResponse.<ReprocessingJobResponse>builder()
+                .statusCode(202)
+                .message("Reprocessing job started")
+                .data(response)
+                .build();
+
+        return ResponseEntity.status(result.getStatusCode()).body(result);
+    }
+
+    /**
+     * Resume job from its last checkpoint
+     */
+    @PostMapping("/{jobId}/resume")
+    public ResponseEntity<ApiResponse<ReprocessingJobResponse>> resume(@PathVariable("jobId") UUID jobId) {
+        log.info("Resuming trip reprocessing job: {}", jobId);
+
+        ReprocessingJobResponse response = reprocessingService.resume(jobId);
+        var result = ApiResponse.<ReprocessingJobResponse>builder()
+                .statusCode(202)
+                .message("Reprocessing job resumed")
+                .data(response)
+                .build();
+
+        return ResponseEntity.status(result.getStatusCode()).body(result);
+    }
+
+    /**
+     * Get job progress, throughput and diff sample
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ApiResponse<ReprocessingJobResponse>> getJob(@PathVariable("jobId") UUID jobId) {
+        ReprocessingJobResponse response = reprocessingService.getJob(jobId);
+        var result = ApiResponse.<ReprocessingJobResponse>builder()
+                .statusCode(200)
+                .message("Get reprocessing job successful")
+                .data(response)
+                .build();
+
+        return ResponseEntity.status(result.getStatusCode()).body(result);
+    }
+}
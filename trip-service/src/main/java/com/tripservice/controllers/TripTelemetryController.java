@@ -0,0 +1,76 @@
+package com.tripservice.controllers;
+
+import com.tripservice.dtos.request.TelemetryUploadRequest;
+import com.tripservice.dtos.response.ApiResponse;
+import com.tripservice.dtos.response.TelemetrySeriesResponse;
+import com.tripservice.services.TripTelemetryService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/v1/trips/{tripId}/telemetry")
+@RequiredArgsConstructor
+@Slf4j
+public class TripTelemetryController {
+    private final TripTelemetryService telemetryService;
+
+    /**
+     * Upload telemetry series (columnar JSON) for a trip
+     */
+    @PostMapping
+    public ResponseEntity<ApiResponse<List<TelemetrySeriesResponse>>> upload(
+            @PathVariable("tripId") UUID tripId,
+            @RequestBody TelemetryUploadRequest request) {
+        log.info("Uploading telemetry for trip: {}", tripId);
+
+        List<TelemetrySeriesResponse> response = telemetryService.upload(tripId, request);
+        var result = ApiResponse.<List<TelemetrySeriesResponse>>builder()
+                .statusCode(200)
+                .message("Telemetry uploaded")
+                .data(response)
+                .build();
+
+        return ResponseEntity.status(result.getStatusCode()).body(result);
+    }
+
+    /**
+     * List telemetry series available for a trip
+     */
+    @GetMapping
+    public ResponseEntity<ApiResponse<List<TelemetrySeriesResponse>>> listSeries(
+            @PathVariable("tripId") UUID tripId) {
+        List<TelemetrySeriesResponse> response = telemetryService.listSeries(tripId);
+        var result = ApiResponse.<List<TelemetrySeriesResponse>>builder()
+                .statusCode(200)
+                .message("Get telemetry series successful")
+                .data(response)
+                .build();
+
+        return ResponseEntity.status(result.getStatusCode()).body(result);
+    }
+
+    /**
+     * Get a chart-ready series downsampled (LTTB) to the requested number of points
+     */
+    @GetMapping("/{series}")
+    public ResponseEntity<ApiResponse<TelemetrySeriesResponse>> getSeries(
+            @PathVariable("tripId") UUID tripId,
+            @PathVariable("series") String series,
+            @RequestParam(value = "points", defaultValue = "500") int points) {
+        log.info("Getting telemetry series {} for trip {} ({} points)", series, tripId, points);
+
+        TelemetrySeriesResponse response = telemetryService.getSeries(tripId, series, points);
+        var result = ApiResponse.<TelemetrySeriesResponse>builder()
+                .statusCode(200)
+                .message("Get telemetry series successful")
+                .data(response)
+                .build();
+
+        return ResponseEntity.status(result.getStatusCode()).body(result);
+    }
+}
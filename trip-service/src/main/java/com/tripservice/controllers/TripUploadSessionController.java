@@ -0,0 +1,129 @@
+package com.tripservice.controllers;
+
+import com.tripservice.dtos.response.ApiResponse;
+import com.tripservice.dtos.response.UploadSessionResponse;
+import com.tripservice.services.ResumableUploadService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.fileupload.FileUploadException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/v1/trips/uploads")
+@RequiredArgsConstructor
+@Slf4j
+public class TripUploadSessionController {
+    private final ResumableUploadService uploadService;
+
+    /**
+     * Create a resumable upload session
+     *
+     * @param totalSize - Declared file size in bytes (optional)
+     */
+    @PostMapping
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> create(
+            @RequestParam("userId")
+            UUID userId,
+
+            @RequestParam(value = "vehicleId", required = false)
+            UUID vehicleId,
+
+            @RequestParam("format")
+            String format,
+
+            @RequestParam("filename")
+            String filename,
+
+            @RequestParam(value = "totalSize", required = false)
+            Long totalSize) throws IOException {
+        log.info("Creating upload session - userId: {}, file: {}, format: {}, size: {}",
+                userId, filename, format, totalSize);
+
+        UploadSessionResponse response = uploadService.create(userId, vehicleId, format, filename, totalSize);
+        var result = ApiResponse.<UploadSessionResponse>builder()
+                .statusCode(201)
+                .message("Upload session created")
+                .data(response)
+                .build();
+
+        return ResponseEntity.status(result.getStatusCode()).body(result);
+    }
+
+    /**
+     * Upload a chunk (raw bytes) at the given offset
+     */
+    @PutMapping(value = "/{sessionId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> uploadChunk(
+            @PathVariable("sessionId") UUID sessionId,
+            @RequestParam("offset") long offset,
+            InputStream body) throws FileUploadException {
+        UploadSessionResponse response = uploadService.appendChunk(sessionId, offset, body);
+        var result = ApiResponse.<UploadSessionResponse>builder()
+                .statusCode(200)
+                .message("Chunk received")
+                .data(response)
+                .build();
+
+        return ResponseEntity.status(result.getStatusCode())
+                .header("Upload-Offset", String.valueOf(response.getReceivedBytes()))
+                .body(result);
+    }
+
+    /**
+     * Get session status (receivedBytes is the offset to resume from)
+     */
+    @GetMapping("/{sessionId}")
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> getSession(@PathVariable("sessionId") UUID sessionId) {
+        UploadSessionResponse response = uploadService.getSession(sessionId);
+        var result = ApiResponse.<UploadSessionResponse>builder()
+                .statusCode(200)
+                .message("Get upload session successful")
+                .data(response)
+                .build();
+
+        return ResponseEntity.status(result.getStatusCode())
+                .header("Upload-Offset", String.valueOf(response.getReceivedBytes()))
+                .body(result);
+    }
+
+    /**
+     * Finish the upload and import the spooled file in background.
+     * On a FAILED session the import resumes, skipping rows imported by the previous attempt
+     */
+    @PostMapping("/{sessionId}/complete")
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> complete(@PathVariable("sessionId") UUID sessionId) {
+        log.info("Completing upload session: {}", sessionId);
+
+        UploadSessionResponse response = uploadService.complete(sessionId);
+        var result = ApiResponse.<UploadSessionResponse>builder()
+                .statusCode(202)
+                .message("Upload complete, import started")
+                .data(response)
+                .build();
+
+        return ResponseEntity.status(result.getStatusCode()).body(result);
+    }
+
+    /**
+     * Abort the upload and discard the spooled data
+     */
+    @DeleteMapping("/{sessionId}")
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> abort(@PathVariable("sessionId") UUID sessionId) {
+        log.info("Aborting upload session: {}", sessionId);
+
+        UploadSessionResponse response = uploadService.abort(sessionId);
+        var result = ApiResponse.<UploadSessionResponse>builder()
+                .statusCode(200)
+                .message("Upload session aborted")
+                .data(response)
+                .build();
+
+        return ResponseEntity.status(result.getStatusCode()).body(result);
+    }
+}
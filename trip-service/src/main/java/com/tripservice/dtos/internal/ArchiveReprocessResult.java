@@ -0,0 +1,26 @@
+package com.tripservice.dtos.internal;
+
+import com.tripservice.dtos.response.ReprocessDiffResponse;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Kết quả reprocess một raw archive
+ */
+@Data
+public class ArchiveReprocessResult {
+    private long rowsParsed;
+    private long rowsInvalid;
+    private long rowsSkippedMissing;
+    private long rowsUpdated;
+    private long rowsUnchanged;
+    private long rowsSkippedFinal;
+    private String error;
+    private final List<ReprocessDiffResponse> diffs = new ArrayList<>();
+
+    public boolean isFailed() {
+        return error != null;
+    }
+}
@@ -0,0 +1,304 @@
+package com.tripservice.dtos.internal;
+
+import com.tripservice.constants.VehicleType;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Batch trip đã parse lưu dạng cột primitive cho pipeline ingest.
+ * <p>
+ * Mỗi row chỉ tốn vài slot trong các mảng long / double / byte / int thay vì
+ * TripData + Double/Instant/UUID boxed; chuỗi (vehicle type, location) được
+ * dictionary-encode theo batch. Entity Trip chỉ được tạo ở stage persist.
+ * <p>
+ * Giá trị thiếu: thời gian = {@link #MISSING_TIME}, số thực = NaN,
+ * chuỗi = {@link #NO_VALUE}, vehicle type không nhận diện = {@link #UNKNOWN_VEHICLE}.
+ */
+public class TripColumnBatch {
+    public static final long MISSING_TIME = Long.MIN_VALUE;
+    public static final byte UNKNOWN_VEHICLE = -1;
+    public static final int NO_VALUE = -1;
+
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+
+    private final int capacity;
+    private int size;
+
+    private final long[] vehicleIdMsb;
+    private final long[] vehicleIdLsb;
+    private final long[] startMillis;
+    private final long[] endMillis;
+    private final double[] distanceKm;
+    private final double[] averageSpeed;
+    private final double[] batteryUsed;
+    private final byte[] vehicleType;
+    private final int[] vehicleTypeLabel;
+    private final int[] startLocation;
+    private final int[] endLocation;
+    private final int[] sourceRow;
+    // Hiếm khi có, chỉ cấp phát khi gặp row đầu tiên có GPS
+    private String[] gpsCoordinates;
+
+    // Kết quả stage PROCESS
+    private final double[] co2SavedKg;
+    private final double[] anomalyScore;
+
+    private final List<String> dictionary = new ArrayList<>();
+    private final Map<String, Integer> dictionaryIndex = new HashMap<>();
+
+    public TripColumnBatch(int capacity) {
+        this.capacity = capacity;
+        this.vehicleIdMsb = new long[capacity];
+        this.vehicleIdLsb = new long[capacity];
+        this.startMillis = new long[capacity];
+        this.endMillis = new long[capacity];
+        this.distanceKm = new double[capacity];
+        this.averageSpeed = new double[capacity];
+        this.batteryUsed = new double[capacity];
+        this.vehicleType = new byte[capacity];
+        this.vehicleTypeLabel = new int[capacity];
+        this.startLocation = new int[capacity];
+        this.endLocation = new int[capacity];
+        this.sourceRow = new int[capacity];
+        this.co2SavedKg = new double[capacity];
+        this.anomalyScore = new double[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * Chép một record vào batch, TripData có thể bỏ ngay sau đó
+     *
+     * @return row index
+     */
+    public int add(TripData data) {
+        UUID vehicleId = data.getVehicleId();
+        return addRow(
+                vehicleId != null ? vehicleId.getMostSignificantBits() : 0L,
+                vehicleId != null ? vehicleId.getLeastSignificantBits() : 0L,
+                data.getStartTime() != null ? data.getStartTime().toEpochMilli() : MISSING_TIME,
+                data.getEndTime() != null ? data.getEndTime().toEpochMilli() : MISSING_TIME,
+                data.getDistanceKm() != null ? data.getDistanceKm() : Double.NaN,
+                data.getAverageSpeed() != null ? data.getAverageSpeed() : Double.NaN,
+                data.getBatteryUsed() != null ? data.getBatteryUsed() : Double.NaN,
+                data.getVehicleType(),
+                data.getStartLocation(),
+                data.getEndLocation(),
+                data.getGpsCoordinates(),
+                data.getSourceRow() != null ? data.getSourceRow() : size);
+    }
+
+    /**
+     * Ghi một row từ giá trị primitive (reader dạng cột như Arrow), không qua TripData
+     *
+     * @return row index
+     */
+    public int addRow(long vehicleIdMsb, long vehicleIdLsb, long startMillis, long endMillis,
+                      double distanceKm, double averageSpeed, double batteryUsed,
+                      String vehicleTypeLabel, String startLocation, String endLocation,
+                      String gpsCoordinates, int sourceRow) {
+        int row = size++;
+        this.vehicleIdMsb[row] = vehicleIdMsb;
+        this.vehicleIdLsb[row] = vehicleIdLsb;
+        this.startMillis[row] = startMillis;
+        this.endMillis[row] = endMillis;
+        this.distanceKm[row] = distanceKm;
+        this.averageSpeed[row] = averageSpeed;
+        this.batteryUsed[row] = batteryUsed;
+
+        VehicleType type = VehicleType.fromString(vehicleTypeLabel);
+        this.vehicleType[row] = type != null ? (byte) type.ordinal() : UNKNOWN_VEHICLE;
+        this.vehicleTypeLabel[row] = encode(vehicleTypeLabel);
+        this.startLocation[row] = encode(startLocation);
+        this.endLocation[row] = encode(endLocation);
+        this.sourceRow[row] = sourceRow;
+
+        if (gpsCoordinates != null) {
+            if (this.gpsCoordinates == null) {
+                this.gpsCoordinates = new String[capacity];
+            }
+            this.gpsCoordinates[row] = gpsCoordinates;
+        }
+        co2SavedKg[row] = Double.NaN;
+        anomalyScore[row] = 0.0;
+        return row;
+    }
+
+    /**
+     * Dựng lại TripData của một row (cho consumer xử lý theo record)
+     */
+    public TripData toTripData(int row, String uploadSource) {
+        return TripData.builder()
+                .vehicleId(vehicleId(row))
+                .startTime(startTime(row))
+                .endTime(endTime(row))
+                .distanceKm(boxed(distanceKm[row]))
+                .vehicleType(vehicleTypeLabel(row))
+                .averageSpeed(boxed(averageSpeed[row]))
+                .batteryUsed(boxed(batteryUsed[row]))
+                .startLocation(startLocation(row))
+                .endLocation(endLocation(row))
+                .gpsCoordinates(gpsCoordinates(row))
+                .uploadSource(uploadSource)
+                .sourceRow(sourceRow[row])
+                .build();
+    }
+
+    // ==================== COLUMN VIEWS (dùng cho rule engine / batch tính toán) ====================
+
+    public double[] distanceKmColumn() {
+        return distanceKm;
+    }
+
+    public double[] batteryUsedColumn() {
+        return batteryUsed;
+    }
+
+    public byte[] vehicleTypeColumn() {
+        return vehicleType;
+    }
+
+    public double[] co2SavedKgColumn() {
+        return co2SavedKg;
+    }
+
+    /**
+     * Thời lượng (giây) của mỗi row, MISSING_TIME nếu thiếu start/end
+     */
+    public long[] durationSecondsColumn() {
+        long[] durations = new long[size];
+        for (int i = 0; i < size; i++) {
+            durations[i] = startMillis[i] == MISSING_TIME || endMillis[i] == MISSING_TIME
+                    ? MISSING_TIME
+                    : Math.floorDiv(endMillis[i], 1000) - Math.floorDiv(startMillis[i], 1000);
+        }
+        return durations;
+    }
+
+    // ==================== ROW ACCESSORS ====================
+
+    public long vehicleIdMsb(int row) {
+        return vehicleIdMsb[row];
+    }
+
+    public long vehicleIdLsb(int row) {
+        return vehicleIdLsb[row];
+    }
+
+    public UUID vehicleId(int row) {
+        return new UUID(vehicleIdMsb[row], vehicleIdLsb[row]);
+    }
+
+    public long startMillis(int row) {
+        return startMillis[row];
+    }
+
+    public long endMillis(int row) {
+        return endMillis[row];
+    }
+
+    public Instant startTime(int row) {
+        return startMillis[row] == MISSING_TIME ? null : Instant.ofEpochMilli(startMillis[row]);
+    }
+
+    public Instant endTime(int row) {
+        return endMillis[row] == MISSING_TIME ? null : Instant.ofEpochMilli(endMillis[row]);
+    }
+
+    public double distanceKm(int row) {
+        return distanceKm[row];
+    }
+
+    public double averageSpeed(int row) {
+        return averageSpeed[row];
+    }
+
+    public double batteryUsed(int row) {
+        return batteryUsed[row];
+    }
+
+    /**
+     * VehicleType đã nhận diện, null nếu không rõ
+     */
+    public VehicleType vehicleType(int row) {
+        return vehicleType[row] == UNKNOWN_VEHICLE ? null : VEHICLE_TYPES[vehicleType[row]];
+    }
+
+    /**
+     * Chuỗi vehicle_type gốc trong file
+     */
+    public String vehicleTypeLabel(int row) {
+        return decode(vehicleTypeLabel[row]);
+    }
+
+    public String startLocation(int row) {
+        return decode(startLocation[row]);
+    }
+
+    public String endLocation(int row) {
+        return decode(endLocation[row]);
+    }
+
+    public String gpsCoordinates(int row) {
+        return gpsCoordinates != null ? gpsCoordinates[row] : null;
+    }
+
+    public int sourceRow(int row) {
+        return sourceRow[row];
+    }
+
+    public double co2SavedKg(int row) {
+        return co2SavedKg[row];
+    }
+
+    public double anomalyScore(int row) {
+        return anomalyScore[row];
+    }
+
+    public void setAnomalyScore(int row, double score) {
+        anomalyScore[row] = score;
+    }
+
+    /**
+     * Số chuỗi khác nhau trong dictionary của batch
+     */
+    public int dictionarySize() {
+        return dictionary.size();
+    }
+
+    private static Double boxed(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    private int encode(String value) {
+        if (value == null) {
+            return NO_VALUE;
+        }
+        Integer code = dictionaryIndex.get(value);
+        if (code == null) {
+            code = dictionary.size();
+            dictionary.add(value);
+            dictionaryIndex.put(value, code);
+        }
+        return code;
+    }
+
+    private String decode(int code) {
+        return code == NO_VALUE ? null : dictionary.get(code);
+    }
+}
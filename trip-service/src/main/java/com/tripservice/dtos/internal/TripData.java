@@ -26,4 +26,5 @@ public class TripData {
     private String endLocation;
 
     private String uploadSource;
+    private Integer sourceRow;           // Vị trí record trong file gốc (0-based, không tính header)
 }
@@ -0,0 +1,31 @@
+package com.tripservice.dtos.internal;
+
+import com.tripservice.entities.Trip;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Kết quả import một file lớn theo batch
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripImportResult {
+    private UUID rawDataId;
+    private long totalRecords;
+    private long importedTrips;
+    private long parseErrors;
+    private long implausibleRecords;
+    private Map<String, Long> violationCounts;
+
+    // Trip đầu tiên theo thứ tự trong file (response của upload đơn)
+    @ToString.Exclude
+    private Trip firstTrip;
+}
@@ -0,0 +1,98 @@
+package com.tripservice.dtos.internal;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Kết quả validate một batch trip: mỗi row có một bitmask các rule bị vi phạm
+ * (bit i tương ứng ruleIds[i]). Bitmask = 0 nghĩa là row hợp lệ.
+ */
+public class TripValidationResult {
+    private final String[] ruleIds;
+    private final long[] violations;
+    private final int invalidCount;
+
+    public TripValidationResult(String[] ruleIds, long[] violations) {
+        this.ruleIds = ruleIds;
+        this.violations = violations;
+        int invalid = 0;
+        for (long mask : violations) {
+            if (mask != 0) {
+                invalid++;
+            }
+        }
+        this.invalidCount = invalid;
+    }
+
+    public int size() {
+        return violations.length;
+    }
+
+    public int getValidCount() {
+        return violations.length - invalidCount;
+    }
+
+    public int getInvalidCount() {
+        return invalidCount;
+    }
+
+    public boolean isValid(int row) {
+        return violations[row] == 0;
+    }
+
+    public long getViolationMask(int row) {
+        return violations[row];
+    }
+
+    /**
+     * Danh sách rule id mà row vi phạm
+     */
+    public List<String> getViolatedRuleIds(int row) {
+        long mask = violations[row];
+        if (mask == 0) {
+            return List.of();
+        }
+        List<String> ids = new ArrayList<>(Long.bitCount(mask));
+        while (mask != 0) {
+            int bit = Long.numberOfTrailingZeros(mask);
+            ids.add(ruleIds[bit]);
+            mask &= mask - 1;
+        }
+        return ids;
+    }
+
+    /**
+     * Số row vi phạm theo từng rule id
+     */
+    public Map<String, Long> getViolationCounts() {
+        long[] counts = new long[ruleIds.length];
+        for (long mask : violations) {
+            while (mask != 0) {
+                counts[Long.numberOfTrailingZeros(mask)]++;
+                mask &= mask - 1;
+            }
+        }
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < ruleIds.length; i++) {
+            if (counts[i] > 0) {
+                result.put(ruleIds[i], counts[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Lọc ra các phần tử hợp lệ (giữ nguyên thứ tự)
+     */
+    public <T> List<T> filterValid(List<T> rows) {
+        List<T> valid = new ArrayList<>(getValidCount());
+        for (int i = 0; i < violations.length; i++) {
+            if (violations[i] == 0) {
+                valid.add(rows.get(i));
+            }
+        }
+        return valid;
+    }
+}
@@ -0,0 +1,20 @@
+package com.tripservice.dtos.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Telemetry dạng cột: một mảng timestamps chung và mỗi series một mảng giá trị cùng độ dài
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TelemetryUploadRequest {
+    private long[] timestamps;              // epoch millis, tăng dần
+    private Map<String, double[]> series;   // "speed" -> [...], "battery" -> [...]
+}
@@ -0,0 +1,27 @@
+package com.tripservice.dtos.request;
+
+import com.tripservice.constants.TripStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Điều kiện xoá hàng loạt, các trường được AND với nhau; cần ít nhất một điều kiện
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripPurgeRequest {
+    private UUID rawDataId;             // archive của file upload
+    private UUID uploadSessionId;       // resumable upload session (archive + user của session)
+    private UUID userId;
+    private Instant createdFrom;        // inclusive
+    private Instant createdTo;          // exclusive
+    private List<TripStatus> statuses;  // mặc định: PENDING, CALCULATED; trạng thái đang verify phải liệt kê rõ
+}
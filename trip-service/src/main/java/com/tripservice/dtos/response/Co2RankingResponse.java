@@ -0,0 +1,24 @@
+package com.tripservice.dtos.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Co2RankingResponse {
+    private UUID userId;
+    private String period;              // yyyy-MM (UTC)
+    private Double totalCo2Kg;
+    private Long verifiedTrips;
+    private Double percentile;          // % user có tổng thấp hơn, null nếu user chưa có trip verify
+    private Double topPercent;          // "top x%" cho dashboard
+    private Long rankedUsers;
+    private Double medianCo2Kg;
+    private Double p90Co2Kg;
+}
@@ -0,0 +1,21 @@
+package com.tripservice.dtos.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HeatmapCellResponse {
+    private String geohash;
+    private Double minLat;
+    private Double minLng;
+    private Double maxLat;
+    private Double maxLng;
+    private Long trips;
+    private Double distanceKm;
+    private Double co2Kg;
+}
@@ -0,0 +1,25 @@
+package com.tripservice.dtos.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HeatmapResponse {
+    private Integer precision;           // Độ dài geohash của các cell
+    private String endpoint;             // START hoặc END
+    private LocalDate from;
+    private LocalDate to;
+    private Long totalTrips;
+    private Double totalDistanceKm;
+    private Double totalCo2Kg;
+    private Double maxCellCo2Kg;         // Để client scale màu
+    private List<HeatmapCellResponse> cells;
+}
@@ -0,0 +1,24 @@
+package com.tripservice.dtos.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionAdmissionMetricsResponse {
+    private Integer maxConcurrent;
+    private Integer active;
+    private Integer queued;
+    private Integer maxQueued;
+    private Long admitted;
+    private Long rejected;
+    private Integer dbConnectionsInUse;  // Connection đang dùng cho ingest
+    private Integer maxDbConnections;
+    private Double rowsPerSecondPerUser;
+    private Long throttledMillis;        // Tổng thời gian parse bị giữ lại bởi token bucket
+    private Integer trackedUsers;
+}
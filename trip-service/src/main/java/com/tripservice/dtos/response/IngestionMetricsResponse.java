@@ -0,0 +1,20 @@
+package com.tripservice.dtos.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionMetricsResponse {
+    private Integer activeRuns;
+    private Long completedRuns;
+    private Integer batchSize;
+    private List<IngestionStageMetricsResponse> stages;
+    private IngestionAdmissionMetricsResponse admission;
+}
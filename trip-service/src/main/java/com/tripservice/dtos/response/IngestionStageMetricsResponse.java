@@ -0,0 +1,22 @@
+package com.tripservice.dtos.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionStageMetricsResponse {
+    private String stage;                // PARSE, PROCESS, PERSIST
+    private Integer workers;
+    private Long recordsProcessed;
+    private Long batchesProcessed;
+    private Long busyMillis;
+    private Long blockedMillis;          // Chờ queue phía sau (backpressure)
+    private Double recordsPerBusySecond; // Throughput của một worker khi bận
+    private Integer inputQueueDepth;     // Tổng các pipeline đang chạy
+    private Integer inputQueueCapacity;
+}
@@ -0,0 +1,21 @@
+package com.tripservice.dtos.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReprocessDiffResponse {
+    private UUID rawDataId;
+    private Integer rowOffset;
+    private UUID tripId;                 // null nếu là row mới
+    private String action;               // INSERT, UPDATE, SKIPPED_FINAL, NOW_INVALID
+    private Map<String, String> changes; // field -> "old -> new"
+}
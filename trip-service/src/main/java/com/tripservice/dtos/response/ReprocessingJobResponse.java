@@ -0,0 +1,46 @@
+package com.tripservice.dtos.response;
+
+import com.tripservice.constants.ReprocessingJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReprocessingJobResponse {
+    private UUID id;
+    private ReprocessingJobStatus status;
+    private Boolean dryRun;
+
+    // Progress
+    private Long totalArchives;
+    private Long checkpointArchives;
+    private Long failedArchives;
+
+    // Row counts
+    private Long rowsParsed;
+    private Long rowsInvalid;
+    private Long rowsSkippedMissing;
+    private Long rowsUpdated;
+    private Long rowsUnchanged;
+    private Long rowsSkippedFinal;
+
+    // Throughput
+    private Double rowsPerSecond;
+    private Double archivesPerSecond;
+
+    private String errorMessage;
+    private Instant startedAt;
+    private Instant updatedAt;
+    private Instant finishedAt;
+
+    // Sample diff (dry-run hoặc thay đổi thực tế), chỉ có khi job chạy trên instance này
+    private List<ReprocessDiffResponse> diffs;
+}
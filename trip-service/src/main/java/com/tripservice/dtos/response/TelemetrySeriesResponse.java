@@ -0,0 +1,27 @@
+package com.tripservice.dtos.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TelemetrySeriesResponse {
+    private UUID tripId;
+    private String series;
+    private Instant startTime;
+    private Instant endTime;
+    private Integer originalPoints;
+    private Integer returnedPoints;
+    private Integer storedBytes;         // Kích thước sau nén
+
+    // Chart-ready (đã downsample), null khi chỉ list metadata
+    private long[] timestamps;
+    private double[] values;
+}
@@ -32,6 +32,9 @@ public class TripDetailResponse {
     private String co2Unit;              // "kg" or "ton"
     private String formattedCO2;         // "10.5 kg"
 
+    // Anomaly score cho verifier (0 = bình thường)
+    private Double anomalyScore;
+
     // Status
     private TripStatus status;
     private String statusDisplay;        // "Calculated"
@@ -41,6 +44,8 @@ public class TripDetailResponse {
     private String startLocation;
     private String endLocation;
     private String gpsCoordinates;
+    private Integer gpsPointCount;
+    private Double gpsDistanceKm;        // Quãng đường tính lại từ GPS
     private Double batteryUsed;
     private String vehicleType;
 
@@ -0,0 +1,43 @@
+package com.tripservice.dtos.response;
+
+import com.tripservice.constants.TripPurgeJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripPurgeJobResponse {
+    private UUID id;
+    private TripPurgeJobStatus status;
+
+    // Filter
+    private UUID rawDataId;
+    private UUID uploadSessionId;
+    private UUID userId;
+    private Instant createdFrom;
+    private Instant createdTo;
+    private List<String> statuses;
+
+    // Progress
+    private Integer chunkSize;
+    private Long matchedTrips;
+    private Long deletedTrips;
+    private Long deletedTelemetry;
+    private Long chunks;
+    private Double percentComplete;
+    private Double tripsPerSecond;
+    private Boolean archiveRemoved;
+
+    private String errorMessage;
+    private Instant startedAt;
+    private Instant updatedAt;
+    private Instant finishedAt;
+}
@@ -0,0 +1,33 @@
+package com.tripservice.dtos.response;
+
+import com.tripservice.constants.UploadSessionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionResponse {
+    private UUID id;
+    private UploadSessionStatus status;
+    private String filename;
+    private String format;
+    private Long totalSize;
+    private Long receivedBytes;          // Offset để gửi chunk tiếp theo
+
+    // Kết quả import (khi COMPLETED)
+    private UUID rawDataId;
+    private Long totalRecords;
+    private Long importedTrips;
+    private Long skippedRecords;
+    private String errorMessage;
+
+    private Instant createdAt;
+    private Instant expiresAt;
+}
@@ -0,0 +1,27 @@
+package com.tripservice.dtos.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Kết quả validate một record (một dòng NDJSON, type = "row")
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UploadValidationRowResponse {
+    @Builder.Default
+    private String type = "row";
+    private Integer row;                 // Thứ tự record trong file (1-based, không tính header)
+    private Boolean valid;
+    private List<String> reasons;        // Rule id vi phạm hoặc PARSE_ERROR
+    private String message;              // Chi tiết lỗi parse
+    private Double co2SavedKg;
+}
@@ -0,0 +1,29 @@
+package com.tripservice.dtos.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Dòng NDJSON cuối cùng của dry-run upload (type = "summary")
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UploadValidationSummaryResponse {
+    @Builder.Default
+    private String type = "summary";
+    private Integer totalRows;
+    private Integer validRows;
+    private Integer invalidRows;
+    private Map<String, Long> failuresByReason;
+    private Double totalCo2SavedKg;
+    private Long elapsedMillis;
+    private String error;                // Lỗi làm dừng cả file (format, header, cú pháp JSON)
+}
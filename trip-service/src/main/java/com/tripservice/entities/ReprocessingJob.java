@@ -0,0 +1,91 @@
+package com.tripservice.entities;
+
+import com.tripservice.constants.ReprocessingJobStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Job rebuild trips từ raw upload archive.
+ * Checkpoint = số archive đã xử lý xong theo thứ tự (created_at, id).
+ */
+@Entity
+@Table(name = "trip_reprocessing_jobs")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReprocessingJob {
+    @Id
+    @GeneratedValue
+    @Column(name = "id", updatable = false, nullable = false)
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private ReprocessingJobStatus status;
+
+    @Column(name = "dry_run", nullable = false)
+    private boolean dryRun;
+
+    @Column(name = "total_archives")
+    private long totalArchives;
+
+    @Column(name = "checkpoint_archives")
+    private long checkpointArchives;
+
+    @Column(name = "rows_parsed")
+    private long rowsParsed;
+
+    @Column(name = "rows_invalid")
+    private long rowsInvalid;
+
+    // Row không còn trip (đã xoá / purge), reprocess không tạo lại
+    @Column(name = "rows_skipped_missing")
+    private long rowsSkippedMissing;
+
+    @Column(name = "rows_updated")
+    private long rowsUpdated;
+
+    @Column(name = "rows_unchanged")
+    private long rowsUnchanged;
+
+    // Row có thay đổi nhưng trip đã ở trạng thái final nên không cập nhật
+    @Column(name = "rows_skipped_final")
+    private long rowsSkippedFinal;
+
+    @Column(name = "failed_archives")
+    private long failedArchives;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    // Thời gian xử lý thực tế (không tính lúc job bị dừng)
+    @Column(name = "elapsed_millis")
+    private long elapsedMillis;
+
+    @PrePersist
+    protected void onCreate() {
+        startedAt = Instant.now();
+        updatedAt = Instant.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = Instant.now();
+    }
+}
@@ -14,7 +14,9 @@ import java.util.UUID;
 @Table(name = "trips", indexes = {
         @Index(name = "idx_user_id", columnList = "user_id"),
         @Index(name = "idx_status", columnList = "status"),
-        @Index(name = "idx_created_at", columnList = "created_at")
+        @Index(name = "idx_created_at", columnList = "created_at"),
+        @Index(name = "idx_status_created_at", columnList = "status, created_at"),
+        @Index(name = "idx_raw_data_row", columnList = "raw_data_id, raw_row_offset")
 })
 @Data
 @Builder
@@ -63,15 +65,39 @@ public class Trip {
     @Column(name = "end_location", length = 255)
     private String endLocation;
 
+    // Raw JSON, chỉ giữ lại khi không encode được
     @Column(name = "gps_coordinates", columnDefinition = "TEXT")
     private String gpsCoordinates;
 
+    // GPS track dạng delta + varint (xem GpsCoordinatesCodec)
+    @Lob
+    @Column(name = "gps_encoded", columnDefinition = "MEDIUMBLOB")
+    private byte[] gpsEncoded;
+
+    @Column(name = "gps_point_count")
+    private Integer gpsPointCount;
+
+    // Quãng đường tính lại từ GPS track (haversine)
+    @Column(name = "gps_distance_km")
+    private Double gpsDistanceKm;
+
     @Column(name = "battery_used")
     private Double batteryUsed;
 
     @Column(name = "average_speed")
     private Double averageSpeed;
 
+    // Điểm bất thường so với lịch sử vehicle / user (TripAnomalyScorer)
+    @Column(name = "anomaly_score")
+    private Double anomalyScore;
+
+    // Link tới file upload gốc (TripRawData) và vị trí record trong file
+    @Column(name = "raw_data_id")
+    private UUID rawDataId;
+
+    @Column(name = "raw_row_offset")
+    private Integer rawRowOffset;
+
     @Column(name = "created_at")
     private Instant createdAt;
 
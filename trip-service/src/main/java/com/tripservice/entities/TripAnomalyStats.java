@@ -0,0 +1,68 @@
+package com.tripservice.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Snapshot running statistics (Welford) của TripAnomalyScorer theo vehicle / user
+ */
+@Entity
+@Table(name = "trip_anomaly_stats")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripAnomalyStats {
+    @EmbeddedId
+    private StatsKey key;
+
+    @Column(name = "speed_count")
+    private long speedCount;
+
+    @Column(name = "speed_mean")
+    private double speedMean;
+
+    @Column(name = "speed_m2")
+    private double speedM2;
+
+    @Column(name = "efficiency_count")
+    private long efficiencyCount;
+
+    @Column(name = "efficiency_mean")
+    private double efficiencyMean;
+
+    @Column(name = "efficiency_m2")
+    private double efficiencyM2;
+
+    @Column(name = "distance_count")
+    private long distanceCount;
+
+    @Column(name = "distance_mean")
+    private double distanceMean;
+
+    @Column(name = "distance_m2")
+    private double distanceM2;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StatsKey implements Serializable {
+        // VEHICLE hoặc USER
+        @Column(name = "scope", length = 10, nullable = false)
+        private String scope;
+
+        @Column(name = "subject_id", nullable = false)
+        private UUID subjectId;
+    }
+}
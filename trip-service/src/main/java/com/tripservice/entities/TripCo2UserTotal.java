@@ -0,0 +1,47 @@
+package com.tripservice.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Tổng CO2 đã verify của user theo period (tháng UTC, "yyyy-MM").
+ * Là nguồn sự thật để dời điểm của user trong quantile sketch khi có trip mới được verify.
+ */
+@Entity
+@Table(name = "trip_co2_user_totals")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripCo2UserTotal {
+    @EmbeddedId
+    private TotalKey key;
+
+    @Column(name = "total_kg", nullable = false)
+    private double totalKg;
+
+    @Column(name = "trips", nullable = false)
+    private long trips;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TotalKey implements Serializable {
+        @Column(name = "period", length = 7, nullable = false)
+        private String period;
+
+        @Column(name = "user_id", nullable = false)
+        private UUID userId;
+    }
+}
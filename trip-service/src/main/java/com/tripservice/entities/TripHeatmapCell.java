@@ -0,0 +1,62 @@
+package com.tripservice.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Counter CO2 theo ô geohash / ngày / loại điểm (START, END) cho heatmap.
+ * Được cộng dồn lúc ingest nên truy vấn heatmap không cần quét bảng trips.
+ */
+@Entity
+@Table(name = "trip_heatmap_cells", indexes = {
+        @Index(name = "idx_heatmap_lookup", columnList = "precision_level, endpoint, bucket_day, center_lat")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripHeatmapCell {
+    @EmbeddedId
+    private CellKey key;
+
+    @Column(name = "precision_level", nullable = false)
+    private int precisionLevel;
+
+    @Column(name = "center_lat", nullable = false)
+    private double centerLat;
+
+    @Column(name = "center_lng", nullable = false)
+    private double centerLng;
+
+    @Column(name = "trips", nullable = false)
+    private long trips;
+
+    @Column(name = "distance_km", nullable = false)
+    private double distanceKm;
+
+    @Column(name = "co2_kg", nullable = false)
+    private double co2Kg;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CellKey implements Serializable {
+        @Column(name = "geohash", length = 12, nullable = false)
+        private String geohash;
+
+        // START hoặc END
+        @Column(name = "endpoint", length = 5, nullable = false)
+        private String endpoint;
+
+        // Ngày (UTC) của start_time
+        @Column(name = "bucket_day", nullable = false)
+        private LocalDate bucketDay;
+    }
+}
@@ -0,0 +1,98 @@
+package com.tripservice.entities;
+
+import com.tripservice.constants.TripPurgeJobStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Job xoá hàng loạt trip chưa ở trạng thái final theo điều kiện lọc.
+ * Xoá theo từng chunk, mỗi chunk một transaction ngắn; progress được lưu sau mỗi chunk.
+ */
+@Entity
+@Table(name = "trip_purge_jobs")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripPurgeJob {
+    @Id
+    @GeneratedValue
+    @Column(name = "id", updatable = false, nullable = false)
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private TripPurgeJobStatus status;
+
+    // Điều kiện lọc (null = không lọc theo trường đó)
+    @Column(name = "raw_data_id")
+    private UUID rawDataId;
+
+    @Column(name = "upload_session_id")
+    private UUID uploadSessionId;
+
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @Column(name = "created_from")
+    private Instant createdFrom;
+
+    @Column(name = "created_to")
+    private Instant createdTo;
+
+    // Danh sách TripStatus, phân tách bằng dấu phẩy
+    @Column(name = "statuses", nullable = false, length = 255)
+    private String statuses;
+
+    @Column(name = "chunk_size", nullable = false)
+    private int chunkSize;
+
+    // Số trip khớp điều kiện lúc bắt đầu job
+    @Column(name = "matched_trips")
+    private long matchedTrips;
+
+    @Column(name = "deleted_trips")
+    private long deletedTrips;
+
+    @Column(name = "deleted_telemetry")
+    private long deletedTelemetry;
+
+    @Column(name = "chunks")
+    private long chunks;
+
+    // Raw archive đã bị xoá vì không còn trip nào tham chiếu
+    @Column(name = "archive_removed", nullable = false)
+    private boolean archiveRemoved;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    @Column(name = "elapsed_millis")
+    private long elapsedMillis;
+
+    @PrePersist
+    protected void onCreate() {
+        startedAt = Instant.now();
+        updatedAt = Instant.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = Instant.now();
+    }
+}
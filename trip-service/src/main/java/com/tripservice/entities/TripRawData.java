@@ -1,4 +1,62 @@
 package com.tripservice.entities;
 
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * File upload gốc, lưu một lần theo content hash (SHA-256) và nén zstd
+ */
+@Entity
+@Table(name = "trip_raw_data", indexes = {
+        @Index(name = "idx_raw_content_hash", columnList = "content_hash", unique = true),
+        @Index(name = "idx_raw_uploaded_by", columnList = "uploaded_by")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class TripRawData {
+    @Id
+    @GeneratedValue
+    @Column(name = "id", updatable = false, nullable = false)
+    private UUID id;
+
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+
+    // Key trong RawDataStore
+    @Column(name = "storage_key", nullable = false, length = 255)
+    private String storageKey;
+
+    @Column(name = "format", nullable = false, length = 20)
+    private String format;
+
+    @Column(name = "original_filename", length = 255)
+    private String originalFilename;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    @Column(name = "original_size")
+    private Long originalSize;
+
+    @Column(name = "compressed_size")
+    private Long compressedSize;
+
+    @Column(name = "uploaded_by")
+    private UUID uploadedBy;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = Instant.now();
+    }
 }
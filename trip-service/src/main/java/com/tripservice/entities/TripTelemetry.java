@@ -0,0 +1,61 @@
+package com.tripservice.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Một series telemetry (speed, battery, ...) của trip, lưu dạng cột nén Gorilla
+ */
+@Entity
+@Table(name = "trip_telemetry", indexes = {
+        @Index(name = "idx_telemetry_trip_series", columnList = "trip_id, series_name", unique = true)
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripTelemetry {
+    @Id
+    @GeneratedValue
+    @Column(name = "id", updatable = false, nullable = false)
+    private UUID id;
+
+    @Column(name = "trip_id", nullable = false)
+    private UUID tripId;
+
+    @Column(name = "series_name", nullable = false, length = 50)
+    private String seriesName;
+
+    @Column(name = "point_count", nullable = false)
+    private Integer pointCount;
+
+    @Column(name = "start_time")
+    private Instant startTime;
+
+    @Column(name = "end_time")
+    private Instant endTime;
+
+    // Delta-of-delta encoded epoch millis
+    @Lob
+    @Column(name = "timestamps_encoded", nullable = false, columnDefinition = "MEDIUMBLOB")
+    private byte[] timestampsEncoded;
+
+    // XOR encoded doubles
+    @Lob
+    @Column(name = "values_encoded", nullable = false, columnDefinition = "MEDIUMBLOB")
+    private byte[] valuesEncoded;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = Instant.now();
+    }
+}
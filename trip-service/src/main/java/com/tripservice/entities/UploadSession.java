@@ -0,0 +1,91 @@
+package com.tripservice.entities;
+
+import com.tripservice.constants.UploadSessionStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Phiên upload resumable: các chunk được ghi nối vào spool file cục bộ,
+ * receivedBytes là offset đã ghi bền (fsync) mà client tiếp tục từ đó.
+ */
+@Entity
+@Table(name = "trip_upload_sessions", indexes = {
+        @Index(name = "idx_upload_session_status_expires", columnList = "status, expires_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSession {
+    @Id
+    @GeneratedValue
+    @Column(name = "id", updatable = false, nullable = false)
+    private UUID id;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Column(name = "vehicle_id")
+    private UUID vehicleId;
+
+    @Column(name = "format", nullable = false, length = 10)
+    private String format;
+
+    @Column(name = "filename", nullable = false)
+    private String filename;
+
+    // Kích thước khai báo lúc tạo session (null nếu client không biết trước)
+    @Column(name = "total_size")
+    private Long totalSize;
+
+    @Column(name = "received_bytes", nullable = false)
+    private long receivedBytes;
+
+    @Column(name = "spool_path", nullable = false, length = 500)
+    private String spoolPath;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private UploadSessionStatus status;
+
+    @Column(name = "raw_data_id")
+    private UUID rawDataId;
+
+    @Column(name = "total_records")
+    private Long totalRecords;
+
+    @Column(name = "imported_trips")
+    private Long importedTrips;
+
+    @Column(name = "skipped_records")
+    private Long skippedRecords;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = Instant.now();
+        updatedAt = Instant.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = Instant.now();
+    }
+}
@@ -1,17 +1,25 @@
 package com.tripservice.events;
 
 import com.tripservice.configs.RabbitMQConfig;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class EventPublisher {
     
     private final RabbitTemplate rabbitTemplate;
+    private final long confirmTimeoutMs;
+
+    public EventPublisher(RabbitTemplate rabbitTemplate,
+                          @Value("${trip.events.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+    }
     
     public void publishTripVerified(TripEvent event) {
         try {
@@ -26,4 +34,23 @@ public class EventPublisher {
             log.error("❌ Failed to publish trip.verified event", e);
         }
     }
+
+    /**
+     * Publish nhiều event trên cùng một channel và chờ broker confirm.
+     * Lỗi (kể cả nack / hết thời gian chờ confirm) được ném ra để caller rollback.
+     */
+    public void publishTripVerifiedBatch(List<TripEvent> events) {
+        rabbitTemplate.invoke(operations -> {
+            for (TripEvent event : events) {
+                operations.convertAndSend(
+                        RabbitMQConfig.EXCHANGE_NAME,
+                        RabbitMQConfig.TRIP_VERIFIED_ROUTING_KEY,
+                        event
+                );
+            }
+            operations.waitForConfirmsOrDie(confirmTimeoutMs);
+            return null;
+        });
+        log.info("📤 Published {} trip.verified events (confirmed)", events.size());
+    }
 }
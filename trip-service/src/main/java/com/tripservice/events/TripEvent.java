@@ -20,6 +20,7 @@ public class TripEvent {
     private Double distanceKm;
     private String tripDate;
     private String status;
+    private Double anomalyScore;
     private Instant timestamp;
     
     public static TripEvent tripVerified(UUID tripId, UUID userId, Double carbonCredits, Double distanceKm, String tripDate) {
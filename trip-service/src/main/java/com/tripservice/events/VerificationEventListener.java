@@ -1,8 +1,7 @@
 package com.tripservice.events;
 
-import com.tripservice.constants.TripStatus;
 import com.tripservice.entities.Trip;
-import com.tripservice.repositories.TripRepository;
+import com.tripservice.services.TripService;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,6 +14,7 @@ import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import java.util.HashMap;
 
 import java.time.Instant;
+import java.util.Optional;
 import java.util.UUID;
 
 @Component
@@ -22,7 +22,7 @@ import java.util.UUID;
 @Slf4j
 public class VerificationEventListener {
     
-    private final TripRepository tripRepository;
+    private final TripService tripService;
     private final RabbitTemplate rabbitTemplate;
     
     @PostConstruct
@@ -37,53 +37,53 @@ public class VerificationEventListener {
         ))
         public void handleVerificationApproved(VerificationApprovedEvent event) {
         System.out.println("🎉🎉🎉 RECEIVED verification.approved event: " + event);
-        try {
-            log.info("📨 Received verification.approved event for trip: {}", event.getTripId());
-            
-            UUID tripId = UUID.fromString(event.getTripId());
-            Trip trip = tripRepository.findById(tripId).orElse(null);
-            
-            if (trip == null) {
-                log.warn("⚠️ Trip not found: {}", tripId);
-                return;
-            }
-            
-            // Update trip status to VERIFIED
-            trip.setStatus(TripStatus.VERIFIED);
-            trip.setVerificationStatus("VERIFIED");
-            trip.setVerifiedAt(Instant.now());
-            if (event.getVerifierId() != null) {
-                try {
-                    // verifierId may not be a UUID in all publishers; ignore if invalid
-                    UUID verifierUuid = UUID.fromString(event.getVerifierId());
-                    trip.setVerifiedBy(verifierUuid);
-                } catch (IllegalArgumentException ex) {
-                    // leave verifiedBy as-is when verifierId is not a UUID
-                }
-            }
-            trip.setUpdatedAt(Instant.now());
-            
-            tripRepository.save(trip);
-            
-            log.info("✅ Updated trip {} to VERIFIED status (verifier: {})", 
-                    tripId, event.getVerifierId());
+        log.info("📨 Received verification.approved event for trip: {}", event.getTripId());
 
-            // Publish trip.verified for downstream services (notification, etc.)
+        UUID tripId;
+        try {
+            tripId = UUID.fromString(event.getTripId());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            // Giao lại cũng không sửa được tripId sai, ack luôn
+            log.error("❌ Invalid tripId in verification.approved event: {}", event.getTripId());
+            return;
+        }
+        UUID verifierId = null;
+        if (event.getVerifierId() != null) {
             try {
-                HashMap<String, Object> msg = new HashMap<>();
-                msg.put("eventType", "TripVerified");
-                msg.put("tripId", tripId.toString());
-                msg.put("userId", trip.getUserId() != null ? trip.getUserId().toString() : null);
-                msg.put("verificationId", event.getVerificationId());
-                msg.put("verifiedAt", Instant.now().toString());
-                rabbitTemplate.convertAndSend("ccm.events", "trip.verified", msg);
-                log.info("📤 Published trip.verified for trip {}", tripId);
-            } catch (Exception pubEx) {
-                log.warn("Failed to publish trip.verified for trip {}", tripId, pubEx);
+                // verifierId may not be a UUID in all publishers; ignore if invalid
+                verifierId = UUID.fromString(event.getVerifierId());
+            } catch (IllegalArgumentException ex) {
+                // leave verifiedBy as-is when verifierId is not a UUID
             }
-            
-        } catch (Exception e) {
-            log.error("❌ Failed to handle verification.approved event", e);
+        }
+
+        Optional<Trip> verified;
+        try {
+            verified = tripService.markVerified(tripId, verifierId);
+        } catch (RuntimeException e) {
+            // Trạng thái và tổng CO2 đã rollback cùng nhau; ném lại để message được requeue
+            log.error("❌ Failed to handle verification.approved event for trip {}", tripId, e);
+            throw e;
+        }
+        if (verified.isEmpty()) {
+            return;
+        }
+        Trip trip = verified.get();
+        log.info("✅ Updated trip {} to VERIFIED status (verifier: {})",
+                tripId, event.getVerifierId());
+
+        // Publish trip.verified for downstream services (notification, etc.)
+        try {
+            HashMap<String, Object> msg = new HashMap<>();
+            msg.put("eventType", "TripVerified");
+            msg.put("tripId", tripId.toString());
+            msg.put("userId", trip.getUserId() != null ? trip.getUserId().toString() : null);
+            msg.put("verificationId", event.getVerificationId());
+            msg.put("verifiedAt", Instant.now().toString());
+            rabbitTemplate.convertAndSend("ccm.events", "trip.verified", msg);
+            log.info("📤 Published trip.verified for trip {}", tripId);
+        } catch (Exception pubEx) {
+            log.warn("Failed to publish trip.verified for trip {}", tripId, pubEx);
         }
     }
 }
@@ -0,0 +1,16 @@
+package com.tripservice.exceptions;
+
+import lombok.Getter;
+
+/**
+ * Chunk gửi tới offset vượt quá phần server đã nhận, client cần resume từ expectedOffset
+ */
+@Getter
+public class UploadOffsetMismatchException extends RuntimeException {
+    private final long expectedOffset;
+
+    public UploadOffsetMismatchException(long expectedOffset, long actualOffset) {
+        super("Upload offset mismatch. Expected " + expectedOffset + " but got " + actualOffset);
+        this.expectedOffset = expectedOffset;
+    }
+}
@@ -0,0 +1,16 @@
+package com.tripservice.exceptions;
+
+import lombok.Getter;
+
+/**
+ * Upload bị từ chối do quá tải hoặc user vượt quota, client thử lại sau retryAfterSeconds
+ */
+@Getter
+public class UploadRejectedException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public UploadRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+    }
+}
@@ -1,11 +1,14 @@
 package com.tripservice.mappers;
 
 import com.tripservice.constants.TripStatus;
+import com.tripservice.dtos.internal.TripColumnBatch;
 import com.tripservice.dtos.internal.TripData;
 import com.tripservice.dtos.response.TripDetailResponse;
 import com.tripservice.dtos.response.TripResponse;
 import com.tripservice.entities.Trip;
+import com.tripservice.utils.GpsCoordinatesCodec;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
@@ -15,9 +18,15 @@ import java.util.UUID;
 
 @Component
 @RequiredArgsConstructor
+@Slf4j
 public class TripCustomMapper {
+    // Sai lệch tối đa cho phép giữa distance_km upload và quãng đường tính từ GPS
+    private static final double GPS_DISTANCE_TOLERANCE = 0.2;
+
+    private final GpsCoordinatesCodec gpsCodec;
+
     public Trip convertToEntity(TripData tripData, UUID userId) {
-        return Trip.builder()
+        Trip trip = Trip.builder()
                 .userId(userId)
                 .vehicleId(tripData.getVehicleId())
                 .vehicleType(tripData.getVehicleType())
@@ -28,12 +37,71 @@ public class TripCustomMapper {
                 .batteryUsed(tripData.getBatteryUsed())
                 .startLocation(tripData.getStartLocation())
                 .endLocation(tripData.getEndLocation())
-                .gpsCoordinates(tripData.getGpsCoordinates())
+                .rawRowOffset(tripData.getSourceRow())
                 .status(TripStatus.PENDING)
                 .verificationStatus("NOT_SUBMITTED")
                 .createdAt(Instant.now())
                 .updatedAt(Instant.now())
                 .build();
+
+        applyGpsCoordinates(trip, tripData.getGpsCoordinates());
+        return trip;
+    }
+
+    /**
+     * Tạo entity từ một row của batch dạng cột (stage persist của pipeline ingest)
+     */
+    public Trip convertToEntity(TripColumnBatch batch, int row, UUID userId) {
+        double averageSpeed = batch.averageSpeed(row);
+        double batteryUsed = batch.batteryUsed(row);
+        Trip trip = Trip.builder()
+                .userId(userId)
+                .vehicleId(batch.vehicleId(row))
+                .vehicleType(batch.vehicleTypeLabel(row))
+                .startTime(batch.startTime(row))
+                .endTime(batch.endTime(row))
+                .distanceKm(batch.distanceKm(row))
+                .averageSpeed(Double.isNaN(averageSpeed) ? null : averageSpeed)
+                .batteryUsed(Double.isNaN(batteryUsed) ? null : batteryUsed)
+                .startLocation(batch.startLocation(row))
+                .endLocation(batch.endLocation(row))
+                .rawRowOffset(batch.sourceRow(row))
+                .status(TripStatus.PENDING)
+                .verificationStatus("NOT_SUBMITTED")
+                .createdAt(Instant.now())
+                .updatedAt(Instant.now())
+                .build();
+
+        applyGpsCoordinates(trip, batch.gpsCoordinates(row));
+        return trip;
+    }
+
+    /**
+     * Encode GPS track và cross-check distance_km với quãng đường haversine.
+     * Nếu JSON không encode được thì giữ nguyên raw string.
+     */
+    public void applyGpsCoordinates(Trip trip, String gpsJson) {
+        byte[] encoded = gpsCodec.encode(gpsJson);
+        if (encoded == null) {
+            trip.setGpsCoordinates(gpsJson);
+            return;
+        }
+
+        trip.setGpsCoordinates(null);
+        trip.setGpsEncoded(encoded);
+        trip.setGpsPointCount(gpsCodec.pointCount(encoded));
+
+        double gpsDistanceKm = gpsCodec.haversineDistanceKm(encoded);
+        trip.setGpsDistanceKm(Math.round(gpsDistanceKm * 1000.0) / 1000.0);
+
+        if (trip.getDistanceKm() != null && trip.getGpsPointCount() > 1) {
+            double deviation = Math.abs(trip.getDistanceKm() - gpsDistanceKm) / trip.getDistanceKm();
+            if (deviation > GPS_DISTANCE_TOLERANCE) {
+                log.warn("Uploaded distance {} km deviates {}% from GPS distance {} km (vehicle {})",
+                        trip.getDistanceKm(), Math.round(deviation * 100), trip.getGpsDistanceKm(),
+                        trip.getVehicleId());
+            }
+        }
     }
 
 //    public Trip convertToTrip(TripData tripData, UUID tripId) {
@@ -97,13 +165,18 @@ public class TripCustomMapper {
                 .co2Reduced(trip.getCo2Reduced())
                 .co2Unit(co2Unit)
                 .formattedCO2(formattedCO2)
+                .anomalyScore(trip.getAnomalyScore())
                 .status(trip.getStatus())
                 .statusDisplay(trip.getStatus() != null ? trip.getStatus().getDisplayName() : null)
                 .verificationStatus(trip.getVerificationStatus())
                 .vehicleType(trip.getVehicleType())
                 .startLocation(trip.getStartLocation())
                 .endLocation(trip.getEndLocation())
-                .gpsCoordinates(trip.getGpsCoordinates())
+                .gpsCoordinates(trip.getGpsEncoded() != null
+                        ? gpsCodec.decodeToJson(trip.getGpsEncoded())
+                        : trip.getGpsCoordinates())
+                .gpsPointCount(trip.getGpsPointCount())
+                .gpsDistanceKm(trip.getGpsDistanceKm())
                 .batteryUsed(trip.getBatteryUsed())
                 .createdAt(trip.getCreatedAt())
                 .updatedAt(trip.getUpdatedAt())
@@ -0,0 +1,15 @@
+package com.tripservice.repositories;
+
+import com.tripservice.constants.ReprocessingJobStatus;
+import com.tripservice.entities.ReprocessingJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ReprocessingJobRepository extends JpaRepository<ReprocessingJob, UUID> {
+
+    List<ReprocessingJob> findByStatus(ReprocessingJobStatus status);
+}
@@ -0,0 +1,23 @@
+package com.tripservice.repositories;
+
+import com.tripservice.entities.TripAnomalyStats;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TripAnomalyStatsRepository extends JpaRepository<TripAnomalyStats, TripAnomalyStats.StatsKey> {
+
+    /**
+     * Khoá các dòng để merge delta của instance này (nhiều instance cùng ghi)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM TripAnomalyStats s WHERE s.key IN :keys")
+    List<TripAnomalyStats> lockByKeyIn(@Param("keys") Collection<TripAnomalyStats.StatsKey> keys);
+}
@@ -0,0 +1,46 @@
+package com.tripservice.repositories;
+
+import com.tripservice.entities.TripCo2UserTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface TripCo2UserTotalRepository extends JpaRepository<TripCo2UserTotal, TripCo2UserTotal.TotalKey> {
+
+    /**
+     * Cộng CO2 của một trip vào tổng của user (tạo mới nếu chưa có). Một câu upsert nên
+     * lần verify đầu tiên của cùng user trên nhiều instance không deadlock / trùng khoá.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO trip_co2_user_totals (period, user_id, total_kg, trips, updated_at) " +
+            "VALUES (:period, :userId, :co2Kg, 1, :updatedAt) " +
+            "ON DUPLICATE KEY UPDATE total_kg = total_kg + VALUES(total_kg), trips = trips + 1, " +
+            "updated_at = VALUES(updated_at)",
+            nativeQuery = true)
+    void addVerified(@Param("period") String period,
+                     @Param("userId") UUID userId,
+                     @Param("co2Kg") double co2Kg,
+                     @Param("updatedAt") Instant updatedAt);
+
+    /**
+     * Đọc thẳng từ DB (không qua persistence context), dùng sau {@link #addVerified}
+     */
+    @Query("SELECT t.totalKg AS totalKg, t.trips AS trips FROM TripCo2UserTotal t WHERE t.key = :key")
+    Optional<TotalView> findTotal(@Param("key") TripCo2UserTotal.TotalKey key);
+
+    List<TripCo2UserTotal> findByKeyPeriod(String period);
+
+    interface TotalView {
+        double getTotalKg();
+
+        long getTrips();
+    }
+}
@@ -0,0 +1,69 @@
+package com.tripservice.repositories;
+
+import com.tripservice.entities.TripHeatmapCell;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface TripHeatmapCellRepository extends JpaRepository<TripHeatmapCell, TripHeatmapCell.CellKey> {
+
+    /**
+     * Cộng dồn counter của cell (tạo mới nếu chưa có). Delta có thể âm khi xoá trip.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO trip_heatmap_cells " +
+            "(geohash, endpoint, bucket_day, precision_level, center_lat, center_lng, trips, distance_km, co2_kg) " +
+            "VALUES (:geohash, :endpoint, :day, :precision, :centerLat, :centerLng, :trips, :distanceKm, :co2Kg) " +
+            "ON DUPLICATE KEY UPDATE trips = trips + VALUES(trips), " +
+            "distance_km = distance_km + VALUES(distance_km), co2_kg = co2_kg + VALUES(co2_kg)",
+            nativeQuery = true)
+    void increment(@Param("geohash") String geohash,
+                   @Param("endpoint") String endpoint,
+                   @Param("day") LocalDate day,
+                   @Param("precision") int precision,
+                   @Param("centerLat") double centerLat,
+                   @Param("centerLng") double centerLng,
+                   @Param("trips") long trips,
+                   @Param("distanceKm") double distanceKm,
+                   @Param("co2Kg") double co2Kg);
+
+    /**
+     * Tổng counter theo cell trong bounding box và khoảng ngày
+     */
+    @Query(value = "SELECT geohash AS geohash, MAX(center_lat) AS centerLat, MAX(center_lng) AS centerLng, " +
+            "SUM(trips) AS trips, SUM(distance_km) AS distanceKm, SUM(co2_kg) AS co2Kg " +
+            "FROM trip_heatmap_cells " +
+            "WHERE precision_level = :precision AND endpoint = :endpoint " +
+            "AND bucket_day BETWEEN :fromDay AND :toDay " +
+            "AND center_lat BETWEEN :minLat AND :maxLat AND center_lng BETWEEN :minLng AND :maxLng " +
+            "GROUP BY geohash HAVING SUM(trips) > 0",
+            nativeQuery = true)
+    List<CellAggregate> aggregate(@Param("precision") int precision,
+                                  @Param("endpoint") String endpoint,
+                                  @Param("fromDay") LocalDate fromDay,
+                                  @Param("toDay") LocalDate toDay,
+                                  @Param("minLat") double minLat,
+                                  @Param("maxLat") double maxLat,
+                                  @Param("minLng") double minLng,
+                                  @Param("maxLng") double maxLng);
+
+    interface CellAggregate {
+        String getGeohash();
+
+        Double getCenterLat();
+
+        Double getCenterLng();
+
+        Long getTrips();
+
+        Double getDistanceKm();
+
+        Double getCo2Kg();
+    }
+}
@@ -0,0 +1,15 @@
+package com.tripservice.repositories;
+
+import com.tripservice.constants.TripPurgeJobStatus;
+import com.tripservice.entities.TripPurgeJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface TripPurgeJobRepository extends JpaRepository<TripPurgeJob, UUID> {
+
+    List<TripPurgeJob> findByStatus(TripPurgeJobStatus status);
+}
@@ -1,4 +1,22 @@
 package com.tripservice.repositories;
 
-public interface TripRawDataRepository {
+import com.tripservice.entities.TripRawData;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface TripRawDataRepository extends JpaRepository<TripRawData, UUID> {
+
+    Optional<TripRawData> findByContentHash(String contentHash);
+
+    // Thứ tự ổn định (created_at, id) để checkpoint theo offset
+    @Query(value = "SELECT * FROM trip_raw_data ORDER BY created_at, id LIMIT :limit OFFSET :offset",
+            nativeQuery = true)
+    List<TripRawData> findWindow(@Param("offset") long offset, @Param("limit") int limit);
 }
@@ -1,11 +1,20 @@
 package com.tripservice.repositories;
 
+import com.tripservice.constants.TripStatus;
 import com.tripservice.entities.Trip;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
@@ -14,4 +23,57 @@ public interface TripRepository extends JpaRepository<Trip, UUID> {
     Page<Trip> findByUserId(UUID userId, Pageable pageable);
 
     long countByUserId(UUID userId);
+
+    List<Trip> findByRawDataId(UUID rawDataId);
+
+    List<Trip> findByRawDataIdAndRawRowOffsetIn(UUID rawDataId, Collection<Integer> rawRowOffsets);
+
+    @Query("SELECT t.rawRowOffset FROM Trip t WHERE t.userId = :userId AND t.rawDataId = :rawDataId")
+    List<Integer> findRawRowOffsets(@Param("userId") UUID userId, @Param("rawDataId") UUID rawDataId);
+
+    /**
+     * Claim trip CALCULATED cũ hơn cutoff. Row đã bị instance khác khoá được bỏ qua (SKIP LOCKED)
+     * nên nhiều instance có thể chạy song song mà không tranh nhau hay chờ nhau.
+     */
+    @Query(value = "SELECT * FROM trips WHERE status = 'CALCULATED' AND created_at < :cutoff " +
+            "ORDER BY created_at LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<Trip> claimCalculatedBefore(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Trip t SET t.status = com.tripservice.constants.TripStatus.SUBMITTED_FOR_VERIFICATION, " +
+            "t.verificationStatus = 'PENDING', t.updatedAt = :now WHERE t.id IN :ids")
+    int markSubmittedForVerification(@Param("ids") Collection<UUID> ids, @Param("now") Instant now);
+
+    boolean existsByRawDataId(UUID rawDataId);
+
+    /**
+     * Một chunk trip cần xoá (khoá ghi), kích thước chunk lấy từ pageable.
+     * Tham số null nghĩa là không lọc theo trường đó.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(PURGE_FILTER)
+    List<Trip> findPurgeChunk(@Param("statuses") Collection<TripStatus> statuses,
+                              @Param("rawDataId") UUID rawDataId,
+                              @Param("userId") UUID userId,
+                              @Param("from") Instant from,
+                              @Param("to") Instant to,
+                              Pageable chunk);
+
+    @Query("SELECT COUNT(t) " + PURGE_FILTER)
+    long countPurgeCandidates(@Param("statuses") Collection<TripStatus> statuses,
+                              @Param("rawDataId") UUID rawDataId,
+                              @Param("userId") UUID userId,
+                              @Param("from") Instant from,
+                              @Param("to") Instant to);
+
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Trip t WHERE t.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<UUID> ids);
+
+    String PURGE_FILTER = "FROM Trip t WHERE t.status IN :statuses " +
+            "AND (:rawDataId IS NULL OR t.rawDataId = :rawDataId) " +
+            "AND (:userId IS NULL OR t.userId = :userId) " +
+            "AND (:from IS NULL OR t.createdAt >= :from) " +
+            "AND (:to IS NULL OR t.createdAt < :to)";
 }
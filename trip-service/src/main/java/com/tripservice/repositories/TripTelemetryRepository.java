@@ -0,0 +1,25 @@
+package com.tripservice.repositories;
+
+import com.tripservice.entities.TripTelemetry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface TripTelemetryRepository extends JpaRepository<TripTelemetry, UUID> {
+
+    List<TripTelemetry> findByTripId(UUID tripId);
+
+    Optional<TripTelemetry> findByTripIdAndSeriesName(UUID tripId, String seriesName);
+
+    @Modifying
+    @Query("DELETE FROM TripTelemetry t WHERE t.tripId IN :tripIds")
+    int deleteByTripIds(@Param("tripIds") Collection<UUID> tripIds);
+}
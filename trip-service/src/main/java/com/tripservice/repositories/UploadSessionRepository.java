@@ -0,0 +1,19 @@
+package com.tripservice.repositories;
+
+import com.tripservice.constants.UploadSessionStatus;
+import com.tripservice.entities.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, UUID> {
+
+    List<UploadSession> findByStatus(UploadSessionStatus status);
+
+    List<UploadSession> findByStatusInAndExpiresAtBefore(Collection<UploadSessionStatus> statuses, Instant now);
+}
@@ -1,12 +1,19 @@
 package com.tripservice.services;
 
+import com.tripservice.constants.VehicleType;
+import com.tripservice.dtos.internal.TripColumnBatch;
+import com.tripservice.dtos.internal.TripValidationResult;
 import com.tripservice.dtos.response.CO2CalculationResponse;
 import com.tripservice.exceptions.InvalidCalculationException;
+import com.tripservice.utils.CO2FormulaUtil;
+import com.tripservice.utils.CO2FormulaUtil.CompiledFormula;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Instant;
 
 @Service
 @Slf4j
@@ -18,6 +25,18 @@ public class CO2CalculationService {
 
     private static final double GRAMS_TO_KG = 1000.0;
 
+    private static final double MILLIS_PER_HOUR = 3_600_000.0;
+
+    static final String DEFAULT_FORMULA = "distance * (ice_factor - vehicle_factor) / 1000";
+
+    // Công thức compile sẵn (trip.co2.formula)
+    private final CompiledFormula formula;
+
+    public CO2CalculationService(@Value("${trip.co2.formula:" + DEFAULT_FORMULA + "}") String formula) {
+        this.formula = CO2FormulaUtil.compile(formula);
+        log.info("CO2 formula: {}", formula);
+    }
+
     /**
      * Tính toán CO2 giảm phát thải (in kilograms)
      *
@@ -28,6 +47,16 @@ public class CO2CalculationService {
      */
 
     public CO2CalculationResponse calculateDetailed(Double distanceKm, String vehicleType){
+        return calculateDetailed(distanceKm, vehicleType, null, null, null, null);
+    }
+
+    /**
+     * Như calculateDetailed(distanceKm, vehicleType), truyền thêm dữ liệu trip cho các biến
+     * duration / battery / speed của công thức; giá trị thiếu tính là 0
+     */
+    public CO2CalculationResponse calculateDetailed(Double distanceKm, String vehicleType,
+                                                    Instant startTime, Instant endTime,
+                                                    Double batteryKwh, Double speedKmh){
         log.debug("Calculating CO2 reduction for distance: {} km, vehicle type: {}",
                 distanceKm, vehicleType);
 
@@ -36,8 +65,12 @@ public class CO2CalculationService {
         double vehicleEmissionFactor = getEmissionFactor(vehicleType);
 
         // Calculate CO2 saved
-        double co2SavedGrams = distanceKm * (ICE_EMISSION_FACTOR - vehicleEmissionFactor);
-        double co2SavedKg = co2SavedGrams / GRAMS_TO_KG;
+        double durationHours = startTime != null && endTime != null
+                ? (endTime.toEpochMilli() - startTime.toEpochMilli()) / MILLIS_PER_HOUR
+                : 0.0;
+        double co2SavedKg = formula.evaluate(CO2FormulaUtil.variables(
+                distanceKm, durationHours, orZero(batteryKwh), orZero(speedKmh),
+                vehicleEmissionFactor, ICE_EMISSION_FACTOR));
 
         // Calculate ICE emission
         double iceEmissionGrams = distanceKm * ICE_EMISSION_FACTOR;
@@ -66,6 +99,30 @@ public class CO2CalculationService {
                 .build();
     }
 
+    /**
+     * Tính CO2 saved (kg, cùng công thức với calculateDetailed) cho các row hợp lệ
+     * của batch dạng cột, ghi thẳng vào cột co2SavedKg, không tạo object theo row
+     */
+    public void calculateCO2SavedKg(TripColumnBatch batch, TripValidationResult validation) {
+        double[] vars = CO2FormulaUtil.variables(0.0, 0.0, 0.0, 0.0, 0.0, ICE_EMISSION_FACTOR);
+        double[] co2SavedKg = batch.co2SavedKgColumn();
+        for (int row = 0, size = batch.size(); row < size; row++) {
+            if (!validation.isValid(row)) {
+                continue;
+            }
+            long startMillis = batch.startMillis(row);
+            long endMillis = batch.endMillis(row);
+            vars[CO2FormulaUtil.DISTANCE] = batch.distanceKm(row);
+            vars[CO2FormulaUtil.DURATION] = startMillis == TripColumnBatch.MISSING_TIME || endMillis == TripColumnBatch.MISSING_TIME
+                    ? 0.0
+                    : (endMillis - startMillis) / MILLIS_PER_HOUR;
+            vars[CO2FormulaUtil.BATTERY] = orZero(batch.batteryUsed(row));
+            vars[CO2FormulaUtil.SPEED] = orZero(batch.averageSpeed(row));
+            vars[CO2FormulaUtil.VEHICLE_FACTOR] = getEmissionFactor(batch.vehicleType(row));
+            co2SavedKg[row] = roundToTwoDecimals(formula.evaluate(vars));
+        }
+    }
+
     /**
      * Get emission factor dựa vào loại xe
      */
@@ -81,6 +138,14 @@ public class CO2CalculationService {
         };
     }
 
+    private double getEmissionFactor(VehicleType vehicleType) {
+        return switch (vehicleType) {
+            case EV -> EV_EMISSION_FACTOR;
+            case PHEV -> PHEV_EMISSION_FACTOR;
+            case HEV -> HEV_EMISSION_FACTOR;
+        };
+    }
+
     /**
      * Calculate reduction percentage compared to ICE
      */
@@ -108,6 +173,10 @@ public class CO2CalculationService {
         }
     }
 
+    private static double orZero(Double value) {
+        return value != null && !value.isNaN() ? value : 0.0;
+    }
+
     /**
      * Round to 2 decimal places
      */
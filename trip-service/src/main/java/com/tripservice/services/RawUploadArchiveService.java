@@ -0,0 +1,145 @@
+package com.tripservice.services;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import com.tripservice.entities.TripRawData;
+import com.tripservice.repositories.TripRawDataRepository;
+import com.tripservice.services.storage.RawDataStore;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.fileupload.FileUploadException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Lưu trữ file upload gốc (content-addressed, nén zstd) để có thể reprocess sau này
+ */
+@Service
+@Slf4j
+public class RawUploadArchiveService {
+    private final RawDataStore rawDataStore;
+    private final TripRawDataRepository rawDataRepository;
+    private final int compressionLevel;
+
+    public RawUploadArchiveService(RawDataStore rawDataStore,
+                                   TripRawDataRepository rawDataRepository,
+                                   @Value("${trip.raw-archive.compression-level:3}") int compressionLevel) {
+        this.rawDataStore = rawDataStore;
+        this.rawDataRepository = rawDataRepository;
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Archive file upload. File giống hệt (cùng SHA-256) chỉ được lưu một lần.
+     * Chạy ngoài transaction của caller để archive vẫn được giữ khi parse thất bại.
+     *
+     * @return TripRawData (bản mới hoặc bản đã tồn tại)
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public TripRawData archive(MultipartFile file, String format, UUID userId) throws FileUploadException {
+        if (file == null || file.isEmpty()) {
+            throw new FileUploadException("File is empty or null");
+        }
+        try (InputStream in = file.getInputStream()) {
+            return archive(in, format, file.getOriginalFilename(), file.getContentType(), userId);
+        } catch (IOException e) {
+            log.error("Failed to archive upload {}", file.getOriginalFilename(), e);
+            throw new FileUploadException("Failed to archive uploaded file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Archive từ InputStream (streaming: hash + nén trong một lượt đọc)
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public TripRawData archive(InputStream source, String format, String filename,
+                               String contentType, UUID userId) throws IOException {
+        MessageDigest digest = newDigest();
+        long originalSize;
+        String contentHash;
+
+        try (RawDataStore.PendingObject pending = rawDataStore.create()) {
+            try (DigestInputStream in = new DigestInputStream(new BufferedInputStream(source), digest);
+                 OutputStream out = new ZstdOutputStream(pending.outputStream(), compressionLevel)) {
+                originalSize = in.transferTo(out);
+            }
+            contentHash = HexFormat.of().formatHex(digest.digest());
+
+            TripRawData existing = rawDataRepository.findByContentHash(contentHash).orElse(null);
+            if (existing != null && rawDataStore.exists(existing.getStorageKey())) {
+                log.info("Upload {} already archived as {} (hash {})", filename, existing.getId(), contentHash);
+                return existing;
+            }
+
+            long compressedSize = pending.size();
+            pending.commit(contentHash);
+
+            if (existing != null) {
+                // Metadata còn nhưng object bị mất -> đã ghi lại object
+                return existing;
+            }
+
+            TripRawData rawData = TripRawData.builder()
+                    .contentHash(contentHash)
+                    .storageKey(contentHash)
+                    .format(format)
+                    .originalFilename(filename)
+                    .contentType(contentType)
+                    .originalSize(originalSize)
+                    .compressedSize(compressedSize)
+                    .uploadedBy(userId)
+                    .build();
+
+            try {
+                TripRawData saved = rawDataRepository.saveAndFlush(rawData);
+                log.info("Archived upload {} as {} ({} -> {} bytes)",
+                        filename, saved.getId(), originalSize, compressedSize);
+                return saved;
+            } catch (DataIntegrityViolationException e) {
+                // Upload đồng thời cùng nội dung
+                return rawDataRepository.findByContentHash(contentHash).orElseThrow(() -> e);
+            }
+        }
+    }
+
+    /**
+     * Mở stream đã giải nén của file gốc
+     */
+    public InputStream openDecompressed(TripRawData rawData) throws IOException {
+        return new ZstdInputStream(new BufferedInputStream(rawDataStore.open(rawData.getStorageKey())));
+    }
+
+    /**
+     * Xoá archive (metadata trước, object sau; object mồ côi chỉ tốn chỗ chứ không bị reprocess)
+     */
+    public void remove(TripRawData rawData) {
+        rawDataRepository.delete(rawData);
+        try {
+            rawDataStore.delete(rawData.getStorageKey());
+        } catch (IOException e) {
+            log.warn("Failed to delete archived object {} of {}", rawData.getStorageKey(), rawData.getId(), e);
+        }
+        log.info("Removed upload archive {} ({})", rawData.getId(), rawData.getOriginalFilename());
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.tripservice.services;
+
+import com.tripservice.constants.UploadSessionStatus;
+import com.tripservice.dtos.internal.TripImportResult;
+import com.tripservice.dtos.response.UploadSessionResponse;
+import com.tripservice.entities.UploadSession;
+import com.tripservice.exceptions.InvalidTripStateException;
+import com.tripservice.exceptions.TripNotFoundException;
+import com.tripservice.exceptions.UploadOffsetMismatchException;
+import com.tripservice.repositories.UploadSessionRepository;
+import com.tripservice.services.ingest.IngestionAdmissionControl;
+import com.tripservice.validators.FileFormatValidator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.fileupload.FileUploadException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Resumable upload cho file trip lớn (vượt giới hạn multipart).
+ * <p>
+ * Client tạo session, PUT từng chunk kèm offset, chunk được ghi nối vào spool file và fsync
+ * trước khi receivedBytes được lưu, nên sau khi mất kết nối hoặc service restart client chỉ
+ * cần hỏi lại offset và gửi tiếp. Finalize sẽ import spool file bằng streaming parser.
+ * <p>
+ * Import lỗi giữa chừng (session FAILED) giữ spool file đến khi hết hạn; gọi finalize lại sẽ
+ * import tiếp, bỏ qua các row đã có trip từ lần trước.
+ */
+@Service
+@Slf4j
+public class ResumableUploadService {
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final Set<UploadSessionStatus> EXPIRABLE =
+            EnumSet.of(UploadSessionStatus.OPEN, UploadSessionStatus.FAILED);
+
+    private final UploadSessionRepository sessionRepository;
+    private final TripService tripService;
+    private final FileFormatValidator fileValidator;
+    private final IngestionAdmissionControl admissionControl;
+    private final Path spoolDir;
+    private final Duration sessionTtl;
+    private final long maxSessionBytes;
+    private final long maxChunkBytes;
+
+    private final ExecutorService importer = Executors.newSingleThreadExecutor();
+    private final ConcurrentHashMap<UUID, Object> sessionLocks = new ConcurrentHashMap<>();
+
+    public ResumableUploadService(UploadSessionRepository sessionRepository,
+                                  TripService tripService,
+                                  FileFormatValidator fileValidator,
+                                  IngestionAdmissionControl admissionControl,
+                                  @Value("${trip.upload.spool-dir:./data/upload-spool}") String spoolDir,
+                                  @Value("${trip.upload.session-ttl-hours:24}") long sessionTtlHours,
+                                  @Value("${trip.upload.max-session-bytes:10737418240}") long maxSessionBytes,
+                                  @Value("${trip.upload.max-chunk-bytes:67108864}") long maxChunkBytes) {
+        this.sessionRepository = sessionRepository;
+        this.tripService = tripService;
+        this.fileValidator = fileValidator;
+        this.admissionControl = admissionControl;
+        this.spoolDir = Paths.get(spoolDir).toAbsolutePath().normalize();
+        this.sessionTtl = Duration.ofHours(sessionTtlHours);
+        this.maxSessionBytes = maxSessionBytes;
+        this.maxChunkBytes = maxChunkBytes;
+    }
+
+    /**
+     * Session đang import khi service dừng chuyển sang FAILED, client finalize lại để import tiếp
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(spoolDir);
+        for (UploadSession session : sessionRepository.findByStatus(UploadSessionStatus.PROCESSING)) {
+            session.setStatus(UploadSessionStatus.FAILED);
+            session.setErrorMessage("Import interrupted by service restart, complete the session again to resume");
+            sessionRepository.save(session);
+            log.warn("Upload session {} was interrupted during import", session.getId());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        importer.shutdownNow();
+    }
+
+    public UploadSessionResponse create(UUID userId, UUID vehicleId, String format,
+                                        String filename, Long totalSize) throws IOException {
+        String normalizedFormat = format.toUpperCase();
+        if (!normalizedFormat.equals("CSV") && !normalizedFormat.equals("JSON") && !normalizedFormat.equals("ARROW")) {
+            throw new InvalidTripStateException(
+                    "Unsupported file format: " + format + ". Only CSV, JSON and ARROW are supported.");
+        }
+        if (filename == null || !fileValidator.isValidExtension(filename, normalizedFormat)) {
+            throw new InvalidTripStateException("File extension does not match format: " + format);
+        }
+        if (totalSize != null && (totalSize <= 0 || totalSize > maxSessionBytes)) {
+            throw new InvalidTripStateException(
+                    "Declared size must be between 1 and " + maxSessionBytes + " bytes");
+        }
+
+        Path spool = spoolDir.resolve(UUID.randomUUID() + ".part");
+        Files.createFile(spool);
+
+        UploadSession session = UploadSession.builder()
+                .userId(userId)
+                .vehicleId(vehicleId)
+                .format(normalizedFormat)
+                .filename(filename)
+                .totalSize(totalSize)
+                .receivedBytes(0)
+                .spoolPath(spool.toString())
+                .status(UploadSessionStatus.OPEN)
+                .expiresAt(Instant.now().plus(sessionTtl))
+                .build();
+        session = sessionRepository.save(session);
+
+        log.info("Created upload session {} for user {} ({}, declared size {})",
+                session.getId(), userId, filename, totalSize);
+        return toResponse(session);
+    }
+
+    /**
+     * Ghi chunk tại offset. offset nhỏ hơn receivedBytes nghĩa là client gửi lại,
+     * phần sau offset bị ghi đè; offset lớn hơn bị từ chối với offset mong đợi.
+     */
+    public UploadSessionResponse appendChunk(UUID sessionId, long offset, InputStream body) throws FileUploadException {
+        synchronized (lockFor(sessionId)) {
+            UploadSession session = findSession(sessionId);
+            requireOpen(session);
+            if (offset < 0 || offset > session.getReceivedBytes()) {
+                throw new UploadOffsetMismatchException(session.getReceivedBytes(), offset);
+            }
+
+            long limit = Math.min(maxChunkBytes, effectiveMaxSize(session) - offset);
+            long written = 0;
+            try (FileChannel channel = FileChannel.open(Paths.get(session.getSpoolPath()), StandardOpenOption.WRITE)) {
+                channel.truncate(offset);
+                channel.position(offset);
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                try {
+                    int read;
+                    while ((read = body.read(buffer)) != -1) {
+                        if (written + read > limit) {
+                            channel.truncate(offset);
+                            throw new InvalidTripStateException(
+                                    "Chunk exceeds limit of " + limit + " bytes at offset " + offset);
+                        }
+                        ByteBuffer src = ByteBuffer.wrap(buffer, 0, read);
+                        while (src.hasRemaining()) {
+                            channel.write(src);
+                        }
+                        written += read;
+                    }
+                } catch (IOException e) {
+                    // Mất kết nối giữa chunk: giữ lại phần đã nhận để client resume từ đó
+                    channel.force(false);
+                    commitProgress(session, offset + written);
+                    throw new FileUploadException("Chunk interrupted after " + written + " bytes: " + e.getMessage());
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                throw new FileUploadException("Failed to write chunk: " + e.getMessage());
+            }
+
+            commitProgress(session, offset + written);
+            log.debug("Upload session {}: {} bytes at offset {}, received {}",
+                    sessionId, written, offset, session.getReceivedBytes());
+            return toResponse(session);
+        }
+    }
+
+    public UploadSessionResponse getSession(UUID sessionId) {
+        return toResponse(findSession(sessionId));
+    }
+
+    /**
+     * Kết thúc upload và import file spool ở background; với session FAILED thì import tiếp phần chưa lưu.
+     * Slot ingest được xin trước khi đổi trạng thái, quá tải thì session giữ nguyên trạng thái để client thử lại
+     */
+    public UploadSessionResponse complete(UUID sessionId) {
+        IngestionAdmissionControl.Permit permit = admissionControl.admit(findSession(sessionId).getUserId(), false);
+        try {
+            return startImport(sessionId, permit);
+        } catch (RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+    }
+
+    private UploadSessionResponse startImport(UUID sessionId, IngestionAdmissionControl.Permit permit) {
+        synchronized (lockFor(sessionId)) {
+            UploadSession session = findSession(sessionId);
+            boolean resume = session.getStatus() == UploadSessionStatus.FAILED;
+            if (resume) {
+                requireNotExpired(session);
+            } else {
+                requireOpen(session);
+            }
+            if (session.getReceivedBytes() == 0) {
+                throw new InvalidTripStateException("Upload session " + sessionId + " has no data");
+            }
+            if (session.getTotalSize() != null && session.getReceivedBytes() != session.getTotalSize()) {
+                throw new InvalidTripStateException("Upload incomplete: received " + session.getReceivedBytes()
+                        + " of " + session.getTotalSize() + " bytes");
+            }
+            session.setStatus(UploadSessionStatus.PROCESSING);
+            session.setErrorMessage(null);
+            session = sessionRepository.save(session);
+
+            log.info("Upload session {} complete ({} bytes), {} import", sessionId, session.getReceivedBytes(),
+                    resume ? "resuming" : "starting");
+            importer.submit(() -> runImport(sessionId, permit, resume));
+            return toResponse(session);
+        }
+    }
+
+    public UploadSessionResponse abort(UUID sessionId) {
+        synchronized (lockFor(sessionId)) {
+            UploadSession session = findSession(sessionId);
+            if (session.getStatus() == UploadSessionStatus.PROCESSING) {
+                throw new InvalidTripStateException("Upload session " + sessionId + " is being imported");
+            }
+            expire(session, "Aborted by client");
+            sessionLocks.remove(sessionId);
+            return toResponse(session);
+        }
+    }
+
+    /**
+     * Dọn các session bị bỏ dở quá TTL
+     */
+    @Scheduled(fixedDelayString = "${trip.upload.cleanup-interval-ms:600000}")
+    public void expireAbandonedSessions() {
+        for (UploadSession candidate : sessionRepository.findByStatusInAndExpiresAtBefore(EXPIRABLE, Instant.now())) {
+            synchronized (lockFor(candidate.getId())) {
+                // Đọc lại trong lock: chunk vừa ghi có thể đã gia hạn session
+                UploadSession session = findSession(candidate.getId());
+                if (!EXPIRABLE.contains(session.getStatus()) || session.getExpiresAt().isAfter(Instant.now())) {
+                    continue;
+                }
+                expire(session, session.getStatus() == UploadSessionStatus.FAILED
+                        ? session.getErrorMessage() : "Session expired");
+                log.info("Expired upload session {} ({} bytes received)", session.getId(), session.getReceivedBytes());
+            }
+            sessionLocks.remove(candidate.getId());
+        }
+    }
+
+    private void runImport(UUID sessionId, IngestionAdmissionControl.Permit permit, boolean resume) {
+        try (permit) {
+            UploadSession session = findSession(sessionId);
+            try {
+                TripImportResult result = tripService.importUpload(
+                        Paths.get(session.getSpoolPath()),
+                        session.getFormat(),
+                        session.getFilename(),
+                        contentTypeFor(session.getFormat()),
+                        session.getUserId(),
+                        resume);
+
+                session.setStatus(UploadSessionStatus.COMPLETED);
+                session.setRawDataId(result.getRawDataId());
+                session.setTotalRecords(result.getTotalRecords());
+                session.setImportedTrips(result.getImportedTrips());
+                session.setSkippedRecords(result.getParseErrors() + result.getImplausibleRecords());
+                sessionRepository.save(session);
+                // File gốc đã nằm trong raw archive
+                deleteSpool(session);
+            } catch (Exception e) {
+                // Batch đã commit được giữ lại, finalize lại sẽ import tiếp từ các row còn thiếu
+                log.error("Import of upload session {} failed", sessionId, e);
+                session.setStatus(UploadSessionStatus.FAILED);
+                session.setErrorMessage(e.getMessage());
+                session.setExpiresAt(Instant.now().plus(sessionTtl));
+                sessionRepository.save(session);
+            }
+        } catch (RuntimeException e) {
+            log.error("Upload session {} could not be updated after import", sessionId, e);
+        } finally {
+            sessionLocks.remove(sessionId);
+        }
+    }
+
+    private void commitProgress(UploadSession session, long receivedBytes) {
+        session.setReceivedBytes(receivedBytes);
+        session.setExpiresAt(Instant.now().plus(sessionTtl));
+        sessionRepository.save(session);
+    }
+
+    private void expire(UploadSession session, String reason) {
+        deleteSpool(session);
+        session.setStatus(UploadSessionStatus.EXPIRED);
+        session.setErrorMessage(reason);
+        sessionRepository.save(session);
+    }
+
+    private void deleteSpool(UploadSession session) {
+        try {
+            Files.deleteIfExists(Paths.get(session.getSpoolPath()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete spool file " + session.getSpoolPath(), e);
+        }
+    }
+
+    private void requireOpen(UploadSession session) {
+        if (session.getStatus() != UploadSessionStatus.OPEN) {
+            throw new InvalidTripStateException(
+                    "Upload session " + session.getId() + " is not open. Current status: " + session.getStatus());
+        }
+        requireNotExpired(session);
+    }
+
+    private void requireNotExpired(UploadSession session) {
+        if (session.getExpiresAt().isBefore(Instant.now())) {
+            throw new InvalidTripStateException("Upload session " + session.getId() + " has expired");
+        }
+    }
+
+    private long effectiveMaxSize(UploadSession session) {
+        return session.getTotalSize() != null ? session.getTotalSize() : maxSessionBytes;
+    }
+
+    private Object lockFor(UUID sessionId) {
+        return sessionLocks.computeIfAbsent(sessionId, id -> new Object());
+    }
+
+    private UploadSession findSession(UUID sessionId) {
+        return sessionRepository.findById(sessionId)
+                .orElseThrow(() -> new TripNotFoundException("Upload session not found: " + sessionId));
+    }
+
+    private static String contentTypeFor(String format) {
+        return switch (format) {
+            case "JSON" -> "application/json";
+            case "ARROW" -> "application/vnd.apache.arrow.file";
+            default -> "text/csv";
+        };
+    }
+
+    private UploadSessionResponse toResponse(UploadSession session) {
+        return UploadSessionResponse.builder()
+                .id(session.getId())
+                .status(session.getStatus())
+                .filename(session.getFilename())
+                .format(session.getFormat())
+                .totalSize(session.getTotalSize())
+                .receivedBytes(session.getReceivedBytes())
+                .rawDataId(session.getRawDataId())
+                .totalRecords(session.getTotalRecords())
+                .importedTrips(session.getImportedTrips())
+                .skippedRecords(session.getSkippedRecords())
+                .errorMessage(session.getErrorMessage())
+                .createdAt(session.getCreatedAt())
+                .expiresAt(session.getExpiresAt())
+                .build();
+    }
+}
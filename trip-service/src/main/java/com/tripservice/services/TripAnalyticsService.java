@@ -1,4 +1,293 @@
 package com.tripservice.services;
 
+import com.tripservice.dtos.response.Co2RankingResponse;
+import com.tripservice.entities.Trip;
+import com.tripservice.entities.TripCo2UserTotal;
+import com.tripservice.repositories.TripCo2UserTotalRepository;
+import com.tripservice.utils.QuantileSketch;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Xếp hạng tổng CO2 đã verify của user trong tháng ("top 8% driver tháng này").
+ * <p>
+ * Mỗi period giữ một {@link QuantileSketch} phân phối tổng CO2 theo user. Khi trip được verify,
+ * tổng của user dời từ T sang T + co2: rút T khỏi sketch, thêm T + co2. Tổng theo user nằm
+ * trong trip_co2_user_totals, cộng bằng một câu upsert nên nhiều instance cập nhật an toàn.
+ * <p>
+ * Chỉ giữ sketch cho tháng hiện tại và {@code trip.co2-ranking.retained-months - 1} tháng trước;
+ * period khác không có xếp hạng (chỉ trả tổng của user), sketch ra khỏi cửa sổ thì bị bỏ.
+ * Sketch được dựng lại từ trip_co2_user_totals trên thread riêng: lúc khởi động, lần đầu period
+ * được hỏi (request đó chưa có xếp hạng), và định kỳ cho mọi period trong cửa sổ. Giữa hai lần
+ * dựng lại, sketch nhận thêm các lần verify của chính instance này; của instance khác có mặt
+ * từ lần dựng lại sau.
+ * <p>
+ * Đánh đổi: mỗi lần dựng lại là một lần quét toàn bộ dòng của period (O(số user trong tháng)),
+ * mỗi instance tự quét, không lưu snapshot và không merge sketch giữa các instance. Đổi lại
+ * không có state nào chỉ nằm trong bộ nhớ, instance crash hay lỗi ghi không làm lệch xếp hạng
+ * quá một chu kỳ dựng lại. Khi số user / tháng làm lần quét quá nặng thì mới cần quay lại
+ * snapshot + merge.
+ */
+@Service
+@Slf4j
 public class TripAnalyticsService {
+    private final TripCo2UserTotalRepository totalRepository;
+    private final int retainedMonths;
+
+    private final Map<String, QuantileSketch> sketches = new HashMap<>();
+    // Các lần dời điểm xảy ra trong lúc period đang được dựng lại
+    private final Map<String, List<Move>> movesDuringRebuild = new HashMap<>();
+    // Period đã xếp hàng dựng lại nhưng chưa chạy xong
+    private final Set<String> rebuildQueued = new HashSet<>();
+    // Mỗi lần chỉ dựng lại một period
+    private final Object rebuildLock = new Object();
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("co2-ranking-rebuild").daemon().factory());
+
+    public TripAnalyticsService(TripCo2UserTotalRepository totalRepository,
+                                @Value("${trip.co2-ranking.retained-months:3}") int retainedMonths) {
+        this.totalRepository = totalRepository;
+        this.retainedMonths = Math.max(1, retainedMonths);
+    }
+
+    @PostConstruct
+    public void loadState() {
+        requestRebuild(YearMonth.now(ZoneOffset.UTC).toString());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    /**
+     * Cộng CO2 của trip vừa verify vào tổng tháng của user và dời điểm của user trong sketch.
+     * Sketch chỉ đổi sau khi transaction commit.
+     */
+    @Transactional
+    public void recordVerified(Trip trip) {
+        if (trip.getUserId() == null || trip.getCo2Reduced() == null) {
+            return;
+        }
+        String period = periodOf(trip);
+        UUID userId = trip.getUserId();
+        double co2 = trip.getCo2Reduced();
+        TripCo2UserTotal.TotalKey key = new TripCo2UserTotal.TotalKey(period, userId);
+        totalRepository.addVerified(period, userId, co2, Instant.now());
+        // Dòng đang bị transaction này khoá nên giá trị đọc lại đúng là sau lần cộng của trip này
+        TripCo2UserTotalRepository.TotalView total = totalRepository.findTotal(key)
+                .orElseThrow(() -> new IllegalStateException("CO2 total missing after upsert: " + key));
+
+        double current = total.getTotalKg();
+        Double previous = total.getTrips() > 1 ? current - co2 : null;
+        Runnable moveUser = () -> moveUser(period, userId, previous, current);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    moveUser.run();
+                }
+            });
+        } else {
+            moveUser.run();
+        }
+    }
+
+    /**
+     * Xếp hạng tổng CO2 của user trong period; chỉ một lần đọc theo primary key,
+     * phần xếp hạng chạy trên sketch in-memory. Không có sketch (ngoài cửa sổ / đang dựng)
+     * thì chỉ trả tổng của user.
+     */
+    public Co2RankingResponse getRanking(UUID userId, YearMonth month) {
+        String period = month.toString();
+        TripCo2UserTotal total = totalRepository.findById(new TripCo2UserTotal.TotalKey(period, userId)).orElse(null);
+        QuantileSketch sketch = sketchFor(period);
+
+        Co2RankingResponse.Co2RankingResponseBuilder response = Co2RankingResponse.builder()
+                .userId(userId)
+                .period(period)
+                .totalCo2Kg(total != null ? round(total.getTotalKg()) : 0.0)
+                .verifiedTrips(total != null ? total.getTrips() : 0L);
+        if (sketch == null) {
+            return response.build();
+        }
+        response.rankedUsers(Math.max(0, sketch.count()));
+        if (!sketch.isEmpty()) {
+            response.medianCo2Kg(round(sketch.quantile(0.5)))
+                    .p90Co2Kg(round(sketch.quantile(0.9)));
+        }
+        if (total != null && !sketch.isEmpty()) {
+            double percentile = sketch.percentileRank(total.getTotalKg());
+            response.percentile(round(percentile))
+                    // Làm tròn lên để user dẫn đầu thấy "top 1%" thay vì "top 0%"
+                    .topPercent(Math.max(1.0, Math.ceil(100.0 - percentile)));
+        }
+        return response.build();
+    }
+
+    /**
+     * Bỏ sketch ngoài cửa sổ, dựng lại mọi period trong cửa sổ từ trip_co2_user_totals
+     */
+    @Scheduled(fixedDelayString = "${trip.co2-ranking.rebuild-interval-ms:600000}",
+            initialDelayString = "${trip.co2-ranking.rebuild-interval-ms:600000}")
+    public void rebuildAll() {
+        Set<String> periods = retainedPeriods();
+        synchronized (this) {
+            sketches.keySet().retainAll(periods);
+        }
+        for (String period : periods) {
+            try {
+                rebuild(period);
+            } catch (RuntimeException e) {
+                log.error("Failed to rebuild CO2 ranking sketch for {}", period, e);
+            }
+        }
+        log.debug("Rebuilt CO2 ranking sketches for {} periods", periods.size());
+    }
+
+    private synchronized void moveUser(String period, UUID userId, Double previousTotal, double currentTotal) {
+        Move move = new Move(userId, previousTotal, currentTotal);
+        QuantileSketch sketch = sketches.get(period);
+        if (sketch != null) {
+            move.applyTo(sketch);
+        }
+        List<Move> pending = movesDuringRebuild.get(period);
+        if (pending != null) {
+            pending.add(move);
+        }
+    }
+
+    /**
+     * Bản sao sketch của period; null nếu period ngoài cửa sổ hoặc chưa dựng xong
+     * (khi đó xếp hàng dựng lại trên thread riêng, không quét trên thread của request)
+     */
+    private QuantileSketch sketchFor(String period) {
+        if (!retainedPeriods().contains(period)) {
+            return null;
+        }
+        synchronized (this) {
+            QuantileSketch sketch = sketches.get(period);
+            if (sketch != null) {
+                return new QuantileSketch(sketch);
+            }
+        }
+        requestRebuild(period);
+        return null;
+    }
+
+    private void requestRebuild(String period) {
+        synchronized (this) {
+            if (!rebuildQueued.add(period)) {
+                return;
+            }
+        }
+        try {
+            rebuilder.execute(() -> {
+                try {
+                    rebuild(period);
+                    log.info("Built CO2 ranking sketch for {}", period);
+                } catch (RuntimeException e) {
+                    log.error("Failed to build CO2 ranking sketch for {}", period, e);
+                } finally {
+                    synchronized (this) {
+                        rebuildQueued.remove(period);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                rebuildQueued.remove(period);
+            }
+        }
+    }
+
+    private Set<String> retainedPeriods() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        Set<String> periods = new TreeSet<>();
+        for (int i = 0; i < retainedMonths; i++) {
+            periods.add(current.minusMonths(i).toString());
+        }
+        return periods;
+    }
+
+    /**
+     * Đọc tổng của mọi user trong period, rồi áp lại các lần dời điểm commit trong lúc đọc
+     * mà lần đọc chưa thấy (tổng chỉ tăng nên so với giá trị đã đọc là đủ)
+     */
+    private void rebuild(String period) {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                movesDuringRebuild.put(period, new ArrayList<>());
+            }
+            try {
+                QuantileSketch sketch = new QuantileSketch();
+                Map<UUID, Double> scanned = new HashMap<>();
+                for (TripCo2UserTotal total : totalRepository.findByKeyPeriod(period)) {
+                    sketch.add(total.getTotalKg(), 1);
+                    scanned.put(total.getKey().getUserId(), total.getTotalKg());
+                }
+                synchronized (this) {
+                    for (Move move : movesDuringRebuild.get(period)) {
+                        Double seen = scanned.get(move.userId());
+                        if (seen == null || seen < move.currentTotal()) {
+                            move.applyTo(sketch);
+                            scanned.put(move.userId(), move.currentTotal());
+                        }
+                    }
+                    // Tháng đã qua khỏi cửa sổ trong lúc quét thì không giữ lại
+                    if (retainedPeriods().contains(period)) {
+                        sketches.put(period, sketch);
+                    }
+                }
+            } finally {
+                synchronized (this) {
+                    movesDuringRebuild.remove(period);
+                }
+            }
+        }
+    }
+
+    private static String periodOf(Trip trip) {
+        Instant at = trip.getStartTime() != null ? trip.getStartTime()
+                : trip.getCreatedAt() != null ? trip.getCreatedAt() : Instant.now();
+        return YearMonth.from(at.atZone(ZoneOffset.UTC)).toString();
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    /**
+     * Tổng của user dời từ previousTotal (null: user mới trong period) sang currentTotal
+     */
+    private record Move(UUID userId, Double previousTotal, double currentTotal) {
+        void applyTo(QuantileSketch sketch) {
+            if (previousTotal != null) {
+                sketch.add(previousTotal, -1);
+            }
+            sketch.add(currentTotal, 1);
+        }
+    }
 }
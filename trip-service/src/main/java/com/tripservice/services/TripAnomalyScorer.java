@@ -0,0 +1,339 @@
+package com.tripservice.services;
+
+import com.tripservice.dtos.internal.TripColumnBatch;
+import com.tripservice.dtos.internal.TripValidationResult;
+import com.tripservice.entities.Trip;
+import com.tripservice.entities.TripAnomalyStats;
+import com.tripservice.repositories.TripAnomalyStatsRepository;
+import com.tripservice.utils.OnlineStatsTable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Chấm điểm bất thường cho trip so với lịch sử của chính vehicle / user.
+ * <p>
+ * State là running statistics (Welford) của km/h, km/kWh và độ dài trip, giữ trong
+ * bảng primitive in-memory nên mỗi trip được chấm O(1), không đọc DB.
+ * Chấm điểm không đổi state; trip chỉ được đưa vào statistics sau khi transaction lưu trip
+ * commit ({@link #recordAfterCommit}), nên upload bị rollback không làm lệch lịch sử.
+ * <p>
+ * State được persist định kỳ: phần thay đổi của instance này được merge vào dòng trong DB
+ * (khoá dòng), không ghi đè, nên nhiều instance cùng chạy không làm mất đóng góp của nhau.
+ * <p>
+ * Score = z-score lớn nhất ở phía trên (quãng đường / tốc độ / hiệu suất bị thổi phồng),
+ * 0 nếu chưa đủ lịch sử.
+ */
+@Service
+@Slf4j
+public class TripAnomalyScorer {
+    static final int SPEED = 0;
+    static final int EFFICIENCY = 1;
+    static final int DISTANCE = 2;
+    private static final int METRICS = 3;
+
+    private static final long MIN_SAMPLES = 5;
+    private static final String SCOPE_VEHICLE = "VEHICLE";
+    private static final String SCOPE_USER = "USER";
+
+    private final TripAnomalyStatsRepository statsRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final OnlineStatsTable vehicleStats = new OnlineStatsTable(METRICS, 1024);
+    private final OnlineStatsTable userStats = new OnlineStatsTable(METRICS, 1024);
+    // Hai flush chồng nhau (scheduled + shutdown) sẽ merge cùng delta hai lần
+    private final Object flushLock = new Object();
+
+    public TripAnomalyScorer(TripAnomalyStatsRepository statsRepository,
+                             PlatformTransactionManager transactionManager) {
+        this.statsRepository = statsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void loadState() {
+        List<TripAnomalyStats> snapshots = statsRepository.findAll();
+        synchronized (this) {
+            for (TripAnomalyStats s : snapshots) {
+                OnlineStatsTable table = SCOPE_VEHICLE.equals(s.getKey().getScope()) ? vehicleStats : userStats;
+                int slot = table.findOrInsert(s.getKey().getSubjectId());
+                table.restore(slot, SPEED, s.getSpeedCount(), s.getSpeedMean(), s.getSpeedM2());
+                table.restore(slot, EFFICIENCY, s.getEfficiencyCount(), s.getEfficiencyMean(), s.getEfficiencyM2());
+                table.restore(slot, DISTANCE, s.getDistanceCount(), s.getDistanceMean(), s.getDistanceM2());
+            }
+        }
+        log.info("Loaded anomaly statistics for {} vehicles and {} users", vehicleStats.size(), userStats.size());
+    }
+
+    /**
+     * Chấm điểm batch trip (set trip.anomalyScore)
+     */
+    public synchronized void scoreAll(List<Trip> trips) {
+        for (Trip trip : trips) {
+            score(trip);
+        }
+    }
+
+    /**
+     * Chấm điểm một trip, không đưa trip vào statistics
+     */
+    public synchronized double score(Trip trip) {
+        double distance = trip.getDistanceKm() != null ? trip.getDistanceKm() : Double.NaN;
+        double speed = speedOf(trip, distance);
+        double efficiency = efficiencyOf(trip, distance);
+
+        int vehicleSlot = trip.getVehicleId() != null ? vehicleStats.find(trip.getVehicleId()) : -1;
+        int userSlot = trip.getUserId() != null ? userStats.find(trip.getUserId()) : -1;
+
+        double score = score(vehicleSlot, userSlot, speed, efficiency, distance);
+        trip.setAnomalyScore(score);
+        return score;
+    }
+
+    /**
+     * Chấm điểm các row hợp lệ của batch dạng cột (pipeline ingest), ghi vào cột anomalyScore
+     */
+    public synchronized void scoreAll(TripColumnBatch batch, UUID userId, TripValidationResult validation) {
+        int userSlot = userId != null ? userStats.find(userId) : -1;
+        for (int row = 0, size = batch.size(); row < size; row++) {
+            if (!validation.isValid(row)) {
+                continue;
+            }
+            double distance = batch.distanceKm(row);
+            double speed = batch.averageSpeed(row) > 0
+                    ? batch.averageSpeed(row)
+                    : speedOf(distance, batch.startMillis(row), batch.endMillis(row));
+            double battery = batch.batteryUsed(row);
+            double efficiency = battery > 0 ? distance / battery : Double.NaN;
+
+            int vehicleSlot = vehicleStats.find(batch.vehicleIdMsb(row), batch.vehicleIdLsb(row));
+            batch.setAnomalyScore(row, score(vehicleSlot, userSlot, speed, efficiency, distance));
+        }
+    }
+
+    /**
+     * Đưa các trip đã lưu vào statistics khi transaction hiện tại commit
+     * (ngay lập tức nếu không có transaction)
+     */
+    public void recordAfterCommit(List<Trip> trips) {
+        if (trips.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(trips);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(trips);
+            }
+        });
+    }
+
+    private synchronized void record(List<Trip> trips) {
+        for (Trip trip : trips) {
+            double distance = trip.getDistanceKm() != null ? trip.getDistanceKm() : Double.NaN;
+            double speed = speedOf(trip, distance);
+            double efficiency = efficiencyOf(trip, distance);
+            if (trip.getVehicleId() != null) {
+                update(vehicleStats, vehicleStats.findOrInsert(trip.getVehicleId()), speed, efficiency, distance);
+            }
+            if (trip.getUserId() != null) {
+                update(userStats, userStats.findOrInsert(trip.getUserId()), speed, efficiency, distance);
+            }
+        }
+    }
+
+    private double score(int vehicleSlot, int userSlot, double speed, double efficiency, double distance) {
+        double score = 0.0;
+        score = Math.max(score, upperZ(vehicleStats, vehicleSlot, speed, efficiency, distance));
+        score = Math.max(score, upperZ(userStats, userSlot, speed, efficiency, distance));
+        return Math.round(score * 100.0) / 100.0;
+    }
+
+    /**
+     * Merge phần thay đổi vào DB; dirty chỉ được xoá sau khi lưu thành công
+     */
+    @Scheduled(fixedDelayString = "${trip.anomaly.flush-interval-ms:60000}")
+    public void flush() {
+        synchronized (flushLock) {
+            List<PendingDelta> deltas = new ArrayList<>();
+            synchronized (this) {
+                collectDirty(vehicleStats, SCOPE_VEHICLE, deltas);
+                collectDirty(userStats, SCOPE_USER, deltas);
+            }
+            if (deltas.isEmpty()) {
+                return;
+            }
+
+            Instant now = Instant.now();
+            List<TripAnomalyStats> merged = transactionTemplate.execute(status -> {
+                Map<TripAnomalyStats.StatsKey, TripAnomalyStats> rows = new HashMap<>();
+                for (TripAnomalyStats row : statsRepository.lockByKeyIn(deltas.stream().map(PendingDelta::key).toList())) {
+                    rows.put(row.getKey(), row);
+                }
+                List<TripAnomalyStats> toSave = new ArrayList<>(deltas.size());
+                for (PendingDelta delta : deltas) {
+                    TripAnomalyStats row = rows.getOrDefault(delta.key(),
+                            TripAnomalyStats.builder().key(delta.key()).build());
+                    delta.mergeInto(row);
+                    row.setUpdatedAt(now);
+                    toSave.add(row);
+                }
+                return statsRepository.saveAll(toSave);
+            });
+
+            synchronized (this) {
+                for (int i = 0; i < deltas.size(); i++) {
+                    deltas.get(i).rebase(merged.get(i));
+                }
+            }
+            log.debug("Flushed {} anomaly statistics entries", deltas.size());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("Failed to flush anomaly statistics on shutdown", e);
+        }
+    }
+
+    private double speedOf(Trip trip, double distance) {
+        if (trip.getAverageSpeed() != null && trip.getAverageSpeed() > 0) {
+            return trip.getAverageSpeed();
+        }
+        if (trip.getStartTime() == null || trip.getEndTime() == null) {
+            return Double.NaN;
+        }
+        double hours = Duration.between(trip.getStartTime(), trip.getEndTime()).toMillis() / 3_600_000.0;
+        return hours > 0 ? distance / hours : Double.NaN;
+    }
+
+    private static double efficiencyOf(Trip trip, double distance) {
+        return trip.getBatteryUsed() != null && trip.getBatteryUsed() > 0
+                ? distance / trip.getBatteryUsed()
+                : Double.NaN;
+    }
+
+    private static double speedOf(double distance, long startMillis, long endMillis) {
+        if (startMillis == TripColumnBatch.MISSING_TIME || endMillis == TripColumnBatch.MISSING_TIME) {
+            return Double.NaN;
+        }
+        double hours = (endMillis - startMillis) / 3_600_000.0;
+        return hours > 0 ? distance / hours : Double.NaN;
+    }
+
+    private double upperZ(OnlineStatsTable table, int slot, double speed, double efficiency, double distance) {
+        double z = 0.0;
+        z = maxIgnoringNaN(z, table.zScore(slot, SPEED, speed, MIN_SAMPLES));
+        z = maxIgnoringNaN(z, table.zScore(slot, EFFICIENCY, efficiency, MIN_SAMPLES));
+        z = maxIgnoringNaN(z, table.zScore(slot, DISTANCE, distance, MIN_SAMPLES));
+        return z;
+    }
+
+    private void update(OnlineStatsTable table, int slot, double speed, double efficiency, double distance) {
+        if (slot < 0) {
+            return;
+        }
+        table.add(slot, SPEED, speed);
+        table.add(slot, EFFICIENCY, efficiency);
+        table.add(slot, DISTANCE, distance);
+    }
+
+    private void collectDirty(OnlineStatsTable table, String scope, List<PendingDelta> out) {
+        for (int slot = 0; slot < table.capacity(); slot++) {
+            if (!table.isUsed(slot) || !table.isDirty(slot)) {
+                continue;
+            }
+            long[] counts = new long[METRICS];
+            double[] means = new double[METRICS];
+            double[] m2s = new double[METRICS];
+            for (int metric = 0; metric < METRICS; metric++) {
+                counts[metric] = table.deltaCount(slot, metric);
+                means[metric] = table.deltaMean(slot, metric);
+                m2s[metric] = table.deltaM2(slot, metric);
+            }
+            UUID subjectId = table.keyAt(slot);
+            out.add(new PendingDelta(table, new TripAnomalyStats.StatsKey(scope, subjectId),
+                    table.version(slot), counts, means, m2s));
+        }
+    }
+
+    private static double maxIgnoringNaN(double current, double candidate) {
+        return Double.isNaN(candidate) ? current : Math.max(current, candidate);
+    }
+
+    /**
+     * Phần thay đổi của một entry từ lần persist trước, chụp lúc flush
+     */
+    private record PendingDelta(OnlineStatsTable table, TripAnomalyStats.StatsKey key, long version,
+                                long[] counts, double[] means, double[] m2s) {
+
+        void mergeInto(TripAnomalyStats row) {
+            double[] speed = merge(row.getSpeedCount(), row.getSpeedMean(), row.getSpeedM2(), SPEED);
+            row.setSpeedCount(row.getSpeedCount() + counts[SPEED]);
+            row.setSpeedMean(speed[0]);
+            row.setSpeedM2(speed[1]);
+
+            double[] efficiency = merge(row.getEfficiencyCount(), row.getEfficiencyMean(), row.getEfficiencyM2(), EFFICIENCY);
+            row.setEfficiencyCount(row.getEfficiencyCount() + counts[EFFICIENCY]);
+            row.setEfficiencyMean(efficiency[0]);
+            row.setEfficiencyM2(efficiency[1]);
+
+            double[] distance = merge(row.getDistanceCount(), row.getDistanceMean(), row.getDistanceM2(), DISTANCE);
+            row.setDistanceCount(row.getDistanceCount() + counts[DISTANCE]);
+            row.setDistanceMean(distance[0]);
+            row.setDistanceM2(distance[1]);
+        }
+
+        /**
+         * Tổng mới = giá trị trong DB (gồm cả instance khác) + phần delta chưa persist
+         */
+        void rebase(TripAnomalyStats row) {
+            int slot = table.find(key.getSubjectId());
+            if (slot < 0) {
+                return;
+            }
+            table.rebase(slot, SPEED, row.getSpeedCount(), row.getSpeedMean(), row.getSpeedM2(),
+                    counts[SPEED], means[SPEED], m2s[SPEED]);
+            table.rebase(slot, EFFICIENCY, row.getEfficiencyCount(), row.getEfficiencyMean(), row.getEfficiencyM2(),
+                    counts[EFFICIENCY], means[EFFICIENCY], m2s[EFFICIENCY]);
+            table.rebase(slot, DISTANCE, row.getDistanceCount(), row.getDistanceMean(), row.getDistanceM2(),
+                    counts[DISTANCE], means[DISTANCE], m2s[DISTANCE]);
+            table.clearDirty(slot, version);
+        }
+
+        /**
+         * Gộp hai running statistics (Chan et al.), trả về {mean, m2}
+         */
+        private double[] merge(long count, double mean, double m2, int metric) {
+            long n = count + counts[metric];
+            if (counts[metric] == 0 || n == 0) {
+                return new double[]{mean, m2};
+            }
+            double delta = means[metric] - mean;
+            return new double[]{
+                    mean + delta * counts[metric] / n,
+                    m2 + m2s[metric] + delta * delta * count * counts[metric] / n
+            };
+        }
+    }
+}
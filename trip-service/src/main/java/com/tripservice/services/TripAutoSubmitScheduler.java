@@ -0,0 +1,183 @@
+package com.tripservice.services;
+
+import com.tripservice.entities.Trip;
+import com.tripservice.events.EventPublisher;
+import com.tripservice.events.TripEvent;
+import com.tripservice.repositories.TripRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tự động submit trip CALCULATED đã nằm quá lâu để verify, thay cho việc chờ user bấm submit.
+ * <p>
+ * Mỗi lượt claim từng batch bằng SELECT ... FOR UPDATE SKIP LOCKED (nhiều instance chạy song song
+ * không lấy trùng trip), chuyển cả batch sang SUBMITTED_FOR_VERIFICATION bằng một câu UPDATE
+ * và publish event, nên tải verification đều thay vì dồn theo thao tác user.
+ * <p>
+ * Mỗi batch là một transaction ngắn, không quá một giây ngân sách events-per-second; việc chờ theo nhịp
+ * nằm giữa các transaction nên row lock chỉ giữ trong lúc claim, cập nhật và publish.
+ * <p>
+ * Event được publish trong transaction claim và transaction chỉ commit sau khi broker confirm
+ * (simple publisher confirms, bật trong RabbitMQConfig): publish lỗi, bị nack hoặc quá
+ * trip.events.confirm-timeout-ms thì batch rollback về CALCULATED và được lấy lại ở lượt sau,
+ * nên không có trip SUBMITTED_FOR_VERIFICATION nào thiếu event. Ngược lại, commit lỗi sau khi đã confirm thì trip được submit lại và trip.verified
+ * của nó đi hai lần: consumer phải idempotent theo tripId (Verification-Service chỉ tạo một
+ * verification cho mỗi trip_id, bản trùng bị bỏ qua).
+ * <p>
+ * Nhịp được giữ theo từng instance (tổng tốc độ = số instance x events-per-second) và tiếp nối qua
+ * các lượt chạy. Bật bằng trip.auto-submit.enabled=true.
+ */
+@Component
+@ConditionalOnProperty(name = "trip.auto-submit.enabled", havingValue = "true")
+@Slf4j
+public class TripAutoSubmitScheduler {
+    private final TripRepository tripRepository;
+    private final EventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Duration minAge;
+    private final int claimBatchSize;
+    private final int publishBatchSize;
+    private final int maxPerRun;
+    private final Pacer pacer;
+
+    private volatile boolean stopping;
+
+    public TripAutoSubmitScheduler(TripRepository tripRepository,
+                                   EventPublisher eventPublisher,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${trip.auto-submit.min-age-minutes:1440}") long minAgeMinutes,
+                                   @Value("${trip.auto-submit.claim-batch-size:100}") int claimBatchSize,
+                                   @Value("${trip.auto-submit.publish-batch-size:20}") int publishBatchSize,
+                                   @Value("${trip.auto-submit.max-per-run:1000}") int maxPerRun,
+                                   @Value("${trip.auto-submit.events-per-second:20}") double eventsPerSecond) {
+        this.tripRepository = tripRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.minAge = Duration.ofMinutes(minAgeMinutes);
+        // Một transaction không claim quá một giây ngân sách
+        this.claimBatchSize = eventsPerSecond > 0
+                ? Math.max(1, Math.min(claimBatchSize, (int) eventsPerSecond))
+                : Math.max(1, claimBatchSize);
+        this.publishBatchSize = Math.max(1, publishBatchSize);
+        this.maxPerRun = Math.max(1, maxPerRun);
+        this.pacer = new Pacer(eventsPerSecond);
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopping = true;
+    }
+
+    @Scheduled(fixedDelayString = "${trip.auto-submit.interval-ms:60000}",
+            initialDelayString = "${trip.auto-submit.initial-delay-ms:30000}")
+    public void submitStaleTrips() {
+        Instant cutoff = Instant.now().minus(minAge);
+        int submitted = 0;
+        try {
+            while (!stopping && submitted < maxPerRun) {
+                // Chờ ngoài transaction, không giữ row lock
+                if (!pacer.await()) {
+                    break;
+                }
+                int limit = Math.min(claimBatchSize, maxPerRun - submitted);
+                Integer claimed = transactionTemplate.execute(status -> claimAndSubmit(cutoff, limit));
+                if (claimed == null || claimed == 0) {
+                    break;
+                }
+                pacer.record(claimed);
+                submitted += claimed;
+                if (claimed < limit) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Auto-submit of calculated trips failed after {} trips", submitted, e);
+        }
+        if (submitted > 0) {
+            log.info("Auto-submitted {} calculated trips created before {}", submitted, cutoff);
+        }
+    }
+
+    /**
+     * Một batch: claim, cập nhật trạng thái, publish và chờ confirm; tất cả trong một transaction ngắn
+     */
+    private int claimAndSubmit(Instant cutoff, int limit) {
+        List<Trip> trips = tripRepository.claimCalculatedBefore(cutoff, limit);
+        if (trips.isEmpty()) {
+            return 0;
+        }
+        List<UUID> ids = new ArrayList<>(trips.size());
+        List<TripEvent> events = new ArrayList<>(trips.size());
+        for (Trip trip : trips) {
+            ids.add(trip.getId());
+            TripEvent event = TripEvent.tripVerified(
+                    trip.getId(),
+                    trip.getUserId(),
+                    trip.getCo2Reduced() != null ? trip.getCo2Reduced() : 0.0,
+                    trip.getDistanceKm(),
+                    trip.getCreatedAt().toString()
+            );
+            event.setAnomalyScore(trip.getAnomalyScore());
+            events.add(event);
+        }
+        tripRepository.markSubmittedForVerification(ids, Instant.now());
+
+        for (int from = 0; from < events.size(); from += publishBatchSize) {
+            List<TripEvent> chunk = events.subList(from, Math.min(events.size(), from + publishBatchSize));
+            eventPublisher.publishTripVerifiedBatch(chunk);
+        }
+        return trips.size();
+    }
+
+    /**
+     * Giữ tốc độ publish không vượt eventsPerSecond (<= 0: không giới hạn).
+     * Chỉ dùng trên thread của scheduler.
+     */
+    private static final class Pacer {
+        private final double eventsPerSecond;
+        private long nextNanos = System.nanoTime();
+
+        private Pacer(double eventsPerSecond) {
+            this.eventsPerSecond = eventsPerSecond;
+        }
+
+        /**
+         * Chờ tới khi các event đã publish hết ngân sách
+         *
+         * @return false nếu bị interrupt
+         */
+        private boolean await() {
+            long waitNanos = nextNanos - System.nanoTime();
+            if (eventsPerSecond <= 0 || waitNanos <= 0) {
+                return true;
+            }
+            try {
+                Thread.sleep(Duration.ofNanos(waitNanos));
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        private void record(int events) {
+            if (eventsPerSecond > 0) {
+                // Thời gian rảnh không tích thành burst
+                nextNanos = Math.max(nextNanos, System.nanoTime()) + (long) (events / eventsPerSecond * 1e9);
+            }
+        }
+    }
+}
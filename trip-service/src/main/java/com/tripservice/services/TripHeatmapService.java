@@ -0,0 +1,337 @@
+package com.tripservice.services;
+
+import com.tripservice.dtos.response.HeatmapCellResponse;
+import com.tripservice.dtos.response.HeatmapResponse;
+import com.tripservice.entities.Trip;
+import com.tripservice.exceptions.InvalidTripStateException;
+import com.tripservice.repositories.TripHeatmapCellRepository;
+import com.tripservice.utils.GeohashUtil;
+import com.tripservice.utils.GpsCoordinatesCodec;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heatmap CO2 theo geohash.
+ * <p>
+ * Lúc ingest, điểm đầu / điểm cuối của mỗi trip (lấy từ GPS track, hoặc start/end location
+ * dạng "lat,lng") được encode geohash một lần ở độ chính xác lớn nhất, các độ chính xác
+ * nhỏ hơn là prefix. Counter (trips, km, CO2) được gom theo batch rồi upsert theo cell / ngày,
+ * nên truy vấn tile chỉ đọc bảng counter.
+ * <p>
+ * Delta được gom theo transaction của caller và chỉ upsert sau khi transaction đó commit, trên một
+ * thread riêng, trong các transaction ngắn (applyChunkSize cell) theo thứ tự khoá của cell.
+ * Transaction upload không giữ lock cell cũng không chờ connection thứ hai, và các upsert đồng thời
+ * luôn khoá cell cùng thứ tự nên không deadlock.
+ * Đổi lại counter có thể thiếu nếu service bị kill giữa commit và lúc upsert xong.
+ */
+@Service
+@Slf4j
+public class TripHeatmapService {
+    public static final String START = "START";
+    public static final String END = "END";
+
+    private final TripHeatmapCellRepository cellRepository;
+    private final GpsCoordinatesCodec gpsCodec;
+    private final TransactionTemplate transactionTemplate;
+    private final int[] precisions;
+    private final int maxCells;
+    private final int applyChunkSize;
+    private final ExecutorService applier = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("heatmap-apply").daemon().factory());
+
+    public TripHeatmapService(TripHeatmapCellRepository cellRepository,
+                              GpsCoordinatesCodec gpsCodec,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${trip.heatmap.precisions:4,5,6}") int[] precisions,
+                              @Value("${trip.heatmap.max-cells:4000}") int maxCells,
+                              @Value("${trip.heatmap.apply-chunk-size:500}") int applyChunkSize) {
+        this.cellRepository = cellRepository;
+        this.gpsCodec = gpsCodec;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.applyChunkSize = Math.max(1, applyChunkSize);
+        this.precisions = Arrays.stream(precisions).sorted().distinct().toArray();
+        this.maxCells = maxCells;
+        if (this.precisions.length == 0 || this.precisions[0] < 1
+                || this.precisions[this.precisions.length - 1] > GeohashUtil.MAX_PRECISION) {
+            throw new IllegalArgumentException("Invalid heatmap precisions: " + Arrays.toString(precisions));
+        }
+    }
+
+    /**
+     * Chờ các delta đã commit được upsert xong trước khi dừng
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        applier.shutdown();
+        if (!applier.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Heatmap deltas still pending at shutdown were dropped");
+            applier.shutdownNow();
+        }
+    }
+
+    /**
+     * Cộng (sign = 1) hoặc trừ (sign = -1) counter của các trip đã lưu.
+     * Trong transaction: gom vào delta của transaction đó, upsert sau khi commit (bỏ nếu rollback).
+     * Ngoài transaction: upsert ngay.
+     */
+    public void record(List<Trip> trips, int sign) {
+        Map<CellKey, double[]> deltas = pendingDeltas();
+        boolean deferred = deltas != null;
+        if (!deferred) {
+            deltas = new TreeMap<>();
+        }
+        for (Trip trip : trips) {
+            if (trip.getStartTime() == null) {
+                continue;
+            }
+            double[] points = endpointsOf(trip);
+            if (points == null) {
+                continue;
+            }
+            LocalDate day = trip.getStartTime().atZone(ZoneOffset.UTC).toLocalDate();
+            double distance = trip.getDistanceKm() != null ? trip.getDistanceKm() : 0.0;
+            double co2 = trip.getCo2Reduced() != null ? trip.getCo2Reduced() : 0.0;
+
+            accumulate(deltas, START, points[0], points[1], day, sign, distance, co2);
+            accumulate(deltas, END, points[2], points[3], day, sign, distance, co2);
+        }
+        if (!deferred) {
+            apply(deltas);
+        }
+    }
+
+    /**
+     * Delta gắn với transaction hiện tại (tạo và đăng ký afterCommit ở lần gọi đầu), null nếu không có transaction
+     */
+    @SuppressWarnings("unchecked")
+    private Map<CellKey, double[]> pendingDeltas() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Map<CellKey, double[]> deltas = (Map<CellKey, double[]>) TransactionSynchronizationManager.getResource(this);
+        if (deltas != null) {
+            return deltas;
+        }
+        Map<CellKey, double[]> created = new TreeMap<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                // Connection của transaction vừa commit vẫn đang giữ, upsert trên thread applier
+                applier.execute(() -> {
+                    try {
+                        apply(created);
+                    } catch (RuntimeException e) {
+                        log.error("Failed to apply {} heatmap cell deltas after commit", created.size(), e);
+                    }
+                });
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(TripHeatmapService.this);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * Upsert delta theo thứ tự cell, mỗi applyChunkSize cell một transaction ngắn
+     */
+    private void apply(Map<CellKey, double[]> deltas) {
+        List<Map.Entry<CellKey, double[]>> entries = deltas.entrySet().stream()
+                .filter(entry -> entry.getValue()[0] != 0 || entry.getValue()[1] != 0.0 || entry.getValue()[2] != 0.0)
+                .toList();
+        for (int from = 0; from < entries.size(); from += applyChunkSize) {
+            List<Map.Entry<CellKey, double[]>> chunk = entries.subList(from, Math.min(entries.size(), from + applyChunkSize));
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Map.Entry<CellKey, double[]> entry : chunk) {
+                    CellKey key = entry.getKey();
+                    double[] delta = entry.getValue();
+                    double[] bounds = GeohashUtil.bounds(key.geohash());
+                    cellRepository.increment(key.geohash(), key.endpoint(), key.day(), key.geohash().length(),
+                            (bounds[0] + bounds[2]) / 2, (bounds[1] + bounds[3]) / 2,
+                            (long) delta[0], delta[1], delta[2]);
+                }
+            });
+        }
+        if (!entries.isEmpty()) {
+            log.debug("Updated {} heatmap cells", entries.size());
+        }
+    }
+
+    /**
+     * Tile heatmap trong bounding box và khoảng ngày
+     *
+     * @param precision - null: tự chọn độ chính xác lớn nhất mà số cell không vượt quá giới hạn
+     */
+    @Transactional(readOnly = true)
+    public HeatmapResponse getHeatmap(double minLat, double minLng, double maxLat, double maxLng,
+                                      LocalDate from, LocalDate to, Integer precision, String endpoint) {
+        if (!GeohashUtil.isValidPoint(minLat, minLng) || !GeohashUtil.isValidPoint(maxLat, maxLng)
+                || minLat > maxLat || minLng > maxLng) {
+            throw new InvalidTripStateException("Invalid bounding box");
+        }
+        if (from.isAfter(to)) {
+            throw new InvalidTripStateException("'from' must not be after 'to'");
+        }
+        String normalizedEndpoint = endpoint.toUpperCase();
+        if (!START.equals(normalizedEndpoint) && !END.equals(normalizedEndpoint)) {
+            throw new InvalidTripStateException("Endpoint must be START or END");
+        }
+        int level = precision != null ? requireSupported(precision) : choosePrecision(minLat, minLng, maxLat, maxLng);
+
+        // Nới bbox nửa cell để lấy cả cell giao một phần (lọc theo tâm cell)
+        double halfHeight = GeohashUtil.cellHeightDegrees(level) / 2;
+        double halfWidth = GeohashUtil.cellWidthDegrees(level) / 2;
+        List<TripHeatmapCellRepository.CellAggregate> rows = cellRepository.aggregate(level, normalizedEndpoint,
+                from, to, minLat - halfHeight, maxLat + halfHeight, minLng - halfWidth, maxLng + halfWidth);
+
+        long totalTrips = 0;
+        double totalDistance = 0.0;
+        double totalCo2 = 0.0;
+        double maxCo2 = 0.0;
+        List<HeatmapCellResponse> cells = new ArrayList<>(rows.size());
+        for (TripHeatmapCellRepository.CellAggregate row : rows) {
+            double[] bounds = GeohashUtil.bounds(row.getGeohash());
+            cells.add(HeatmapCellResponse.builder()
+                    .geohash(row.getGeohash())
+                    .minLat(bounds[0])
+                    .minLng(bounds[1])
+                    .maxLat(bounds[2])
+                    .maxLng(bounds[3])
+                    .trips(row.getTrips())
+                    .distanceKm(round(row.getDistanceKm()))
+                    .co2Kg(round(row.getCo2Kg()))
+                    .build());
+            totalTrips += row.getTrips();
+            totalDistance += row.getDistanceKm();
+            totalCo2 += row.getCo2Kg();
+            maxCo2 = Math.max(maxCo2, row.getCo2Kg());
+        }
+
+        return HeatmapResponse.builder()
+                .precision(level)
+                .endpoint(normalizedEndpoint)
+                .from(from)
+                .to(to)
+                .totalTrips(totalTrips)
+                .totalDistanceKm(round(totalDistance))
+                .totalCo2Kg(round(totalCo2))
+                .maxCellCo2Kg(round(maxCo2))
+                .cells(cells)
+                .build();
+    }
+
+    private void accumulate(Map<CellKey, double[]> deltas, String endpoint, double lat, double lng,
+                            LocalDate day, int sign, double distance, double co2) {
+        if (!GeohashUtil.isValidPoint(lat, lng)) {
+            return;
+        }
+        String finest = GeohashUtil.encode(lat, lng, precisions[precisions.length - 1]);
+        for (int precision : precisions) {
+            double[] delta = deltas.computeIfAbsent(
+                    new CellKey(finest.substring(0, precision), endpoint, day), k -> new double[3]);
+            delta[0] += sign;
+            delta[1] += sign * distance;
+            delta[2] += sign * co2;
+        }
+    }
+
+    /**
+     * {startLat, startLng, endLat, endLng} từ GPS track, nếu không có thì từ location dạng "lat,lng"
+     */
+    private double[] endpointsOf(Trip trip) {
+        double[] points = gpsCodec.endpoints(trip.getGpsEncoded());
+        if (points != null) {
+            return points;
+        }
+        double[] start = parseLatLng(trip.getStartLocation());
+        double[] end = parseLatLng(trip.getEndLocation());
+        if (start == null && end == null) {
+            return null;
+        }
+        if (start == null) {
+            start = end;
+        } else if (end == null) {
+            end = start;
+        }
+        return new double[]{start[0], start[1], end[0], end[1]};
+    }
+
+    private static double[] parseLatLng(String location) {
+        if (location == null) {
+            return null;
+        }
+        int comma = location.indexOf(',');
+        if (comma < 0 || location.indexOf(',', comma + 1) >= 0) {
+            return null;
+        }
+        try {
+            double lat = Double.parseDouble(location.substring(0, comma).trim());
+            double lng = Double.parseDouble(location.substring(comma + 1).trim());
+            return GeohashUtil.isValidPoint(lat, lng) ? new double[]{lat, lng} : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private int choosePrecision(double minLat, double minLng, double maxLat, double maxLng) {
+        for (int i = precisions.length - 1; i > 0; i--) {
+            int precision = precisions[i];
+            double rows = Math.ceil((maxLat - minLat) / GeohashUtil.cellHeightDegrees(precision)) + 1;
+            double cols = Math.ceil((maxLng - minLng) / GeohashUtil.cellWidthDegrees(precision)) + 1;
+            if (rows * cols <= maxCells) {
+                return precision;
+            }
+        }
+        return precisions[0];
+    }
+
+    private int requireSupported(int precision) {
+        for (int supported : precisions) {
+            if (supported == precision) {
+                return precision;
+            }
+        }
+        throw new InvalidTripStateException("Unsupported heatmap precision " + precision
+                + ". Supported: " + Arrays.toString(precisions));
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    /**
+     * Thứ tự (geohash, endpoint, day) = thứ tự primary key của trip_heatmap_cells
+     */
+    private record CellKey(String geohash, String endpoint, LocalDate day) implements Comparable<CellKey> {
+        private static final Comparator<CellKey> ORDER = Comparator.comparing(CellKey::geohash)
+                .thenComparing(CellKey::endpoint)
+                .thenComparing(CellKey::day);
+
+        @Override
+        public int compareTo(CellKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
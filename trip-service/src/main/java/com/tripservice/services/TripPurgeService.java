@@ -0,0 +1,307 @@
+package com.tripservice.services;
+
+import com.tripservice.constants.TripPurgeJobStatus;
+import com.tripservice.constants.TripStatus;
+import com.tripservice.dtos.request.TripPurgeRequest;
+import com.tripservice.dtos.response.TripPurgeJobResponse;
+import com.tripservice.entities.Trip;
+import com.tripservice.entities.TripPurgeJob;
+import com.tripservice.entities.UploadSession;
+import com.tripservice.exceptions.InvalidTripStateException;
+import com.tripservice.repositories.TripPurgeJobRepository;
+import com.tripservice.repositories.TripRawDataRepository;
+import com.tripservice.repositories.TripRepository;
+import com.tripservice.repositories.TripTelemetryRepository;
+import com.tripservice.repositories.UploadSessionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Admin job xoá hàng loạt trip chưa final (theo archive / upload session, user, khoảng thời gian).
+ * <p>
+ * Mỗi chunk là một transaction ngắn: khoá tối đa chunkSize trip, trừ counter heatmap, xoá
+ * telemetry rồi xoá trip theo id. Lock chỉ giữ trong một chunk và undo log không phình theo
+ * tổng số row. Trip final (VERIFIED, CREDIT_ISSUED, ...) không bao giờ bị xoá nên rollup CO2
+ * theo user (chỉ tính trip VERIFIED) không bị ảnh hưởng.
+ * <p>
+ * Mặc định chỉ xoá PENDING / CALCULATED. Trip đang verify (SUBMITTED_FOR_VERIFICATION, UNDER_REVIEW)
+ * đã được gửi sang verification nên chỉ bị xoá khi request liệt kê rõ các trạng thái đó.
+ */
+@Service
+@Slf4j
+public class TripPurgeService {
+    private static final Set<TripStatus> DEFAULT_PURGEABLE = EnumSet.of(TripStatus.PENDING, TripStatus.CALCULATED);
+    private static final Set<TripStatus> PURGEABLE = Arrays.stream(TripStatus.values())
+            .filter(status -> !status.isFinal())
+            .collect(Collectors.toCollection(() -> EnumSet.noneOf(TripStatus.class)));
+
+    private final TripRepository tripRepository;
+    private final TripTelemetryRepository telemetryRepository;
+    private final TripRawDataRepository rawDataRepository;
+    private final UploadSessionRepository uploadSessionRepository;
+    private final TripPurgeJobRepository jobRepository;
+    private final TripHeatmapService heatmapService;
+    private final RawUploadArchiveService archiveService;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final long chunkPauseMillis;
+
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor();
+
+    public TripPurgeService(TripRepository tripRepository,
+                            TripTelemetryRepository telemetryRepository,
+                            TripRawDataRepository rawDataRepository,
+                            UploadSessionRepository uploadSessionRepository,
+                            TripPurgeJobRepository jobRepository,
+                            TripHeatmapService heatmapService,
+                            RawUploadArchiveService archiveService,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${trip.purge.chunk-size:1000}") int chunkSize,
+                            @Value("${trip.purge.chunk-pause-ms:0}") long chunkPauseMillis) {
+        this.tripRepository = tripRepository;
+        this.telemetryRepository = telemetryRepository;
+        this.rawDataRepository = rawDataRepository;
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.jobRepository = jobRepository;
+        this.heatmapService = heatmapService;
+        this.archiveService = archiveService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.chunkPauseMillis = Math.max(0, chunkPauseMillis);
+    }
+
+    /**
+     * Job còn RUNNING khi service khởi động nghĩa là đã bị dừng giữa chừng
+     */
+    @PostConstruct
+    public void markInterruptedJobs() {
+        for (TripPurgeJob job : jobRepository.findByStatus(TripPurgeJobStatus.RUNNING)) {
+            job.setStatus(TripPurgeJobStatus.INTERRUPTED);
+            jobRepository.save(job);
+            log.warn("Trip purge job {} was interrupted after deleting {} trips", job.getId(), job.getDeletedTrips());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+    }
+
+    public TripPurgeJobResponse start(TripPurgeRequest request) {
+        TripPurgeJob job = toJob(request);
+        job.setMatchedTrips(tripRepository.countPurgeCandidates(statusesOf(job), job.getRawDataId(),
+                job.getUserId(), job.getCreatedFrom(), job.getCreatedTo()));
+        job = jobRepository.save(job);
+
+        log.info("Starting trip purge job {} (rawDataId={}, userId={}, from={}, to={}, statuses={}, matched={})",
+                job.getId(), job.getRawDataId(), job.getUserId(), job.getCreatedFrom(), job.getCreatedTo(),
+                job.getStatuses(), job.getMatchedTrips());
+        UUID jobId = job.getId();
+        coordinator.submit(() -> {
+            try {
+                run(jobId);
+            } catch (Exception e) {
+                log.error("Trip purge job {} failed", jobId, e);
+                jobRepository.findById(jobId).ifPresent(failed -> {
+                    failed.setStatus(TripPurgeJobStatus.FAILED);
+                    failed.setErrorMessage(e.getMessage());
+                    failed.setFinishedAt(Instant.now());
+                    jobRepository.save(failed);
+                });
+            }
+        });
+        return toResponse(job);
+    }
+
+    public TripPurgeJobResponse getJob(UUID jobId) {
+        return toResponse(findJob(jobId));
+    }
+
+    private void run(UUID jobId) throws InterruptedException {
+        TripPurgeJob job = findJob(jobId);
+        TripPurgeJob filter = job;
+        Set<TripStatus> statuses = statusesOf(job);
+
+        while (!Thread.currentThread().isInterrupted()) {
+            long chunkStart = System.nanoTime();
+            long[] deleted = transactionTemplate.execute(status -> deleteChunk(filter, statuses));
+            if (deleted == null || deleted[0] == 0) {
+                break;
+            }
+
+            job.setDeletedTrips(job.getDeletedTrips() + deleted[0]);
+            job.setDeletedTelemetry(job.getDeletedTelemetry() + deleted[1]);
+            job.setChunks(job.getChunks() + 1);
+            job.setElapsedMillis(job.getElapsedMillis() + (System.nanoTime() - chunkStart) / 1_000_000);
+            job = jobRepository.save(job);
+
+            log.debug("Trip purge job {}: deleted {}/{} trips", jobId, job.getDeletedTrips(), job.getMatchedTrips());
+            if (deleted[0] < job.getChunkSize()) {
+                break;
+            }
+            if (chunkPauseMillis > 0) {
+                Thread.sleep(chunkPauseMillis);
+            }
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            return;
+        }
+
+        if (job.getRawDataId() != null) {
+            job.setArchiveRemoved(removeArchiveIfUnreferenced(job.getRawDataId()));
+        }
+        job.setStatus(TripPurgeJobStatus.COMPLETED);
+        job.setFinishedAt(Instant.now());
+        jobRepository.save(job);
+        log.info("Trip purge job {} completed: deleted {} trips ({} telemetry series) in {} chunks, {} ms",
+                jobId, job.getDeletedTrips(), job.getDeletedTelemetry(), job.getChunks(), job.getElapsedMillis());
+    }
+
+    /**
+     * Một chunk trong một transaction
+     *
+     * @return {số trip đã xoá, số telemetry series đã xoá}
+     */
+    private long[] deleteChunk(TripPurgeJob job, Set<TripStatus> statuses) {
+        List<Trip> trips = tripRepository.findPurgeChunk(statuses, job.getRawDataId(), job.getUserId(),
+                job.getCreatedFrom(), job.getCreatedTo(), PageRequest.ofSize(job.getChunkSize()));
+        if (trips.isEmpty()) {
+            return new long[]{0, 0};
+        }
+        List<UUID> ids = new ArrayList<>(trips.size());
+        for (Trip trip : trips) {
+            ids.add(trip.getId());
+        }
+        heatmapService.record(trips, -1);
+        long telemetry = telemetryRepository.deleteByTripIds(ids);
+        long deleted = tripRepository.deleteByIds(ids);
+        return new long[]{deleted, telemetry};
+    }
+
+    /**
+     * Xoá raw archive khi không còn trip nào tham chiếu, để reprocessing không tạo lại trip vừa xoá
+     */
+    private boolean removeArchiveIfUnreferenced(UUID rawDataId) {
+        if (tripRepository.existsByRawDataId(rawDataId)) {
+            return false;
+        }
+        return rawDataRepository.findById(rawDataId)
+                .map(rawData -> {
+                    archiveService.remove(rawData);
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    private TripPurgeJob toJob(TripPurgeRequest request) {
+        UUID rawDataId = request.getRawDataId();
+        UUID userId = request.getUserId();
+        if (request.getUploadSessionId() != null) {
+            UploadSession session = uploadSessionRepository.findById(request.getUploadSessionId())
+                    .orElseThrow(() -> new InvalidTripStateException(
+                            "Upload session not found: " + request.getUploadSessionId()));
+            if (session.getRawDataId() == null) {
+                throw new InvalidTripStateException("Upload session " + session.getId() + " has no imported data");
+            }
+            if ((rawDataId != null && !rawDataId.equals(session.getRawDataId()))
+                    || (userId != null && !userId.equals(session.getUserId()))) {
+                throw new InvalidTripStateException("Upload session " + session.getId()
+                        + " does not match the given rawDataId / userId");
+            }
+            // Archive dùng chung giữa các upload cùng nội dung, nên giới hạn theo user của session
+            rawDataId = session.getRawDataId();
+            userId = session.getUserId();
+        }
+        if (rawDataId == null && userId == null && request.getCreatedFrom() == null && request.getCreatedTo() == null) {
+            throw new InvalidTripStateException(
+                    "At least one of rawDataId, uploadSessionId, userId, createdFrom, createdTo is required");
+        }
+        if (request.getCreatedFrom() != null && request.getCreatedTo() != null
+                && !request.getCreatedFrom().isBefore(request.getCreatedTo())) {
+            throw new InvalidTripStateException("'createdFrom' must be before 'createdTo'");
+        }
+
+        Set<TripStatus> statuses = EnumSet.copyOf(DEFAULT_PURGEABLE);
+        if (request.getStatuses() != null && !request.getStatuses().isEmpty()) {
+            for (TripStatus status : request.getStatuses()) {
+                if (!PURGEABLE.contains(status)) {
+                    throw new InvalidTripStateException("Cannot purge trips with final status: " + status);
+                }
+            }
+            statuses = EnumSet.copyOf(request.getStatuses());
+        }
+
+        return TripPurgeJob.builder()
+                .status(TripPurgeJobStatus.RUNNING)
+                .rawDataId(rawDataId)
+                .uploadSessionId(request.getUploadSessionId())
+                .userId(userId)
+                .createdFrom(request.getCreatedFrom())
+                .createdTo(request.getCreatedTo())
+                .statuses(joinStatuses(statuses))
+                .chunkSize(chunkSize)
+                .build();
+    }
+
+    private static String joinStatuses(Collection<TripStatus> statuses) {
+        return statuses.stream().map(Enum::name).collect(Collectors.joining(","));
+    }
+
+    private static Set<TripStatus> statusesOf(TripPurgeJob job) {
+        return Arrays.stream(job.getStatuses().split(","))
+                .map(TripStatus::valueOf)
+                .collect(Collectors.toCollection(() -> EnumSet.noneOf(TripStatus.class)));
+    }
+
+    private TripPurgeJob findJob(UUID jobId) {
+        return jobRepository.findById(jobId)
+                .orElseThrow(() -> new InvalidTripStateException("Trip purge job not found: " + jobId));
+    }
+
+    private TripPurgeJobResponse toResponse(TripPurgeJob job) {
+        double seconds = job.getElapsedMillis() / 1000.0;
+        double percent = job.getMatchedTrips() > 0
+                ? Math.min(100.0, job.getDeletedTrips() * 100.0 / job.getMatchedTrips())
+                : (job.getStatus() == TripPurgeJobStatus.COMPLETED ? 100.0 : 0.0);
+        return TripPurgeJobResponse.builder()
+                .id(job.getId())
+                .status(job.getStatus())
+                .rawDataId(job.getRawDataId())
+                .uploadSessionId(job.getUploadSessionId())
+                .userId(job.getUserId())
+                .createdFrom(job.getCreatedFrom())
+                .createdTo(job.getCreatedTo())
+                .statuses(List.of(job.getStatuses().split(",")))
+                .chunkSize(job.getChunkSize())
+                .matchedTrips(job.getMatchedTrips())
+                .deletedTrips(job.getDeletedTrips())
+                .deletedTelemetry(job.getDeletedTelemetry())
+                .chunks(job.getChunks())
+                .percentComplete(Math.round(percent * 100.0) / 100.0)
+                .tripsPerSecond(seconds > 0 ? Math.round(job.getDeletedTrips() / seconds * 100.0) / 100.0 : 0.0)
+                .archiveRemoved(job.isArchiveRemoved())
+                .errorMessage(job.getErrorMessage())
+                .startedAt(job.getStartedAt())
+                .updatedAt(job.getUpdatedAt())
+                .finishedAt(job.getFinishedAt())
+                .build();
+    }
+}
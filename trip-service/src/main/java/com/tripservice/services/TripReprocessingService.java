@@ -0,0 +1,234 @@
+package com.tripservice.services;
+
+import com.tripservice.constants.ReprocessingJobStatus;
+import com.tripservice.dtos.internal.ArchiveReprocessResult;
+import com.tripservice.dtos.response.ReprocessDiffResponse;
+import com.tripservice.dtos.response.ReprocessingJobResponse;
+import com.tripservice.entities.ReprocessingJob;
+import com.tripservice.entities.TripRawData;
+import com.tripservice.exceptions.InvalidTripStateException;
+import com.tripservice.repositories.ReprocessingJobRepository;
+import com.tripservice.repositories.TripRawDataRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Admin job rebuild trips từ raw upload archive với parse/validate/CO2 hiện tại.
+ * Mỗi archive là một partition, các partition trong một window chạy song song;
+ * checkpoint được lưu sau mỗi window nên job có thể resume.
+ */
+@Service
+@Slf4j
+public class TripReprocessingService {
+    private static final int MAX_DIFFS_PER_JOB = 500;
+
+    private final TripRawDataRepository rawDataRepository;
+    private final ReprocessingJobRepository jobRepository;
+    private final TripReprocessor reprocessor;
+    private final int parallelism;
+
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor();
+    private final ExecutorService workers;
+    private final Map<UUID, List<ReprocessDiffResponse>> diffsByJob = new ConcurrentHashMap<>();
+
+    public TripReprocessingService(TripRawDataRepository rawDataRepository,
+                                   ReprocessingJobRepository jobRepository,
+                                   TripReprocessor reprocessor,
+                                   @Value("${trip.reprocessing.parallelism:4}") int parallelism) {
+        this.rawDataRepository = rawDataRepository;
+        this.jobRepository = jobRepository;
+        this.reprocessor = reprocessor;
+        this.parallelism = Math.max(1, parallelism);
+        this.workers = Executors.newFixedThreadPool(this.parallelism);
+    }
+
+    /**
+     * Job còn RUNNING khi service khởi động nghĩa là đã bị dừng giữa chừng
+     */
+    @PostConstruct
+    public void markInterruptedJobs() {
+        for (ReprocessingJob job : jobRepository.findByStatus(ReprocessingJobStatus.RUNNING)) {
+            job.setStatus(ReprocessingJobStatus.INTERRUPTED);
+            jobRepository.save(job);
+            log.warn("Reprocessing job {} was interrupted at checkpoint {}", job.getId(), job.getCheckpointArchives());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    public ReprocessingJobResponse start(boolean dryRun) {
+        ensureNoRunningJob();
+
+        ReprocessingJob job = ReprocessingJob.builder()
+                .status(ReprocessingJobStatus.RUNNING)
+                .dryRun(dryRun)
+                .totalArchives(rawDataRepository.count())
+                .build();
+        job = jobRepository.save(job);
+
+        log.info("Starting reprocessing job {} (dryRun={}, archives={})",
+                job.getId(), dryRun, job.getTotalArchives());
+        submit(job.getId());
+        return toResponse(job);
+    }
+
+    public ReprocessingJobResponse resume(UUID jobId) {
+        ensureNoRunningJob();
+
+        ReprocessingJob job = findJob(jobId);
+        if (job.getStatus() == ReprocessingJobStatus.COMPLETED) {
+            throw new InvalidTripStateException("Reprocessing job " + jobId + " is already completed");
+        }
+        job.setStatus(ReprocessingJobStatus.RUNNING);
+        job.setTotalArchives(rawDataRepository.count());
+        job.setErrorMessage(null);
+        job.setFinishedAt(null);
+        job = jobRepository.save(job);
+
+        log.info("Resuming reprocessing job {} from checkpoint {}", jobId, job.getCheckpointArchives());
+        submit(job.getId());
+        return toResponse(job);
+    }
+
+    public ReprocessingJobResponse getJob(UUID jobId) {
+        return toResponse(findJob(jobId));
+    }
+
+    private void submit(UUID jobId) {
+        coordinator.submit(() -> {
+            try {
+                run(jobId);
+            } catch (Exception e) {
+                log.error("Reprocessing job {} failed", jobId, e);
+                jobRepository.findById(jobId).ifPresent(job -> {
+                    job.setStatus(ReprocessingJobStatus.FAILED);
+                    job.setErrorMessage(e.getMessage());
+                    job.setFinishedAt(Instant.now());
+                    jobRepository.save(job);
+                });
+            }
+        });
+    }
+
+    private void run(UUID jobId) {
+        ReprocessingJob job = findJob(jobId);
+        List<ReprocessDiffResponse> diffs = diffsByJob.computeIfAbsent(jobId,
+                id -> Collections.synchronizedList(new ArrayList<>()));
+        int windowSize = parallelism * 2;
+
+        while (!Thread.currentThread().isInterrupted()) {
+            long windowStart = System.nanoTime();
+            List<TripRawData> window = rawDataRepository.findWindow(job.getCheckpointArchives(), windowSize);
+            if (window.isEmpty()) {
+                break;
+            }
+
+            boolean dryRun = job.isDryRun();
+            List<CompletableFuture<ArchiveReprocessResult>> futures = window.stream()
+                    .map(rawData -> CompletableFuture.supplyAsync(
+                            () -> reprocessor.reprocess(rawData, dryRun), workers))
+                    .toList();
+
+            long windowRows = 0;
+            for (CompletableFuture<ArchiveReprocessResult> future : futures) {
+                ArchiveReprocessResult result = future.join();
+                merge(job, result);
+                windowRows += result.getRowsParsed();
+                for (ReprocessDiffResponse diff : result.getDiffs()) {
+                    if (diffs.size() >= MAX_DIFFS_PER_JOB) {
+                        break;
+                    }
+                    diffs.add(diff);
+                }
+            }
+
+            long windowMillis = (System.nanoTime() - windowStart) / 1_000_000;
+            job.setCheckpointArchives(job.getCheckpointArchives() + window.size());
+            job.setElapsedMillis(job.getElapsedMillis() + windowMillis);
+            job = jobRepository.save(job);
+
+            log.info("Reprocessing job {}: checkpoint {}/{} archives, {} rows in {} ms ({} rows/s overall)",
+                    jobId, job.getCheckpointArchives(), job.getTotalArchives(), windowRows, windowMillis,
+                    Math.round(rowsPerSecond(job)));
+        }
+
+        job.setStatus(ReprocessingJobStatus.COMPLETED);
+        job.setFinishedAt(Instant.now());
+        jobRepository.save(job);
+        log.info("Reprocessing job {} completed: skippedMissing={}, updated={}, unchanged={}, invalid={}, failedArchives={}",
+                jobId, job.getRowsSkippedMissing(), job.getRowsUpdated(), job.getRowsUnchanged(),
+                job.getRowsInvalid(), job.getFailedArchives());
+    }
+
+    private void merge(ReprocessingJob job, ArchiveReprocessResult result) {
+        job.setRowsParsed(job.getRowsParsed() + result.getRowsParsed());
+        job.setRowsInvalid(job.getRowsInvalid() + result.getRowsInvalid());
+        job.setRowsSkippedMissing(job.getRowsSkippedMissing() + result.getRowsSkippedMissing());
+        job.setRowsUpdated(job.getRowsUpdated() + result.getRowsUpdated());
+        job.setRowsUnchanged(job.getRowsUnchanged() + result.getRowsUnchanged());
+        job.setRowsSkippedFinal(job.getRowsSkippedFinal() + result.getRowsSkippedFinal());
+        if (result.isFailed()) {
+            job.setFailedArchives(job.getFailedArchives() + 1);
+        }
+    }
+
+    private void ensureNoRunningJob() {
+        if (!jobRepository.findByStatus(ReprocessingJobStatus.RUNNING).isEmpty()) {
+            throw new InvalidTripStateException("A reprocessing job is already running");
+        }
+    }
+
+    private ReprocessingJob findJob(UUID jobId) {
+        return jobRepository.findById(jobId)
+                .orElseThrow(() -> new InvalidTripStateException("Reprocessing job not found: " + jobId));
+    }
+
+    private double rowsPerSecond(ReprocessingJob job) {
+        return job.getElapsedMillis() > 0 ? job.getRowsParsed() * 1000.0 / job.getElapsedMillis() : 0.0;
+    }
+
+    private ReprocessingJobResponse toResponse(ReprocessingJob job) {
+        double seconds = job.getElapsedMillis() / 1000.0;
+        return ReprocessingJobResponse.builder()
+                .id(job.getId())
+                .status(job.getStatus())
+                .dryRun(job.isDryRun())
+                .totalArchives(job.getTotalArchives())
+                .checkpointArchives(job.getCheckpointArchives())
+                .failedArchives(job.getFailedArchives())
+                .rowsParsed(job.getRowsParsed())
+                .rowsInvalid(job.getRowsInvalid())
+                .rowsSkippedMissing(job.getRowsSkippedMissing())
+                .rowsUpdated(job.getRowsUpdated())
+                .rowsUnchanged(job.getRowsUnchanged())
+                .rowsSkippedFinal(job.getRowsSkippedFinal())
+                .rowsPerSecond(Math.round(rowsPerSecond(job) * 100.0) / 100.0)
+                .archivesPerSecond(seconds > 0
+                        ? Math.round(job.getCheckpointArchives() / seconds * 100.0) / 100.0
+                        : 0.0)
+                .errorMessage(job.getErrorMessage())
+                .startedAt(job.getStartedAt())
+                .updatedAt(job.getUpdatedAt())
+                .finishedAt(job.getFinishedAt())
+                .diffs(diffsByJob.getOrDefault(job.getId(), List.of()))
+                .build();
+    }
+}
@@ -0,0 +1,251 @@
+package com.tripservice.services;
+
+import com.tripservice.constants.TripStatus;
+import com.tripservice.dtos.internal.ArchiveReprocessResult;
+import com.tripservice.dtos.internal.TripData;
+import com.tripservice.dtos.internal.TripValidationResult;
+import com.tripservice.dtos.response.ReprocessDiffResponse;
+import com.tripservice.entities.Trip;
+import com.tripservice.entities.TripRawData;
+import com.tripservice.mappers.TripCustomMapper;
+import com.tripservice.repositories.TripRepository;
+import com.tripservice.utils.TripRecordHandler;
+import com.tripservice.validators.TripDataValidator;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.fileupload.FileUploadException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Chạy lại parse -> validate -> calculate cho một raw archive và reconcile
+ * với các trip hiện có (theo raw_data_id + raw_row_offset).
+ * <p>
+ * Archive được đọc streaming qua {@link TripRecordHandler} theo từng window windowSize row;
+ * mỗi window là một transaction riêng nên bộ nhớ và thời gian giữ lock không phụ thuộc kích thước archive.
+ * Chỉ cập nhật trip còn tồn tại: row không còn trip (user đã xoá, đã bị purge) được bỏ qua, không tạo lại.
+ */
+@Component
+@Slf4j
+public class TripReprocessor {
+    private static final int MAX_DIFFS_PER_ARCHIVE = 50;
+
+    private final RawUploadArchiveService archiveService;
+    private final TripUploadService uploadService;
+    private final TripDataValidator validator;
+    private final CO2CalculationService co2Service;
+    private final TripCustomMapper tripCustomMapper;
+    private final TripRepository tripRepository;
+    private final TripHeatmapService heatmapService;
+    private final TransactionTemplate transactionTemplate;
+    private final int windowSize;
+
+    public TripReprocessor(RawUploadArchiveService archiveService,
+                           TripUploadService uploadService,
+                           TripDataValidator validator,
+                           CO2CalculationService co2Service,
+                           TripCustomMapper tripCustomMapper,
+                           TripRepository tripRepository,
+                           TripHeatmapService heatmapService,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${trip.reprocessing.window-size:1000}") int windowSize) {
+        this.archiveService = archiveService;
+        this.uploadService = uploadService;
+        this.validator = validator;
+        this.co2Service = co2Service;
+        this.tripCustomMapper = tripCustomMapper;
+        this.tripRepository = tripRepository;
+        this.heatmapService = heatmapService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.windowSize = Math.max(1, windowSize);
+    }
+
+    public ArchiveReprocessResult reprocess(TripRawData rawData, boolean dryRun) {
+        ArchiveReprocessResult result = new ArchiveReprocessResult();
+        List<TripData> window = new ArrayList<>(windowSize);
+
+        try (InputStream in = archiveService.openDecompressed(rawData)) {
+            uploadService.parseStream(in, rawData.getFormat(), rawData.getOriginalFilename(),
+                    (sourceRow, tripData, error) -> {
+                        if (tripData == null) {
+                            log.debug("Reprocessing archive {}: skipping row {}: {}", rawData.getId(), sourceRow + 1, error);
+                            return;
+                        }
+                        window.add(tripData);
+                        if (window.size() >= windowSize) {
+                            processWindow(rawData, window, dryRun, result);
+                            window.clear();
+                        }
+                    });
+            processWindow(rawData, window, dryRun, result);
+        } catch (IOException | FileUploadException e) {
+            // Window đã commit vẫn giữ: reconcile chỉ cập nhật trip hiện có nên chạy lại là idempotent
+            log.warn("Reprocessing archive {} failed to parse: {}", rawData.getId(), e.getMessage());
+            result.setError(e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Một window: load trip hiện có theo offset, validate, reconcile và lưu trong một transaction
+     */
+    private void processWindow(TripRawData rawData, List<TripData> window, boolean dryRun,
+                               ArchiveReprocessResult result) {
+        if (window.isEmpty()) {
+            return;
+        }
+        result.setRowsParsed(result.getRowsParsed() + window.size());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Integer> offsets = window.stream().map(TripData::getSourceRow).toList();
+
+            // Archive dedup theo content hash có thể được dùng chung bởi nhiều user -> reconcile theo từng user
+            Map<UUID, Map<Integer, Trip>> existingByUser = new LinkedHashMap<>();
+            for (Trip trip : tripRepository.findByRawDataIdAndRawRowOffsetIn(rawData.getId(), offsets)) {
+                existingByUser.computeIfAbsent(trip.getUserId(), id -> new HashMap<>())
+                        .put(trip.getRawRowOffset(), trip);
+            }
+
+            TripValidationResult validation = validator.validate(window);
+            result.setRowsInvalid(result.getRowsInvalid() + validation.getInvalidCount());
+            if (existingByUser.isEmpty()) {
+                result.setRowsSkippedMissing(result.getRowsSkippedMissing() + window.size());
+                return;
+            }
+
+            List<Trip> toSave = new ArrayList<>();
+            List<Trip> heatmapRetracted = new ArrayList<>();
+            for (Map.Entry<UUID, Map<Integer, Trip>> entry : existingByUser.entrySet()) {
+                reconcile(rawData, entry.getKey(), entry.getValue(), window, validation, result, toSave, heatmapRetracted);
+            }
+
+            if (!dryRun && !toSave.isEmpty()) {
+                // Counter heatmap: bỏ đóng góp cũ của trip được cập nhật rồi cộng giá trị mới
+                heatmapService.record(heatmapRetracted, -1);
+                heatmapService.record(tripRepository.saveAll(toSave), 1);
+            }
+        });
+    }
+
+    private void reconcile(TripRawData rawData, UUID userId, Map<Integer, Trip> existing,
+                           List<TripData> parsed, TripValidationResult validation,
+                           ArchiveReprocessResult result, List<Trip> toSave,
+                           List<Trip> heatmapRetracted) {
+        for (int i = 0; i < parsed.size(); i++) {
+            TripData tripData = parsed.get(i);
+            Trip current = existing.get(tripData.getSourceRow());
+
+            if (current == null) {
+                // Trip đã bị xoá hoặc purge: không tạo lại
+                result.setRowsSkippedMissing(result.getRowsSkippedMissing() + 1);
+                continue;
+            }
+
+            if (!validation.isValid(i)) {
+                addDiff(result, rawData, tripData, current, "NOW_INVALID",
+                        Map.of("violations", String.join(",", validation.getViolatedRuleIds(i))));
+                continue;
+            }
+
+            Trip candidate = tripCustomMapper.convertToEntity(tripData, userId);
+            candidate.setRawDataId(rawData.getId());
+            candidate.setCo2Reduced(co2Service.calculateDetailed(
+                    candidate.getDistanceKm(), candidate.getVehicleType(),
+                    candidate.getStartTime(), candidate.getEndTime(),
+                    candidate.getBatteryUsed(), candidate.getAverageSpeed()).getCo2SavedKg());
+            candidate.setStatus(TripStatus.CALCULATED);
+
+            Map<String, String> changes = diff(current, candidate);
+            if (changes.isEmpty()) {
+                result.setRowsUnchanged(result.getRowsUnchanged() + 1);
+            } else if (current.getStatus() != null && current.getStatus().isFinal()) {
+                result.setRowsSkippedFinal(result.getRowsSkippedFinal() + 1);
+                addDiff(result, rawData, tripData, current, "SKIPPED_FINAL", changes);
+            } else {
+                result.setRowsUpdated(result.getRowsUpdated() + 1);
+                addDiff(result, rawData, tripData, current, "UPDATE", changes);
+                heatmapRetracted.add(heatmapSnapshot(current));
+                applyDerivedFields(current, candidate);
+                toSave.add(current);
+            }
+        }
+    }
+
+    private Map<String, String> diff(Trip current, Trip candidate) {
+        Map<String, String> changes = new LinkedHashMap<>();
+        compare(changes, "startTime", current.getStartTime(), candidate.getStartTime());
+        compare(changes, "endTime", current.getEndTime(), candidate.getEndTime());
+        compare(changes, "distanceKm", current.getDistanceKm(), candidate.getDistanceKm());
+        compare(changes, "vehicleType", current.getVehicleType(), candidate.getVehicleType());
+        compare(changes, "co2Reduced", current.getCo2Reduced(), candidate.getCo2Reduced());
+        compare(changes, "averageSpeed", current.getAverageSpeed(), candidate.getAverageSpeed());
+        compare(changes, "batteryUsed", current.getBatteryUsed(), candidate.getBatteryUsed());
+        compare(changes, "gpsDistanceKm", current.getGpsDistanceKm(), candidate.getGpsDistanceKm());
+        return changes;
+    }
+
+    private void compare(Map<String, String> changes, String field, Object oldValue, Object newValue) {
+        if (!Objects.equals(oldValue, newValue)) {
+            changes.put(field, oldValue + " -> " + newValue);
+        }
+    }
+
+    /**
+     * Bản sao các field mà heatmap dùng, chụp trước khi trip bị cập nhật
+     */
+    private Trip heatmapSnapshot(Trip trip) {
+        return Trip.builder()
+                .startTime(trip.getStartTime())
+                .distanceKm(trip.getDistanceKm())
+                .co2Reduced(trip.getCo2Reduced())
+                .gpsEncoded(trip.getGpsEncoded())
+                .startLocation(trip.getStartLocation())
+                .endLocation(trip.getEndLocation())
+                .build();
+    }
+
+    private void applyDerivedFields(Trip current, Trip candidate) {
+        current.setVehicleId(candidate.getVehicleId());
+        current.setStartTime(candidate.getStartTime());
+        current.setEndTime(candidate.getEndTime());
+        current.setDistanceKm(candidate.getDistanceKm());
+        current.setVehicleType(candidate.getVehicleType());
+        current.setCo2Reduced(candidate.getCo2Reduced());
+        current.setAverageSpeed(candidate.getAverageSpeed());
+        current.setBatteryUsed(candidate.getBatteryUsed());
+        current.setStartLocation(candidate.getStartLocation());
+        current.setEndLocation(candidate.getEndLocation());
+        current.setGpsCoordinates(candidate.getGpsCoordinates());
+        current.setGpsEncoded(candidate.getGpsEncoded());
+        current.setGpsPointCount(candidate.getGpsPointCount());
+        current.setGpsDistanceKm(candidate.getGpsDistanceKm());
+        if (current.getStatus() == TripStatus.PENDING) {
+            current.setStatus(TripStatus.CALCULATED);
+        }
+    }
+
+    private void addDiff(ArchiveReprocessResult result, TripRawData rawData, TripData tripData,
+                         Trip current, String action, Map<String, String> changes) {
+        if (result.getDiffs().size() >= MAX_DIFFS_PER_ARCHIVE) {
+            return;
+        }
+        result.getDiffs().add(ReprocessDiffResponse.builder()
+                .rawDataId(rawData.getId())
+                .rowOffset(tripData.getSourceRow())
+                .tripId(current != null ? current.getId() : null)
+                .action(action)
+                .changes(changes)
+                .build());
+    }
+}
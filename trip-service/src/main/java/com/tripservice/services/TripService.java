@@ -1,22 +1,34 @@
 package com.tripservice.services;
 
 
+import com.tripservice.dtos.internal.TripImportResult;
 import com.tripservice.dtos.request.TripUploadRequest;
 import com.tripservice.dtos.response.CO2CalculationResponse;
 import com.tripservice.dtos.response.TripDetailResponse;
 import com.tripservice.dtos.response.TripResponse;
+import com.tripservice.entities.Trip;
 import org.apache.commons.fileupload.FileUploadException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.nio.file.Path;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface TripService {
     TripResponse uploadTrip(TripUploadRequest request) throws FileUploadException;
+    TripImportResult importUpload(Path file, String format, String filename, String contentType, UUID userId,
+                                  boolean resume) throws FileUploadException;
     Page<TripResponse> getMyTrips(UUID userId, Pageable pageable);
     TripDetailResponse getTripById(UUID id);
     void deleteTrip(UUID id);
     CO2CalculationResponse calculateCO2(UUID tripId);
     void submitForVerification(UUID tripId);
     TripResponse completeTrip(UUID tripId);
+
+    /**
+     * Chuyển trip sang VERIFIED và cộng CO2 vào tổng tháng của user trong cùng một transaction.
+     * Rỗng nếu trip không tồn tại hoặc đã ở trạng thái cuối.
+     */
+    Optional<Trip> markVerified(UUID tripId, UUID verifierId);
 }
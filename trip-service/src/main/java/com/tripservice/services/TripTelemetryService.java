@@ -0,0 +1,141 @@
+package com.tripservice.services;
+
+import com.tripservice.dtos.request.TelemetryUploadRequest;
+import com.tripservice.dtos.response.TelemetrySeriesResponse;
+import com.tripservice.entities.TripTelemetry;
+import com.tripservice.exceptions.InvalidTripStateException;
+import com.tripservice.exceptions.TripNotFoundException;
+import com.tripservice.repositories.TripRepository;
+import com.tripservice.repositories.TripTelemetryRepository;
+import com.tripservice.utils.GorillaCodec;
+import com.tripservice.utils.LttbDownsampler;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TripTelemetryService {
+    private static final Pattern SERIES_NAME = Pattern.compile("[a-z][a-z0-9_]{0,49}");
+    private static final int MAX_CHART_POINTS = 5000;
+
+    private final TripRepository tripRepository;
+    private final TripTelemetryRepository telemetryRepository;
+
+    /**
+     * Lưu (hoặc thay thế) các series telemetry của trip
+     */
+    @Transactional
+    public List<TelemetrySeriesResponse> upload(UUID tripId, TelemetryUploadRequest request) {
+        if (!tripRepository.existsById(tripId)) {
+            throw new TripNotFoundException(tripId);
+        }
+        long[] timestamps = request.getTimestamps();
+        validate(timestamps, request.getSeries());
+
+        int count = timestamps.length;
+        byte[] timestampsEncoded = GorillaCodec.encodeTimestamps(timestamps, count);
+        Instant start = Instant.ofEpochMilli(timestamps[0]);
+        Instant end = Instant.ofEpochMilli(timestamps[count - 1]);
+
+        List<TelemetrySeriesResponse> stored = request.getSeries().entrySet().stream()
+                .map(entry -> {
+                    TripTelemetry telemetry = telemetryRepository
+                            .findByTripIdAndSeriesName(tripId, entry.getKey())
+                            .orElseGet(() -> TripTelemetry.builder()
+                                    .tripId(tripId)
+                                    .seriesName(entry.getKey())
+                                    .build());
+                    telemetry.setPointCount(count);
+                    telemetry.setStartTime(start);
+                    telemetry.setEndTime(end);
+                    telemetry.setTimestampsEncoded(timestampsEncoded);
+                    telemetry.setValuesEncoded(GorillaCodec.encodeValues(entry.getValue(), count));
+                    return toInfo(telemetryRepository.save(telemetry));
+                })
+                .toList();
+
+        log.info("Stored {} telemetry series ({} points each) for trip {}", stored.size(), count, tripId);
+        return stored;
+    }
+
+    /**
+     * Danh sách series của trip (không decode)
+     */
+    @Transactional(readOnly = true)
+    public List<TelemetrySeriesResponse> listSeries(UUID tripId) {
+        return telemetryRepository.findByTripId(tripId).stream()
+                .map(this::toInfo)
+                .toList();
+    }
+
+    /**
+     * Series đã downsample (LTTB) về tối đa {@code points} điểm
+     */
+    @Transactional(readOnly = true)
+    public TelemetrySeriesResponse getSeries(UUID tripId, String seriesName, int points) {
+        TripTelemetry telemetry = telemetryRepository.findByTripIdAndSeriesName(tripId, seriesName)
+                .orElseThrow(() -> new TripNotFoundException(
+                        "Telemetry series '" + seriesName + "' not found for trip: " + tripId));
+
+        long[] timestamps = GorillaCodec.decodeTimestamps(telemetry.getTimestampsEncoded());
+        double[] values = GorillaCodec.decodeValues(telemetry.getValuesEncoded());
+
+        int threshold = Math.min(Math.max(points, 3), MAX_CHART_POINTS);
+        int[] selected = LttbDownsampler.select(timestamps, values, threshold);
+        long[] sampledTimestamps = new long[selected.length];
+        double[] sampledValues = new double[selected.length];
+        for (int i = 0; i < selected.length; i++) {
+            sampledTimestamps[i] = timestamps[selected[i]];
+            sampledValues[i] = values[selected[i]];
+        }
+
+        TelemetrySeriesResponse response = toInfo(telemetry);
+        response.setReturnedPoints(selected.length);
+        response.setTimestamps(sampledTimestamps);
+        response.setValues(sampledValues);
+        return response;
+    }
+
+    private void validate(long[] timestamps, Map<String, double[]> series) {
+        if (timestamps == null || timestamps.length == 0) {
+            throw new InvalidTripStateException("Telemetry timestamps are required");
+        }
+        if (series == null || series.isEmpty()) {
+            throw new InvalidTripStateException("At least one telemetry series is required");
+        }
+        for (int i = 1; i < timestamps.length; i++) {
+            if (timestamps[i] < timestamps[i - 1]) {
+                throw new InvalidTripStateException("Telemetry timestamps must be in ascending order");
+            }
+        }
+        series.forEach((name, values) -> {
+            if (!SERIES_NAME.matcher(name).matches()) {
+                throw new InvalidTripStateException("Invalid telemetry series name: " + name);
+            }
+            if (values == null || values.length != timestamps.length) {
+                throw new InvalidTripStateException(
+                        "Series '" + name + "' must have " + timestamps.length + " values");
+            }
+        });
+    }
+
+    private TelemetrySeriesResponse toInfo(TripTelemetry telemetry) {
+        return TelemetrySeriesResponse.builder()
+                .tripId(telemetry.getTripId())
+                .series(telemetry.getSeriesName())
+                .startTime(telemetry.getStartTime())
+                .endTime(telemetry.getEndTime())
+                .originalPoints(telemetry.getPointCount())
+                .storedBytes(telemetry.getTimestampsEncoded().length + telemetry.getValuesEncoded().length)
+                .build();
+    }
+}
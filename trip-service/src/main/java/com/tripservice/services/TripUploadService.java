@@ -2,8 +2,10 @@ package com.tripservice.services;
 
 import com.tripservice.dtos.internal.TripData;
 import com.tripservice.dtos.request.TripUploadRequest;
+import com.tripservice.utils.ArrowParser;
 import com.tripservice.utils.CSVParser;
 import com.tripservice.utils.JSONParser;
+import com.tripservice.utils.TripRecordHandler;
 import com.tripservice.validators.FileFormatValidator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,6 +13,8 @@ import org.apache.commons.fileupload.FileUploadException;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @Service
@@ -19,6 +23,7 @@ import java.util.List;
 public class TripUploadService {
     private final CSVParser csvParser;
     private final JSONParser jsonParser;
+    private final ArrowParser arrowParser;
     private final FileFormatValidator fileValidator;
 
     /**
@@ -42,14 +47,63 @@ public class TripUploadService {
         List<TripData> tripDataList = switch (format){
             case "CSV" -> csvParser.parseCSV(file);
             case"JSON" -> jsonParser.parseJSON(file);
+            case "ARROW" -> arrowParser.parseArrow(file);
             default -> throw new FileUploadException(
-                    "Unsupported file format: " + format + ". Only CSV and JSON are supported."
+                    "Unsupported file format: " + format + ". Only CSV, JSON and ARROW are supported."
             );
         };
         log.info("Successfully parsed {} trip records from file", tripDataList.size());
         return tripDataList;
     }
 
+    /**
+     * Parse từ InputStream đã validate (raw archive, spool file, ...)
+     */
+    public List<TripData> parseStream(InputStream in, String format, String filename) throws FileUploadException {
+        return switch (format.toUpperCase()) {
+            case "CSV" -> csvParser.parseCSV(in, filename);
+            case "JSON" -> jsonParser.parseJSON(in, filename);
+            case "ARROW" -> arrowParser.parseArrow(in, filename);
+            default -> throw new FileUploadException(
+                    "Unsupported file format: " + format + ". Only CSV, JSON and ARROW are supported."
+            );
+        };
+    }
+
+    /**
+     * Parse streaming từ InputStream đã validate, từng record được đẩy vào handler
+     *
+     * @return số record đã đọc
+     */
+    public int parseStream(InputStream in, String format, String filename,
+                           TripRecordHandler handler) throws FileUploadException {
+        return switch (format.toUpperCase()) {
+            case "CSV" -> csvParser.parseCSV(in, filename, handler);
+            case "JSON" -> jsonParser.parseJSON(in, filename, handler);
+            case "ARROW" -> arrowParser.parseArrow(in, filename, handler);
+            default -> throw new FileUploadException(
+                    "Unsupported file format: " + format + ". Only CSV, JSON and ARROW are supported."
+            );
+        };
+    }
+
+    /**
+     * Validate file rồi parse dạng streaming, từng record được đẩy vào handler
+     *
+     * @return số record đã đọc
+     */
+    public int parseFile(TripUploadRequest request, TripRecordHandler handler) throws FileUploadException {
+        MultipartFile file = request.getFile();
+        String format = request.getFormat().toUpperCase();
+        validateFile(file, format);
+
+        try (InputStream in = file.getInputStream()) {
+            return parseStream(in, format, file.getOriginalFilename(), handler);
+        } catch (IOException e) {
+            throw new FileUploadException("Failed to read file: " + e.getMessage());
+        }
+    }
+
     public List<TripData> parseBatchFiles(List<MultipartFile> files, String format) {
         log.info("Parsing batch of {} files", files.size());
 
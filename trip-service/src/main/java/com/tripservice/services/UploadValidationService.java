@@ -0,0 +1,161 @@
+package com.tripservice.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.tripservice.dtos.internal.TripData;
+import com.tripservice.dtos.internal.TripValidationResult;
+import com.tripservice.dtos.request.TripUploadRequest;
+import com.tripservice.dtos.response.UploadValidationRowResponse;
+import com.tripservice.dtos.response.UploadValidationSummaryResponse;
+import com.tripservice.validators.TripDataValidator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.fileupload.FileUploadException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Dry-run upload: parse + plausibility rules + CO2 nhưng không archive, không đụng DB.
+ * Kết quả từng record được ghi ra dạng NDJSON ngay trong lúc parse, dòng cuối là summary.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadValidationService {
+    public static final String PARSE_ERROR = "PARSE_ERROR";
+
+    // Số record gom lại trước khi chạy rule engine và flush ra client
+    private static final int CHUNK_SIZE = 256;
+
+    private final TripUploadService uploadService;
+    private final TripDataValidator tripDataValidator;
+    private final CO2CalculationService co2Service;
+    private final ObjectMapper objectMapper;
+
+    public void validate(TripUploadRequest request, OutputStream out) throws IOException {
+        long started = System.currentTimeMillis();
+        Session session = new Session(out, objectMapper.writer());
+
+        String error = null;
+        try {
+            uploadService.parseFile(request, (sourceRow, data, parseError) -> {
+                if (data != null) {
+                    session.add(sourceRow, data);
+                } else {
+                    session.flushChunk();
+                    session.reject(sourceRow, parseError);
+                }
+            });
+            session.flushChunk();
+        } catch (FileUploadException e) {
+            session.flushChunk();
+            error = e.getMessage();
+        } catch (UncheckedIOException e) {
+            // Client đóng kết nối
+            throw e.getCause();
+        }
+
+        UploadValidationSummaryResponse summary = UploadValidationSummaryResponse.builder()
+                .totalRows(session.validRows + session.invalidRows)
+                .validRows(session.validRows)
+                .invalidRows(session.invalidRows)
+                .failuresByReason(session.failuresByReason)
+                .totalCo2SavedKg(session.totalCo2SavedKg)
+                .elapsedMillis(System.currentTimeMillis() - started)
+                .error(error)
+                .build();
+        session.write(summary);
+        out.flush();
+
+        log.info("Dry-run validation of {} for user {}: {} valid, {} invalid",
+                request.getFile().getOriginalFilename(), request.getUserId(),
+                session.validRows, session.invalidRows);
+    }
+
+    /**
+     * State của một lần dry-run (không thread-safe, parser gọi handler tuần tự)
+     */
+    private final class Session {
+        private final OutputStream out;
+        private final ObjectWriter writer;
+        private final List<TripData> chunk = new ArrayList<>(CHUNK_SIZE);
+        private final int[] chunkRows = new int[CHUNK_SIZE];
+        private final Map<String, Long> failuresByReason = new TreeMap<>();
+
+        private int validRows;
+        private int invalidRows;
+        private double totalCo2SavedKg;
+
+        private Session(OutputStream out, ObjectWriter writer) {
+            this.out = out;
+            this.writer = writer;
+        }
+
+        private void add(int sourceRow, TripData data) {
+            chunkRows[chunk.size()] = sourceRow;
+            chunk.add(data);
+            if (chunk.size() == CHUNK_SIZE) {
+                flushChunk();
+            }
+        }
+
+        private void reject(int sourceRow, String message) {
+            invalidRows++;
+            failuresByReason.merge(PARSE_ERROR, 1L, Long::sum);
+            write(UploadValidationRowResponse.builder()
+                    .row(sourceRow + 1)
+                    .valid(false)
+                    .reasons(List.of(PARSE_ERROR))
+                    .message(message)
+                    .build());
+        }
+
+        private void flushChunk() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            TripValidationResult result = tripDataValidator.validate(chunk);
+            for (int i = 0; i < chunk.size(); i++) {
+                UploadValidationRowResponse.UploadValidationRowResponseBuilder row =
+                        UploadValidationRowResponse.builder().row(chunkRows[i] + 1);
+                if (result.isValid(i)) {
+                    TripData data = chunk.get(i);
+                    double co2 = co2Service.calculateDetailed(data.getDistanceKm(), data.getVehicleType(),
+                                    data.getStartTime(), data.getEndTime(), data.getBatteryUsed(), data.getAverageSpeed())
+                            .getCo2SavedKg();
+                    validRows++;
+                    totalCo2SavedKg += co2;
+                    row.valid(true).co2SavedKg(co2);
+                } else {
+                    List<String> reasons = result.getViolatedRuleIds(i);
+                    invalidRows++;
+                    reasons.forEach(reason -> failuresByReason.merge(reason, 1L, Long::sum));
+                    row.valid(false).reasons(reasons);
+                }
+                write(row.build());
+            }
+            chunk.clear();
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void write(Object line) {
+            try {
+                out.write(writer.writeValueAsBytes(line));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -2,11 +2,12 @@ package com.tripservice.services.impl;
 
 import com.tripservice.clients.CreditServiceClient;
 import com.tripservice.constants.TripStatus;
-import com.tripservice.dtos.internal.TripData;
+import com.tripservice.dtos.internal.TripImportResult;
 import com.tripservice.dtos.request.AddCreditRequest;
 import com.tripservice.dtos.request.TripUploadRequest;
 import com.tripservice.dtos.response.*;
 import com.tripservice.entities.Trip;
+import com.tripservice.entities.TripRawData;
 import com.tripservice.events.EventPublisher;
 import com.tripservice.events.TripEvent;
 import com.tripservice.exceptions.InvalidCalculationException;
@@ -14,9 +15,15 @@ import com.tripservice.exceptions.InvalidTripStateException;
 import com.tripservice.exceptions.TripNotFoundException;
 import com.tripservice.mappers.TripCustomMapper;
 import com.tripservice.repositories.TripRepository;
+import com.tripservice.repositories.TripTelemetryRepository;
 import com.tripservice.services.CO2CalculationService;
+import com.tripservice.services.RawUploadArchiveService;
+import com.tripservice.services.TripAnalyticsService;
+import com.tripservice.services.TripHeatmapService;
 import com.tripservice.services.TripService;
 import com.tripservice.services.TripUploadService;
+import com.tripservice.services.ingest.TripIngestionPipeline;
+import com.tripservice.utils.TripRecordHandler;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.fileupload.FileUploadException;
@@ -25,8 +32,15 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Instant;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -34,48 +48,98 @@ import java.util.UUID;
 @Slf4j
 public class TripServiceImpl implements TripService {
     private final TripRepository tripRepository;
+    private final TripTelemetryRepository telemetryRepository;
     private final CO2CalculationService co2Service;
     private final TripUploadService uploadService;
     private final TripCustomMapper tripCustomMapper;
     private final CreditServiceClient creditServiceClient;
     private final EventPublisher eventPublisher;
+    private final RawUploadArchiveService rawUploadArchiveService;
+    private final TripIngestionPipeline ingestionPipeline;
+    private final TripHeatmapService heatmapService;
+    private final TripAnalyticsService analyticsService;
 
     @Override
     @Transactional
     public TripResponse uploadTrip(TripUploadRequest tripUploadRequest) throws FileUploadException {
         log.info("Uploading trip for user: {}", tripUploadRequest.getUserId());
 
-        // 1. Parse file -> List<TripData>
-        List<TripData> tripDataList = uploadService.parseFile(tripUploadRequest);
-
-        // 2. Convert TripData -> Trip Entity
-        List<Trip> trips = tripDataList.stream()
-                .map(tripData -> tripCustomMapper.convertToEntity(tripData, tripUploadRequest.getUserId()))
-                .toList();
-
-        // 3. Calculate CO2 for each trip
-        for(int i = 0, size = trips.size(); i < size; i++) {
-            Trip trip = trips.get(i);
-            TripData tripData = tripDataList.get(i);
-            CO2CalculationResponse response = co2Service.calculateDetailed(
-                    trip.getDistanceKm(),
-                    tripData.getVehicleType()
-            );
-
-            double co2Reduced = response.getCo2SavedKg();
+        // 0. Archive file gốc (dedup theo content hash)
+        TripRawData rawData = rawUploadArchiveService.archive(
+                tripUploadRequest.getFile(),
+                tripUploadRequest.getFormat().toUpperCase(),
+                tripUploadRequest.getUserId()
+        );
 
-            trip.setCo2Reduced(co2Reduced);
-            trip.setStatus(TripStatus.CALCULATED);
+        // 1-4. Parse -> validate -> convert + CO2 + anomaly score -> save, chạy dạng pipeline.
+        // PERSIST chạy trên thread này để cả upload nằm trong một transaction
+        TripImportResult result = ingestionPipeline.ingest(
+                handler -> uploadService.parseFile(tripUploadRequest, handler),
+                tripUploadRequest.getUserId(),
+                rawData.getId(),
+                true
+        );
+        if (result.getImplausibleRecords() > 0) {
+            log.warn("Skipped {} implausible records: {}",
+                    result.getImplausibleRecords(), result.getViolationCounts());
+        }
+        if (result.getImportedTrips() == 0) {
+            throw new FileUploadException("No valid trip data found in file. Violations: "
+                    + result.getViolationCounts());
         }
-
-        // 4. Save to database
-        List<Trip> savedTrips = tripRepository.saveAll(trips);
 
         log.info("Successfully uploaded {} trips for user {}",
-                savedTrips.size(), tripUploadRequest.getUserId());
+                result.getImportedTrips(), tripUploadRequest.getUserId());
 
         // 5. Return response
-        return tripCustomMapper.convertToResponse(savedTrips.get(0));
+        return tripCustomMapper.convertToResponse(result.getFirstTrip());
+    }
+
+    /**
+     * Import file đã spool xuống đĩa (resumable upload).
+     * Parse streaming qua pipeline, mỗi batch lưu trong transaction riêng nên bộ nhớ không phụ thuộc kích thước file.
+     */
+    @Override
+    public TripImportResult importUpload(Path file, String format, String filename,
+                                         String contentType, UUID userId, boolean resume) throws FileUploadException {
+        log.info("Importing spooled upload {} for user: {}", filename, userId);
+
+        TripRawData rawData;
+        try (InputStream in = Files.newInputStream(file)) {
+            rawData = rawUploadArchiveService.archive(in, format.toUpperCase(), filename, contentType, userId);
+        } catch (IOException e) {
+            throw new FileUploadException("Failed to archive spooled upload: " + e.getMessage());
+        }
+
+        // Resume: archive dedup theo content hash nên raw_data_id không đổi, row đã có trip được bỏ qua
+        BitSet imported = new BitSet();
+        if (resume) {
+            tripRepository.findRawRowOffsets(userId, rawData.getId()).forEach(offset -> {
+                if (offset != null) {
+                    imported.set(offset);
+                }
+            });
+            log.info("Resuming import of {} for user {}: {} rows already imported", filename, userId, imported.cardinality());
+        }
+
+        TripImportResult result = ingestionPipeline.ingest(handler -> {
+            TripRecordHandler target = imported.isEmpty() ? handler : (sourceRow, data, error) -> {
+                if (!imported.get(sourceRow)) {
+                    handler.onRecord(sourceRow, data, error);
+                }
+            };
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+                return uploadService.parseStream(in, format, filename, target);
+            } catch (IOException e) {
+                throw new FileUploadException("Failed to read spooled upload: " + e.getMessage());
+            }
+        }, userId, rawData.getId(), false);
+        result.setImportedTrips(result.getImportedTrips() + imported.cardinality());
+
+        log.info("Imported {} of {} records from {} for user {} ({} parse errors, violations: {})",
+                result.getImportedTrips(), result.getTotalRecords(), filename, userId,
+                result.getParseErrors(), result.getViolationCounts());
+        return result;
     }
 
     @Override
@@ -103,7 +167,10 @@ public class TripServiceImpl implements TripService {
             throw new RuntimeException("Cannot delete trip with final status: " + trip.getStatus());
         }
 
+        // Telemetry không có FK tới trip, xoá cùng transaction để không còn series mồ côi
+        telemetryRepository.deleteByTripIds(List.of(id));
         tripRepository.delete(trip);
+        heatmapService.record(List.of(trip), -1);
         log.info("Deleted trip: {}", id);
     }
 
@@ -114,7 +181,11 @@ public class TripServiceImpl implements TripService {
 
         return co2Service.calculateDetailed(
                 trip.getDistanceKm(),
-                trip.getVehicleType()
+                trip.getVehicleType(),
+                trip.getStartTime(),
+                trip.getEndTime(),
+                trip.getBatteryUsed(),
+                trip.getAverageSpeed()
         );
     }
 
@@ -143,6 +214,7 @@ public class TripServiceImpl implements TripService {
                     savedTrip.getDistanceKm(),
                     savedTrip.getCreatedAt().toString()
             );
+            event.setAnomalyScore(savedTrip.getAnomalyScore());
             eventPublisher.publishTripVerified(event);
             log.info("📤 Published trip.verified event for trip: {} submitted for verification", tripId);
         } catch (Exception e) {
@@ -152,6 +224,35 @@ public class TripServiceImpl implements TripService {
         log.info("Trip {} submitted for verification", tripId);
     }
 
+    @Override
+    @Transactional
+    public Optional<Trip> markVerified(UUID tripId, UUID verifierId) {
+        Trip trip = tripRepository.findById(tripId).orElse(null);
+        if (trip == null) {
+            log.warn("⚠️ Trip not found: {}", tripId);
+            return Optional.empty();
+        }
+
+        // VERIFIED / CREDIT_ISSUED / REJECTED / CANCELLED: redelivery hoặc event trễ, không đổi trạng thái
+        if (trip.getStatus() != null && trip.getStatus().isFinal()) {
+            log.info("Trip {} already has final status {}, ignoring verification.approved", tripId, trip.getStatus());
+            return Optional.empty();
+        }
+
+        trip.setStatus(TripStatus.VERIFIED);
+        trip.setVerificationStatus("VERIFIED");
+        trip.setVerifiedAt(Instant.now());
+        if (verifierId != null) {
+            trip.setVerifiedBy(verifierId);
+        }
+        trip.setUpdatedAt(Instant.now());
+
+        // Cùng transaction với trạng thái: lỗi cộng tổng CO2 thì rollback cả hai, message được giao lại
+        Trip verifiedTrip = tripRepository.save(trip);
+        analyticsService.recordVerified(verifiedTrip);
+        return Optional.of(verifiedTrip);
+    }
+
     @Override
     @Transactional
     public TripResponse completeTrip(UUID tripId) {
@@ -160,11 +261,8 @@ public class TripServiceImpl implements TripService {
         Trip trip = tripRepository.findById(tripId)
                 .orElseThrow(() -> new TripNotFoundException(tripId.toString()));
 
-        if (trip.getStatus() == TripStatus.VERIFIED) {
-            throw new InvalidTripStateException("Cannot complete trip. Current status: " + trip.getStatus());
-        }
-
-        if (trip.getStatus() == TripStatus.CANCELLED) {
+        // VERIFIED / CREDIT_ISSUED / REJECTED / CANCELLED: không verify lại, không cộng CO2 lần nữa
+        if (trip.getStatus() != null && trip.getStatus().isFinal()) {
             throw new InvalidTripStateException("Cannot complete trip. Current status: " + trip.getStatus());
         }
 
@@ -181,6 +279,7 @@ public class TripServiceImpl implements TripService {
 
         // 5. Save updated trip
         Trip completedTrip = tripRepository.save(trip);
+        analyticsService.recordVerified(completedTrip);
         log.info("Trip {} marked as COMPLETED with {} kg CO2 reduced",
                 tripId, completedTrip.getCo2Reduced());
 
@@ -229,17 +328,13 @@ public class TripServiceImpl implements TripService {
             return 0.0;
         }
 
-        // Emission factor: kg CO2 per km for average gasoline car
-        final double GASOLINE_CAR_EMISSION_FACTOR = 0.12;
-
-        // Calculate CO2 saved
-        double co2Reduced = trip.getDistanceKm() * GASOLINE_CAR_EMISSION_FACTOR;
-
-        // Round to 2 decimal places
-        co2Reduced = Math.round(co2Reduced * 100.0) / 100.0;
+        // Cùng công thức với lúc upload (CO2CalculationService)
+        double co2Reduced = co2Service.calculateDetailed(trip.getDistanceKm(), trip.getVehicleType(),
+                        trip.getStartTime(), trip.getEndTime(), trip.getBatteryUsed(), trip.getAverageSpeed())
+                .getCo2SavedKg();
 
-        log.debug("CO2 calculation: {} km × {} kg/km = {} kg",
-                trip.getDistanceKm(), GASOLINE_CAR_EMISSION_FACTOR, co2Reduced);
+        log.debug("CO2 calculation: {} km ({}) = {} kg",
+                trip.getDistanceKm(), trip.getVehicleType(), co2Reduced);
 
         return co2Reduced;
     }
@@ -0,0 +1,261 @@
+package com.tripservice.services.ingest;
+
+import com.tripservice.dtos.response.IngestionAdmissionMetricsResponse;
+import com.tripservice.exceptions.UploadRejectedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control cho upload / import trip.
+ * <ul>
+ *     <li>Giới hạn số ingest chạy đồng thời toàn service, request vượt quá chờ trong
+ *     hàng đợi có giới hạn; hàng đợi đầy hoặc chờ quá lâu thì trả 429 + Retry-After ngay</li>
+ *     <li>Token bucket rows/giây theo user: parse stage của import nền bị giữ lại khi user vượt rate
+ *     (upload đồng bộ giữ connection thì chỉ ghi nợ), upload mới của user đang nợ token bị từ chối</li>
+ *     <li>Giới hạn số DB connection dành cho ingest, phần còn lại của Hikari pool
+ *     luôn dành cho các API đọc</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class IngestionAdmissionControl {
+    // Trọng số EWMA của thời gian giữ slot, dùng ước lượng Retry-After
+    private static final double HOLD_TIME_WEIGHT = 0.2;
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long queueTimeoutMillis;
+    private final int maxDbConnections;
+    private final double rowsPerSecond;
+    private final double burstRows;
+
+    private final Semaphore slots;
+    private final Semaphore dbConnections;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Map<UUID, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder throttledNanos = new LongAdder();
+    private volatile double averageHoldNanos;
+
+    public IngestionAdmissionControl(@Value("${trip.ingest.admission.max-concurrent:2}") int maxConcurrent,
+                                     @Value("${trip.ingest.admission.max-queued:8}") int maxQueued,
+                                     @Value("${trip.ingest.admission.queue-timeout-ms:10000}") long queueTimeoutMillis,
+                                     @Value("${trip.ingest.admission.max-db-connections:4}") int maxDbConnections,
+                                     @Value("${trip.ingest.admission.rows-per-second:5000}") double rowsPerSecond,
+                                     @Value("${trip.ingest.admission.burst-rows:50000}") double burstRows) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxQueued = Math.max(0, maxQueued);
+        this.queueTimeoutMillis = Math.max(0, queueTimeoutMillis);
+        this.maxDbConnections = Math.max(1, maxDbConnections);
+        this.rowsPerSecond = rowsPerSecond;
+        this.burstRows = Math.max(burstRows, rowsPerSecond);
+        this.slots = new Semaphore(this.maxConcurrent, true);
+        this.dbConnections = new Semaphore(this.maxDbConnections, true);
+    }
+
+    /**
+     * Xin slot ingest cho user
+     *
+     * @param holdConnection true nếu ingest chạy trong transaction của caller (giữ một DB connection suốt quá trình)
+     * @throws UploadRejectedException nếu user đang vượt quota hoặc hàng đợi đầy / chờ quá timeout
+     */
+    public Permit admit(UUID userId, boolean holdConnection) {
+        TokenBucket bucket = bucketFor(userId);
+        double debtSeconds = bucket.debtSeconds();
+        if (debtSeconds > 0) {
+            throw reject("User " + userId + " exceeded the ingestion rate of " + (long) rowsPerSecond + " rows/s",
+                    (long) Math.ceil(debtSeconds));
+        }
+
+        if (!slots.tryAcquire()) {
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                throw reject("Too many uploads in progress", estimateRetryAfterSeconds());
+            }
+            try {
+                if (!slots.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    throw reject("Timed out waiting for an ingestion slot", estimateRetryAfterSeconds());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw reject("Interrupted while waiting for an ingestion slot", estimateRetryAfterSeconds());
+            } finally {
+                queued.decrementAndGet();
+            }
+        }
+
+        if (holdConnection) {
+            try {
+                if (!dbConnections.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    slots.release();
+                    throw reject("Timed out waiting for an ingestion connection", estimateRetryAfterSeconds());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                slots.release();
+                throw reject("Interrupted while waiting for an ingestion connection", estimateRetryAfterSeconds());
+            }
+        }
+        admitted.increment();
+        return new Permit(holdConnection);
+    }
+
+    /**
+     * Trừ token cho batch vừa parse, chờ nếu user vượt rate (backpressure lên reader)
+     */
+    public void throttle(UUID userId, int rows) throws InterruptedException {
+        long waitNanos = bucketFor(userId).reserve(rows);
+        if (waitNanos > 0) {
+            throttledNanos.add(waitNanos);
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Trừ token cho batch mà không chờ, dùng khi caller đang giữ DB connection.
+     * Nợ token làm admit từ chối upload kế tiếp của user.
+     */
+    public void charge(UUID userId, int rows) {
+        bucketFor(userId).reserve(rows);
+    }
+
+    /**
+     * Connection cho một transaction persist của ingest chạy nền
+     */
+    public void acquireConnection() throws InterruptedException {
+        dbConnections.acquire();
+    }
+
+    public void releaseConnection() {
+        dbConnections.release();
+    }
+
+    /**
+     * Bỏ bucket của user đã đầy lại token (không còn hoạt động)
+     */
+    @Scheduled(fixedDelayString = "${trip.ingest.admission.bucket-cleanup-interval-ms:300000}")
+    public void evictIdleBuckets() {
+        buckets.values().removeIf(TokenBucket::isFull);
+    }
+
+    public IngestionAdmissionMetricsResponse getMetrics() {
+        return IngestionAdmissionMetricsResponse.builder()
+                .maxConcurrent(maxConcurrent)
+                .active(maxConcurrent - slots.availablePermits())
+                .queued(queued.get())
+                .maxQueued(maxQueued)
+                .admitted(admitted.sum())
+                .rejected(rejected.sum())
+                .dbConnectionsInUse(maxDbConnections - dbConnections.availablePermits())
+                .maxDbConnections(maxDbConnections)
+                .rowsPerSecondPerUser(rowsPerSecond)
+                .throttledMillis(throttledNanos.sum() / 1_000_000)
+                .trackedUsers(buckets.size())
+                .build();
+    }
+
+    private TokenBucket bucketFor(UUID userId) {
+        return buckets.computeIfAbsent(userId, id -> new TokenBucket(rowsPerSecond, burstRows));
+    }
+
+    private UploadRejectedException reject(String message, long retryAfterSeconds) {
+        rejected.increment();
+        return new UploadRejectedException(message, retryAfterSeconds);
+    }
+
+    /**
+     * Thời gian chờ ước lượng để hàng đợi hiện tại chạy xong
+     */
+    private long estimateRetryAfterSeconds() {
+        double holdNanos = averageHoldNanos > 0 ? averageHoldNanos : queueTimeoutMillis * 1_000_000.0;
+        double waves = (double) (queued.get() + 1) / maxConcurrent;
+        return (long) Math.ceil(holdNanos * waves / 1e9);
+    }
+
+    private void recordHold(long nanos) {
+        double current = averageHoldNanos;
+        averageHoldNanos = current == 0 ? nanos : current + HOLD_TIME_WEIGHT * (nanos - current);
+    }
+
+    /**
+     * Slot ingest đã cấp, phải close khi ingest kết thúc (close nhiều lần không sao)
+     */
+    public final class Permit implements AutoCloseable {
+        private final boolean holdsConnection;
+        private final long acquiredAt = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(boolean holdsConnection) {
+            this.holdsConnection = holdsConnection;
+        }
+
+        @Override
+        public void close() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            recordHold(System.nanoTime() - acquiredAt);
+            if (holdsConnection) {
+                dbConnections.release();
+            }
+            slots.release();
+        }
+    }
+
+    /**
+     * Token bucket cho phép nợ: reserve luôn trừ token và trả về thời gian phải chờ
+     */
+    private static final class TokenBucket {
+        private final double rate;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+
+        private TokenBucket(double rate, double capacity) {
+            this.rate = rate;
+            this.capacity = capacity;
+            this.tokens = capacity;
+        }
+
+        private synchronized long reserve(int rows) {
+            if (rate <= 0) {
+                return 0;
+            }
+            refill();
+            tokens -= rows;
+            return tokens >= 0 ? 0 : (long) (-tokens / rate * 1e9);
+        }
+
+        private synchronized double debtSeconds() {
+            if (rate <= 0) {
+                return 0;
+            }
+            refill();
+            return tokens >= 0 ? 0 : -tokens / rate;
+        }
+
+        private synchronized boolean isFull() {
+            refill();
+            return tokens >= capacity;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) / 1e9 * rate);
+            lastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.tripservice.services.ingest;
+
+import com.tripservice.dtos.response.IngestionStageMetricsResponse;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counter tích luỹ của một stage trong pipeline ingest
+ */
+class StageMetrics {
+    private final String name;
+    private final int workers;
+    private final LongAdder records = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+    // Thời gian chờ vì queue phía sau đầy (backpressure)
+    private final LongAdder blockedNanos = new LongAdder();
+
+    StageMetrics(String name, int workers) {
+        this.name = name;
+        this.workers = workers;
+    }
+
+    void recordBatch(int size, long nanos) {
+        records.add(size);
+        batches.increment();
+        busyNanos.add(nanos);
+    }
+
+    void recordBlocked(long nanos) {
+        blockedNanos.add(nanos);
+    }
+
+    IngestionStageMetricsResponse snapshot(int queueDepth, int queueCapacity) {
+        long recordCount = records.sum();
+        long busy = busyNanos.sum();
+        return IngestionStageMetricsResponse.builder()
+                .stage(name)
+                .workers(workers)
+                .recordsProcessed(recordCount)
+                .batchesProcessed(batches.sum())
+                .busyMillis(busy / 1_000_000)
+                .blockedMillis(blockedNanos.sum() / 1_000_000)
+                .recordsPerBusySecond(busy > 0 ? recordCount * 1e9 / busy : 0.0)
+                .inputQueueDepth(queueDepth)
+                .inputQueueCapacity(queueCapacity)
+                .build();
+    }
+}
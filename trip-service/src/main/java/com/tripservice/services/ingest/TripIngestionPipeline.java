@@ -0,0 +1,520 @@
+package com.tripservice.services.ingest;
+
+import com.tripservice.constants.TripStatus;
+import com.tripservice.dtos.internal.TripColumnBatch;
+import com.tripservice.dtos.internal.TripData;
+import com.tripservice.dtos.internal.TripImportResult;
+import com.tripservice.dtos.internal.TripValidationResult;
+import com.tripservice.dtos.response.IngestionMetricsResponse;
+import com.tripservice.entities.Trip;
+import com.tripservice.mappers.TripCustomMapper;
+import com.tripservice.repositories.TripRepository;
+import com.tripservice.services.CO2CalculationService;
+import com.tripservice.services.TripAnomalyScorer;
+import com.tripservice.services.TripHeatmapService;
+import com.tripservice.utils.TripRecordHandler;
+import com.tripservice.validators.TripDataValidator;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.fileupload.FileUploadException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pipeline ingest trip: PARSE -> PROCESS (validate, CO2, anomaly score) -> PERSIST.
+ * <p>
+ * Mỗi run giới hạn số batch đang nằm giữa PARSE và PERSIST ({@code 2 * queue-capacity}):
+ * parser phải lấy một permit trước khi đẩy batch, PERSIST trả permit khi nhận batch. Stage chậm nhất
+ * vì vậy chặn stage phía trước (backpressure đến tận reader) nên bộ nhớ bị giới hạn và throughput
+ * tiến tới throughput của stage chậm nhất thay vì tổng thời gian các stage.
+ * Batch giữa các stage là {@link TripColumnBatch} (cột primitive), entity Trip chỉ được tạo ở PERSIST.
+ * <p>
+ * PARSE và PERSIST là I/O nên chạy trên virtual thread, PROCESS là CPU nên dùng fixed pool dùng chung.
+ * Mỗi batch đã parse là một task PROCESS riêng và task không bao giờ chờ queue, nên worker không bị
+ * giữ bởi một run: nhiều upload đồng thời chia nhau pool theo thứ tự batch tới.
+ * PERSIST có thể chạy trên thread gọi để toàn bộ upload nằm trong transaction của caller.
+ */
+@Component
+@Slf4j
+public class TripIngestionPipeline {
+    private static final long POLL_MILLIS = 100;
+
+    private final TripDataValidator tripDataValidator;
+    private final TripCustomMapper tripCustomMapper;
+    private final CO2CalculationService co2Service;
+    private final TripAnomalyScorer anomalyScorer;
+    private final TripRepository tripRepository;
+    private final TripHeatmapService heatmapService;
+    private final TransactionTemplate transactionTemplate;
+    private final IngestionAdmissionControl admissionControl;
+
+    private final int batchSize;
+    private final int maxInFlightBatches;
+    private final int processWorkers;
+    private final int persistWorkers;
+    private final ExecutorService processPool;
+
+    private final StageMetrics parseMetrics;
+    private final StageMetrics processMetrics;
+    private final StageMetrics persistMetrics;
+    private final Set<Run> activeRuns = ConcurrentHashMap.newKeySet();
+    private final LongAdder completedRuns = new LongAdder();
+
+    public TripIngestionPipeline(TripDataValidator tripDataValidator,
+                                 TripCustomMapper tripCustomMapper,
+                                 CO2CalculationService co2Service,
+                                 TripAnomalyScorer anomalyScorer,
+                                 TripRepository tripRepository,
+                                 TripHeatmapService heatmapService,
+                                 PlatformTransactionManager transactionManager,
+                                 IngestionAdmissionControl admissionControl,
+                                 @Value("${trip.ingest.batch-size:500}") int batchSize,
+                                 @Value("${trip.ingest.queue-capacity:4}") int queueCapacity,
+                                 @Value("${trip.ingest.process-workers:0}") int processWorkers,
+                                 @Value("${trip.ingest.persist-workers:2}") int persistWorkers) {
+        this.tripDataValidator = tripDataValidator;
+        this.tripCustomMapper = tripCustomMapper;
+        this.co2Service = co2Service;
+        this.anomalyScorer = anomalyScorer;
+        this.tripRepository = tripRepository;
+        this.heatmapService = heatmapService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.admissionControl = admissionControl;
+        this.batchSize = Math.max(1, batchSize);
+        // Tương đương hai queue (PARSE -> PROCESS, PROCESS -> PERSIST) cũ
+        this.maxInFlightBatches = 2 * Math.max(1, queueCapacity);
+        // 0 = số CPU - 1, chừa một core cho các request đọc
+        this.processWorkers = processWorkers > 0
+                ? processWorkers
+                : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        this.persistWorkers = Math.max(1, persistWorkers);
+        this.processPool = Executors.newFixedThreadPool(this.processWorkers);
+
+        this.parseMetrics = new StageMetrics("PARSE", 1);
+        this.processMetrics = new StageMetrics("PROCESS", this.processWorkers);
+        this.persistMetrics = new StageMetrics("PERSIST", this.persistWorkers);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        processPool.shutdownNow();
+        // Task PROCESS bị bỏ khỏi pool sẽ không bao giờ báo xong, dừng các run đang chạy
+        for (Run run : activeRuns) {
+            run.fail(new IllegalStateException("Trip ingestion pipeline is shutting down"));
+        }
+    }
+
+    /**
+     * Nguồn record dạng streaming (CSV/JSON parser)
+     */
+    @FunctionalInterface
+    public interface RecordSource {
+        int read(TripRecordHandler handler) throws FileUploadException;
+    }
+
+    /**
+     * Chạy pipeline đến khi nguồn hết record và mọi batch đã được lưu
+     *
+     * @param persistOnCallerThread true: PERSIST chạy tuần tự trên thread gọi (dùng transaction của caller),
+     *                              false: mỗi batch lưu trong transaction riêng trên virtual thread,
+     *                              mỗi transaction chiếm một connection trong quota ingest
+     */
+    public TripImportResult ingest(RecordSource source, UUID userId, UUID rawDataId,
+                                   boolean persistOnCallerThread) throws FileUploadException {
+        Run run = new Run(userId, rawDataId, persistOnCallerThread);
+        activeRuns.add(run);
+        long started = System.nanoTime();
+        try {
+            Thread reader = Thread.ofVirtual().name("trip-ingest-parse").start(() -> read(run, source));
+
+            if (persistOnCallerThread) {
+                persist(run);
+            } else {
+                List<Thread> persisters = new ArrayList<>(persistWorkers);
+                for (int i = 0; i < persistWorkers; i++) {
+                    persisters.add(Thread.ofVirtual().name("trip-ingest-persist").start(() -> persist(run)));
+                }
+                for (Thread persister : persisters) {
+                    persister.join();
+                }
+            }
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.fail(e);
+        } finally {
+            activeRuns.remove(run);
+            completedRuns.increment();
+        }
+
+        Throwable failure = run.failure.get();
+        if (failure instanceof FileUploadException e) {
+            throw e;
+        }
+        if (failure instanceof RuntimeException e) {
+            throw e;
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Trip ingestion failed", failure);
+        }
+
+        TripImportResult result = run.toResult();
+        long elapsedMillis = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        log.info("Ingested {} of {} records in {} ms ({} records/s)",
+                result.getImportedTrips(), result.getTotalRecords(), elapsedMillis,
+                result.getTotalRecords() * 1000 / elapsedMillis);
+        return result;
+    }
+
+    public IngestionMetricsResponse getMetrics() {
+        int parsedDepth = 0;
+        int processedDepth = 0;
+        for (Run run : activeRuns) {
+            parsedDepth += run.awaitingProcess.get();
+            processedDepth += run.processed.size();
+        }
+        return IngestionMetricsResponse.builder()
+                .activeRuns(activeRuns.size())
+                .completedRuns(completedRuns.sum())
+                .batchSize(batchSize)
+                .stages(List.of(
+                        parseMetrics.snapshot(0, 0),
+                        processMetrics.snapshot(parsedDepth, maxInFlightBatches),
+                        persistMetrics.snapshot(processedDepth, maxInFlightBatches)))
+                .admission(admissionControl.getMetrics())
+                .build();
+    }
+
+    // ==================== STAGES ====================
+
+    private void read(Run run, RecordSource source) {
+        try {
+            Batcher batcher = new Batcher(run);
+            run.totalRecords = source.read(batcher);
+            batcher.flush();
+        } catch (Throwable e) {
+            run.fail(e);
+        } finally {
+            // Trả phần của reader, task PROCESS cuối cùng (hoặc reader) báo hết dữ liệu cho PERSIST
+            run.processDone();
+        }
+    }
+
+    /**
+     * Gom record từ parser thành batch và đẩy sang PROCESS
+     */
+    private final class Batcher implements TripRecordHandler {
+        private final Run run;
+        private TripColumnBatch batch = new TripColumnBatch(batchSize);
+        private long batchStarted = System.nanoTime();
+
+        private Batcher(Run run) {
+            this.run = run;
+        }
+
+        @Override
+        public void onRecord(int sourceRow, TripData data, String error) {
+            if (data == null) {
+                run.parseErrors.increment();
+                log.debug("Record {} skipped: {}", sourceRow + 1, error);
+                return;
+            }
+            batch.add(data);
+            if (batch.isFull()) {
+                flush();
+            }
+        }
+
+        /**
+         * Batch dạng cột từ reader columnar (Arrow) đi thẳng vào PROCESS, không tách thành record
+         */
+        @Override
+        public void onBatch(TripColumnBatch columnar, String uploadSource) {
+            flush();
+            push(columnar);
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            push(batch);
+            batch = new TripColumnBatch(batchSize);
+        }
+
+        private void push(TripColumnBatch batch) {
+            parseMetrics.recordBatch(batch.size(), System.nanoTime() - batchStarted);
+            try {
+                // Quota rows/giây của user, chờ ở đây sẽ chặn luôn parser.
+                // Upload đồng bộ đang giữ transaction + connection của caller: chỉ ghi nợ, không ngủ,
+                // upload tiếp theo của user bị từ chối ở admission cho tới khi trả hết nợ
+                if (run.persistOnCallerThread) {
+                    admissionControl.charge(run.userId, batch.size());
+                } else {
+                    admissionControl.throttle(run.userId, batch.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Ingestion interrupted", e);
+            }
+            run.acquireSlot(parseMetrics);
+            submitProcess(run, batch);
+            batchStarted = System.nanoTime();
+        }
+    }
+
+    private void submitProcess(Run run, TripColumnBatch batch) {
+        run.pendingProcess.incrementAndGet();
+        run.awaitingProcess.incrementAndGet();
+        try {
+            processPool.execute(() -> process(run, batch));
+        } catch (RejectedExecutionException e) {
+            run.awaitingProcess.decrementAndGet();
+            run.releaseSlot();
+            run.processDone();
+            throw new IllegalStateException("Ingestion pool is shut down", e);
+        }
+    }
+
+    /**
+     * Một task cho một batch; không chờ queue nào nên worker được trả về pool ngay
+     */
+    private void process(Run run, TripColumnBatch batch) {
+        run.awaitingProcess.decrementAndGet();
+        boolean handedOff = false;
+        try {
+            if (run.failure.get() != null) {
+                return;
+            }
+            long started = System.nanoTime();
+            TripValidationResult validation = processBatch(run, batch);
+            processMetrics.recordBatch(batch.size(), System.nanoTime() - started);
+            if (validation.getValidCount() > 0) {
+                // Queue không giới hạn, số phần tử đã bị chặn bởi permit của run
+                run.processed.add(new ProcessedBatch(batch, validation));
+                handedOff = true;
+            }
+        } catch (Throwable e) {
+            run.fail(e);
+        } finally {
+            if (!handedOff) {
+                run.releaseSlot();
+            }
+            run.processDone();
+        }
+    }
+
+    /**
+     * Validate, tính CO2 và anomaly score trực tiếp trên các cột của batch
+     */
+    private TripValidationResult processBatch(Run run, TripColumnBatch batch) {
+        // Plausibility validation, row bị flag sẽ không được lưu
+        TripValidationResult validation = tripDataValidator.validate(batch);
+        if (validation.getInvalidCount() > 0) {
+            run.recordViolations(validation);
+            if (log.isDebugEnabled()) {
+                for (int i = 0; i < validation.size(); i++) {
+                    if (!validation.isValid(i)) {
+                        log.debug("Record {} flagged: {}", batch.sourceRow(i) + 1, validation.getViolatedRuleIds(i));
+                    }
+                }
+            }
+        }
+
+        co2Service.calculateCO2SavedKg(batch, validation);
+
+        // Anomaly score so với lịch sử vehicle / user (in-memory)
+        anomalyScorer.scoreAll(batch, run.userId, validation);
+        return validation;
+    }
+
+    /**
+     * Entity chỉ được tạo ở đây, ngay trước khi lưu
+     */
+    private void persist(Run run) {
+        try {
+            ProcessedBatch processed;
+            while ((processed = run.take(run.processed)) != Run.END_OF_TRIPS) {
+                run.releaseSlot();
+                long started = System.nanoTime();
+                TripColumnBatch batch = processed.batch();
+                List<Trip> trips = new ArrayList<>(processed.validation().getValidCount());
+                for (int row = 0, size = batch.size(); row < size; row++) {
+                    if (!processed.validation().isValid(row)) {
+                        continue;
+                    }
+                    Trip trip = tripCustomMapper.convertToEntity(batch, row, run.userId);
+                    trip.setRawDataId(run.rawDataId);
+                    trip.setCo2Reduced(batch.co2SavedKg(row));
+                    trip.setAnomalyScore(batch.anomalyScore(row));
+                    trip.setStatus(TripStatus.CALCULATED);
+                    trips.add(trip);
+                }
+                List<Trip> saved = save(run, trips);
+                persistMetrics.recordBatch(saved.size(), System.nanoTime() - started);
+                run.recordSaved(saved);
+            }
+        } catch (Throwable e) {
+            run.fail(e);
+        }
+    }
+
+    /**
+     * Trip lưu trong transaction (join transaction của caller nếu có),
+     * counter heatmap và statistics anomaly cập nhật sau commit
+     */
+    private List<Trip> save(Run run, List<Trip> trips) throws InterruptedException {
+        if (run.persistOnCallerThread) {
+            // Connection của caller đã được tính khi admit
+            return saveInTransaction(trips);
+        }
+        admissionControl.acquireConnection();
+        try {
+            return saveInTransaction(trips);
+        } finally {
+            admissionControl.releaseConnection();
+        }
+    }
+
+    private List<Trip> saveInTransaction(List<Trip> trips) {
+        return transactionTemplate.execute(status -> {
+            List<Trip> result = tripRepository.saveAll(trips);
+            heatmapService.record(result, 1);
+            // Statistics anomaly chỉ nhận trip khi transaction (của caller nếu join) commit
+            anomalyScorer.recordAfterCommit(result);
+            return result;
+        });
+    }
+
+    private record ProcessedBatch(TripColumnBatch batch, TripValidationResult validation) {
+    }
+
+    /**
+     * State của một lần ingest
+     */
+    private final class Run {
+        private static final ProcessedBatch END_OF_TRIPS = new ProcessedBatch(new TripColumnBatch(0), null);
+
+        private final UUID userId;
+        private final UUID rawDataId;
+        private final boolean persistOnCallerThread;
+        // Batch đã parse mà PERSIST chưa nhận
+        private final Semaphore inFlight = new Semaphore(maxInFlightBatches);
+        private final BlockingQueue<ProcessedBatch> processed = new LinkedBlockingQueue<>();
+        // Task PROCESS chưa xong, cộng một phần của reader
+        private final AtomicInteger pendingProcess = new AtomicInteger(1);
+        private final AtomicInteger awaitingProcess = new AtomicInteger();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        private final LongAdder parseErrors = new LongAdder();
+        private final LongAdder implausible = new LongAdder();
+        private final LongAdder imported = new LongAdder();
+        private final TreeMap<String, Long> violationCounts = new TreeMap<>();
+        private volatile int totalRecords;
+        private Trip firstTrip;
+
+        private Run(UUID userId, UUID rawDataId, boolean persistOnCallerThread) {
+            this.userId = userId;
+            this.rawDataId = rawDataId;
+            this.persistOnCallerThread = persistOnCallerThread;
+        }
+
+        private void fail(Throwable e) {
+            if (failure.compareAndSet(null, e)) {
+                log.error("Trip ingestion failed", e);
+            }
+        }
+
+        /**
+         * Chờ tới khi run còn chỗ cho một batch nữa (backpressure), bỏ cuộc khi pipeline đã lỗi
+         */
+        private void acquireSlot(StageMetrics producer) {
+            long started = System.nanoTime();
+            try {
+                while (!inFlight.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (failure.get() != null) {
+                        throw new IllegalStateException("Ingestion aborted");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Ingestion interrupted", e);
+            } finally {
+                producer.recordBlocked(System.nanoTime() - started);
+            }
+        }
+
+        private void releaseSlot() {
+            inFlight.release();
+        }
+
+        /**
+         * Ai về 0 cuối cùng (task PROCESS cuối hoặc reader) gửi END cho từng persist worker.
+         * Queue không giới hạn nên END luôn tới được consumer, kể cả khi pipeline lỗi.
+         */
+        private void processDone() {
+            if (pendingProcess.decrementAndGet() == 0) {
+                int workers = persistOnCallerThread ? 1 : persistWorkers;
+                for (int i = 0; i < workers; i++) {
+                    processed.add(END_OF_TRIPS);
+                }
+            }
+        }
+
+        private <T> T take(BlockingQueue<T> queue) throws InterruptedException {
+            T item;
+            while ((item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                if (failure.get() != null) {
+                    throw new IllegalStateException("Ingestion aborted");
+                }
+            }
+            return item;
+        }
+
+        private synchronized void recordViolations(TripValidationResult validation) {
+            implausible.add(validation.getInvalidCount());
+            validation.getViolationCounts().forEach((rule, count) -> violationCounts.merge(rule, count, Long::sum));
+        }
+
+        private synchronized void recordSaved(List<Trip> saved) {
+            imported.add(saved.size());
+            for (Trip trip : saved) {
+                if (firstTrip == null || (trip.getRawRowOffset() != null && firstTrip.getRawRowOffset() != null
+                        && trip.getRawRowOffset() < firstTrip.getRawRowOffset())) {
+                    firstTrip = trip;
+                }
+            }
+        }
+
+        private synchronized TripImportResult toResult() {
+            return TripImportResult.builder()
+                    .rawDataId(rawDataId)
+                    .totalRecords(totalRecords)
+                    .importedTrips(imported.sum())
+                    .parseErrors(parseErrors.sum())
+                    .implausibleRecords(implausible.sum())
+                    .violationCounts(new TreeMap<>(violationCounts))
+                    .firstTrip(firstTrip)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.tripservice.services.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * RawDataStore lưu file trên local filesystem: {baseDir}/{key[0..2]}/{key[2..4]}/{key}
+ */
+@Component
+@ConditionalOnProperty(name = "trip.raw-archive.store", havingValue = "local", matchIfMissing = true)
+@Slf4j
+public class LocalFileSystemRawDataStore implements RawDataStore {
+    private final Path baseDir;
+    private final Path tmpDir;
+
+    public LocalFileSystemRawDataStore(@Value("${trip.raw-archive.base-dir:./data/raw-archive}") String baseDir)
+            throws IOException {
+        this.baseDir = Paths.get(baseDir).toAbsolutePath();
+        this.tmpDir = this.baseDir.resolve("tmp");
+        Files.createDirectories(tmpDir);
+        log.info("Raw upload archive stored at {}", this.baseDir);
+    }
+
+    @Override
+    public PendingObject create() throws IOException {
+        Path tmpFile = Files.createTempFile(tmpDir, "upload-", ".part");
+        return new LocalPendingObject(tmpFile);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(resolve(key));
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    private Path resolve(String key) {
+        if (key.length() < 4 || key.contains("/") || key.contains("..")) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        return baseDir.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+
+    private class LocalPendingObject implements PendingObject {
+        private final Path tmpFile;
+        private OutputStream out;
+        private boolean committed;
+
+        private LocalPendingObject(Path tmpFile) {
+            this.tmpFile = tmpFile;
+        }
+
+        @Override
+        public OutputStream outputStream() {
+            if (out == null) {
+                try {
+                    out = new BufferedOutputStream(Files.newOutputStream(tmpFile));
+                } catch (IOException e) {
+                    throw new IllegalStateException("Cannot open temp file " + tmpFile, e);
+                }
+            }
+            return out;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return Files.size(tmpFile);
+        }
+
+        @Override
+        public void commit(String key) throws IOException {
+            Path target = resolve(key);
+            if (Files.exists(target)) {
+                // Cùng content hash -> nội dung giống nhau, giữ bản cũ
+                log.debug("Object {} already stored, discarding duplicate", key);
+                return;
+            }
+            Files.createDirectories(target.getParent());
+            Files.move(tmpFile, target, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out != null) {
+                out.close();
+            }
+            if (!committed) {
+                Files.deleteIfExists(tmpFile);
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.tripservice.services.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Backend lưu trữ object cho raw upload archive (local filesystem, S3, ...).
+ * Object được ghi vào vùng tạm trước, sau khi biết content hash mới commit theo key.
+ */
+public interface RawDataStore {
+
+    /**
+     * Tạo object tạm để ghi streaming
+     */
+    PendingObject create() throws IOException;
+
+    boolean exists(String key);
+
+    InputStream open(String key) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    interface PendingObject extends AutoCloseable {
+        OutputStream outputStream();
+
+        /**
+         * Số byte đã ghi (sau khi outputStream đã đóng)
+         */
+        long size() throws IOException;
+
+        /**
+         * Lưu object với key. Nếu key đã tồn tại thì giữ bản cũ.
+         */
+        void commit(String key) throws IOException;
+
+        /**
+         * Xoá object tạm nếu chưa commit
+         */
+        @Override
+        void close() throws IOException;
+    }
+}
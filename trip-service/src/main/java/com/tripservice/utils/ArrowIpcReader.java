@@ -0,0 +1,758 @@
+package com.tripservice.utils;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reader tối giản cho Apache Arrow IPC (stream format và file format đọc tuần tự).
+ * <p>
+ * Đọc metadata flatbuffer (Schema, RecordBatch, DictionaryBatch) trực tiếp từ byte, body của
+ * mỗi record batch giữ nguyên dạng buffer little-endian và được truy cập theo index qua {@link Vector},
+ * không copy hay chuyển sang chuỗi.
+ * <p>
+ * Hỗ trợ cột top-level kiểu Int, FloatingPoint (single/double), Bool, Utf8, LargeUtf8,
+ * Timestamp, Date, FixedSizeBinary và dictionary-encoded Utf8. Cột lồng nhau (List, Struct, ...)
+ * được bỏ qua. Body nén (LZ4/ZSTD), delta dictionary và big-endian không được hỗ trợ.
+ * <p>
+ * Input không tin cậy: độ dài metadata / body bị giới hạn trước khi cấp phát, kích thước buffer được
+ * kiểm tra theo số phần tử của cột, và mọi lỗi decode (đọc ngoài buffer, ...) được báo thành IOException.
+ */
+public final class ArrowIpcReader implements Closeable {
+    private static final byte[] FILE_MAGIC = "ARROW1".getBytes(StandardCharsets.US_ASCII);
+    private static final int CONTINUATION = 0xFFFFFFFF;
+
+    public static final int DEFAULT_MAX_METADATA_BYTES = 1 << 20;
+    public static final long DEFAULT_MAX_BODY_BYTES = 256L << 20;
+    // Offset hỏng có thể trỏ vòng về field cha
+    private static final int MAX_FIELD_DEPTH = 32;
+    private static final int MAX_FIELDS = 10_000;
+
+    // MessageHeader union
+    private static final int HEADER_SCHEMA = 1;
+    private static final int HEADER_DICTIONARY_BATCH = 2;
+    private static final int HEADER_RECORD_BATCH = 3;
+
+    // Type union
+    private static final int TYPE_NULL = 1;
+    private static final int TYPE_INT = 2;
+    private static final int TYPE_FLOATING_POINT = 3;
+    private static final int TYPE_BINARY = 4;
+    private static final int TYPE_UTF8 = 5;
+    private static final int TYPE_BOOL = 6;
+    private static final int TYPE_DECIMAL = 7;
+    private static final int TYPE_DATE = 8;
+    private static final int TYPE_TIME = 9;
+    private static final int TYPE_TIMESTAMP = 10;
+    private static final int TYPE_INTERVAL = 11;
+    private static final int TYPE_LIST = 12;
+    private static final int TYPE_STRUCT = 13;
+    private static final int TYPE_UNION = 14;
+    private static final int TYPE_FIXED_SIZE_BINARY = 15;
+    private static final int TYPE_FIXED_SIZE_LIST = 16;
+    private static final int TYPE_MAP = 17;
+    private static final int TYPE_DURATION = 18;
+    private static final int TYPE_LARGE_BINARY = 19;
+    private static final int TYPE_LARGE_UTF8 = 20;
+    private static final int TYPE_LARGE_LIST = 21;
+    private static final int TYPE_RUN_END_ENCODED = 22;
+
+    public enum Kind { INT, FLOAT, BOOL, UTF8, TIMESTAMP, DATE, FIXED_SIZE_BINARY, UNSUPPORTED }
+
+    /**
+     * Cột top-level trong schema
+     */
+    public record Field(String name, Kind kind, int typeId, int bitWidth, long unitNanos,
+                        Long dictionaryId, int dictionaryIndexBitWidth, List<Field> children) {
+    }
+
+    private final DataInputStream in;
+    private final int maxMetadataBytes;
+    private final long maxBodyBytes;
+    private final List<Field> fields;
+    private final Map<Long, Vector> dictionaries = new HashMap<>();
+    private int parsedFields;
+
+    public ArrowIpcReader(InputStream source) throws IOException {
+        this(source, DEFAULT_MAX_METADATA_BYTES, DEFAULT_MAX_BODY_BYTES);
+    }
+
+    /**
+     * @param maxMetadataBytes giới hạn metadata flatbuffer của một message
+     * @param maxBodyBytes     giới hạn body của một record / dictionary batch
+     */
+    public ArrowIpcReader(InputStream source, int maxMetadataBytes, long maxBodyBytes) throws IOException {
+        this.maxMetadataBytes = maxMetadataBytes;
+        this.maxBodyBytes = Math.min(maxBodyBytes, Integer.MAX_VALUE - 8);
+        PushbackInputStream pushback = new PushbackInputStream(source, FILE_MAGIC.length);
+        byte[] head = pushback.readNBytes(FILE_MAGIC.length);
+        if (Arrays.equals(head, FILE_MAGIC)) {
+            // File format: magic + padding tới 8 byte, sau đó là stream format
+            pushback.skipNBytes(8 - FILE_MAGIC.length);
+        } else {
+            pushback.unread(head);
+        }
+        this.in = new DataInputStream(pushback);
+        this.fields = decode(this::readSchema);
+    }
+
+    private List<Field> readSchema() throws IOException {
+        Message schema = readMessage();
+        if (schema == null || schema.headerType != HEADER_SCHEMA) {
+            throw new IOException("Arrow stream does not start with a schema message");
+        }
+        Table schemaTable = schema.header;
+        if (schemaTable.getShort(0, (short) 0) != 0) {
+            throw new IOException("Big-endian Arrow data is not supported");
+        }
+        List<Field> parsed = new ArrayList<>();
+        for (int i = 0, n = schemaTable.vectorLength(1); i < n; i++) {
+            parsed.add(parseField(schemaTable.vectorTable(1, i), 0));
+        }
+        return List.copyOf(parsed);
+    }
+
+    public List<Field> getFields() {
+        return fields;
+    }
+
+    /**
+     * Record batch tiếp theo, null khi hết stream.
+     * Dictionary batch gặp trên đường đi được nạp tự động.
+     */
+    public RecordBatch nextBatch() throws IOException {
+        return decode(this::readNextBatch);
+    }
+
+    private RecordBatch readNextBatch() throws IOException {
+        while (true) {
+            Message message = readMessage();
+            if (message == null) {
+                return null;
+            }
+            switch (message.headerType) {
+                case HEADER_RECORD_BATCH -> {
+                    return readRecordBatch(message.header, message.body);
+                }
+                case HEADER_DICTIONARY_BATCH -> readDictionary(message);
+                case HEADER_SCHEMA -> throw new IOException("Unexpected second schema in Arrow stream");
+                default -> {
+                    // Tensor, ...: bỏ qua
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    @FunctionalInterface
+    private interface Decoder<T> {
+        T decode() throws IOException;
+    }
+
+    /**
+     * Offset / độ dài hỏng trong metadata làm ByteBuffer ném runtime exception; báo thành IOException
+     */
+    private static <T> T decode(Decoder<T> decoder) throws IOException {
+        try {
+            return decoder.decode();
+        } catch (IndexOutOfBoundsException | BufferUnderflowException | IllegalArgumentException
+                 | NegativeArraySizeException e) {
+            throw new IOException("Malformed Arrow data: " + e, e);
+        }
+    }
+
+    // ==================== MESSAGES ====================
+
+    private record Message(int headerType, Table header, ByteBuffer body) {
+    }
+
+    private Message readMessage() throws IOException {
+        Integer length = readIntOrEof();
+        if (length == null) {
+            return null;
+        }
+        if (length == CONTINUATION) {
+            length = readIntOrEof();
+            if (length == null) {
+                return null;
+            }
+        }
+        if (length == 0) {
+            // End-of-stream marker
+            return null;
+        }
+        if (length < 0) {
+            throw new IOException("Invalid Arrow message length " + length);
+        }
+        if (length > maxMetadataBytes) {
+            throw new IOException("Arrow message metadata too large: " + length + " bytes (limit "
+                    + maxMetadataBytes + ")");
+        }
+
+        ByteBuffer metadata = ByteBuffer.wrap(in.readNBytes(length)).order(ByteOrder.LITTLE_ENDIAN);
+        if (metadata.capacity() < length) {
+            throw new EOFException("Truncated Arrow message metadata");
+        }
+        Table message = Table.root(metadata);
+        long bodyLength = message.getLong(3, 0L);
+        if (bodyLength < 0 || bodyLength > maxBodyBytes) {
+            throw new IOException("Arrow message body too large: " + bodyLength + " bytes (limit "
+                    + maxBodyBytes + ")");
+        }
+        byte[] body = in.readNBytes((int) bodyLength);
+        if (body.length < bodyLength) {
+            throw new EOFException("Truncated Arrow message body");
+        }
+        int headerType = message.getByte(1, (byte) 0) & 0xFF;
+        Table header = message.getTable(2);
+        if (header == null) {
+            throw new IOException("Arrow message without header");
+        }
+        return new Message(headerType, header, ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    private Integer readIntOrEof() throws IOException {
+        byte[] bytes = in.readNBytes(4);
+        if (bytes.length == 0) {
+            return null;
+        }
+        if (bytes.length < 4) {
+            throw new EOFException("Truncated Arrow stream");
+        }
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).getInt();
+    }
+
+    // ==================== SCHEMA ====================
+
+    private Field parseField(Table field, int depth) throws IOException {
+        if (depth > MAX_FIELD_DEPTH || ++parsedFields > MAX_FIELDS) {
+            throw new IOException("Arrow schema is nested too deeply or has too many fields");
+        }
+        String name = field.getString(0);
+        int typeId = field.getByte(2, (byte) 0) & 0xFF;
+        Table type = field.getTable(3);
+
+        Long dictionaryId = null;
+        int dictionaryIndexBitWidth = 0;
+        Table dictionary = field.getTable(4);
+        if (dictionary != null) {
+            dictionaryId = dictionary.getLong(0, 0L);
+            Table indexType = dictionary.getTable(1);
+            dictionaryIndexBitWidth = indexType != null ? indexType.getInt(0, 32) : 32;
+        }
+
+        List<Field> children = new ArrayList<>();
+        for (int i = 0, n = field.vectorLength(5); i < n; i++) {
+            children.add(parseField(field.vectorTable(5, i), depth + 1));
+        }
+
+        Kind kind = Kind.UNSUPPORTED;
+        int bitWidth = 0;
+        long unitNanos = 0;
+        switch (typeId) {
+            case TYPE_INT -> {
+                kind = Kind.INT;
+                bitWidth = type != null ? type.getInt(0, 0) : 0;
+            }
+            case TYPE_FLOATING_POINT -> {
+                short precision = type != null ? type.getShort(0, (short) 0) : 0;
+                if (precision == 1 || precision == 2) {
+                    kind = Kind.FLOAT;
+                    bitWidth = precision == 1 ? 32 : 64;
+                }
+            }
+            case TYPE_BOOL -> kind = Kind.BOOL;
+            case TYPE_UTF8 -> {
+                kind = Kind.UTF8;
+                bitWidth = 32;
+            }
+            case TYPE_LARGE_UTF8 -> {
+                kind = Kind.UTF8;
+                bitWidth = 64;
+            }
+            case TYPE_TIMESTAMP -> {
+                kind = Kind.TIMESTAMP;
+                bitWidth = 64;
+                unitNanos = timeUnitNanos(type != null ? type.getShort(0, (short) 0) : 0);
+            }
+            case TYPE_DATE -> {
+                kind = Kind.DATE;
+                // DateUnit: DAY = 0 (int32), MILLISECOND = 1 (int64, mặc định)
+                boolean days = type != null && type.getShort(0, (short) 1) == 0;
+                bitWidth = days ? 32 : 64;
+                unitNanos = days ? 86_400_000_000_000L : 1_000_000L;
+            }
+            case TYPE_FIXED_SIZE_BINARY -> {
+                kind = Kind.FIXED_SIZE_BINARY;
+                bitWidth = (type != null ? type.getInt(0, 0) : 0) * 8;
+            }
+            default -> {
+                // Giữ UNSUPPORTED, chỉ cần biết layout để bỏ qua
+            }
+        }
+        return new Field(name, kind, typeId, bitWidth, unitNanos, dictionaryId, dictionaryIndexBitWidth, children);
+    }
+
+    private static long timeUnitNanos(short unit) {
+        return switch (unit) {
+            case 0 -> 1_000_000_000L;
+            case 1 -> 1_000_000L;
+            case 2 -> 1_000L;
+            default -> 1L;
+        };
+    }
+
+    // ==================== RECORD BATCHES ====================
+
+    /**
+     * Một record batch: các cột top-level trỏ thẳng vào body
+     */
+    public static final class RecordBatch {
+        private final int length;
+        private final Vector[] columns;
+
+        private RecordBatch(int length, Vector[] columns) {
+            this.length = length;
+            this.columns = columns;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public Vector column(int index) {
+            return columns[index];
+        }
+    }
+
+    private RecordBatch readRecordBatch(Table batch, ByteBuffer body) throws IOException {
+        if (batch.getTable(3) != null) {
+            throw new IOException("Compressed Arrow record batches are not supported");
+        }
+        long length = batch.getLong(0, 0L);
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw new IOException("Invalid Arrow record batch length " + length);
+        }
+        Cursor cursor = new Cursor(batch);
+        Vector[] columns = new Vector[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            columns[i] = readVector(fields.get(i), cursor, body);
+            if (columns[i].length() < length) {
+                throw new IOException("Arrow column " + fields.get(i).name() + " is shorter than its record batch");
+            }
+        }
+        return new RecordBatch((int) length, columns);
+    }
+
+    private void readDictionary(Message message) throws IOException {
+        Table dictionaryBatch = message.header;
+        long id = dictionaryBatch.getLong(0, 0L);
+        if (dictionaryBatch.getBool(2, false)) {
+            throw new IOException("Delta dictionary batches are not supported");
+        }
+        Field valueField = null;
+        for (Field field : fields) {
+            if (field.dictionaryId() != null && field.dictionaryId() == id) {
+                valueField = field;
+                break;
+            }
+        }
+        Table data = dictionaryBatch.getTable(1);
+        if (valueField == null || data == null) {
+            return;
+        }
+        if (data.getTable(3) != null) {
+            throw new IOException("Compressed Arrow dictionary batches are not supported");
+        }
+        // Dictionary là một record batch một cột với kiểu giá trị của field
+        Field plain = new Field(valueField.name(), valueField.kind(), valueField.typeId(), valueField.bitWidth(),
+                valueField.unitNanos(), null, 0, valueField.children());
+        dictionaries.put(id, readVector(plain, new Cursor(data), message.body));
+    }
+
+    /**
+     * Vị trí hiện tại trong danh sách FieldNode / Buffer của record batch
+     */
+    private static final class Cursor {
+        private final Table batch;
+        private final int nodeCount;
+        private final int bufferCount;
+        private int node;
+        private int buffer;
+
+        private Cursor(Table batch) {
+            this.batch = batch;
+            this.nodeCount = batch.vectorLength(1);
+            this.bufferCount = batch.vectorLength(2);
+        }
+
+        private long[] nextNode() throws IOException {
+            if (node >= nodeCount) {
+                throw new IOException("Arrow record batch has fewer field nodes than the schema");
+            }
+            int at = batch.vectorStart(1) + 16 * node++;
+            return new long[]{batch.bb.getLong(at), batch.bb.getLong(at + 8)};
+        }
+
+        private ByteBuffer nextBuffer(ByteBuffer body) throws IOException {
+            if (buffer >= bufferCount) {
+                throw new IOException("Arrow record batch has fewer buffers than the schema");
+            }
+            int at = batch.vectorStart(2) + 16 * buffer++;
+            long offset = batch.bb.getLong(at);
+            long length = batch.bb.getLong(at + 8);
+            if (length == 0) {
+                return null;
+            }
+            if (offset < 0 || length < 0 || offset > body.capacity() - length) {
+                throw new IOException("Arrow buffer outside message body");
+            }
+            return body.slice((int) offset, (int) length).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        private void skipBuffers(int count) {
+            buffer += count;
+        }
+    }
+
+    private Vector readVector(Field field, Cursor cursor, ByteBuffer body) throws IOException {
+        long[] node = cursor.nextNode();
+        if (node[0] < 0 || node[0] > Integer.MAX_VALUE) {
+            throw new IOException("Invalid length " + node[0] + " for Arrow column " + field.name());
+        }
+        int length = (int) node[0];
+        long nullCount = node[1];
+
+        if (field.dictionaryId() != null) {
+            // Cột dictionary-encoded: buffer là index (int), giá trị nằm trong dictionary
+            ByteBuffer validity = validity(field, length, nullCount, cursor.nextBuffer(body));
+            ByteBuffer indices = cursor.nextBuffer(body);
+            Vector dictionary = dictionaries.get(field.dictionaryId());
+            if (dictionary == null) {
+                throw new IOException("Missing dictionary " + field.dictionaryId() + " for column " + field.name());
+            }
+            int indexBytes = switch (field.dictionaryIndexBitWidth()) {
+                case 8 -> 1;
+                case 16 -> 2;
+                case 64 -> 8;
+                default -> 4;
+            };
+            requireCapacity(field, "index", indices, (long) length * indexBytes);
+            return new Vector(field, length, nullCount, validity, null, indices, dictionary);
+        }
+
+        switch (field.kind()) {
+            case UTF8 -> {
+                ByteBuffer validity = validity(field, length, nullCount, cursor.nextBuffer(body));
+                ByteBuffer offsets = cursor.nextBuffer(body);
+                ByteBuffer data = cursor.nextBuffer(body);
+                if (length > 0) {
+                    int offsetBytes = field.bitWidth() / 8;
+                    requireCapacity(field, "offset", offsets, (long) (length + 1) * offsetBytes);
+                    long last = offsetBytes == 8 ? offsets.getLong(length * 8) : offsets.getInt(length * 4);
+                    if (last < 0 || last > (data != null ? data.capacity() : 0)) {
+                        throw new IOException("Arrow column " + field.name() + " has offsets outside its data buffer");
+                    }
+                }
+                return new Vector(field, length, nullCount, validity, offsets, data, null);
+            }
+            case INT, FLOAT, BOOL, TIMESTAMP, DATE, FIXED_SIZE_BINARY -> {
+                ByteBuffer validity = validity(field, length, nullCount, cursor.nextBuffer(body));
+                ByteBuffer data = cursor.nextBuffer(body);
+                long bytes;
+                if (field.kind() == Kind.BOOL) {
+                    bytes = (length + 7L) / 8;
+                } else if (field.kind() == Kind.FIXED_SIZE_BINARY) {
+                    bytes = (long) length * (field.bitWidth() / 8);
+                } else if (field.bitWidth() == 8 || field.bitWidth() == 16 || field.bitWidth() == 32
+                        || field.bitWidth() == 64) {
+                    bytes = (long) length * (field.bitWidth() / 8);
+                } else {
+                    throw new IOException("Unsupported bit width " + field.bitWidth() + " for Arrow column "
+                            + field.name());
+                }
+                requireCapacity(field, "data", data, bytes);
+                return new Vector(field, length, nullCount, validity, null, data, null);
+            }
+            default -> {
+                skip(field, cursor);
+                return new Vector(field, length, nullCount, null, null, null, null);
+            }
+        }
+    }
+
+    private static ByteBuffer validity(Field field, int length, long nullCount, ByteBuffer validity)
+            throws IOException {
+        if (nullCount != 0 && validity != null) {
+            requireCapacity(field, "validity", validity, (length + 7L) / 8);
+        }
+        return validity;
+    }
+
+    /**
+     * Buffer phải đủ cho mọi phần tử của cột, để truy cập theo index không đọc ra ngoài body
+     */
+    private static void requireCapacity(Field field, String buffer, ByteBuffer data, long bytes) throws IOException {
+        if (bytes > 0 && (data == null || data.capacity() < bytes)) {
+            throw new IOException("Arrow column " + field.name() + " has a truncated " + buffer + " buffer");
+        }
+    }
+
+    /**
+     * Bỏ qua buffer của cột không hỗ trợ (node đầu tiên đã được đọc)
+     */
+    private void skip(Field field, Cursor cursor) throws IOException {
+        int buffers = switch (field.typeId()) {
+            case TYPE_NULL, TYPE_RUN_END_ENCODED -> 0;
+            case TYPE_STRUCT, TYPE_FIXED_SIZE_LIST -> 1;
+            case TYPE_BINARY, TYPE_LARGE_BINARY, TYPE_UTF8, TYPE_LARGE_UTF8 -> 3;
+            case TYPE_UNION -> throw new IOException("Union columns are not supported (column " + field.name() + ")");
+            case TYPE_INT, TYPE_FLOATING_POINT, TYPE_BOOL, TYPE_DECIMAL, TYPE_DATE, TYPE_TIME, TYPE_TIMESTAMP,
+                 TYPE_INTERVAL, TYPE_FIXED_SIZE_BINARY, TYPE_DURATION -> 2;
+            case TYPE_LIST, TYPE_LARGE_LIST, TYPE_MAP -> 2;
+            default -> throw new IOException("Unsupported Arrow type " + field.typeId() + " (column " + field.name() + ")");
+        };
+        cursor.skipBuffers(buffers);
+        for (Field child : field.children()) {
+            cursor.nextNode();
+            skip(child, cursor);
+        }
+    }
+
+    // ==================== VECTORS ====================
+
+    /**
+     * Truy cập giá trị của một cột theo index, đọc thẳng từ buffer
+     */
+    public static final class Vector {
+        private final Field field;
+        private final int length;
+        private final long nullCount;
+        private final ByteBuffer validity;
+        private final ByteBuffer offsets;
+        private final ByteBuffer data;
+        private final Vector dictionary;
+
+        private Vector(Field field, int length, long nullCount, ByteBuffer validity,
+                       ByteBuffer offsets, ByteBuffer data, Vector dictionary) {
+            this.field = field;
+            this.length = length;
+            this.nullCount = nullCount;
+            this.validity = validity;
+            this.offsets = offsets;
+            this.data = data;
+            this.dictionary = dictionary;
+        }
+
+        public Field field() {
+            return field;
+        }
+
+        public Kind kind() {
+            return field.kind();
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public boolean isDictionaryEncoded() {
+            return dictionary != null;
+        }
+
+        public boolean isNull(int index) {
+            if (nullCount == 0 || validity == null) {
+                return false;
+            }
+            return (validity.get(index >>> 3) & (1 << (index & 7))) == 0;
+        }
+
+        /**
+         * Giá trị nguyên (Int, Bool, và epoch theo đơn vị gốc của Timestamp / Date)
+         */
+        public long getLong(int index) {
+            return switch (field.bitWidth()) {
+                case 8 -> data.get(index);
+                case 16 -> data.getShort(index * 2);
+                case 32 -> data.getInt(index * 4);
+                default -> field.kind() == Kind.BOOL
+                        ? (data.get(index >>> 3) >> (index & 7)) & 1
+                        : data.getLong(index * 8);
+            };
+        }
+
+        public double getDouble(int index) {
+            if (field.kind() == Kind.FLOAT) {
+                return field.bitWidth() == 32 ? data.getFloat(index * 4) : data.getDouble(index * 8);
+            }
+            return getLong(index);
+        }
+
+        /**
+         * Epoch millis của Timestamp / Date
+         */
+        public long getEpochMillis(int index) {
+            long value = getLong(index);
+            long unit = field.unitNanos();
+            return unit >= 1_000_000L ? value * (unit / 1_000_000L) : Math.floorDiv(value, 1_000_000L / unit);
+        }
+
+        /**
+         * Index trong dictionary (chỉ cho cột dictionary-encoded)
+         */
+        public int getDictionaryIndex(int index) {
+            return switch (field.dictionaryIndexBitWidth()) {
+                case 8 -> data.get(index) & 0xFF;
+                case 16 -> data.getShort(index * 2) & 0xFFFF;
+                case 64 -> (int) data.getLong(index * 8);
+                default -> data.getInt(index * 4);
+            };
+        }
+
+        public Vector dictionary() {
+            return dictionary;
+        }
+
+        public String getString(int index) {
+            if (dictionary != null) {
+                return dictionary.getString(getDictionaryIndex(index));
+            }
+            if (data == null) {
+                return "";
+            }
+            int start;
+            int end;
+            if (field.bitWidth() == 64) {
+                start = (int) offsets.getLong(index * 8);
+                end = (int) offsets.getLong(index * 8 + 8);
+            } else {
+                start = offsets.getInt(index * 4);
+                end = offsets.getInt(index * 4 + 4);
+            }
+            byte[] bytes = new byte[end - start];
+            data.get(start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * 8 byte big-endian tại offset trong phần tử FixedSizeBinary (UUID lưu theo RFC 4122)
+         */
+        public long getFixedBinaryLong(int index, int offset) {
+            return Long.reverseBytes(data.getLong(index * (field.bitWidth() / 8) + offset));
+        }
+    }
+
+    // ==================== FLATBUFFERS ====================
+
+    /**
+     * Đọc table flatbuffer (vtable, scalar, string, vector, union) trên ByteBuffer little-endian
+     */
+    private static final class Table {
+        private final ByteBuffer bb;
+        private final int position;
+
+        private Table(ByteBuffer bb, int position) {
+            this.bb = bb;
+            this.position = position;
+        }
+
+        private static Table root(ByteBuffer bb) {
+            return new Table(bb, bb.getInt(0));
+        }
+
+        private int fieldOffset(int fieldId) {
+            int vtable = position - bb.getInt(position);
+            int vtableSize = bb.getShort(vtable) & 0xFFFF;
+            int entry = 4 + 2 * fieldId;
+            return entry < vtableSize ? bb.getShort(vtable + entry) & 0xFFFF : 0;
+        }
+
+        private long getLong(int fieldId, long defaultValue) {
+            int offset = fieldOffset(fieldId);
+            return offset == 0 ? defaultValue : bb.getLong(position + offset);
+        }
+
+        private int getInt(int fieldId, int defaultValue) {
+            int offset = fieldOffset(fieldId);
+            return offset == 0 ? defaultValue : bb.getInt(position + offset);
+        }
+
+        private short getShort(int fieldId, short defaultValue) {
+            int offset = fieldOffset(fieldId);
+            return offset == 0 ? defaultValue : bb.getShort(position + offset);
+        }
+
+        private byte getByte(int fieldId, byte defaultValue) {
+            int offset = fieldOffset(fieldId);
+            return offset == 0 ? defaultValue : bb.get(position + offset);
+        }
+
+        private boolean getBool(int fieldId, boolean defaultValue) {
+            int offset = fieldOffset(fieldId);
+            return offset == 0 ? defaultValue : bb.get(position + offset) != 0;
+        }
+
+        private Table getTable(int fieldId) {
+            int offset = fieldOffset(fieldId);
+            if (offset == 0) {
+                return null;
+            }
+            int at = position + offset;
+            return new Table(bb, at + bb.getInt(at));
+        }
+
+        private String getString(int fieldId) {
+            int offset = fieldOffset(fieldId);
+            if (offset == 0) {
+                return null;
+            }
+            int at = position + offset;
+            at += bb.getInt(at);
+            int length = bb.getInt(at);
+            if (length < 0 || length > bb.capacity() - at - 4) {
+                throw new IndexOutOfBoundsException("flatbuffer string outside metadata");
+            }
+            byte[] bytes = new byte[length];
+            bb.get(at + 4, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private int vectorLength(int fieldId) {
+            int offset = fieldOffset(fieldId);
+            if (offset == 0) {
+                return 0;
+            }
+            int at = position + offset;
+            return bb.getInt(at + bb.getInt(at));
+        }
+
+        /**
+         * Vị trí phần tử đầu tiên của vector
+         */
+        private int vectorStart(int fieldId) {
+            int at = position + fieldOffset(fieldId);
+            return at + bb.getInt(at) + 4;
+        }
+
+        private Table vectorTable(int fieldId, int index) {
+            int at = vectorStart(fieldId) + 4 * index;
+            return new Table(bb, at + bb.getInt(at));
+        }
+    }
+}
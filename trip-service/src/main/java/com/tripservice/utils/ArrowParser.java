@@ -0,0 +1,309 @@
+package com.tripservice.utils;
+
+import com.tripservice.dtos.internal.TripColumnBatch;
+import com.tripservice.dtos.internal.TripData;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.fileupload.FileUploadException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Parse file Apache Arrow IPC (stream hoặc file format).
+ * <p>
+ * Cột được bind theo tên giống CSV ({@link TripColumn}). Mỗi record batch của Arrow được chép
+ * thẳng từ vector vào một {@link TripColumnBatch}: số và thời gian đọc trực tiếp từ buffer,
+ * không qua chuỗi; chuỗi dictionary-encoded chỉ decode một lần mỗi giá trị.
+ */
+@Component
+@Slf4j
+public class ArrowParser {
+    public static final String UPLOAD_SOURCE = "ARROW";
+
+    private final int maxMetadataBytes;
+    private final long maxBodyBytes;
+
+    public ArrowParser(@Value("${trip.upload.arrow.max-metadata-bytes:1048576}") int maxMetadataBytes,
+                       @Value("${trip.upload.arrow.max-body-bytes:268435456}") long maxBodyBytes) {
+        this.maxMetadataBytes = maxMetadataBytes;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    /**
+     * Parse Arrow file thành List<TripData>
+     */
+    public List<TripData> parseArrow(MultipartFile file) throws FileUploadException {
+        try (InputStream in = file.getInputStream()) {
+            return parseArrow(in, file.getOriginalFilename());
+        } catch (IOException e) {
+            log.error("Failed to read Arrow file", e);
+            throw new FileUploadException("Failed to parse Arrow file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parse Arrow từ InputStream (dùng cho reprocessing từ raw archive)
+     */
+    public List<TripData> parseArrow(InputStream in, String filename) throws FileUploadException {
+        List<TripData> tripDataList = new ArrayList<>();
+        parseArrow(in, filename, (sourceRow, tripData, error) -> {
+            if (tripData != null) {
+                tripDataList.add(tripData);
+            } else {
+                log.warn("Skipping invalid row {}: {}", sourceRow + 1, error);
+            }
+        });
+
+        if (tripDataList.isEmpty()) {
+            throw new FileUploadException("No valid trip data found in Arrow file");
+        }
+        log.info("Successfully parsed {} trip records from Arrow", tripDataList.size());
+        return tripDataList;
+    }
+
+    /**
+     * Parse Arrow dạng streaming: mỗi record batch được đưa vào handler.onBatch,
+     * row lỗi được báo qua handler.onRecord với error
+     *
+     * @return số row đã đọc
+     */
+    public int parseArrow(InputStream in, String filename, TripRecordHandler handler) throws FileUploadException {
+        log.info("Starting to parse Arrow file: {}", filename);
+
+        try (ArrowIpcReader reader = new ArrowIpcReader(in, maxMetadataBytes, maxBodyBytes)) {
+            ColumnPlan plan = compilePlan(reader.getFields());
+
+            int rows = 0;
+            ArrowIpcReader.RecordBatch recordBatch;
+            while ((recordBatch = reader.nextBatch()) != null) {
+                TripColumnBatch batch = readBatch(plan, recordBatch, rows, handler);
+                if (!batch.isEmpty()) {
+                    handler.onBatch(batch, UPLOAD_SOURCE);
+                }
+                rows += recordBatch.length();
+            }
+            return rows;
+        } catch (IOException e) {
+            log.error("Failed to parse Arrow file", e);
+            throw new FileUploadException("Failed to parse Arrow file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Chỉ số cột Arrow cho từng TripColumn, -1 nếu không có
+     */
+    private record ColumnPlan(int[] indexOf) {
+        private int of(TripColumn column) {
+            return indexOf[column.ordinal()];
+        }
+    }
+
+    private ColumnPlan compilePlan(List<ArrowIpcReader.Field> fields) throws FileUploadException {
+        int[] indexOf = new int[TripColumn.values().length];
+        Arrays.fill(indexOf, -1);
+        for (int i = 0; i < fields.size(); i++) {
+            TripColumn column = TripColumn.forName(fields.get(i).name());
+            if (column == null || indexOf[column.ordinal()] >= 0) {
+                continue;
+            }
+            ArrowIpcReader.Field field = fields.get(i);
+            if (!isSupported(column, field)) {
+                throw new FileUploadException("Arrow column '" + field.name() + "' has unsupported type for "
+                        + column.canonicalName());
+            }
+            indexOf[column.ordinal()] = i;
+        }
+
+        List<String> missing = new ArrayList<>();
+        for (TripColumn column : TripColumn.values()) {
+            if (column.isRequired() && indexOf[column.ordinal()] < 0) {
+                missing.add(column.canonicalName());
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new FileUploadException("Invalid Arrow schema. Missing required column(s): "
+                    + String.join(", ", missing));
+        }
+        return new ColumnPlan(indexOf);
+    }
+
+    private static boolean isSupported(TripColumn column, ArrowIpcReader.Field field) {
+        ArrowIpcReader.Kind kind = field.kind();
+        if (field.dictionaryId() != null) {
+            return kind == ArrowIpcReader.Kind.UTF8;
+        }
+        return switch (column) {
+            case VEHICLE_ID -> kind == ArrowIpcReader.Kind.UTF8 || kind == ArrowIpcReader.Kind.INT
+                    || (kind == ArrowIpcReader.Kind.FIXED_SIZE_BINARY && field.bitWidth() == 128);
+            case START_TIME, END_TIME -> kind == ArrowIpcReader.Kind.TIMESTAMP || kind == ArrowIpcReader.Kind.DATE
+                    || kind == ArrowIpcReader.Kind.INT || kind == ArrowIpcReader.Kind.UTF8;
+            case DISTANCE_KM, AVERAGE_SPEED, BATTERY_USED -> kind == ArrowIpcReader.Kind.FLOAT
+                    || kind == ArrowIpcReader.Kind.INT;
+            default -> kind == ArrowIpcReader.Kind.UTF8;
+        };
+    }
+
+    // ==================== BATCH ====================
+
+    private TripColumnBatch readBatch(ColumnPlan plan, ArrowIpcReader.RecordBatch recordBatch, int rowBase,
+                                      TripRecordHandler handler) {
+        int length = recordBatch.length();
+        ArrowIpcReader.Vector vehicleId = recordBatch.column(plan.of(TripColumn.VEHICLE_ID));
+        ArrowIpcReader.Vector startTime = recordBatch.column(plan.of(TripColumn.START_TIME));
+        ArrowIpcReader.Vector endTime = recordBatch.column(plan.of(TripColumn.END_TIME));
+        ArrowIpcReader.Vector distance = recordBatch.column(plan.of(TripColumn.DISTANCE_KM));
+        ArrowIpcReader.Vector speed = optional(recordBatch, plan, TripColumn.AVERAGE_SPEED);
+        ArrowIpcReader.Vector battery = optional(recordBatch, plan, TripColumn.BATTERY_USED);
+        StringColumn vehicleType = new StringColumn(recordBatch.column(plan.of(TripColumn.VEHICLE_TYPE)));
+        StringColumn startLocation = new StringColumn(optional(recordBatch, plan, TripColumn.START_LOCATION));
+        StringColumn endLocation = new StringColumn(optional(recordBatch, plan, TripColumn.END_LOCATION));
+        StringColumn gps = new StringColumn(optional(recordBatch, plan, TripColumn.GPS_COORDINATES));
+
+        TripColumnBatch batch = new TripColumnBatch(Math.max(1, length));
+        for (int i = 0; i < length; i++) {
+            int sourceRow = rowBase + i;
+            try {
+                String type = vehicleType.get(i);
+                if (type == null || type.isBlank()) {
+                    throw new IllegalArgumentException("vehicle_type is required");
+                }
+                long msb;
+                long lsb;
+                if (vehicleId.isNull(i)) {
+                    throw new IllegalArgumentException("vehicle_id is required");
+                }
+                switch (vehicleId.kind()) {
+                    case FIXED_SIZE_BINARY -> {
+                        msb = vehicleId.getFixedBinaryLong(i, 0);
+                        lsb = vehicleId.getFixedBinaryLong(i, 8);
+                    }
+                    case INT -> {
+                        msb = 0L;
+                        lsb = vehicleId.getLong(i);
+                    }
+                    default -> {
+                        UUID uuid = parseUUID(vehicleId.getString(i));
+                        msb = uuid.getMostSignificantBits();
+                        lsb = uuid.getLeastSignificantBits();
+                    }
+                }
+
+                batch.addRow(msb, lsb,
+                        epochMillis(startTime, i, "start_time"),
+                        epochMillis(endTime, i, "end_time"),
+                        requiredNumber(distance, i, "distance_km"),
+                        optionalNumber(speed, i),
+                        optionalNumber(battery, i),
+                        type.trim(),
+                        startLocation.get(i),
+                        endLocation.get(i),
+                        gps.get(i),
+                        sourceRow);
+            } catch (RuntimeException e) {
+                handler.onRecord(sourceRow, null, "Invalid data at row " + (sourceRow + 1) + ": " + e.getMessage());
+            }
+        }
+        return batch;
+    }
+
+    private static ArrowIpcReader.Vector optional(ArrowIpcReader.RecordBatch recordBatch, ColumnPlan plan,
+                                                  TripColumn column) {
+        int index = plan.of(column);
+        return index >= 0 ? recordBatch.column(index) : null;
+    }
+
+    private static long epochMillis(ArrowIpcReader.Vector vector, int i, String fieldName) {
+        if (vector.isNull(i)) {
+            throw new IllegalArgumentException(fieldName + " is required");
+        }
+        return switch (vector.kind()) {
+            case TIMESTAMP, DATE -> vector.getEpochMillis(i);
+            // Int: epoch millis
+            case INT -> vector.getLong(i);
+            default -> parseInstant(vector.getString(i), fieldName).toEpochMilli();
+        };
+    }
+
+    private static double requiredNumber(ArrowIpcReader.Vector vector, int i, String fieldName) {
+        if (vector.isNull(i)) {
+            throw new IllegalArgumentException(fieldName + " is required");
+        }
+        return vector.getDouble(i);
+    }
+
+    private static double optionalNumber(ArrowIpcReader.Vector vector, int i) {
+        return vector == null || vector.isNull(i) ? Double.NaN : vector.getDouble(i);
+    }
+
+    private static UUID parseUUID(String value) {
+        String trimmed = value.trim();
+        try {
+            return UUID.fromString(trimmed);
+        } catch (IllegalArgumentException e) {
+            try {
+                return new UUID(0L, Long.parseLong(trimmed));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("vehicle_id must be a valid UUID or numeric ID, got: " + value);
+            }
+        }
+    }
+
+    private static Instant parseInstant(String value, String fieldName) {
+        String trimmed = value.trim();
+        try {
+            return Instant.parse(trimmed);
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalDateTime.parse(trimmed).toInstant(ZoneOffset.UTC);
+            } catch (DateTimeParseException ex) {
+                throw new IllegalArgumentException(fieldName + " has invalid datetime format, got: " + value);
+            }
+        }
+    }
+
+    /**
+     * Đọc cột chuỗi; cột dictionary-encoded decode mỗi giá trị dictionary một lần cho cả batch
+     */
+    private static final class StringColumn {
+        private final ArrowIpcReader.Vector vector;
+        private final String[] decodedDictionary;
+
+        private StringColumn(ArrowIpcReader.Vector vector) {
+            this.vector = vector;
+            this.decodedDictionary = vector != null && vector.isDictionaryEncoded()
+                    ? new String[vector.dictionary().length()]
+                    : null;
+        }
+
+        private String get(int i) {
+            if (vector == null || vector.isNull(i)) {
+                return null;
+            }
+            if (decodedDictionary == null) {
+                return blankToNull(vector.getString(i));
+            }
+            int code = vector.getDictionaryIndex(i);
+            String value = decodedDictionary[code];
+            if (value == null) {
+                value = blankToNull(vector.dictionary().getString(code));
+                decodedDictionary[code] = value;
+            }
+            return value;
+        }
+
+        private static String blankToNull(String value) {
+            return value.isBlank() ? null : value.trim();
+        }
+    }
+}
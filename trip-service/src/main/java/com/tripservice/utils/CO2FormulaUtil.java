@@ -1,4 +1,385 @@
 package com.tripservice.utils;
 
-public class CO2FormulaUtil {
+import com.tripservice.exceptions.InvalidCalculationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Expression language cho công thức CO2.
+ * <p>
+ * Công thức được parse một lần và compile thành cây lambda chuyên biệt
+ * (constant folding, node var*const, var-const, ...) nên evaluate không cấp phát
+ * và không phải tra cứu tên biến.
+ * <p>
+ * Biến hỗ trợ: distance (km), duration (giờ), battery (kWh), speed (km/h),
+ * vehicle_factor, ice_factor (g CO2/km).
+ * Toán tử: + - * / ^, dấu ngoặc, hàm min(a, b), max(a, b), abs(a).
+ * <p>
+ * Ví dụ: {@code distance * (ice_factor - vehicle_factor) / 1000}
+ */
+public final class CO2FormulaUtil {
+    public static final int DISTANCE = 0;
+    public static final int DURATION = 1;
+    public static final int BATTERY = 2;
+    public static final int SPEED = 3;
+    public static final int VEHICLE_FACTOR = 4;
+    public static final int ICE_FACTOR = 5;
+    public static final int VARIABLE_COUNT = 6;
+
+    private static final String[] VARIABLE_NAMES = {
+            "distance", "duration", "battery", "speed", "vehicle_factor", "ice_factor"
+    };
+
+    private CO2FormulaUtil() {
+    }
+
+    /**
+     * Công thức đã compile. vars được index theo các hằng DISTANCE, DURATION, ...
+     */
+    @FunctionalInterface
+    public interface CompiledFormula {
+        double evaluate(double[] vars);
+    }
+
+    /**
+     * Parse + compile công thức
+     *
+     * @throws InvalidCalculationException nếu công thức sai cú pháp hoặc dùng biến/hàm không hỗ trợ
+     */
+    public static CompiledFormula compile(String expression) {
+        if (expression == null || expression.isBlank()) {
+            throw new InvalidCalculationException("CO2 formula is empty");
+        }
+        Parser parser = new Parser(tokenize(expression), expression);
+        Node root = parser.parseExpression();
+        parser.expectEnd();
+        return root.compile();
+    }
+
+    /**
+     * Tạo mảng biến cho evaluate
+     */
+    public static double[] variables(double distanceKm, double durationHours, double batteryKwh,
+                                     double speedKmh, double vehicleFactor, double iceFactor) {
+        double[] vars = new double[VARIABLE_COUNT];
+        vars[DISTANCE] = distanceKm;
+        vars[DURATION] = durationHours;
+        vars[BATTERY] = batteryKwh;
+        vars[SPEED] = speedKmh;
+        vars[VEHICLE_FACTOR] = vehicleFactor;
+        vars[ICE_FACTOR] = iceFactor;
+        return vars;
+    }
+
+    // ==================== AST ====================
+
+    private sealed interface Node permits Constant, Variable, Binary, Negate, Call {
+        CompiledFormula compile();
+    }
+
+    private record Constant(double value) implements Node {
+        @Override
+        public CompiledFormula compile() {
+            double v = value;
+            return vars -> v;
+        }
+    }
+
+    private record Variable(int index) implements Node {
+        @Override
+        public CompiledFormula compile() {
+            return switch (index) {
+                case DISTANCE -> vars -> vars[DISTANCE];
+                case DURATION -> vars -> vars[DURATION];
+                case BATTERY -> vars -> vars[BATTERY];
+                case SPEED -> vars -> vars[SPEED];
+                case VEHICLE_FACTOR -> vars -> vars[VEHICLE_FACTOR];
+                default -> vars -> vars[ICE_FACTOR];
+            };
+        }
+    }
+
+    private record Negate(Node operand) implements Node {
+        @Override
+        public CompiledFormula compile() {
+            CompiledFormula f = operand.compile();
+            return vars -> -f.evaluate(vars);
+        }
+    }
+
+    private record Binary(char op, Node left, Node right) implements Node {
+        @Override
+        public CompiledFormula compile() {
+            // Specialize var (op) const / const (op) var để bỏ một lần gọi lambda.
+            // '/' giữ phép chia thật: nhân với 1/c lệch ở bit cuối và đổi kết quả sau khi làm tròn
+            if (left instanceof Variable l && right instanceof Constant r) {
+                int i = l.index();
+                double c = r.value();
+                return switch (op) {
+                    case '+' -> vars -> vars[i] + c;
+                    case '-' -> vars -> vars[i] - c;
+                    case '*' -> vars -> vars[i] * c;
+                    case '/' -> vars -> vars[i] / c;
+                    default -> vars -> Math.pow(vars[i], c);
+                };
+            }
+            if (left instanceof Constant l && right instanceof Variable r) {
+                double c = l.value();
+                int i = r.index();
+                return switch (op) {
+                    case '+' -> vars -> c + vars[i];
+                    case '-' -> vars -> c - vars[i];
+                    case '*' -> vars -> c * vars[i];
+                    case '/' -> vars -> c / vars[i];
+                    default -> vars -> Math.pow(c, vars[i]);
+                };
+            }
+            if (left instanceof Variable l && right instanceof Variable r) {
+                int a = l.index();
+                int b = r.index();
+                return switch (op) {
+                    case '+' -> vars -> vars[a] + vars[b];
+                    case '-' -> vars -> vars[a] - vars[b];
+                    case '*' -> vars -> vars[a] * vars[b];
+                    case '/' -> vars -> vars[a] / vars[b];
+                    default -> vars -> Math.pow(vars[a], vars[b]);
+                };
+            }
+            if (right instanceof Constant r) {
+                CompiledFormula f = left.compile();
+                double c = r.value();
+                return switch (op) {
+                    case '+' -> vars -> f.evaluate(vars) + c;
+                    case '-' -> vars -> f.evaluate(vars) - c;
+                    case '*' -> vars -> f.evaluate(vars) * c;
+                    case '/' -> vars -> f.evaluate(vars) / c;
+                    default -> vars -> Math.pow(f.evaluate(vars), c);
+                };
+            }
+            CompiledFormula f = left.compile();
+            CompiledFormula g = right.compile();
+            return switch (op) {
+                case '+' -> vars -> f.evaluate(vars) + g.evaluate(vars);
+                case '-' -> vars -> f.evaluate(vars) - g.evaluate(vars);
+                case '*' -> vars -> f.evaluate(vars) * g.evaluate(vars);
+                case '/' -> vars -> f.evaluate(vars) / g.evaluate(vars);
+                default -> vars -> Math.pow(f.evaluate(vars), g.evaluate(vars));
+            };
+        }
+    }
+
+    private record Call(String function, List<Node> args) implements Node {
+        @Override
+        public CompiledFormula compile() {
+            CompiledFormula a = args.get(0).compile();
+            return switch (function) {
+                case "abs" -> vars -> Math.abs(a.evaluate(vars));
+                case "min" -> {
+                    CompiledFormula b = args.get(1).compile();
+                    yield vars -> Math.min(a.evaluate(vars), b.evaluate(vars));
+                }
+                default -> {
+                    CompiledFormula b = args.get(1).compile();
+                    yield vars -> Math.max(a.evaluate(vars), b.evaluate(vars));
+                }
+            };
+        }
+    }
+
+    private static double apply(char op, double a, double b) {
+        return switch (op) {
+            case '+' -> a + b;
+            case '-' -> a - b;
+            case '*' -> a * b;
+            case '/' -> a / b;
+            default -> Math.pow(a, b);
+        };
+    }
+
+    // ==================== PARSER ====================
+
+    private static List<String> tokenize(String expression) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        int n = expression.length();
+        while (i < n) {
+            char ch = expression.charAt(i);
+            if (Character.isWhitespace(ch)) {
+                i++;
+            } else if (Character.isDigit(ch) || ch == '.') {
+                int start = i;
+                while (i < n && (Character.isDigit(expression.charAt(i)) || expression.charAt(i) == '.')) {
+                    i++;
+                }
+                tokens.add(expression.substring(start, i));
+            } else if (Character.isLetter(ch) || ch == '_') {
+                int start = i;
+                while (i < n && (Character.isLetterOrDigit(expression.charAt(i)) || expression.charAt(i) == '_')) {
+                    i++;
+                }
+                tokens.add(expression.substring(start, i).toLowerCase(Locale.ROOT));
+            } else if ("+-*/^(),".indexOf(ch) >= 0) {
+                tokens.add(String.valueOf(ch));
+                i++;
+            } else {
+                throw new InvalidCalculationException(
+                        "Invalid character '" + ch + "' in CO2 formula: " + expression);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Recursive descent parser, constant folding ngay khi dựng node
+     */
+    private static final class Parser {
+        private final List<String> tokens;
+        private final String expression;
+        private int position;
+
+        private Parser(List<String> tokens, String expression) {
+            this.tokens = tokens;
+            this.expression = expression;
+        }
+
+        // expression := term (('+' | '-') term)*
+        private Node parseExpression() {
+            Node node = parseTerm();
+            while (peek("+") || peek("-")) {
+                char op = next().charAt(0);
+                node = binary(op, node, parseTerm());
+            }
+            return node;
+        }
+
+        // term := unary (('*' | '/') unary)*
+        private Node parseTerm() {
+            Node node = parseUnary();
+            while (peek("*") || peek("/")) {
+                char op = next().charAt(0);
+                node = binary(op, node, parseUnary());
+            }
+            return node;
+        }
+
+        // unary := ('-' | '+') unary | power
+        private Node parseUnary() {
+            if (peek("-")) {
+                next();
+                Node operand = parseUnary();
+                return operand instanceof Constant c ? new Constant(-c.value()) : new Negate(operand);
+            }
+            if (peek("+")) {
+                next();
+                return parseUnary();
+            }
+            return parsePower();
+        }
+
+        // power := primary ('^' unary)?
+        private Node parsePower() {
+            Node base = parsePrimary();
+            if (peek("^")) {
+                next();
+                return binary('^', base, parseUnary());
+            }
+            return base;
+        }
+
+        // primary := number | variable | function '(' args ')' | '(' expression ')'
+        private Node parsePrimary() {
+            String token = next();
+            if (token.equals("(")) {
+                Node node = parseExpression();
+                expect(")");
+                return node;
+            }
+            if (Character.isDigit(token.charAt(0)) || token.charAt(0) == '.') {
+                try {
+                    return new Constant(Double.parseDouble(token));
+                } catch (NumberFormatException e) {
+                    throw error("Invalid number '" + token + "'");
+                }
+            }
+            if (Character.isLetter(token.charAt(0)) || token.charAt(0) == '_') {
+                if (peek("(")) {
+                    return parseCall(token);
+                }
+                for (int i = 0; i < VARIABLE_NAMES.length; i++) {
+                    if (VARIABLE_NAMES[i].equals(token)) {
+                        return new Variable(i);
+                    }
+                }
+                throw error("Unknown variable '" + token + "'");
+            }
+            throw error("Unexpected token '" + token + "'");
+        }
+
+        private Node parseCall(String function) {
+            int arity = switch (function) {
+                case "abs" -> 1;
+                case "min", "max" -> 2;
+                default -> throw error("Unknown function '" + function + "'");
+            };
+            expect("(");
+            List<Node> args = new ArrayList<>();
+            args.add(parseExpression());
+            while (peek(",")) {
+                next();
+                args.add(parseExpression());
+            }
+            expect(")");
+            if (args.size() != arity) {
+                throw error("Function '" + function + "' expects " + arity + " argument(s)");
+            }
+
+            boolean allConstant = args.stream().allMatch(a -> a instanceof Constant);
+            if (allConstant) {
+                double a = ((Constant) args.get(0)).value();
+                return switch (function) {
+                    case "abs" -> new Constant(Math.abs(a));
+                    case "min" -> new Constant(Math.min(a, ((Constant) args.get(1)).value()));
+                    default -> new Constant(Math.max(a, ((Constant) args.get(1)).value()));
+                };
+            }
+            return new Call(function, args);
+        }
+
+        private Node binary(char op, Node left, Node right) {
+            if (left instanceof Constant l && right instanceof Constant r) {
+                return new Constant(apply(op, l.value(), r.value()));
+            }
+            return new Binary(op, left, right);
+        }
+
+        private boolean peek(String token) {
+            return position < tokens.size() && tokens.get(position).equals(token);
+        }
+
+        private String next() {
+            if (position >= tokens.size()) {
+                throw error("Unexpected end of formula");
+            }
+            return tokens.get(position++);
+        }
+
+        private void expect(String token) {
+            if (!peek(token)) {
+                throw error("Expected '" + token + "'");
+            }
+            position++;
+        }
+
+        private void expectEnd() {
+            if (position < tokens.size()) {
+                throw error("Unexpected token '" + tokens.get(position) + "'");
+            }
+        }
+
+        private InvalidCalculationException error(String message) {
+            return new InvalidCalculationException(message + " in CO2 formula: " + expression);
+        }
+    }
 }
@@ -10,6 +10,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.time.Instant;
@@ -18,6 +19,7 @@ import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
@@ -39,113 +41,159 @@ public class CSVParser {
      */
 
     public List<TripData> parseCSV(MultipartFile file) throws FileUploadException {
-        log.info("Starting to parse CSV file: {}", file.getOriginalFilename());
+        try (InputStream in = file.getInputStream()) {
+            return parseCSV(in, file.getOriginalFilename());
+        } catch (IOException e) {
+            log.error("Failed to read CSV file", e);
+            throw new FileUploadException("Failed to parse CSV file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parse CSV từ InputStream (dùng cho reprocessing từ raw archive)
+     */
+    public List<TripData> parseCSV(InputStream in, String filename) throws FileUploadException {
         List<TripData> tripDataList = new ArrayList<>();
+        parseCSV(in, filename, (sourceRow, tripData, error) -> {
+            if (tripData != null) {
+                tripDataList.add(tripData);
+            } else {
+                log.warn("Skipping invalid row {}: {}", sourceRow + 2, error);
+            }
+        });
 
-        List<String[]> rows;
-        try (Reader reader = new InputStreamReader(file.getInputStream());
-             CSVReader csvReader = new CSVReader(reader)) {
-            rows = csvReader.readAll();
+        if (tripDataList.isEmpty()) {
+            throw new FileUploadException("No valid trip data found in CSV file");
+        }
+        log.info("Successfully parsed {} trip records from CSV", tripDataList.size());
+        return tripDataList;
+    }
 
-            if (rows.isEmpty()) {
+    /**
+     * Parse CSV dạng streaming, từng row được đẩy vào handler ngay khi đọc xong
+     *
+     * @return số data row đã đọc (không tính header)
+     */
+    public int parseCSV(InputStream in, String filename, TripRecordHandler handler) throws FileUploadException {
+        log.info("Starting to parse CSV file: {}", filename);
+
+        try (Reader reader = new InputStreamReader(in);
+             CSVReader csvReader = new CSVReader(reader)) {
+            String[] header = csvReader.readNext();
+            if (header == null) {
                 throw new FileUploadException("CSV file is empty");
             }
-            validateHeader(rows.get(0));
-
-            // Parse data rows (skip header)
-            for (int i = 1; i < rows.size(); i++) {
-                String[] row = rows.get(i);
+            ColumnPlan plan = compilePlan(header);
 
+            int sourceRow = 0;
+            String[] row;
+            while ((row = csvReader.readNext()) != null) {
                 try {
-                    TripData tripData = mapRowToTripData(row, i + 1);
-                    tripDataList.add(tripData);
-                } catch (Exception e) {
-                    log.warn("Skipping invalid row {}: {}", i + 1, e.getMessage());
+                    TripData tripData = mapRowToTripData(plan, row, sourceRow + 2);
+                    tripData.setSourceRow(sourceRow);
+                    handler.onRecord(sourceRow, tripData, null);
+                } catch (FileUploadException e) {
+                    handler.onRecord(sourceRow, null, e.getMessage());
                 }
+                sourceRow++;
             }
-
-            if (tripDataList.isEmpty()) {
-                throw new FileUploadException("No valid trip data found in CSV file");
-            }
-            log.info("Successfully parsed {} trip records from CSV", tripDataList.size());
-            return tripDataList;
+            return sourceRow;
         } catch(IOException | CsvException e){
             log.error("Failed to parse CSV file", e);
             throw new FileUploadException("Failed to parse CSV file: " + e.getMessage());
         }
+    }
 
+    /**
+     * Decode giá trị một cột vào builder
+     */
+    @FunctionalInterface
+    private interface ColumnDecoder {
+        void decode(String value, TripData.TripDataBuilder builder, int rowNumber);
     }
 
     /**
-     * Validate CSV header
+     * Kế hoạch đọc row, compile một lần theo header: chỉ số cột + decoder của từng cột được bind.
+     * Cột thừa không bao giờ được trim / parse.
      */
-    private void validateHeader(String[] header) throws FileUploadException {
-        if (header.length < 5) {
-            throw new FileUploadException(
-                    "Invalid CSV header. Expected at least 5 columns: " +
-                            "vehicle_id, start_time, end_time, distance_km, vehicle_type"
-            );
-        }
-        log.debug("CSV Header: {}", String.join(", ", header));
+    private record ColumnPlan(int[] indexes, ColumnDecoder[] decoders) {
     }
 
     /**
-     * Map CSV row thành TripData
+     * Bind header theo tên / alias và compile thành ColumnPlan
      */
-    private TripData mapRowToTripData(String[] row, int rowNumber) throws FileUploadException {
-        try {
-            // Parse required fields
-            UUID vehicleId = parseUUID(row[0], "vehicle_id", rowNumber);
-            Instant startTime = parseInstant(row[1], "start_time", rowNumber);
-            Instant endTime = parseInstant(row[2], "end_time", rowNumber);
-            Double distanceKm = parseDouble(row[3], "distance_km", rowNumber);
-            String vehicleType = parseString(row[4], "vehicle_type", rowNumber);
-
-            // Validate logic
-            validateTripData(startTime, endTime, distanceKm, rowNumber);
-
-            // Parse optional fields
-            Double averageSpeed = row.length > 5 ? parseDoubleOptional(row[5]) : null;
-            Double batteryUsed = row.length > 6 ? parseDoubleOptional(row[6]) : null;
-            String startLocation = row.length > 7 ? parseStringOptional(row[7]) : null;
-            String endLocation = row.length > 8 ? parseStringOptional(row[8]) : null;
-            String gpsCoordinates = row.length > 9 ? parseStringOptional(row[9]) : null;
-
-            return TripData.builder()
-                    .vehicleId(vehicleId)
-                    .startTime(startTime)
-                    .endTime(endTime)
-                    .distanceKm(distanceKm)
-                    .vehicleType(vehicleType)
-                    .averageSpeed(averageSpeed)
-                    .batteryUsed(batteryUsed)
-                    .startLocation(startLocation)
-                    .endLocation(endLocation)
-                    .gpsCoordinates(gpsCoordinates)
-                    .uploadSource("CSV")
-                    .build();
+    private ColumnPlan compilePlan(String[] header) throws FileUploadException {
+        int[] indexOf = new int[TripColumn.values().length];
+        Arrays.fill(indexOf, -1);
+        for (int i = 0; i < header.length; i++) {
+            TripColumn column = TripColumn.forName(header[i]);
+            if (column == null) {
+                continue;
+            }
+            if (indexOf[column.ordinal()] >= 0) {
+                log.debug("CSV column '{}' duplicates {}, ignored", header[i], column.canonicalName());
+                continue;
+            }
+            indexOf[column.ordinal()] = i;
+        }
 
-        } catch (Exception e) {
-            throw new FileUploadException(
-                    "Invalid data at row " + rowNumber + ": " + e.getMessage()
-            );
+        List<String> missing = new ArrayList<>();
+        for (TripColumn column : TripColumn.values()) {
+            if (column.isRequired() && indexOf[column.ordinal()] < 0) {
+                missing.add(column.canonicalName());
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new FileUploadException("Invalid CSV header. Missing required column(s): "
+                    + String.join(", ", missing) + ". Header: " + String.join(", ", header));
+        }
+
+        List<Integer> indexes = new ArrayList<>();
+        List<ColumnDecoder> decoders = new ArrayList<>();
+        for (TripColumn column : TripColumn.values()) {
+            if (indexOf[column.ordinal()] >= 0) {
+                indexes.add(indexOf[column.ordinal()]);
+                decoders.add(decoderFor(column));
+            }
         }
+        log.debug("CSV Header: {}, bound {} of {} columns", String.join(", ", header), indexes.size(), header.length);
+        return new ColumnPlan(indexes.stream().mapToInt(Integer::intValue).toArray(),
+                decoders.toArray(ColumnDecoder[]::new));
+    }
+
+    private ColumnDecoder decoderFor(TripColumn column) {
+        return switch (column) {
+            case VEHICLE_ID -> (v, b, row) -> b.vehicleId(parseUUID(v, "vehicle_id", row));
+            case START_TIME -> (v, b, row) -> b.startTime(parseInstant(v, "start_time", row));
+            case END_TIME -> (v, b, row) -> b.endTime(parseInstant(v, "end_time", row));
+            case DISTANCE_KM -> (v, b, row) -> b.distanceKm(parseDouble(v, "distance_km", row));
+            case VEHICLE_TYPE -> (v, b, row) -> b.vehicleType(parseString(v, "vehicle_type", row));
+            case AVERAGE_SPEED -> (v, b, row) -> b.averageSpeed(parseDoubleOptional(v));
+            case BATTERY_USED -> (v, b, row) -> b.batteryUsed(parseDoubleOptional(v));
+            case START_LOCATION -> (v, b, row) -> b.startLocation(parseStringOptional(v));
+            case END_LOCATION -> (v, b, row) -> b.endLocation(parseStringOptional(v));
+            case GPS_COORDINATES -> (v, b, row) -> b.gpsCoordinates(parseStringOptional(v));
+        };
     }
 
     /**
-     * Validate trip data logic
+     * Map CSV row thành TripData theo plan đã compile
      */
-    private void validateTripData(Instant startTime, Instant endTime,
-                                  Double distanceKm, int rowNumber) throws FileUploadException {
-        if (endTime.isBefore(startTime)) {
-            throw new FileUploadException(
-                    "Row " + rowNumber + ": End time must be after start time"
-            );
-        }
+    private TripData mapRowToTripData(ColumnPlan plan, String[] row, int rowNumber) throws FileUploadException {
+        try {
+            TripData.TripDataBuilder builder = TripData.builder().uploadSource("CSV");
+            int[] indexes = plan.indexes();
+            ColumnDecoder[] decoders = plan.decoders();
+            for (int i = 0; i < indexes.length; i++) {
+                // Row ngắn hơn header: cột thiếu coi như rỗng
+                String value = indexes[i] < row.length ? row[indexes[i]] : null;
+                decoders[i].decode(value, builder, rowNumber);
+            }
+            return builder.build();
 
-        if (distanceKm <= 0) {
+        } catch (Exception e) {
             throw new FileUploadException(
-                    "Row " + rowNumber + ": Distance must be greater than 0"
+                    "Invalid data at row " + rowNumber + ": " + e.getMessage()
             );
         }
     }
@@ -0,0 +1,243 @@
+package com.tripservice.utils;
+
+import java.util.Arrays;
+
+/**
+ * Nén time-series kiểu Gorilla (Facebook, VLDB 2015):
+ * <ul>
+ *     <li>timestamps: delta-of-delta, mã hoá theo bucket độ dài biến đổi</li>
+ *     <li>values: XOR với giá trị trước, chỉ ghi phần bit có nghĩa</li>
+ * </ul>
+ * Mỗi cột được encode độc lập thành byte[].
+ */
+public final class GorillaCodec {
+
+    private GorillaCodec() {
+    }
+
+    // ==================== TIMESTAMPS ====================
+
+    /**
+     * Encode timestamps (epoch millis, tăng dần)
+     */
+    public static byte[] encodeTimestamps(long[] timestamps, int count) {
+        BitWriter out = new BitWriter(count * 2 + 16);
+        out.writeBits(count, 32);
+        if (count == 0) {
+            return out.toByteArray();
+        }
+        out.writeBits(timestamps[0], 64);
+        if (count == 1) {
+            return out.toByteArray();
+        }
+        long prevDelta = timestamps[1] - timestamps[0];
+        out.writeBits(prevDelta, 64);
+
+        for (int i = 2; i < count; i++) {
+            long delta = timestamps[i] - timestamps[i - 1];
+            long dod = delta - prevDelta;
+            if (dod == 0) {
+                out.writeBit(0);
+            } else if (dod >= -64 && dod <= 63) {
+                out.writeBits(0b10, 2);
+                out.writeBits(dod, 7);
+            } else if (dod >= -256 && dod <= 255) {
+                out.writeBits(0b110, 3);
+                out.writeBits(dod, 9);
+            } else if (dod >= -2048 && dod <= 2047) {
+                out.writeBits(0b1110, 4);
+                out.writeBits(dod, 12);
+            } else {
+                out.writeBits(0b1111, 4);
+                out.writeBits(dod, 64);
+            }
+            prevDelta = delta;
+        }
+        return out.toByteArray();
+    }
+
+    public static long[] decodeTimestamps(byte[] encoded) {
+        BitReader in = new BitReader(encoded);
+        int count = (int) in.readBits(32);
+        long[] timestamps = new long[count];
+        if (count == 0) {
+            return timestamps;
+        }
+        timestamps[0] = in.readBits(64);
+        if (count == 1) {
+            return timestamps;
+        }
+        long delta = in.readBits(64);
+        timestamps[1] = timestamps[0] + delta;
+
+        for (int i = 2; i < count; i++) {
+            long dod;
+            if (in.readBit() == 0) {
+                dod = 0;
+            } else if (in.readBit() == 0) {
+                dod = in.readSigned(7);
+            } else if (in.readBit() == 0) {
+                dod = in.readSigned(9);
+            } else if (in.readBit() == 0) {
+                dod = in.readSigned(12);
+            } else {
+                dod = in.readBits(64);
+            }
+            delta += dod;
+            timestamps[i] = timestamps[i - 1] + delta;
+        }
+        return timestamps;
+    }
+
+    // ==================== VALUES ====================
+
+    /**
+     * Encode values bằng XOR với giá trị trước
+     */
+    public static byte[] encodeValues(double[] values, int count) {
+        BitWriter out = new BitWriter(count * 2 + 16);
+        out.writeBits(count, 32);
+        if (count == 0) {
+            return out.toByteArray();
+        }
+        long prev = Double.doubleToRawLongBits(values[0]);
+        out.writeBits(prev, 64);
+
+        int prevLeading = Integer.MAX_VALUE;
+        int prevTrailing = 0;
+        for (int i = 1; i < count; i++) {
+            long bits = Double.doubleToRawLongBits(values[i]);
+            long xor = bits ^ prev;
+            if (xor == 0) {
+                out.writeBit(0);
+            } else {
+                out.writeBit(1);
+                // Leading zeros giới hạn 31 để vừa 5 bit
+                int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                int trailing = Long.numberOfTrailingZeros(xor);
+                if (prevLeading != Integer.MAX_VALUE && leading >= prevLeading && trailing >= prevTrailing) {
+                    // Dùng lại cửa sổ bit của lần trước
+                    out.writeBit(0);
+                    int significant = 64 - prevLeading - prevTrailing;
+                    out.writeBits(xor >>> prevTrailing, significant);
+                } else {
+                    out.writeBit(1);
+                    int significant = 64 - leading - trailing;
+                    out.writeBits(leading, 5);
+                    // significant trong [1, 64], ghi significant - 1 vào 6 bit
+                    out.writeBits(significant - 1, 6);
+                    out.writeBits(xor >>> trailing, significant);
+                    prevLeading = leading;
+                    prevTrailing = trailing;
+                }
+            }
+            prev = bits;
+        }
+        return out.toByteArray();
+    }
+
+    public static double[] decodeValues(byte[] encoded) {
+        BitReader in = new BitReader(encoded);
+        int count = (int) in.readBits(32);
+        double[] values = new double[count];
+        if (count == 0) {
+            return values;
+        }
+        long prev = in.readBits(64);
+        values[0] = Double.longBitsToDouble(prev);
+
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 1; i < count; i++) {
+            if (in.readBit() == 1) {
+                if (in.readBit() == 1) {
+                    leading = (int) in.readBits(5);
+                    int significant = (int) in.readBits(6) + 1;
+                    trailing = 64 - leading - significant;
+                }
+                int significant = 64 - leading - trailing;
+                long xor = in.readBits(significant) << trailing;
+                prev ^= xor;
+            }
+            values[i] = Double.longBitsToDouble(prev);
+        }
+        return values;
+    }
+
+    // ==================== BIT I/O ====================
+
+    private static final class BitWriter {
+        private byte[] buffer;
+        private long bitPosition;
+
+        private BitWriter(int initialBytes) {
+            this.buffer = new byte[Math.max(16, initialBytes)];
+        }
+
+        private void writeBit(int bit) {
+            ensureCapacity(1);
+            if (bit != 0) {
+                int index = (int) (bitPosition >>> 3);
+                buffer[index] |= (byte) (0x80 >>> (bitPosition & 7));
+            }
+            bitPosition++;
+        }
+
+        /**
+         * Ghi {@code bits} bit thấp của value (MSB trước)
+         */
+        private void writeBits(long value, int bits) {
+            ensureCapacity(bits);
+            for (int i = bits - 1; i >= 0; i--) {
+                if (((value >>> i) & 1L) != 0) {
+                    int index = (int) (bitPosition >>> 3);
+                    buffer[index] |= (byte) (0x80 >>> (bitPosition & 7));
+                }
+                bitPosition++;
+            }
+        }
+
+        private void ensureCapacity(int bits) {
+            long neededBytes = (bitPosition + bits + 7) >>> 3;
+            if (neededBytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, (int) Math.max(neededBytes, buffer.length * 2L));
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, (int) ((bitPosition + 7) >>> 3));
+        }
+    }
+
+    private static final class BitReader {
+        private final byte[] buffer;
+        private long bitPosition;
+
+        private BitReader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        private int readBit() {
+            int index = (int) (bitPosition >>> 3);
+            int bit = (buffer[index] >>> (7 - (bitPosition & 7))) & 1;
+            bitPosition++;
+            return bit;
+        }
+
+        private long readBits(int bits) {
+            long value = 0;
+            for (int i = 0; i < bits; i++) {
+                value = (value << 1) | readBit();
+            }
+            return value;
+        }
+
+        /**
+         * Đọc số có dấu (two's complement) {@code bits} bit
+         */
+        private long readSigned(int bits) {
+            long value = readBits(bits);
+            return (value << (64 - bits)) >> (64 - bits);
+        }
+    }
+}
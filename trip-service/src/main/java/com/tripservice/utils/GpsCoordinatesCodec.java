@@ -0,0 +1,243 @@
+package com.tripservice.utils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encode / decode GPS track theo kiểu polyline: toạ độ được lượng tử hoá về 1e-5 độ,
+ * lưu delta so với điểm trước, zigzag rồi ghi dạng varint.
+ * <p>
+ * Layout: varint(pointCount) + [zigzag varint(dLat), zigzag varint(dLng)] * pointCount
+ */
+@Component
+@Slf4j
+public class GpsCoordinatesCodec {
+    private static final double PRECISION = 1e5;
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+
+    /**
+     * Encode JSON string (mảng [[lat, lng], ...] hoặc [{"lat":..,"lng":..}, ...]) thành byte[]
+     *
+     * @return encoded bytes, hoặc null nếu JSON không đúng định dạng
+     */
+    public byte[] encode(String gpsJson) {
+        if (StringUtils.isBlank(gpsJson)) {
+            return null;
+        }
+        try {
+            JsonElement root = JsonParser.parseString(gpsJson);
+            if (!root.isJsonArray()) {
+                return null;
+            }
+            JsonArray points = root.getAsJsonArray();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(points.size() * 4 + 4);
+            writeVarint(out, points.size());
+
+            long prevLat = 0;
+            long prevLng = 0;
+            for (JsonElement point : points) {
+                double[] latLng = readPoint(point);
+                if (latLng == null) {
+                    return null;
+                }
+                long lat = Math.round(latLng[0] * PRECISION);
+                long lng = Math.round(latLng[1] * PRECISION);
+                writeVarint(out, zigzag(lat - prevLat));
+                writeVarint(out, zigzag(lng - prevLng));
+                prevLat = lat;
+                prevLng = lng;
+            }
+            return out.toByteArray();
+        } catch (JsonParseException | IllegalStateException | NumberFormatException e) {
+            log.debug("GPS coordinates are not in a supported format: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Decode byte[] thành danh sách điểm [lat, lng]
+     */
+    public List<double[]> decode(byte[] encoded) {
+        if (encoded == null || encoded.length == 0) {
+            return List.of();
+        }
+        Cursor cursor = new Cursor(encoded);
+        int count = (int) cursor.readVarint();
+        List<double[]> points = new ArrayList<>(count);
+
+        long lat = 0;
+        long lng = 0;
+        for (int i = 0; i < count; i++) {
+            lat += unzigzag(cursor.readVarint());
+            lng += unzigzag(cursor.readVarint());
+            points.add(new double[]{lat / PRECISION, lng / PRECISION});
+        }
+        return points;
+    }
+
+    /**
+     * Decode byte[] về lại JSON string [[lat, lng], ...] cho detail view
+     */
+    public String decodeToJson(byte[] encoded) {
+        if (encoded == null || encoded.length == 0) {
+            return null;
+        }
+        List<double[]> points = decode(encoded);
+        StringBuilder sb = new StringBuilder(points.size() * 24 + 2);
+        sb.append('[');
+        for (int i = 0; i < points.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            double[] p = points.get(i);
+            sb.append('[').append(p[0]).append(',').append(p[1]).append(']');
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Số điểm trong track (chỉ đọc header, không decode)
+     */
+    public int pointCount(byte[] encoded) {
+        if (encoded == null || encoded.length == 0) {
+            return 0;
+        }
+        return (int) new Cursor(encoded).readVarint();
+    }
+
+    /**
+     * Điểm đầu và điểm cuối của track {startLat, startLng, endLat, endLng}, null nếu không có điểm nào.
+     * Chỉ cộng dồn delta, không tạo list điểm.
+     */
+    public double[] endpoints(byte[] encoded) {
+        if (encoded == null || encoded.length == 0) {
+            return null;
+        }
+        Cursor cursor = new Cursor(encoded);
+        int count = (int) cursor.readVarint();
+        if (count == 0) {
+            return null;
+        }
+        long lat = unzigzag(cursor.readVarint());
+        long lng = unzigzag(cursor.readVarint());
+        double startLat = lat / PRECISION;
+        double startLng = lng / PRECISION;
+        for (int i = 1; i < count; i++) {
+            lat += unzigzag(cursor.readVarint());
+            lng += unzigzag(cursor.readVarint());
+        }
+        return new double[]{startLat, startLng, lat / PRECISION, lng / PRECISION};
+    }
+
+    /**
+     * Tính tổng quãng đường (km) theo haversine trực tiếp trên byte[],
+     * không tạo list điểm trung gian
+     */
+    public double haversineDistanceKm(byte[] encoded) {
+        if (encoded == null || encoded.length == 0) {
+            return 0.0;
+        }
+        Cursor cursor = new Cursor(encoded);
+        int count = (int) cursor.readVarint();
+        if (count < 2) {
+            return 0.0;
+        }
+
+        long lat = unzigzag(cursor.readVarint());
+        long lng = unzigzag(cursor.readVarint());
+        double prevLatRad = Math.toRadians(lat / PRECISION);
+        double prevLngRad = Math.toRadians(lng / PRECISION);
+        double prevCosLat = Math.cos(prevLatRad);
+
+        double totalKm = 0.0;
+        for (int i = 1; i < count; i++) {
+            lat += unzigzag(cursor.readVarint());
+            lng += unzigzag(cursor.readVarint());
+            double latRad = Math.toRadians(lat / PRECISION);
+            double lngRad = Math.toRadians(lng / PRECISION);
+            double cosLat = Math.cos(latRad);
+
+            double sinDLat = Math.sin((latRad - prevLatRad) / 2);
+            double sinDLng = Math.sin((lngRad - prevLngRad) / 2);
+            double a = sinDLat * sinDLat + prevCosLat * cosLat * sinDLng * sinDLng;
+            totalKm += 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+
+            prevLatRad = latRad;
+            prevLngRad = lngRad;
+            prevCosLat = cosLat;
+        }
+        return totalKm;
+    }
+
+    // ==================== ENCODING UTILITIES ====================
+
+    private double[] readPoint(JsonElement point) {
+        if (point.isJsonArray()) {
+            JsonArray pair = point.getAsJsonArray();
+            if (pair.size() < 2) {
+                return null;
+            }
+            return new double[]{pair.get(0).getAsDouble(), pair.get(1).getAsDouble()};
+        }
+        if (point.isJsonObject()) {
+            JsonObject obj = point.getAsJsonObject();
+            JsonElement lat = obj.has("lat") ? obj.get("lat") : obj.get("latitude");
+            JsonElement lng = obj.has("lng") ? obj.get("lng")
+                    : obj.has("lon") ? obj.get("lon") : obj.get("longitude");
+            if (lat == null || lng == null) {
+                return null;
+            }
+            return new double[]{lat.getAsDouble(), lng.getAsDouble()};
+        }
+        return null;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static final class Cursor {
+        private final byte[] data;
+        private int position;
+
+        private Cursor(byte[] data) {
+            this.data = data;
+        }
+
+        private long readVarint() {
+            long result = 0;
+            int shift = 0;
+            while (true) {
+                byte b = data[position++];
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+                shift += 7;
+            }
+        }
+    }
+}
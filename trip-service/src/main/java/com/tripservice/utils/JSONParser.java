@@ -1,7 +1,8 @@
 package com.tripservice.utils;
 
 import com.google.gson.*;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.tripservice.dtos.internal.TripData;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.fileupload.FileUploadException;
@@ -9,11 +10,13 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.lang.reflect.Type;
 import java.time.Instant;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -35,43 +38,79 @@ public class JSONParser {
      * Parse JSON file thành List<TripData>
      */
     public List<TripData> parseJSON(MultipartFile file) throws FileUploadException {
-        log.info("Starting to parse JSON file: {}", file.getOriginalFilename());
-
-        try (Reader reader = new InputStreamReader(file.getInputStream())) {
-
-            Type listType = new TypeToken<List<TripData>>() {
-            }.getType();
-            List<TripData> tripDataList = gson.fromJson(reader, listType);
+        try (InputStream in = file.getInputStream()) {
+            return parseJSON(in, file.getOriginalFilename());
+        } catch (IOException e) {
+            log.error("Failed to read JSON file", e);
+            throw new FileUploadException("Failed to read JSON file: " + e.getMessage());
+        }
+    }
 
-            if (tripDataList == null || tripDataList.isEmpty()) {
-                throw new FileUploadException(
-                        "JSON file is empty or has invalid format"
-                );
+    /**
+     * Parse JSON từ InputStream (dùng cho reprocessing từ raw archive)
+     */
+    public List<TripData> parseJSON(InputStream in, String filename) throws FileUploadException {
+        List<TripData> tripDataList = new ArrayList<>();
+        parseJSON(in, filename, (sourceRow, tripData, error) -> {
+            if (tripData != null) {
+                tripDataList.add(tripData);
+            } else {
+                log.warn("Skipping invalid record {}: {}", sourceRow + 1, error);
             }
+        });
 
-            // Validate and set upload source
-            for (int i = 0; i < tripDataList.size(); i++) {
-                TripData tripData = tripDataList.get(i);
-                validateTripData(tripData, i + 1);
-                tripData.setUploadSource("JSON");
-            }
+        if (tripDataList.isEmpty()) {
+            throw new FileUploadException("No valid trip data found in JSON file");
+        }
+        log.info("Successfully parsed {} trip records from JSON", tripDataList.size());
+        return tripDataList;
+    }
 
-            log.info("Successfully parsed {} trip records from JSON", tripDataList.size());
-            return tripDataList;
+    /**
+     * Parse JSON array dạng streaming: đọc từng phần tử, map và validate rồi đẩy vào handler.
+     * Record lỗi được báo qua handler, chỉ lỗi cú pháp của cả file mới throw.
+     *
+     * @return số record đã đọc
+     */
+    public int parseJSON(InputStream in, String filename, TripRecordHandler handler) throws FileUploadException {
+        log.info("Starting to stream JSON file: {}", filename);
 
-        } catch (IOException | FileUploadException e) {
-            log.error("Failed to read JSON file", e);
-            throw new FileUploadException("Failed to read JSON file: " + e.getMessage());
-        } catch (JsonSyntaxException e) {
-            log.error("Invalid JSON syntax", e);
+        try (JsonReader reader = new JsonReader(new InputStreamReader(in))) {
+            if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                throw new FileUploadException("JSON file is empty or has invalid format");
+            }
+            reader.beginArray();
+            int sourceRow = 0;
+            while (reader.hasNext()) {
+                // Đọc trọn phần tử trước để lỗi mapping không làm lệch vị trí reader
+                JsonElement element = JsonParser.parseReader(reader);
+                try {
+                    TripData tripData = gson.fromJson(element, TripData.class);
+                    validateTripData(tripData, sourceRow + 1);
+                    tripData.setUploadSource("JSON");
+                    tripData.setSourceRow(sourceRow);
+                    handler.onRecord(sourceRow, tripData, null);
+                } catch (JsonParseException | FileUploadException e) {
+                    handler.onRecord(sourceRow, null, e.getMessage());
+                }
+                sourceRow++;
+            }
+            reader.endArray();
+            return sourceRow;
+        } catch (IOException | JsonParseException | IllegalStateException e) {
+            log.error("Invalid JSON stream", e);
             throw new FileUploadException("Invalid JSON format: " + e.getMessage());
         }
     }
 
     /**
-     * Validate TripData
+     * Validate required fields (plausibility checks nằm ở TripDataValidator)
      */
     private void validateTripData(TripData tripData, int index) throws FileUploadException {
+        if (tripData == null) {
+            throw new FileUploadException("Record " + index + " is empty");
+        }
+
         if (tripData.getVehicleId() == null) {
             throw new FileUploadException(
                     "Record " + index + ": vehicle_id is required"
@@ -90,9 +129,9 @@ public class JSONParser {
             );
         }
 
-        if (tripData.getDistanceKm() == null || tripData.getDistanceKm() <= 0) {
+        if (tripData.getDistanceKm() == null) {
             throw new FileUploadException(
-                    "Record " + index + ": distance_km must be greater than 0"
+                    "Record " + index + ": distance_km is required"
             );
         }
 
@@ -101,12 +140,6 @@ public class JSONParser {
                     "Record " + index + ": vehicle_type is required"
             );
         }
-
-        if (tripData.getEndTime().isBefore(tripData.getStartTime())) {
-            throw new FileUploadException(
-                    "Record " + index + ": end_time must be after start_time"
-            );
-        }
     }
 
     /**
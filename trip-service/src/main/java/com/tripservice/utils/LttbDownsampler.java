@@ -0,0 +1,67 @@
+package com.tripservice.utils;
+
+/**
+ * Largest-Triangle-Three-Buckets (Steinarsson, 2013): giảm số điểm của series
+ * mà vẫn giữ hình dạng khi vẽ chart
+ */
+public final class LttbDownsampler {
+
+    private LttbDownsampler() {
+    }
+
+    /**
+     * Chọn index các điểm giữ lại
+     *
+     * @param threshold - số điểm mong muốn (tối thiểu 3), nếu >= số điểm hiện có thì giữ tất cả
+     */
+    public static int[] select(long[] x, double[] y, int threshold) {
+        int n = x.length;
+        threshold = Math.max(threshold, 3);
+        if (threshold >= n) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        int[] selected = new int[threshold];
+        double bucketSize = (double) (n - 2) / (threshold - 2);
+        int a = 0;
+        selected[0] = 0;
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // Trung bình của bucket kế tiếp
+            int nextStart = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) Math.floor((bucket + 2) * bucketSize) + 1, n);
+            double avgX = 0;
+            double avgY = 0;
+            for (int j = nextStart; j < nextEnd; j++) {
+                avgX += x[j];
+                avgY += y[j];
+            }
+            int nextLength = Math.max(1, nextEnd - nextStart);
+            avgX /= nextLength;
+            avgY /= nextLength;
+
+            // Chọn điểm trong bucket hiện tại tạo tam giác lớn nhất với a và trung bình bucket sau
+            int start = (int) Math.floor(bucket * bucketSize) + 1;
+            int end = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            double ax = x[a];
+            double ay = y[a];
+            double maxArea = -1;
+            int chosen = start;
+            for (int j = start; j < end; j++) {
+                double area = Math.abs((ax - avgX) * (y[j] - ay) - (ax - x[j]) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = j;
+                }
+            }
+            selected[bucket + 1] = chosen;
+            a = chosen;
+        }
+        selected[threshold - 1] = n - 1;
+        return selected;
+    }
+}
@@ -0,0 +1,297 @@
+package com.tripservice.utils;
+
+import java.util.UUID;
+
+/**
+ * Bảng running statistics (Welford mean / variance) theo UUID key.
+ * <p>
+ * Open addressing, key lưu dạng hai mảng long (msb/lsb), mỗi key có {@code metrics}
+ * chỉ số, mỗi chỉ số gồm count / mean / m2 trong mảng primitive phẳng.
+ * <p>
+ * Ngoài tổng, mỗi chỉ số giữ phần delta (các giá trị add từ lần persist trước) để persist
+ * bằng cách merge vào giá trị trong DB (Chan et al.) thay vì ghi đè, và version của slot để
+ * chỉ xoá dirty khi không có add mới trong lúc persist.
+ * Không thread-safe, caller tự đồng bộ.
+ */
+public class OnlineStatsTable {
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private final int metrics;
+
+    private long[] keyMsb;
+    private long[] keyLsb;
+    private boolean[] used;
+    private boolean[] dirty;
+    private long[] versions;
+    private long[] counts;
+    private double[] means;
+    private double[] m2s;
+    private long[] deltaCounts;
+    private double[] deltaMeans;
+    private double[] deltaM2s;
+    private int size;
+
+    public OnlineStatsTable(int metrics, int initialCapacity) {
+        this.metrics = metrics;
+        allocate(tableSizeFor(Math.max(16, (int) (initialCapacity / LOAD_FACTOR))));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int metrics() {
+        return metrics;
+    }
+
+    /**
+     * Slot của key, -1 nếu chưa có
+     */
+    public int find(UUID key) {
+        return find(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    }
+
+    /**
+     * Như find(UUID) nhưng nhận thẳng hai nửa của UUID (không cấp phát)
+     */
+    public int find(long msb, long lsb) {
+        int mask = used.length - 1;
+        int slot = hash(msb, lsb) & mask;
+        while (used[slot]) {
+            if (keyMsb[slot] == msb && keyLsb[slot] == lsb) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Slot của key, tạo mới nếu chưa có
+     */
+    public int findOrInsert(UUID key) {
+        return findOrInsert(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    }
+
+    /**
+     * Như findOrInsert(UUID) nhưng nhận thẳng hai nửa của UUID (không cấp phát)
+     */
+    public int findOrInsert(long msb, long lsb) {
+        if (size + 1 > used.length * LOAD_FACTOR) {
+            rehash(used.length * 2);
+        }
+        int mask = used.length - 1;
+        int slot = hash(msb, lsb) & mask;
+        while (used[slot]) {
+            if (keyMsb[slot] == msb && keyLsb[slot] == lsb) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        keyMsb[slot] = msb;
+        keyLsb[slot] = lsb;
+        size++;
+        return slot;
+    }
+
+    /**
+     * Welford update một chỉ số
+     */
+    public void add(int slot, int metric, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return;
+        }
+        int i = slot * metrics + metric;
+        long n = ++counts[i];
+        double delta = value - means[i];
+        means[i] += delta / n;
+        m2s[i] += delta * (value - means[i]);
+
+        n = ++deltaCounts[i];
+        delta = value - deltaMeans[i];
+        deltaMeans[i] += delta / n;
+        deltaM2s[i] += delta * (value - deltaMeans[i]);
+
+        dirty[slot] = true;
+        versions[slot]++;
+    }
+
+    /**
+     * Z-score của value so với phân phối hiện tại; NaN nếu chưa đủ mẫu
+     */
+    public double zScore(int slot, int metric, double value, long minSamples) {
+        if (slot < 0 || Double.isNaN(value)) {
+            return Double.NaN;
+        }
+        int i = slot * metrics + metric;
+        long n = counts[i];
+        if (n < minSamples) {
+            return Double.NaN;
+        }
+        double variance = m2s[i] / (n - 1);
+        // Sàn độ lệch chuẩn để tránh chia cho ~0 khi lịch sử gần như không đổi
+        double std = Math.max(Math.sqrt(variance), Math.abs(means[i]) * 0.05 + 1e-9);
+        return (value - means[i]) / std;
+    }
+
+    public long count(int slot, int metric) {
+        return counts[slot * metrics + metric];
+    }
+
+    public double mean(int slot, int metric) {
+        return means[slot * metrics + metric];
+    }
+
+    public double m2(int slot, int metric) {
+        return m2s[slot * metrics + metric];
+    }
+
+    public long deltaCount(int slot, int metric) {
+        return deltaCounts[slot * metrics + metric];
+    }
+
+    public double deltaMean(int slot, int metric) {
+        return deltaMeans[slot * metrics + metric];
+    }
+
+    public double deltaM2(int slot, int metric) {
+        return deltaM2s[slot * metrics + metric];
+    }
+
+    /**
+     * Nạp lại state đã persist
+     */
+    public void restore(int slot, int metric, long count, double mean, double m2) {
+        int i = slot * metrics + metric;
+        counts[i] = count;
+        means[i] = mean;
+        m2s[i] = m2;
+    }
+
+    /**
+     * Sau khi delta (flushedCount / flushedMean / flushedM2) đã được merge vào DB:
+     * bỏ phần đó khỏi delta, tổng = giá trị trong DB (gồm cả đóng góp của instance khác) + delta còn lại
+     */
+    public void rebase(int slot, int metric, long count, double mean, double m2,
+                       long flushedCount, double flushedMean, double flushedM2) {
+        int i = slot * metrics + metric;
+        long remaining = deltaCounts[i] - flushedCount;
+        if (remaining <= 0) {
+            deltaCounts[i] = 0;
+            deltaMeans[i] = 0.0;
+            deltaM2s[i] = 0.0;
+        } else {
+            // Đảo của phép merge: delta hiện tại = flushed + remaining
+            long n = deltaCounts[i];
+            double remainingMean = (n * deltaMeans[i] - flushedCount * flushedMean) / remaining;
+            double d = flushedMean - remainingMean;
+            deltaM2s[i] = Math.max(0.0, deltaM2s[i] - flushedM2 - d * d * remaining * flushedCount / n);
+            deltaMeans[i] = remainingMean;
+            deltaCounts[i] = remaining;
+        }
+
+        long n = count + deltaCounts[i];
+        if (n == 0) {
+            restore(slot, metric, 0, 0.0, 0.0);
+            return;
+        }
+        double d = deltaMeans[i] - mean;
+        counts[i] = n;
+        means[i] = mean + d * deltaCounts[i] / n;
+        m2s[i] = m2 + deltaM2s[i] + d * d * count * deltaCounts[i] / n;
+    }
+
+    public UUID keyAt(int slot) {
+        return new UUID(keyMsb[slot], keyLsb[slot]);
+    }
+
+    public int capacity() {
+        return used.length;
+    }
+
+    public boolean isUsed(int slot) {
+        return used[slot];
+    }
+
+    public boolean isDirty(int slot) {
+        return dirty[slot];
+    }
+
+    public long version(int slot) {
+        return versions[slot];
+    }
+
+    /**
+     * Xoá dirty nếu slot không thay đổi từ version đã persist
+     */
+    public void clearDirty(int slot, long version) {
+        if (versions[slot] == version) {
+            dirty[slot] = false;
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldMsb = keyMsb;
+        long[] oldLsb = keyLsb;
+        boolean[] oldUsed = used;
+        boolean[] oldDirty = dirty;
+        long[] oldVersions = versions;
+        long[] oldCounts = counts;
+        double[] oldMeans = means;
+        double[] oldM2s = m2s;
+        long[] oldDeltaCounts = deltaCounts;
+        double[] oldDeltaMeans = deltaMeans;
+        double[] oldDeltaM2s = deltaM2s;
+
+        allocate(newCapacity);
+        int mask = newCapacity - 1;
+        for (int old = 0; old < oldUsed.length; old++) {
+            if (!oldUsed[old]) {
+                continue;
+            }
+            int slot = hash(oldMsb[old], oldLsb[old]) & mask;
+            while (used[slot]) {
+                slot = (slot + 1) & mask;
+            }
+            used[slot] = true;
+            dirty[slot] = oldDirty[old];
+            versions[slot] = oldVersions[old];
+            keyMsb[slot] = oldMsb[old];
+            keyLsb[slot] = oldLsb[old];
+            System.arraycopy(oldCounts, old * metrics, counts, slot * metrics, metrics);
+            System.arraycopy(oldMeans, old * metrics, means, slot * metrics, metrics);
+            System.arraycopy(oldM2s, old * metrics, m2s, slot * metrics, metrics);
+            System.arraycopy(oldDeltaCounts, old * metrics, deltaCounts, slot * metrics, metrics);
+            System.arraycopy(oldDeltaMeans, old * metrics, deltaMeans, slot * metrics, metrics);
+            System.arraycopy(oldDeltaM2s, old * metrics, deltaM2s, slot * metrics, metrics);
+        }
+    }
+
+    private void allocate(int capacity) {
+        keyMsb = new long[capacity];
+        keyLsb = new long[capacity];
+        used = new boolean[capacity];
+        dirty = new boolean[capacity];
+        versions = new long[capacity];
+        counts = new long[capacity * metrics];
+        means = new double[capacity * metrics];
+        m2s = new double[capacity * metrics];
+        deltaCounts = new long[capacity * metrics];
+        deltaMeans = new double[capacity * metrics];
+        deltaM2s = new double[capacity * metrics];
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = msb * 0x9E3779B97F4A7C15L ^ lsb;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int n = Integer.highestOneBit(capacity - 1) << 1;
+        return Math.max(16, n);
+    }
+}
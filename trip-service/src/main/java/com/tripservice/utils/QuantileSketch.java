@@ -0,0 +1,128 @@
+package com.tripservice.utils;
+
+import java.util.Arrays;
+
+/**
+ * Quantile sketch dạng log-bucket (DDSketch): giá trị v rơi vào bucket ceil(log_gamma(v)),
+ * sai số tương đối của quantile tối đa {@link #RELATIVE_ACCURACY}.
+ * <p>
+ * Khác t-digest / KLL, bucket count có thể trừ nên một điểm có thể được rút lại
+ * (tổng CO2 của user thay đổi thì bỏ giá trị cũ, thêm giá trị mới).
+ * <p>
+ * Miền giá trị [{@link #MIN_VALUE}, {@link #MAX_VALUE}], nhỏ hơn rơi vào bucket 0,
+ * lớn hơn bị kẹp vào bucket cuối. Không thread-safe.
+ */
+public class QuantileSketch {
+    public static final double RELATIVE_ACCURACY = 0.01;
+    public static final double MIN_VALUE = 1e-3;
+    public static final double MAX_VALUE = 1e7;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final int MIN_INDEX = (int) Math.ceil(Math.log(MIN_VALUE) / LOG_GAMMA);
+    private static final int MAX_INDEX = (int) Math.ceil(Math.log(MAX_VALUE) / LOG_GAMMA);
+    // Bucket 0 cho giá trị < MIN_VALUE (kể cả 0)
+    private static final int BUCKETS = MAX_INDEX - MIN_INDEX + 2;
+
+    private final long[] counts = new long[BUCKETS];
+    private long total;
+
+    public QuantileSketch() {
+    }
+
+    public QuantileSketch(QuantileSketch other) {
+        System.arraycopy(other.counts, 0, counts, 0, BUCKETS);
+        total = other.total;
+    }
+
+    /**
+     * Thêm (count > 0) hoặc rút lại (count < 0) giá trị
+     */
+    public void add(double value, long count) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        counts[bucketOf(value)] += count;
+        total += count;
+    }
+
+    public long count() {
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return total <= 0;
+    }
+
+    /**
+     * Số giá trị nằm ở bucket thấp hơn bucket của value
+     */
+    public long countBelow(double value) {
+        int bucket = bucketOf(value);
+        long below = 0;
+        for (int i = 0; i < bucket; i++) {
+            below += counts[i];
+        }
+        return below;
+    }
+
+    /**
+     * Số giá trị cùng bucket với value
+     */
+    public long countSameBucket(double value) {
+        return counts[bucketOf(value)];
+    }
+
+    /**
+     * Phần trăm giá trị nhỏ hơn value (mid-rank trong bucket), 0..100
+     */
+    public double percentileRank(double value) {
+        if (total <= 0) {
+            return Double.NaN;
+        }
+        double rank = countBelow(value) + countSameBucket(value) / 2.0;
+        return Math.max(0.0, Math.min(100.0, rank * 100.0 / total));
+    }
+
+    /**
+     * Giá trị xấp xỉ tại quantile q (0..1), NaN nếu sketch rỗng
+     */
+    public double quantile(double q) {
+        if (total <= 0) {
+            return Double.NaN;
+        }
+        long target = (long) Math.floor(Math.max(0.0, Math.min(1.0, q)) * (total - 1));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen > target) {
+                return valueOf(i);
+            }
+        }
+        return valueOf(BUCKETS - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "QuantileSketch{count=" + total + ", buckets=" + Arrays.stream(counts).filter(c -> c != 0).count() + "}";
+    }
+
+    private static int bucketOf(double value) {
+        if (value < MIN_VALUE) {
+            return 0;
+        }
+        int index = (int) Math.ceil(Math.log(Math.min(value, MAX_VALUE)) / LOG_GAMMA);
+        return Math.max(1, Math.min(BUCKETS - 1, index - MIN_INDEX + 1));
+    }
+
+    /**
+     * Giá trị đại diện của bucket (sai số tương đối <= RELATIVE_ACCURACY)
+     */
+    private static double valueOf(int bucket) {
+        if (bucket == 0) {
+            return 0.0;
+        }
+        int index = bucket + MIN_INDEX - 1;
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+}
@@ -0,0 +1,67 @@
+package com.tripservice.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Các cột trip được hỗ trợ trong file dạng bảng (CSV, Arrow).
+ * Tên cột được so khớp sau khi chuẩn hoá (lowercase, bỏ ký tự không phải chữ/số)
+ * nên "distance_km", "Distance (km)", "DistanceKm" là cùng một tên.
+ */
+public enum TripColumn {
+    VEHICLE_ID(true, "vehicle_id", "vehicle", "vin", "car_id", "device_id"),
+    START_TIME(true, "start_time", "start", "started_at", "start_at", "begin_time", "departure_time"),
+    END_TIME(true, "end_time", "end", "ended_at", "end_at", "finish_time", "arrival_time"),
+    DISTANCE_KM(true, "distance_km", "distance", "km", "trip_distance", "trip_km", "mileage_km"),
+    VEHICLE_TYPE(true, "vehicle_type", "type", "vehicle_category", "category", "vehicle_class"),
+    AVERAGE_SPEED(false, "average_speed", "avg_speed", "speed", "average_speed_kmh", "avg_speed_kmh"),
+    BATTERY_USED(false, "battery_used", "battery_used_kwh", "battery_kwh", "energy_kwh", "energy_used", "kwh"),
+    START_LOCATION(false, "start_location", "origin", "from", "start_address", "pickup_location"),
+    END_LOCATION(false, "end_location", "destination", "to", "end_address", "dropoff_location"),
+    GPS_COORDINATES(false, "gps_coordinates", "gps", "coordinates", "route", "polyline");
+
+    private static final Map<String, TripColumn> BY_ALIAS = new HashMap<>();
+
+    static {
+        for (TripColumn column : values()) {
+            for (String alias : column.aliases) {
+                BY_ALIAS.put(normalize(alias), column);
+            }
+        }
+    }
+
+    private final boolean required;
+    private final String[] aliases;
+
+    TripColumn(boolean required, String... aliases) {
+        this.required = required;
+        this.aliases = aliases;
+    }
+
+    public boolean isRequired() {
+        return required;
+    }
+
+    public String canonicalName() {
+        return aliases[0];
+    }
+
+    /**
+     * Cột ứng với tên header, null nếu không nhận diện được
+     */
+    public static TripColumn forName(String name) {
+        return name == null ? null : BY_ALIAS.get(normalize(name));
+    }
+
+    private static String normalize(String name) {
+        StringBuilder normalized = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char ch = name.charAt(i);
+            // Bỏ cả BOM ở đầu file
+            if (Character.isLetterOrDigit(ch)) {
+                normalized.append(Character.toLowerCase(ch));
+            }
+        }
+        return normalized.toString();
+    }
+}
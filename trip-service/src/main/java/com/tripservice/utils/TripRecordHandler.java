@@ -0,0 +1,23 @@
+package com.tripservice.utils;
+
+import com.tripservice.dtos.internal.TripColumnBatch;
+import com.tripservice.dtos.internal.TripData;
+
+/**
+ * Callback nhận từng record khi parse dạng streaming.
+ * Đúng một trong hai tham số data / error khác null.
+ */
+@FunctionalInterface
+public interface TripRecordHandler {
+    void onRecord(int sourceRow, TripData data, String error);
+
+    /**
+     * Nhận nguyên một batch dạng cột (reader columnar như Arrow), các row trong batch đều hợp lệ.
+     * Mặc định tách thành từng record; pipeline ingest override để đưa thẳng batch vào các stage.
+     */
+    default void onBatch(TripColumnBatch batch, String uploadSource) {
+        for (int row = 0, size = batch.size(); row < size; row++) {
+            onRecord(batch.sourceRow(row), batch.toTripData(row, uploadSource), null);
+        }
+    }
+}
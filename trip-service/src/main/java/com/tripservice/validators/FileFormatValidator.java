@@ -9,6 +9,7 @@ import java.util.List;
 public class FileFormatValidator {
     private static final List<String> CSV_EXTENSIONS = Arrays.asList(".csv", ".txt");
     private static final List<String> JSON_EXTENSIONS = Arrays.asList(".json");
+    private static final List<String> ARROW_EXTENSIONS = Arrays.asList(".arrow", ".arrows", ".feather", ".ipc");
 
     private static final List<String> CSV_MIME_TYPES = Arrays.asList(
             "text/csv",
@@ -22,6 +23,12 @@ public class FileFormatValidator {
             "text/json"
     );
 
+    private static final List<String> ARROW_MIME_TYPES = Arrays.asList(
+            "application/vnd.apache.arrow.file",
+            "application/vnd.apache.arrow.stream",
+            "application/octet-stream"
+    );
+
     /**
      * Check file extension có hợp lệ không
      */
@@ -33,6 +40,8 @@ public class FileFormatValidator {
                     .anyMatch(lowerFilename::endsWith);
             case "JSON" -> JSON_EXTENSIONS.stream()
                     .anyMatch(lowerFilename::endsWith);
+            case "ARROW" -> ARROW_EXTENSIONS.stream()
+                    .anyMatch(lowerFilename::endsWith);
             default -> false;
         };
     }
@@ -52,6 +61,8 @@ public class FileFormatValidator {
                     .anyMatch(lowerContentType::contains);
             case "JSON" -> JSON_MIME_TYPES.stream()
                     .anyMatch(lowerContentType::contains);
+            case "ARROW" -> ARROW_MIME_TYPES.stream()
+                    .anyMatch(lowerContentType::contains);
             default -> false;
         };
     }
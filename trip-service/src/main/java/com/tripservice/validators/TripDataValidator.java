@@ -1,4 +1,175 @@
 package com.tripservice.validators;
 
+import com.tripservice.constants.VehicleType;
+import com.tripservice.dtos.internal.TripColumnBatch;
+import com.tripservice.dtos.internal.TripData;
+import com.tripservice.dtos.internal.TripValidationResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Rule engine kiểm tra tính hợp lý (plausibility) của trip data.
+ * <p>
+ * Các rule được compile một lần thành mảng predicate trên các cột primitive,
+ * batch lớn được chia chunk và chạy song song. Row vi phạm chỉ bị đánh dấu
+ * bằng rule id, không throw exception.
+ */
+@Component
+@Slf4j
 public class TripDataValidator {
+    private static final double MAX_IMPLIED_SPEED_KMH = 250.0;
+    private static final long MAX_TRIP_DURATION_SECONDS = 24 * 60 * 60;
+    private static final double MAX_DISTANCE_KM = 5000.0;
+
+    private static final int CHUNK_SIZE = 4096;
+    private static final int PARALLEL_THRESHOLD = 4 * CHUNK_SIZE;
+
+    private static final byte UNKNOWN_VEHICLE = -1;
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+
+    private final Rule[] rules;
+    private final String[] ruleIds;
+
+    public TripDataValidator() {
+        this.rules = new Rule[]{
+                new Rule("MISSING_TIME", (c, i) -> c.durationSeconds[i] == Long.MIN_VALUE),
+                new Rule("END_NOT_AFTER_START", (c, i) ->
+                        c.durationSeconds[i] != Long.MIN_VALUE && c.durationSeconds[i] <= 0),
+                new Rule("NON_POSITIVE_DISTANCE", (c, i) -> !(c.distanceKm[i] > 0)),
+                new Rule("DISTANCE_TOO_LARGE", (c, i) -> c.distanceKm[i] > MAX_DISTANCE_KM),
+                new Rule("DURATION_TOO_LONG", (c, i) -> c.durationSeconds[i] > MAX_TRIP_DURATION_SECONDS),
+                new Rule("IMPLIED_SPEED_TOO_HIGH", (c, i) -> c.durationSeconds[i] > 0
+                        && c.distanceKm[i] * 3600.0 / c.durationSeconds[i] > MAX_IMPLIED_SPEED_KMH),
+                new Rule("UNKNOWN_VEHICLE_TYPE", (c, i) -> c.vehicleType[i] == UNKNOWN_VEHICLE),
+                new Rule("NEGATIVE_BATTERY_USED", (c, i) -> c.batteryKwh[i] < 0),
+                new Rule("BATTERY_USE_TOO_HIGH", (c, i) -> c.vehicleType[i] != UNKNOWN_VEHICLE
+                        && c.distanceKm[i] > 0
+                        && c.batteryKwh[i] / c.distanceKm[i] > VEHICLE_TYPES[c.vehicleType[i]].getMaxKwhPerKm()),
+                new Rule("BATTERY_USE_TOO_LOW", (c, i) -> c.vehicleType[i] != UNKNOWN_VEHICLE
+                        && c.distanceKm[i] > 0
+                        && c.batteryKwh[i] >= 0
+                        && c.batteryKwh[i] / c.distanceKm[i] < VEHICLE_TYPES[c.vehicleType[i]].getMinKwhPerKm())
+        };
+        this.ruleIds = new String[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            ruleIds[i] = rules[i].id();
+        }
+    }
+
+    /**
+     * Validate batch TripData
+     */
+    public TripValidationResult validate(List<TripData> batch) {
+        int size = batch.size();
+        Columns columns = new Columns(size);
+
+        forEachChunk(size, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                columns.load(i, batch.get(i));
+            }
+        });
+        return validate(columns, size);
+    }
+
+    /**
+     * Validate trực tiếp trên các cột primitive.
+     * batteryKwh = NaN nếu không có, durationSeconds = Long.MIN_VALUE nếu thiếu thời gian,
+     * vehicleType = ordinal của VehicleType hoặc -1 nếu không nhận diện được.
+     */
+    public TripValidationResult validate(double[] distanceKm, long[] durationSeconds,
+                                         double[] batteryKwh, byte[] vehicleType, int size) {
+        return validate(new Columns(distanceKm, durationSeconds, batteryKwh, vehicleType), size);
+    }
+
+    /**
+     * Validate batch dạng cột của pipeline ingest
+     */
+    public TripValidationResult validate(TripColumnBatch batch) {
+        return validate(batch.distanceKmColumn(), batch.durationSecondsColumn(),
+                batch.batteryUsedColumn(), batch.vehicleTypeColumn(), batch.size());
+    }
+
+    public String[] getRuleIds() {
+        return ruleIds.clone();
+    }
+
+    private TripValidationResult validate(Columns columns, int size) {
+        long[] violations = new long[size];
+        Rule[] compiled = this.rules;
+
+        forEachChunk(size, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                long mask = 0;
+                for (int r = 0; r < compiled.length; r++) {
+                    if (compiled[r].predicate().violates(columns, i)) {
+                        mask |= 1L << r;
+                    }
+                }
+                violations[i] = mask;
+            }
+        });
+
+        TripValidationResult result = new TripValidationResult(ruleIds, violations);
+        if (result.getInvalidCount() > 0) {
+            log.debug("Validation flagged {}/{} rows: {}",
+                    result.getInvalidCount(), size, result.getViolationCounts());
+        }
+        return result;
+    }
+
+    private void forEachChunk(int size, ChunkTask task) {
+        int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream stream = IntStream.range(0, chunks);
+        if (size >= PARALLEL_THRESHOLD) {
+            stream = stream.parallel();
+        }
+        stream.forEach(chunk -> task.run(chunk * CHUNK_SIZE, Math.min(size, (chunk + 1) * CHUNK_SIZE)));
+    }
+
+    @FunctionalInterface
+    private interface ChunkTask {
+        void run(int from, int to);
+    }
+
+    @FunctionalInterface
+    private interface RowPredicate {
+        boolean violates(Columns columns, int row);
+    }
+
+    private record Rule(String id, RowPredicate predicate) {
+    }
+
+    /**
+     * View dạng cột của batch
+     */
+    private static final class Columns {
+        private final double[] distanceKm;
+        private final long[] durationSeconds;
+        private final double[] batteryKwh;
+        private final byte[] vehicleType;
+
+        private Columns(int size) {
+            this(new double[size], new long[size], new double[size], new byte[size]);
+        }
+
+        private Columns(double[] distanceKm, long[] durationSeconds, double[] batteryKwh, byte[] vehicleType) {
+            this.distanceKm = distanceKm;
+            this.durationSeconds = durationSeconds;
+            this.batteryKwh = batteryKwh;
+            this.vehicleType = vehicleType;
+        }
+
+        private void load(int i, TripData data) {
+            distanceKm[i] = data.getDistanceKm() != null ? data.getDistanceKm() : Double.NaN;
+            durationSeconds[i] = data.getStartTime() != null && data.getEndTime() != null
+                    ? data.getEndTime().getEpochSecond() - data.getStartTime().getEpochSecond()
+                    : Long.MIN_VALUE;
+            batteryKwh[i] = data.getBatteryUsed() != null ? data.getBatteryUsed() : Double.NaN;
+            VehicleType type = VehicleType.fromString(data.getVehicleType());
+            vehicleType[i] = type != null ? (byte) type.ordinal() : UNKNOWN_VEHICLE;
+        }
+    }
 }
@@ -0,0 +1,397 @@
+package com.tripservice.utils;
+
+import com.tripservice.dtos.internal.TripData;
+import org.apache.commons.fileupload.FileUploadException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class ArrowParserTest {
+    private static final UUID[] VEHICLES = {
+            UUID.fromString("3f1c2a9e-5b7d-4c21-9a0e-1d2b3c4d5e6f"),
+            UUID.fromString("8a7b6c5d-4e3f-4a1b-8c9d-0e1f2a3b4c5d"),
+            UUID.fromString("00000000-0000-4000-8000-000000000001")
+    };
+    private static final String[] TYPES = {"EV", "PHEV"};
+    private static final int[] TYPE_INDEX = {0, 1, 0};
+    private static final long START = Instant.parse("2026-03-01T08:00:00Z").toEpochMilli();
+    private static final double[] DISTANCES = {12.5, 40.25, 3.0};
+    private static final Double[] SPEEDS = {42.0, null, 18.5};
+
+    private final ArrowParser parser = new ArrowParser(
+            ArrowIpcReader.DEFAULT_MAX_METADATA_BYTES, ArrowIpcReader.DEFAULT_MAX_BODY_BYTES);
+
+    @Test
+    void streamFormatRoundTrip() throws Exception {
+        List<TripData> trips = parser.parseArrow(new ByteArrayInputStream(stream(false)), "trips.arrows");
+
+        // Hai record batch: 3 row rồi 1 row, sourceRow nối tiếp qua batch
+        assertEquals(4, trips.size());
+        for (int row = 0; row < 3; row++) {
+            TripData trip = trips.get(row);
+            assertEquals(VEHICLES[row], trip.getVehicleId());
+            assertEquals(TYPES[TYPE_INDEX[row]], trip.getVehicleType());
+            assertEquals(Instant.ofEpochMilli(START + row * 3_600_000L), trip.getStartTime());
+            assertEquals(Instant.ofEpochMilli(START + row * 3_600_000L + 1_800_000L), trip.getEndTime());
+            assertEquals(DISTANCES[row], trip.getDistanceKm());
+            assertEquals(SPEEDS[row], trip.getAverageSpeed());
+            assertEquals(row, trip.getSourceRow());
+            assertEquals(ArrowParser.UPLOAD_SOURCE, trip.getUploadSource());
+        }
+        assertEquals(VEHICLES[1], trips.get(3).getVehicleId());
+        assertEquals("PHEV", trips.get(3).getVehicleType());
+        assertNull(trips.get(3).getAverageSpeed());
+        assertEquals(3, trips.get(3).getSourceRow());
+    }
+
+    @Test
+    void fileFormatReadsLikeStream() throws Exception {
+        List<TripData> fromStream = parser.parseArrow(new ByteArrayInputStream(stream(false)), "trips.arrows");
+        List<TripData> fromFile = parser.parseArrow(new ByteArrayInputStream(stream(true)), "trips.arrow");
+
+        assertEquals(fromStream, fromFile);
+    }
+
+    @Test
+    void dictionaryIndexOutsideDictionaryFailsOnlyThatRow() throws Exception {
+        List<String> errors = new ArrayList<>();
+        List<TripData> trips = new ArrayList<>();
+        int rows = parser.parseArrow(new ByteArrayInputStream(stream(false, new int[]{0, 7, 1})), "trips.arrows",
+                (sourceRow, data, error) -> {
+                    if (data != null) {
+                        trips.add(data);
+                    } else {
+                        errors.add(error);
+                    }
+                });
+
+        assertEquals(4, rows);
+        assertEquals(3, trips.size());
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).startsWith("Invalid data at row 2"), errors.get(0));
+        assertEquals("PHEV", trips.get(1).getVehicleType());
+    }
+
+    @Test
+    void truncatedInputFailsWithUploadException() {
+        byte[] full = stream(false);
+        for (int length = 0; length < full.length; length++) {
+            byte[] truncated = Arrays.copyOf(full, length);
+            try {
+                // Cắt đúng ranh giới message vẫn là stream hợp lệ, chỉ ít row hơn
+                parser.parseArrow(new ByteArrayInputStream(truncated), "trips.arrows");
+            } catch (FileUploadException expected) {
+                // ok
+            } catch (RuntimeException e) {
+                fail("truncated at " + length + " bytes escaped as " + e, e);
+            }
+        }
+    }
+
+    @Test
+    void corruptedMetadataFailsWithUploadException() {
+        byte[] full = stream(false);
+        for (int at = 0; at < full.length; at++) {
+            for (int bits : new int[]{0x01, 0x80, 0xFF}) {
+                byte[] corrupted = full.clone();
+                corrupted[at] ^= (byte) bits;
+                try {
+                    parser.parseArrow(new ByteArrayInputStream(corrupted), "trips.arrows");
+                } catch (FileUploadException expected) {
+                    // ok
+                } catch (RuntimeException | StackOverflowError | OutOfMemoryError e) {
+                    fail("byte " + at + " ^ " + bits + " escaped as " + e, e);
+                }
+            }
+        }
+    }
+
+    @Test
+    void oversizedMessageIsRejectedBeforeAllocation() {
+        ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0xFFFFFFFF).putInt(Integer.MAX_VALUE - 8);
+        FileUploadException metadata = assertThrows(FileUploadException.class,
+                () -> parser.parseArrow(new ByteArrayInputStream(header.array()), "huge.arrows"));
+        assertTrue(metadata.getMessage().contains("metadata too large"), metadata.getMessage());
+
+        ArrowParser smallBodies = new ArrowParser(ArrowIpcReader.DEFAULT_MAX_METADATA_BYTES, 16);
+        FileUploadException body = assertThrows(FileUploadException.class,
+                () -> smallBodies.parseArrow(new ByteArrayInputStream(stream(false)), "trips.arrows"));
+        assertTrue(body.getMessage().contains("body too large"), body.getMessage());
+    }
+
+    // ==================== FIXTURE ====================
+
+    private static byte[] stream(boolean fileFormat) {
+        return stream(fileFormat, TYPE_INDEX);
+    }
+
+    /**
+     * Schema, dictionary vehicle_type, batch 3 row, batch 1 row, end-of-stream
+     */
+    private static byte[] stream(boolean fileFormat, int[] typeIndex) {
+        Tbl utf8 = new Tbl();
+        Tbl timestampMillis = new Tbl((short) 1);
+        Tbl float64 = new Tbl((short) 2);
+        Tbl schema = new Tbl((short) 0, new Tables(
+                field("vehicle_id", 5, utf8, null),
+                field("vehicle_type", 5, utf8, new Tbl(0L, new Tbl(32, true))),
+                field("start_time", 10, timestampMillis, null),
+                field("end_time", 10, timestampMillis, null),
+                field("distance_km", 3, float64, null),
+                field("average_speed", 3, float64, null)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (fileFormat) {
+            out.writeBytes("ARROW1\0\0".getBytes(StandardCharsets.US_ASCII));
+        }
+        writeMessage(out, 1, schema, new byte[0]);
+
+        Body dictionary = new Body();
+        dictionary.utf8(TYPES);
+        writeMessage(out, 2, new Tbl(0L, dictionary.recordBatch(TYPES.length)), dictionary.bytes());
+
+        Body first = new Body();
+        first.utf8(Arrays.stream(VEHICLES).map(UUID::toString).toArray(String[]::new));
+        first.int32(typeIndex);
+        long[] starts = new long[3];
+        long[] ends = new long[3];
+        for (int row = 0; row < 3; row++) {
+            starts[row] = START + row * 3_600_000L;
+            ends[row] = starts[row] + 1_800_000L;
+        }
+        first.int64(starts);
+        first.int64(ends);
+        first.float64(DISTANCES);
+        first.float64(SPEEDS);
+        writeMessage(out, 3, first.recordBatch(3), first.bytes());
+
+        Body second = new Body();
+        second.utf8(VEHICLES[1].toString());
+        second.int32(new int[]{1});
+        second.int64(new long[]{START});
+        second.int64(new long[]{START + 60_000L});
+        second.float64(new double[]{1.5});
+        second.float64(new Double[]{null});
+        writeMessage(out, 3, second.recordBatch(1), second.bytes());
+
+        out.writeBytes(new byte[]{-1, -1, -1, -1, 0, 0, 0, 0});
+        if (fileFormat) {
+            // Footer không được đọc, chỉ cần đúng khung
+            out.writeBytes(new byte[8]);
+            out.writeBytes(new byte[]{8, 0, 0, 0});
+            out.writeBytes("ARROW1".getBytes(StandardCharsets.US_ASCII));
+        }
+        return out.toByteArray();
+    }
+
+    private static Tbl field(String name, int typeId, Tbl type, Tbl dictionary) {
+        return new Tbl(name, true, (byte) typeId, type, dictionary, new Tables());
+    }
+
+    private static void writeMessage(ByteArrayOutputStream out, int headerType, Tbl header, byte[] body) {
+        byte[] metadata = Flatbuffer.root(new Tbl((short) 4, (byte) headerType, header, (long) body.length));
+        int padded = (metadata.length + 7) & ~7;
+        ByteBuffer prefix = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        prefix.putInt(0xFFFFFFFF).putInt(padded);
+        out.writeBytes(prefix.array());
+        out.writeBytes(Arrays.copyOf(metadata, padded));
+        out.writeBytes(body);
+    }
+
+    /**
+     * Body của một record batch: FieldNode, Buffer (offset 8 byte) và dữ liệu little-endian
+     */
+    private static final class Body {
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        private final List<Long> nodes = new ArrayList<>();
+        private final List<Long> buffers = new ArrayList<>();
+
+        private void utf8(String... values) {
+            ByteBuffer offsets = buffer(4 * (values.length + 1));
+            ByteArrayOutputStream chars = new ByteArrayOutputStream();
+            offsets.putInt(0);
+            for (String value : values) {
+                chars.writeBytes(value.getBytes(StandardCharsets.UTF_8));
+                offsets.putInt(chars.size());
+            }
+            node(values.length, 0);
+            add(new byte[0]);
+            add(offsets.array());
+            add(chars.toByteArray());
+        }
+
+        private void int32(int[] values) {
+            ByteBuffer buffer = buffer(4 * values.length);
+            Arrays.stream(values).forEach(buffer::putInt);
+            node(values.length, 0);
+            add(new byte[0]);
+            add(buffer.array());
+        }
+
+        private void int64(long[] values) {
+            ByteBuffer buffer = buffer(8 * values.length);
+            Arrays.stream(values).forEach(buffer::putLong);
+            node(values.length, 0);
+            add(new byte[0]);
+            add(buffer.array());
+        }
+
+        private void float64(double[] values) {
+            float64(Arrays.stream(values).boxed().toArray(Double[]::new));
+        }
+
+        private void float64(Double[] values) {
+            byte[] validity = new byte[(values.length + 7) / 8];
+            ByteBuffer buffer = buffer(8 * values.length);
+            int nulls = 0;
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null) {
+                    nulls++;
+                    buffer.putDouble(0.0);
+                } else {
+                    validity[i / 8] |= (byte) (1 << (i % 8));
+                    buffer.putDouble(values[i]);
+                }
+            }
+            node(values.length, nulls);
+            add(nulls > 0 ? validity : new byte[0]);
+            add(buffer.array());
+        }
+
+        private void node(long length, long nullCount) {
+            nodes.add(length);
+            nodes.add(nullCount);
+        }
+
+        private void add(byte[] bytes) {
+            buffers.add((long) data.size());
+            buffers.add((long) bytes.length);
+            data.writeBytes(bytes);
+            data.writeBytes(new byte[(8 - bytes.length % 8) % 8]);
+        }
+
+        private Tbl recordBatch(long length) {
+            return new Tbl(length, new Structs(nodes), new Structs(buffers));
+        }
+
+        private byte[] bytes() {
+            return data.toByteArray();
+        }
+
+        private static ByteBuffer buffer(int size) {
+            return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    // ==================== FLATBUFFERS ====================
+
+    /**
+     * Table flatbuffer; slot null là field vắng mặt. Giá trị: Byte/Short/Integer/Long/Boolean,
+     * String, Tbl, Tables (vector table) hoặc Structs (vector struct 2 long)
+     */
+    private record Tbl(Object... slots) {
+    }
+
+    private record Tables(Tbl... items) {
+    }
+
+    private record Structs(List<Long> values) {
+    }
+
+    /**
+     * Ghi xuôi: vtable ngay trước table, object được trỏ tới nằm sau nên mọi uoffset đều dương
+     */
+    private static final class Flatbuffer {
+        private final ByteBuffer out = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+        private static byte[] root(Tbl table) {
+            Flatbuffer fb = new Flatbuffer();
+            fb.out.putInt(0);
+            fb.out.putInt(0, fb.table(table));
+            return Arrays.copyOf(fb.out.array(), fb.out.position());
+        }
+
+        private int table(Tbl table) {
+            Object[] slots = table.slots();
+            int vtable = out.position();
+            int vtableSize = 4 + 2 * slots.length;
+            out.position(vtable + vtableSize);
+            int position = out.position();
+            out.putInt(position - vtable);
+
+            short[] offsets = new short[slots.length];
+            List<int[]> references = new ArrayList<>();
+            for (int i = 0; i < slots.length; i++) {
+                Object value = slots[i];
+                if (value == null) {
+                    continue;
+                }
+                offsets[i] = (short) (out.position() - position);
+                if (value instanceof Byte b) {
+                    out.put(b);
+                } else if (value instanceof Short s) {
+                    out.putShort(s);
+                } else if (value instanceof Integer n) {
+                    out.putInt(n);
+                } else if (value instanceof Long l) {
+                    out.putLong(l);
+                } else if (value instanceof Boolean b) {
+                    out.put((byte) (b ? 1 : 0));
+                } else {
+                    references.add(new int[]{out.position(), i});
+                    out.putInt(0);
+                }
+            }
+            out.putShort(vtable, (short) vtableSize);
+            out.putShort(vtable + 2, (short) (out.position() - position));
+            for (int i = 0; i < slots.length; i++) {
+                out.putShort(vtable + 4 + 2 * i, offsets[i]);
+            }
+            for (int[] reference : references) {
+                int target = object(slots[reference[1]]);
+                out.putInt(reference[0], target - reference[0]);
+            }
+            return position;
+        }
+
+        private int object(Object value) {
+            int position = out.position();
+            if (value instanceof String s) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.putInt(bytes.length).put(bytes).put((byte) 0);
+            } else if (value instanceof Tbl t) {
+                return table(t);
+            } else if (value instanceof Structs structs) {
+                out.putInt(structs.values().size() / 2);
+                structs.values().forEach(out::putLong);
+            } else if (value instanceof Tables tables) {
+                Tbl[] items = tables.items();
+                out.putInt(items.length);
+                out.position(out.position() + 4 * items.length);
+                for (int i = 0; i < items.length; i++) {
+                    int at = position + 4 + 4 * i;
+                    out.putInt(at, table(items[i]) - at);
+                }
+            } else {
+                throw new IllegalArgumentException("Unsupported flatbuffer value " + value);
+            }
+            return position;
+        }
+    }
+}
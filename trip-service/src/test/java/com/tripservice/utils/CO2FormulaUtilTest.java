@@ -0,0 +1,47 @@
+package com.tripservice.utils;
+
+import com.tripservice.utils.CO2FormulaUtil.CompiledFormula;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CO2FormulaUtilTest {
+    private static final String DEFAULT_FORMULA = "distance * (ice_factor - vehicle_factor) / 1000";
+    private static final double ICE_FACTOR = 150.0;
+    private static final double[] VEHICLE_FACTORS = {50.0, 70.0, 100.0};
+
+    @Test
+    void defaultFormulaMatchesHardCodedFormula() {
+        CompiledFormula formula = CO2FormulaUtil.compile(DEFAULT_FORMULA);
+        double[] vars = CO2FormulaUtil.variables(0.0, 0.0, 0.0, 0.0, 0.0, ICE_FACTOR);
+
+        for (double vehicleFactor : VEHICLE_FACTORS) {
+            vars[CO2FormulaUtil.VEHICLE_FACTOR] = vehicleFactor;
+            // 0.01 .. 2000 km, bước 0.01 như dữ liệu upload
+            for (int hundredths = 1; hundredths <= 200_000; hundredths++) {
+                double distanceKm = hundredths / 100.0;
+                vars[CO2FormulaUtil.DISTANCE] = distanceKm;
+
+                double expected = distanceKm * (ICE_FACTOR - vehicleFactor) / 1000.0;
+                double actual = formula.evaluate(vars);
+                assertEquals(expected, actual, 0.0, () -> "distance " + distanceKm + ", factor " + vehicleFactor);
+                assertEquals(round(expected), round(actual), 0.0);
+            }
+        }
+    }
+
+    @Test
+    void divisionByConstantIsExact() {
+        double[] vars = CO2FormulaUtil.variables(17.65, 0.0, 0.0, 0.0, 50.0, ICE_FACTOR);
+
+        assertEquals(1.76, round(CO2FormulaUtil.compile(DEFAULT_FORMULA).evaluate(vars)), 0.0);
+        assertEquals(17.65 / 3, CO2FormulaUtil.compile("distance / 3").evaluate(vars), 0.0);
+    }
+
+    private static double round(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP).doubleValue();
+    }
+}